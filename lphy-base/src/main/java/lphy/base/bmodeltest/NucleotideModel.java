@@ -1,12 +1,12 @@
 package lphy.base.bmodeltest;
 
 import lphy.base.evolution.substitutionmodel.RateMatrix;
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 import java.util.Map;
 
@@ -53,15 +53,16 @@ public class NucleotideModel extends RateMatrix {
         Value<Double[]> freq = params.get(freqParamName);
         Value<Integer> modelIndex = params.get(modelParamName);
         Value<BModelSet> modelSet = params.get(modelSetParamName);
-        return new DoubleArray2DValue(bModelTest(modelSet.value(), modelIndex.value(), rates.value(), freq.value()), this);
+        return bModelTest(modelSet.value(), modelIndex.value(), rates.value(), freq.value());
     }
 
 
-    private Double[][] bModelTest(BModelSet modelSet, int modelIndex, Double[] rawRates, Double[] freqs) {
+    private RateMatrixValue bModelTest(BModelSet modelSet, int modelIndex, Double[] rawRates, Double[] freqs) {
 
         int numStates = 4;
 
-        Double[][] Q = new Double[numStates][numStates];
+        // row-major
+        double[] Q = new double[numStates * numStates];
 
         int [] model = modelSet.getModel(modelIndex);
 
@@ -74,8 +75,8 @@ public class NucleotideModel extends RateMatrix {
         int upper = 0;
         for (int i = 0; i < numStates; i++) {
             for (int j = i + 1; j < numStates; j++) {
-                Q[i][j] = relativeRates[upper] * freqs[j];
-                Q[j][i] = relativeRates[upper] * freqs[i];
+                Q[i * numStates + j] = relativeRates[upper] * freqs[j];
+                Q[j * numStates + i] = relativeRates[upper] * freqs[i];
                 upper += 1;
             }
         }
@@ -85,15 +86,13 @@ public class NucleotideModel extends RateMatrix {
             double totalRate = 0.0;
             for (int j = 0; j < numStates; j++) {
                 if (j != i) {
-                    totalRate += Q[i][j];
+                    totalRate += Q[i * numStates + j];
                 }
             }
-            Q[i][i] = -totalRate;
+            Q[i * numStates + i] = -totalRate;
         }
         // normalise rate matrix to one expected substitution per unit time
-        normalize(freqs, Q, totalRateDefault1());
-
-        return Q;
+        return normalizedValue(freqs, Q, numStates);
     }
 
     public Value<Double[]> getRates() {
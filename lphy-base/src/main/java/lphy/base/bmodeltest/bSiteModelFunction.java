@@ -1,6 +1,7 @@
 package lphy.base.bmodeltest;
 
 import lphy.base.evolution.sitemodel.SiteModel;
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.core.model.DeterministicFunction;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.Citation;
@@ -72,7 +73,13 @@ public class bSiteModelFunction extends DeterministicFunction<SiteModel> {
             proportionInvariable = doubleValue(proportionInvariableParam);
         }
 
-        SiteModel siteModel = new SiteModel(Q.value(), siteRates, proportionInvariable);
+        SiteModel siteModel;
+        // not to box the matrix
+        if (Q instanceof RateMatrixValue rateMatrixValue)
+            siteModel = new SiteModel(rateMatrixValue.getPrimitive(), rateMatrixValue.getNumStates(),
+                    siteRates, proportionInvariable);
+        else
+            siteModel = new SiteModel(Q.value(), RateMatrixValue.toPrimitive(Q), siteRates, proportionInvariable);
 
         return new Value<>(null, siteModel, this);
     }
@@ -94,12 +94,10 @@ public class BernoulliMulti extends ParametricDistribution<Boolean[]> {
         return sum;
     }
 
+    // only the successes are sampled, by skipping the failures between them
     private Boolean[] bernoulli(double p, int n) {
-        Boolean[] successes = new Boolean[n];
-        for (int i = 0; i < successes.length; i++) {
-            successes[i] = (random.nextDouble() < p);
-        }
-        return successes;
+        int[] successes = SparseBernoulli.sampleSuccesses(p, n, random);
+        return SparseBernoulli.toMask(successes, n);
     }
 
     public double logDensity(Boolean[] successes) {
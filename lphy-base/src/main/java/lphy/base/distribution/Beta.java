@@ -1,5 +1,6 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
@@ -22,7 +23,7 @@ import static lphy.base.distribution.DistributionConstants.betaParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Beta extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class Beta extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     private Value<Number> alpha;
     private Value<Number> beta;
@@ -56,6 +57,12 @@ public class Beta extends ParametricDistribution<Double> implements GenerativeDi
         return new RandomVariable<>("x", randomVariable, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = betaDistribution.sample();
+    }
+
     public double logDensity(Double d) {
         return betaDistribution.logDensity(d);
     }
@@ -1,6 +1,7 @@
 package lphy.base.distribution;
 
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.IntegerBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorInfo;
@@ -17,7 +18,7 @@ import java.util.TreeMap;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Binomial extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer> {
+public class Binomial extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer>, IntegerBatchSampler {
 
     private Value<Double> p;
     private Value<Integer> n;
@@ -44,6 +45,12 @@ public class Binomial extends ParametricDistribution<Integer> implements Generat
         return new RandomVariable<>(null, binomial.sample(), this);
     }
 
+    @Override
+    public void sampleIntegers(int[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = binomial.sample();
+    }
+
     public double density(Integer i) {
         return binomial.probability(i);
     }
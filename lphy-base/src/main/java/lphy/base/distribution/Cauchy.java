@@ -1,5 +1,6 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -21,7 +22,7 @@ import static lphy.base.distribution.DistributionConstants.scaleParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Cauchy extends ParametricDistribution<Double> {
+public class Cauchy extends ParametricDistribution<Double> implements DoubleBatchSampler {
 
     private Value<Number> median;
     private Value<Number> scale;
@@ -53,6 +54,12 @@ public class Cauchy extends ParametricDistribution<Double> {
         return new RandomVariable<>("x", x, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = cauchyDistribution.sample();
+    }
+
     @Override
     public double density(Double x) {
         return cauchyDistribution.density(x);
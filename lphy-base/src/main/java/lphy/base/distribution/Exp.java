@@ -1,6 +1,8 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -10,7 +12,6 @@ import lphy.core.model.annotation.ParameterInfo;
 import org.apache.commons.math3.distribution.ExponentialDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
-import java.util.Collections;
 import java.util.Map;
 
 import static lphy.base.distribution.DistributionConstants.meanParamName;
@@ -21,10 +22,14 @@ import static lphy.base.distribution.DistributionConstants.meanParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Exp extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class Exp extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     private Value<Number> mean;
 
+    static final ParameterSlots<Exp> SLOTS = ParameterSlots.builder(Exp.class)
+            .add(meanParamName, d -> d.mean, (d, v) -> d.mean = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     ExponentialDistribution exp;
 
     public Exp(@ParameterInfo(name= meanParamName,
@@ -52,21 +57,25 @@ public class Exp extends ParametricDistribution<Double> implements GenerativeDis
     }
 
     @Override
-    public double density(Double aDouble) {
-        return exp.logDensity(aDouble);
+    public void sampleDoubles(double[] values, int from, int to) {
+        final double mean = getMean();
+        for (int i = from; i < to; i++)
+            values[i] = - Math.log(random.nextDouble()) * mean;
     }
 
     @Override
-    public Map<String,Value> getParams() {
-        return Collections.singletonMap(meanParamName, mean);
+    public double logDensity(Double aDouble) {
+        return exp.logDensity(aDouble);
     }
 
     @Override
-    public void setParam(String paramName, Value value) {
-        if (paramName.equals(meanParamName)) mean = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
+    public Map<String, Value> getParams() {
+        return params;
+    }
 
-        super.setParam(paramName, value); // constructDistribution
+    @Override
+    protected ParameterSlots<?> getParameterSlots() {
+        return SLOTS;
     }
 
     @Override
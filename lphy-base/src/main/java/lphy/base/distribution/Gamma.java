@@ -1,6 +1,8 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -11,7 +13,6 @@ import org.apache.commons.math3.distribution.GammaDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.Map;
-import java.util.TreeMap;
 
 import static lphy.base.distribution.DistributionConstants.scaleParamName;
 import static lphy.base.distribution.DistributionConstants.shapeParamName;
@@ -22,11 +23,16 @@ import static lphy.base.distribution.DistributionConstants.shapeParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Gamma extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class Gamma extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     private Value<Number> shape;
     private Value<Number> scale;
 
+    static final ParameterSlots<Gamma> SLOTS = ParameterSlots.builder(Gamma.class)
+            .add(shapeParamName, d -> d.shape, (d, v) -> d.shape = v)
+            .add(scaleParamName, d -> d.scale, (d, v) -> d.scale = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     GammaDistribution gammaDistribution;
 
     public Gamma(@ParameterInfo(name = shapeParamName, description = "the shape of the distribution.") Value<Number> shape,
@@ -59,25 +65,25 @@ public class Gamma extends ParametricDistribution<Double> implements GenerativeD
         return new RandomVariable<>("x", x, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = gammaDistribution.sample();
+    }
+
     @Override
     public double density(Double x) {
         return gammaDistribution.density(x);
     }
 
+    @Override
     public Map<String, Value> getParams() {
-        return new TreeMap<>() {{
-            put(shapeParamName, shape);
-            put(scaleParamName, scale);
-        }};
+        return params;
     }
 
     @Override
-    public void setParam(String paramName, Value value) {
-        if (paramName.equals(shapeParamName)) shape = value;
-        else if (paramName.equals(scaleParamName)) scale = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
-
-        super.setParam(paramName, value); // constructDistribution
+    protected ParameterSlots<?> getParameterSlots() {
+        return SLOTS;
     }
 
     public Value<Number> getScale() {
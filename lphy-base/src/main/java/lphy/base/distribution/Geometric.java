@@ -1,6 +1,7 @@
 package lphy.base.distribution;
 
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.IntegerBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorCategory;
@@ -21,7 +22,7 @@ import static lphy.base.distribution.DistributionConstants.pParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Geometric extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer> {
+public class Geometric extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer>, IntegerBatchSampler {
 
     private Value<Double> p;
 
@@ -45,6 +46,12 @@ public class Geometric extends ParametricDistribution<Integer> implements Genera
        return new RandomVariable<>(null, geom.sample(), this);
     }
 
+    @Override
+    public void sampleIntegers(int[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = geom.sample();
+    }
+
     public double density(Integer i) {
         return geom.probability(i);
     }
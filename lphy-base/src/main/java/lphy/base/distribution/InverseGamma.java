@@ -1,5 +1,6 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
@@ -22,7 +23,7 @@ import static lphy.base.distribution.DistributionConstants.betaParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class InverseGamma extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class InverseGamma extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     private Value<Number> alpha;
     private Value<Number> beta;
@@ -58,6 +59,12 @@ public class InverseGamma extends ParametricDistribution<Double> implements Gene
         return new RandomVariable<>(null, x, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = 1.0 / gammaDistribution.sample();
+    }
+
     @Override
     public double density(Double x) {
         return gammaDistribution.density(x);
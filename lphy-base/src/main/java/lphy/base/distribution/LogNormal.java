@@ -1,6 +1,8 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -11,7 +13,6 @@ import org.apache.commons.math3.distribution.LogNormalDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.Map;
-import java.util.TreeMap;
 
 import static lphy.base.distribution.DistributionConstants.offsetParamName;
 
@@ -21,7 +22,7 @@ import static lphy.base.distribution.DistributionConstants.offsetParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class LogNormal extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class LogNormal extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     public static final String meanLogParamName = "meanlog";
     public static final String sdLogParamName = "sdlog";
@@ -29,6 +30,12 @@ public class LogNormal extends ParametricDistribution<Double> implements Generat
     private Value<Number> S;
     private Value<Number> offset;
 
+    static final ParameterSlots<LogNormal> SLOTS = ParameterSlots.builder(LogNormal.class)
+            .add(meanLogParamName, d -> d.M, (d, v) -> d.M = v)
+            .add(sdLogParamName, d -> d.S, (d, v) -> d.S = v)
+            .add(offsetParamName, d -> d.offset, (d, v) -> d.offset = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     LogNormalDistribution logNormalDistribution;
 
     public LogNormal(@ParameterInfo(name = meanLogParamName, narrativeName = "mean in log space", description = "the mean of the distribution on the log scale.") Value<Number> M,
@@ -59,6 +66,13 @@ public class LogNormal extends ParametricDistribution<Double> implements Generat
         return new RandomVariable<>(null, result, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        final double c = C();
+        for (int i = from; i < to; i++)
+            values[i] = logNormalDistribution.sample() + c;
+    }
+
     // default offset=0
     private double C() {
         double C = 0;
@@ -73,22 +87,14 @@ public class LogNormal extends ParametricDistribution<Double> implements Generat
         return logNormalDistribution.logDensity(x-C());
     }
 
+    @Override
     public Map<String, Value> getParams() {
-        return new TreeMap<>() {{
-            put(meanLogParamName, M);
-            put(sdLogParamName, S);
-            if (offset != null) put(offsetParamName, offset); // optional
-        }};
+        return params;
     }
 
     @Override
-    public void setParam(String paramName, Value value) {
-        if (paramName.equals(meanLogParamName)) M = value;
-        else if (paramName.equals(sdLogParamName)) S = value;
-        else if (paramName.equals(offsetParamName)) offset = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
-
-        super.setParam(paramName, value); // constructDistribution
+    protected ParameterSlots<?> getParameterSlots() {
+        return SLOTS;
     }
 
     public Value<Number> getMeanLog() {
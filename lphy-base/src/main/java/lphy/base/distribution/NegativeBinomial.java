@@ -1,6 +1,7 @@
 package lphy.base.distribution;
 
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.IntegerBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorCategory;
@@ -19,7 +20,7 @@ import static lphy.base.distribution.DistributionConstants.*;
  * @see org.apache.commons.math3.distribution.PascalDistribution
  * @author Walter Xie
  */
-public class NegativeBinomial extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer> {
+public class NegativeBinomial extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer>, IntegerBatchSampler {
 
     private Value<Double> p;
     private Value<Integer> r;
@@ -47,6 +48,12 @@ public class NegativeBinomial extends ParametricDistribution<Integer> implements
         return new RandomVariable<>(null, pascalDist.sample(), this);
     }
 
+    @Override
+    public void sampleIntegers(int[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = pascalDist.sample();
+    }
+
     public double density(Integer i) {
         return pascalDist.probability(i);
     }
@@ -1,6 +1,8 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -12,7 +14,6 @@ import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.Map;
-import java.util.TreeMap;
 
 import static lphy.base.distribution.DistributionConstants.meanParamName;
 import static lphy.base.distribution.DistributionConstants.sdParamName;
@@ -23,11 +24,16 @@ import static lphy.base.distribution.DistributionConstants.sdParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Normal extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class Normal extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     private Value<Number> mean;
     private Value<Number> sd;
 
+    static final ParameterSlots<Normal> SLOTS = ParameterSlots.builder(Normal.class)
+            .add(meanParamName, d -> d.mean, (d, v) -> d.mean = v)
+            .add(sdParamName, d -> d.sd, (d, v) -> d.sd = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     NormalDistribution normalDistribution;
 
     public Normal(@ParameterInfo(name = "mean", description = "the mean of the distribution.") Value<Number> mean,
@@ -57,24 +63,25 @@ public class Normal extends ParametricDistribution<Double> implements Generative
         return new RandomVariable<>("x", x, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = normalDistribution.sample();
+    }
+
     @Override
     public double density(Double x) {
         return normalDistribution.density(x);
     }
 
+    @Override
     public Map<String, Value> getParams() {
-        return new TreeMap<>() {{
-            put(meanParamName, mean);
-            put(sdParamName, sd);
-        }};
+        return params;
     }
 
-    public void setParam(String paramName, Value value) {
-        if (paramName.equals(meanParamName)) mean = value;
-        else if (paramName.equals(sdParamName)) sd = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
-
-        super.setParam(paramName, value); // constructDistribution
+    @Override
+    protected ParameterSlots<?> getParameterSlots() {
+        return SLOTS;
     }
 
     public Value<Number> getMean() {
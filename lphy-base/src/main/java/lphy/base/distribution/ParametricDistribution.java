@@ -2,6 +2,7 @@ package lphy.base.distribution;
 
 import lphy.core.model.GenerativeDistribution;
 import lphy.core.model.Generator;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.Value;
 import lphy.core.simulator.RandomUtils;
 import org.apache.commons.math3.random.RandomGenerator;
@@ -47,11 +48,41 @@ public abstract class ParametricDistribution<T> implements GenerativeDistributio
      */
     @Override
     public void setParam(String paramName, Value<?> value) {
-        GenerativeDistribution.super.setParam(paramName, value);
+        ParameterSlots<?> slots = getParameterSlots();
+        if (slots != null)
+            slots.set(this, slots.slotOf(paramName), value);
+        else
+            GenerativeDistribution.super.setParam(paramName, value);
 
         constructDistribution(random);
     }
 
+    /**
+     * Set the parameter by slot index without looking up its name,
+     * if the child class provides {@link #getParameterSlots()}.
+     */
+    @Override
+    public void setParam(int slot, Value<?> value) {
+        ParameterSlots<?> slots = getParameterSlots();
+        if (slots == null) {
+            GenerativeDistribution.super.setParam(slot, value);
+            return;
+        }
+        slots.set(this, slot, value);
+
+        constructDistribution(random);
+    }
+
+    /**
+     * The child class keeping parameters in {@link ParameterSlots} should overwrite this,
+     * and return the cached {@link ParameterSlots#view(lphy.core.model.Generator)} in getParams(),
+     * then it does not need to implement setParam() method.
+     * @return the parameter slots of this class, or null by default to use the setters.
+     */
+    protected ParameterSlots<?> getParameterSlots() {
+        return null;
+    }
+
     public String toString() {
         return getName();
     }
@@ -1,6 +1,8 @@
 package lphy.base.distribution;
 
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.ParameterSlots;
+import lphy.core.model.IntegerBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -12,7 +14,6 @@ import org.apache.commons.math3.distribution.PoissonDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.Map;
-import java.util.TreeMap;
 
 import static lphy.base.distribution.DistributionConstants.offsetParamName;
 
@@ -23,7 +24,7 @@ import static lphy.base.distribution.DistributionConstants.offsetParamName;
  * @author Alexei Drummond
  * @author Walter Xie
  */
-public class Poisson extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer> {
+public class Poisson extends ParametricDistribution<Integer> implements GenerativeDistribution1D<Integer>, IntegerBatchSampler {
 
     private static final String lambdaParamName = "lambda";
     private static final String minParamName = "min";
@@ -33,6 +34,13 @@ public class Poisson extends ParametricDistribution<Integer> implements Generati
     private Value<Integer> max;
     private Value<Integer> offset;
 
+    static final ParameterSlots<Poisson> SLOTS = ParameterSlots.builder(Poisson.class)
+            .add(lambdaParamName, d -> d.lambda, (d, v) -> d.lambda = v)
+            .add(minParamName, d -> d.min, (d, v) -> d.min = v)
+            .add(maxParamName, d -> d.max, (d, v) -> d.max = v)
+            .add(offsetParamName, d -> d.offset, (d, v) -> d.offset = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     PoissonDistribution poisson;
 
     static final int MAX_TRIES = 10000;
@@ -80,9 +88,20 @@ public class Poisson extends ParametricDistribution<Integer> implements Generati
 
         // constructDistribution() only required in constructor and setParam
 
-        int minimum = min();
-        int maximum = max();
+        int val = sampleInt(min(), max());
+
+        return new RandomVariable<>(null, val, this);
+    }
+
+    @Override
+    public void sampleIntegers(int[] values, int from, int to) {
+        final int minimum = min();
+        final int maximum = max();
+        for (int i = from; i < to; i++)
+            values[i] = sampleInt(minimum, maximum);
+    }
 
+    private int sampleInt(int minimum, int maximum) {
         int val = -1;
         int count = 0;
         while (val < minimum || val > maximum) {
@@ -92,8 +111,7 @@ public class Poisson extends ParametricDistribution<Integer> implements Generati
                 throw new RuntimeException("Failed to draw conditional Poisson random variable after " + MAX_TRIES + " attempts.");
             }
         }
-
-        return new RandomVariable<>(null, val, this);
+        return val;
     }
 
     private int C() {
@@ -121,23 +139,13 @@ public class Poisson extends ParametricDistribution<Integer> implements Generati
     }
 
     @Override
-    public Map<String,Value> getParams() {
-        return new TreeMap<>() {{
-            put(lambdaParamName, lambda);
-            if (min != null) put(minParamName, min);
-            if (max != null) put(maxParamName, max);
-            if (offset != null) put(offsetParamName, offset);
-        }};    }
+    public Map<String, Value> getParams() {
+        return params;
+    }
 
     @Override
-    public void setParam(String paramName, Value value) {
-        if (paramName.equals(lambdaParamName)) lambda = value;
-        else if (paramName.equals(minParamName)) min = value;
-        else if (paramName.equals(maxParamName)) max = value;
-        else if (paramName.equals(offsetParamName)) offset = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
-
-        super.setParam(paramName, value); // constructDistribution
+    protected ParameterSlots<?> getParameterSlots() {
+        return SLOTS;
     }
 
 //    public void setLambda(double p) {
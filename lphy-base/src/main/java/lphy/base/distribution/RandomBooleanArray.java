@@ -7,8 +7,11 @@ import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
 import lphy.core.simulator.RandomUtils;
+import org.apache.commons.math3.random.RandomGeneratorFactory;
 
-import java.util.*;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 
 public class RandomBooleanArray implements GenerativeDistribution<Boolean[]> {
 
@@ -32,8 +35,6 @@ public class RandomBooleanArray implements GenerativeDistribution<Boolean[]> {
             description="Samples a random boolean array of given length and given hamming weight. " +
                     "The hamming weight is the number of true values in the array and must be less than or equal to the length.")
     public RandomVariable<Boolean[]> sample() {
-        List<Boolean> bools = new ArrayList<>();
-
         int weight = hammingWeight.value();
 
         if (weight > length.value()) {
@@ -41,17 +42,12 @@ public class RandomBooleanArray implements GenerativeDistribution<Boolean[]> {
             System.err.println("WARNING: hammingWeight was greater than length in " + this.getClass().getSimpleName() + "! Will produce an array of true values.");
         }
 
-        for (int i = 0; i < weight; i++) {
-            bools.add(true);
-        }
-        while (bools.size() < length.value()) {
-            bools.add(false);
-        }
-
-        Collections.shuffle(bools, random);
-        Boolean[] array = new Boolean[bools.size()];
+        // sample the positions of true values, instead of shuffling the whole array
+        int[] indices = SparseBernoulli.sampleIndices(weight, length.value(),
+                RandomGeneratorFactory.createRandomGenerator(random));
+        Boolean[] array = SparseBernoulli.toMask(indices, length.value());
 
-        return new RandomVariable<>("x", bools.toArray(array), this);
+        return new RandomVariable<>("x", array, this);
     }
 
     public Map<String, Value> getParams() {
@@ -0,0 +1,123 @@
+package lphy.base.distribution;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The utils to sample the sparse outcomes of Bernoulli trials as the indices of successes,
+ * so that the cost is proportional to the number of successes rather than the number of trials.
+ * The gaps between successes are sampled from the geometric distribution,
+ * and the trials are never visited one by one.
+ * When the probability of success is greater than 0.5, the failures are sampled instead.
+ */
+public final class SparseBernoulli {
+
+    private SparseBernoulli() { }
+
+    /**
+     * Sample the indices of successes from n iid Bernoulli trials.
+     * @param p       the probability of success.
+     * @param n       the number of trials.
+     * @param random  the random number generator.
+     * @return  the sorted indices of successes in [0, n).
+     */
+    public static int[] sampleSuccesses(double p, int n, RandomGenerator random) {
+        if (n < 0)
+            throw new IllegalArgumentException("The number of trials must be non-negative ! n = " + n);
+        if (!(p > 0.0) || n == 0)
+            return new int[0];
+        if (p >= 1.0)
+            return allIndices(n);
+        if (p > 0.5)
+            return complement(geometricSkips(1.0 - p, n, random), n);
+        return geometricSkips(p, n, random);
+    }
+
+    /**
+     * Sample the indices of k successes uniformly from n trials without replacement,
+     * which is the boolean array of given length and hamming weight.
+     * @param k       the number of successes, which is truncated to n.
+     * @param n       the number of trials.
+     * @param random  the random number generator.
+     * @return  the sorted indices of successes in [0, n).
+     */
+    public static int[] sampleIndices(int k, int n, RandomGenerator random) {
+        if (n < 0 || k < 0)
+            throw new IllegalArgumentException("The number of trials and successes must be non-negative ! n = " +
+                    n + ", k = " + k);
+        if (k >= n)
+            return allIndices(n);
+        if (k > n / 2)
+            return complement(floyd(n - k, n, random), n);
+        return floyd(k, n, random);
+    }
+
+    /**
+     * @param indices  the sorted indices of successes.
+     * @param n        the number of trials.
+     * @return  the boolean array of length n, where the indices are true.
+     */
+    public static Boolean[] toMask(int[] indices, int n) {
+        Boolean[] mask = new Boolean[n];
+        Arrays.fill(mask, Boolean.FALSE);
+        for (int i : indices)
+            mask[i] = Boolean.TRUE;
+        return mask;
+    }
+
+    // the number of failures before the next success is floor(log(U) / log(1-p))
+    private static int[] geometricSkips(double p, int n, RandomGenerator random) {
+        final double log1mp = Math.log1p(-p);
+        // expected number of successes plus a few sd
+        int[] indices = new int[(int) Math.min(n, n * p + 4 * Math.sqrt(n * p) + 16)];
+        int k = 0;
+        long i = -1;
+        while (true) {
+            // U in (0, 1] to avoid log(0)
+            double u = 1.0 - random.nextDouble();
+            i += 1 + (long) Math.floor(Math.log(u) / log1mp);
+            if (i >= n) break;
+            if (k == indices.length)
+                indices = Arrays.copyOf(indices, Math.min(n, indices.length * 2));
+            indices[k++] = (int) i;
+        }
+        return Arrays.copyOf(indices, k);
+    }
+
+    // Floyd's algorithm samples k distinct indices using k random numbers
+    private static int[] floyd(int k, int n, RandomGenerator random) {
+        Set<Integer> chosen = new HashSet<>(Math.max(16, k * 2));
+        int[] indices = new int[k];
+        for (int j = n - k, m = 0; j < n; j++, m++) {
+            int t = random.nextInt(j + 1);
+            if (!chosen.add(t)) {
+                t = j;
+                chosen.add(t);
+            }
+            indices[m] = t;
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    private static int[] allIndices(int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++)
+            indices[i] = i;
+        return indices;
+    }
+
+    // the indices in [0, n) not in the sorted indices
+    private static int[] complement(int[] sorted, int n) {
+        int[] other = new int[n - sorted.length];
+        int k = 0, s = 0;
+        for (int i = 0; i < n; i++) {
+            if (s < sorted.length && sorted[s] == i) s++;
+            else other[k++] = i;
+        }
+        return other;
+    }
+}
@@ -1,6 +1,8 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.GenerativeDistribution1D;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -10,7 +12,6 @@ import lphy.core.model.annotation.ParameterInfo;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.Map;
-import java.util.TreeMap;
 
 import static lphy.base.distribution.DistributionConstants.lowerParamName;
 import static lphy.base.distribution.DistributionConstants.upperParamName;
@@ -18,11 +19,16 @@ import static lphy.base.distribution.DistributionConstants.upperParamName;
 /**
  * Created by Alexei Drummond on 18/12/19.
  */
-public class Uniform extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double> {
+public class Uniform extends ParametricDistribution<Double> implements GenerativeDistribution1D<Double>, DoubleBatchSampler {
 
     private Value<Number> lower;
     private Value<Number> upper;
 
+    static final ParameterSlots<Uniform> SLOTS = ParameterSlots.builder(Uniform.class)
+            .add(lowerParamName, d -> d.lower, (d, v) -> d.lower = v)
+            .add(upperParamName, d -> d.upper, (d, v) -> d.upper = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     public Uniform(@ParameterInfo(name = DistributionConstants.lowerParamName, description = "the lower bound of the uniform distribution.") Value<Number> lower,
                    @ParameterInfo(name = DistributionConstants.upperParamName, description = "the upper bound of the uniform distribution.") Value<Number> upper) {
         super();
@@ -48,6 +54,14 @@ public class Uniform extends ParametricDistribution<Double> implements Generativ
         return new RandomVariable<Double>(null, x, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        final double l = ValueUtils.doubleValue(lower);
+        final double u = ValueUtils.doubleValue(upper);
+        for (int i = from; i < to; i++)
+            values[i] = random.nextDouble() * (u - l) + l;
+    }
+
     public double logDensity(Double x) {
         if (x < ValueUtils.doubleValue(lower) || x > ValueUtils.doubleValue(upper)) return Double.NEGATIVE_INFINITY;
         return Math.log(1.0) - Math.log(ValueUtils.doubleValue(upper) - ValueUtils.doubleValue(lower));
@@ -58,20 +72,14 @@ public class Uniform extends ParametricDistribution<Double> implements Generativ
         return 1.0 / (ValueUtils.doubleValue(upper) - ValueUtils.doubleValue(lower));
     }
 
+    @Override
     public Map<String, Value> getParams() {
-        return new TreeMap<>() {{
-            put(DistributionConstants.lowerParamName, lower);
-            put(DistributionConstants.upperParamName, upper);
-        }};
+        return params;
     }
 
     @Override
-    public void setParam(String paramName, Value value) {
-        if (paramName.equals(lowerParamName)) lower = value;
-        else if (paramName.equals(upperParamName)) upper = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
-
-        super.setParam(paramName, value); // constructDistribution
+    protected ParameterSlots<?> getParameterSlots() {
+        return SLOTS;
     }
 
     private static final Double[] domainBounds = {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
@@ -1,5 +1,6 @@
 package lphy.base.distribution;
 
+import lphy.core.model.IntegerBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorCategory;
@@ -16,7 +17,7 @@ import static lphy.base.distribution.DistributionConstants.upperParamName;
 /**
  * Created by Alexei Drummond on 18/12/19.
  */
-public class UniformDiscrete extends ParametricDistribution<Integer> {
+public class UniformDiscrete extends ParametricDistribution<Integer> implements IntegerBatchSampler {
 
     private Value<Integer> lower;
     private Value<Integer> upper;
@@ -44,6 +45,14 @@ public class UniformDiscrete extends ParametricDistribution<Integer> {
         return new RandomVariable<>(null, x, this);
     }
 
+    @Override
+    public void sampleIntegers(int[] values, int from, int to) {
+        final int l = lower.value();
+        final int u = upper.value();
+        for (int i = from; i < to; i++)
+            values[i] = random.nextInt(u - l + 1) + l;
+    }
+
     public double logDensity(Integer x) {
         if (x < lower.value() || x > upper.value()) return Double.NEGATIVE_INFINITY;
         return Math.log(1.0) - Math.log(upper.value() - lower.value());
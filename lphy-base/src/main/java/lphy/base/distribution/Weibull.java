@@ -1,5 +1,6 @@
 package lphy.base.distribution;
 
+import lphy.core.model.DoubleBatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -21,7 +22,7 @@ import static lphy.base.distribution.DistributionConstants.betaParamName;
  * @author Walter Xie
  * @see WeibullDistribution
  */
-public class Weibull extends ParametricDistribution<Double> {
+public class Weibull extends ParametricDistribution<Double> implements DoubleBatchSampler {
 
     private Value<Number> alpha;
     private Value<Number> beta;
@@ -52,6 +53,12 @@ public class Weibull extends ParametricDistribution<Double> {
         return new RandomVariable<>("x", randomVariable, this);
     }
 
+    @Override
+    public void sampleDoubles(double[] values, int from, int to) {
+        for (int i = from; i < to; i++)
+            values[i] = weibullDistribution.sample();
+    }
+
     public double logDensity(Double d) {
         return weibullDistribution.logDensity(d);
     }
@@ -1,8 +1,8 @@
 package lphy.base.evolution;
 
 import jebl.evolution.sequences.Nucleotides;
-import lphy.base.distribution.BernoulliMulti;
 import lphy.base.distribution.ParametricDistribution;
+import lphy.base.distribution.SparseBernoulli;
 import lphy.base.distribution.UniformDiscrete;
 import lphy.base.evolution.alignment.Alignment;
 import lphy.base.evolution.datatype.Variant;
@@ -78,42 +78,30 @@ public class SNPSampler extends ParametricDistribution<Variant[]> {
         List<Variant> snpList = new ArrayList<>();
 
         int repeats =  alignment.nchar();
-        Boolean[] snp_mask = sampleSites(p, repeats);
-
-        List<Integer> sites = new ArrayList<>();
-
-        for (int i = 0; i < snp_mask.length; i++){
-            if (snp_mask[i]){
-                sites.add(i);
-            }
-        }
+        // the sorted positions of SNPs, whose cost is proportional to the number of SNPs rather than sites
+        int[] sites = sampleSites(p, repeats);
 
         String taxaName = alignment.getTaxonName(0);
 
         // assume all snps are heterozygous snps
-        for (int i = 0; i < snp_mask.length; i++) {
-            if (snp_mask[i]) {
-                int position = i;
-                int ref = getAmbiguousStateIndex(alignment.getState(0,i));
-                int alt = getRandomCanonicalState(ref);
-                String genotype = inferGenotype(ref,alt);
-                Variant snp = new Variant(taxaName, position, ref, alt, genotype);
-                snpList.add(snp);
-            }
+        for (int position : sites) {
+            int ref = getAmbiguousStateIndex(alignment.getState(0,position));
+            int alt = getRandomCanonicalState(ref);
+            String genotype = inferGenotype(ref,alt);
+            Variant snp = new Variant(taxaName, position, ref, alt, genotype);
+            snpList.add(snp);
         }
 
         // check if non-ref snps are appearing with r
         // if r == 0, then skip the checking; if r != 0, change variants to non-ref snps
         if (r.doubleValue() != 0){
-            // get array for true=non-ref SNP
+            // get indices of snpList for non-ref SNP
             double prob = 1 / (1 + r.doubleValue());
-            Boolean[] hSNP_mask = sampleSites(prob, sites.size());
+            int[] nonRefSNPs = sampleSites(prob, sites.length);
             // modify the snpList if the site is non-ref SNP
-            for (int i = 0; i < hSNP_mask.length; i++) {
-                if (hSNP_mask[i]){
-                    Variant nonRefSnp = snpList.get(i);
-                    nonRefSnp.setGenotype("1|1");
-                }
+            for (int i : nonRefSNPs) {
+                Variant nonRefSnp = snpList.get(i);
+                nonRefSnp.setGenotype("1|1");
             }
 
         }
@@ -121,10 +109,8 @@ public class SNPSampler extends ParametricDistribution<Variant[]> {
         return new RandomVariable<>(null, snpList.toArray(new Variant[0]), this);
     }
 
-    private static Boolean[] sampleSites(Number p, int repeats) {
-        BernoulliMulti bm = new BernoulliMulti(new Value<>("id", p.doubleValue()), new Value<>("id", repeats), null);
-        Boolean[] snp_mask = bm.sample().value();
-        return snp_mask;
+    private int[] sampleSites(Number p, int repeats) {
+        return SparseBernoulli.sampleSuccesses(p.doubleValue(), repeats, random);
     }
 
     /**
@@ -69,25 +69,62 @@ public class ErrorModel implements GenerativeDistribution<Alignment> {
         double a = alpha.value();
         double b = beta.value();
 
-        for (int i = 0; i < newAlignment.ntaxa(); i++) {
-            for (int j = 0; j < newAlignment.nchar(); j++) {
-                newAlignment.setState(i, j, error(original.getState(i, j), a, b));
+        final int ntaxa = newAlignment.ntaxa();
+        final int nchar = newAlignment.nchar();
+        // if the error probability of a state is greater than 0.5, all its cells are given errors when copied,
+        // and the cells without errors are drawn instead, so the probability to draw is min(p, 1-p)
+        final boolean flip0 = a > 0.5;
+        final boolean flip1 = b > 0.5;
+        final double p0 = flip0 ? 1.0 - a : a;
+        final double p1 = flip1 ? 1.0 - b : b;
+        copyStates(original, newAlignment, flip0, flip1);
+
+        double maxP = Math.max(p0, p1);
+        if (maxP > 0.0) {
+            // the outcomes are rare, so only visit the candidate cells sampled by geometric skips with maxP,
+            // and then accept the outcome with the probability of its own state divided by maxP
+            final double log1mp = Math.log1p(-maxP);
+            final long size = (long) ntaxa * nchar;
+            long k = -1;
+            while (true) {
+                k += 1 + (long) Math.floor(Math.log(1.0 - random.nextDouble()) / log1mp);
+                if (k >= size) break;
+                int i = (int) (k / nchar);
+                int j = (int) (k % nchar);
+                int raw = original.getState(i, j);
+                int state = raw == 0 ? 0 : 1;
+                double p = state == 0 ? p0 : p1;
+                if (p >= maxP || random.nextDouble() * maxP < p) {
+                    // the error of a flipped state is drawn not to happen
+                    boolean flipped = state == 0 ? flip0 : flip1;
+                    newAlignment.alignment[i][j] = flipped ? raw : 1 - state;
+                }
             }
         }
 
         return new RandomVariable<>("D", newAlignment, this);
     }
 
-    private int error(int state, double alpha, double beta) {
-
-        double U = random.nextDouble();
-        switch (state) {
-            case 0:
-                if (U < alpha) return 1;
-                return 0;
-            case 1: default:
-                if (U < beta) return 0;
-                return 1;
+    /**
+     * Copy the states, and give errors to all cells of the flipped states.
+     * A state other than 0, such as a gap, is treated as 1 when it is given an error, otherwise it is kept.
+     * The rows of a {@link SimpleAlignment} are copied at once, if no state is flipped.
+     */
+    private static void copyStates(Alignment original, SimpleAlignment newAlignment, boolean flip0, boolean flip1) {
+        final int nchar = newAlignment.nchar();
+        for (int i = 0; i < newAlignment.ntaxa(); i++) {
+            int[] row = newAlignment.alignment[i];
+            if (!flip0 && !flip1 && original instanceof SimpleAlignment simpleAlignment) {
+                System.arraycopy(simpleAlignment.alignment[i], 0, row, 0, nchar);
+            } else {
+                for (int j = 0; j < nchar; j++) {
+                    int raw = original.getState(i, j);
+                    if (raw == 0)
+                        row[j] = flip0 ? 1 : 0;
+                    else
+                        row[j] = flip1 ? 0 : raw;
+                }
+            }
         }
     }
 }
@@ -55,6 +55,34 @@ public class MetaDataAlignment extends SimpleAlignment implements NarrativeName
         super(taxa, nchar, sequenceType);
     }
 
+    /**
+     * @see SimpleAlignment#SimpleAlignment(Taxa, int[][], SequenceType)
+     */
+    public MetaDataAlignment(Taxa taxa, int[][] states, SequenceType sequenceType) {
+        super(taxa, states, sequenceType);
+    }
+
+
+    /**
+     * Copy constructor, which copies the taxa, states and charsets,
+     * so that the copy can be changed without changing the source.
+     * @param source  the alignment to copy
+     */
+    public MetaDataAlignment(MetaDataAlignment source) {
+        super(source);
+        if (source.charsetMap != null) {
+            charsetMap = new LinkedHashMap<>();
+            // CharSetBlock is immutable
+            for (Map.Entry<String, List<CharSetBlock>> entry : source.charsetMap.entrySet())
+                charsetMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        minAge = source.minAge;
+        maxAge = source.maxAge;
+        chronoUnit = source.chronoUnit;
+        ageDirection = source.ageDirection;
+        ageRegxStr = source.ageRegxStr;
+        spRegxStr = source.spRegxStr;
+    }
 
     //*** ages ***//
 
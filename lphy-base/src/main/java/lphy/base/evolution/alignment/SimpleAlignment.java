@@ -3,6 +3,7 @@ package lphy.base.evolution.alignment;
 import jebl.evolution.sequences.SequenceType;
 import jebl.evolution.sequences.State;
 import lphy.base.evolution.Taxa;
+import lphy.base.evolution.Taxon;
 import lphy.core.model.NarrativeName;
 
 import java.util.Arrays;
@@ -36,6 +37,48 @@ public class SimpleAlignment extends AbstractAlignment implements NarrativeName
         this.alignment = new int[ntaxa()][nchar];
     }
 
+    /**
+     * for imported alignment, which takes the states without copying them.
+     * @param taxa    {@link Taxa}, which has the same order as the rows of states.
+     * @param states  the states in integer, where rows are taxa and columns are sites.
+     * @param sequenceType  {@link SequenceType}
+     */
+    public SimpleAlignment(Taxa taxa, int[][] states, SequenceType sequenceType) {
+        super(taxa, states.length > 0 ? states[0].length : 0, sequenceType);
+        if (states.length != ntaxa())
+            throw new IllegalArgumentException("The number of sequences " + states.length +
+                    " != the number of taxa " + ntaxa());
+        for (int i = 0; i < states.length; i++) {
+            if (states[i].length != nchar)
+                throw new IllegalArgumentException("Sequence " + i + " has different length ! Alignment is required.");
+        }
+        this.alignment = states;
+    }
+
+    /**
+     * Copy constructor, which copies the taxa and states,
+     * so that the copy can be changed without changing the source.
+     * @param source  the alignment to copy
+     */
+    public SimpleAlignment(SimpleAlignment source) {
+        this(copyTaxa(source.getTaxa()), copyStates(source.alignment), source.getSequenceType());
+    }
+
+    private static Taxa copyTaxa(Taxa taxa) {
+        Taxon[] taxonArray = taxa.getTaxonArray();
+        Taxon[] copy = new Taxon[taxonArray.length];
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = new Taxon(taxonArray[i].getName(), taxonArray[i].getSpecies(), taxonArray[i].getAge());
+        return Taxa.createTaxa(copy);
+    }
+
+    private static int[][] copyStates(int[][] states) {
+        int[][] copy = new int[states.length][];
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = states[i].clone();
+        return copy;
+    }
+
     public SimpleAlignment(int nchar, Alignment source) {
         super(nchar, source);
         alignment = new int[ntaxa()][nchar];
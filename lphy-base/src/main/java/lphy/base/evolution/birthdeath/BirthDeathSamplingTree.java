@@ -1,6 +1,7 @@
 package lphy.base.evolution.birthdeath;
 
 import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
 import lphy.core.model.GenerativeDistribution;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
@@ -9,15 +10,26 @@ import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
 import lphy.core.simulator.RandomUtils;
+import lphy.core.model.ValueUtils;
 import org.apache.commons.math3.random.RandomGenerator;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import static lphy.base.evolution.birthdeath.BirthDeathConstants.*;
 
 /**
- * A Birth-death tree generative distribution
+ * A Birth-death tree generative distribution.
+ * The reconstructed tree of sampled extant taxa is simulated directly as a coalescent point process
+ * (Lambert and Stadler 2013), instead of simulating the full tree including extinct lineages
+ * and then pruning it, so that the cost is proportional to the number of sampled tips.
+ * Each of the two lineages starting at the root is a coalescent point process with the stem age at root age,
+ * and the tree is conditioned on at least one sampled tip. If only one lineage has sampled descendants,
+ * the root of the reconstructed tree is younger than the root age, the same as pruning the full tree.
  */
 @Citation(value="Tanja Stadler, Roger Kouyos, ..., Sebastian Bonhoeffer, " +
         "Estimating the Basic Reproductive Number from Viral Sequence Data, " +
@@ -54,13 +66,117 @@ public class BirthDeathSamplingTree implements GenerativeDistribution<TimeTree>
             "Conditioned on root age.")
     public RandomVariable<TimeTree> sample() {
 
-        FullBirthDeathTree birthDeathTree = new FullBirthDeathTree(birthRate, deathRate, rootAge, null);
-        RandomVariable<TimeTree> fullTree = birthDeathTree.sample();
+        double lambda = ValueUtils.doubleValue(birthRate);
+        double mu = ValueUtils.doubleValue(deathRate);
+        double p = ValueUtils.doubleValue(rho);
+        double age = ValueUtils.doubleValue(rootAge);
+        if (!(lambda > 0.0) || !(mu >= 0.0))
+            throw new IllegalArgumentException("Birth rate must be positive and death rate non-negative, " +
+                    "but lambda = " + lambda + ", mu = " + mu);
+        if (!(p > 0.0 && p <= 1.0))
+            throw new IllegalArgumentException("The sampling proportion must be in (0, 1], but rho = " + p);
+        if (!(age > 0.0))
+            throw new IllegalArgumentException("The root age must be positive, but it is " + age);
+
+        TimeTree tree = new TimeTree();
+        TimeTreeNode root = simulateReconstructedTree(lambda, mu, p, age, tree);
+        tree.setRoot(root, true);
 
-        RhoSampleTree rhoSampleTree = new RhoSampleTree(fullTree, rho);
-        RandomVariable<TimeTree> rtree = rhoSampleTree.sample();
         // The random variable must be re-wrapped to ensure correct behaviour downstream.
-        return new RandomVariable<>(rtree.getId(), rtree.value(), this);
+        return new RandomVariable<>("\u03C8", tree, this);
+    }
+
+    /**
+     * Simulate the reconstructed tree of the sampled extant taxa,
+     * whose leaves are labelled from "0" in a random order.
+     * @return the root of reconstructed tree.
+     */
+    TimeTreeNode simulateReconstructedTree(double lambda, double mu, double rho, double rootAge, TimeTree tree) {
+        final double r = lambda - mu;
+        // the probability of a lineage at the root having sampled descendants
+        double pSurvive = r == 0.0 ? rho / (1.0 + rho * lambda * rootAge) :
+                rho * r / (rho * lambda + (r - rho * lambda) * Math.exp(-r * rootAge));
+        if (!(pSurvive > 0.0))
+            throw new RuntimeException("The probability of sampling any taxa is too small : lambda = " +
+                    lambda + ", mu = " + mu + ", rho = " + rho + ", root age = " + rootAge);
+
+        // both lineages survive, or only one of them, given at least one survives
+        double pBoth = pSurvive / (2.0 - pSurvive);
+        int survivors = random.nextDouble() < pBoth ? 2 : 1;
+
+        // P(H > t) for the node depth H of coalescent point process
+        final double tailAtRoot = nodeDepthTail(lambda, r, rho, rootAge);
+
+        List<TimeTreeNode> subtrees = new ArrayList<>(survivors);
+        List<TimeTreeNode> leaves = new ArrayList<>();
+        for (int i = 0; i < survivors; i++) {
+            List<Double> depths = new ArrayList<>();
+            // the depth between the consecutive tips is < root age with probability 1 - P(H > root age)
+            while (random.nextDouble() >= tailAtRoot)
+                depths.add(drawNodeDepth(lambda, r, rho, tailAtRoot));
+            subtrees.add(buildTree(depths, leaves, tree));
+        }
+
+        // label leaves in a random order, as the neighbouring tips in the process are more related
+        for (int i = leaves.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            TimeTreeNode leaf = leaves.get(i);
+            leaves.set(i, leaves.get(j));
+            leaves.set(j, leaf);
+        }
+        for (int i = 0; i < leaves.size(); i++)
+            leaves.get(i).setId(String.valueOf(i));
+
+        if (survivors == 1) return subtrees.get(0);
+        return new TimeTreeNode(rootAge, subtrees.toArray(TimeTreeNode[]::new));
+    }
+
+    // P(H > t) = 1 / (1 + rho * lambda * (exp(r * t) - 1) / r)
+    private static double nodeDepthTail(double lambda, double r, double rho, double t) {
+        double integral = r == 0.0 ? t : Math.expm1(r * t) / r;
+        return 1.0 / (1.0 + rho * lambda * integral);
+    }
+
+    // draw the node depth H given H < root age by the inverse of nodeDepthTail
+    private double drawNodeDepth(double lambda, double r, double rho, double tailAtRoot) {
+        double tail = 1.0 - random.nextDouble() * (1.0 - tailAtRoot);
+        double x = (1.0 / tail - 1.0) / (rho * lambda);
+        return r == 0.0 ? x : Math.log1p(r * x) / r;
+    }
+
+    /**
+     * Build the tree of a coalescent point process, where the parent of the tips i and i+1
+     * is at the depth i, using a stack of the internal nodes waiting for their right child.
+     * @param depths the node depths between consecutive tips.
+     * @param leaves to add the new leaves.
+     * @return the root of subtree, which is a leaf if no depths.
+     */
+    private static TimeTreeNode buildTree(List<Double> depths, List<TimeTreeNode> leaves, TimeTree tree) {
+        Deque<TimeTreeNode> stack = new ArrayDeque<>();
+        TimeTreeNode left = newLeaf(leaves, tree);
+        for (double depth : depths) {
+            while (!stack.isEmpty() && stack.peek().getAge() < depth) {
+                TimeTreeNode parent = stack.pop();
+                parent.addChild(left);
+                left = parent;
+            }
+            TimeTreeNode node = new TimeTreeNode(depth);
+            node.addChild(left);
+            stack.push(node);
+            left = newLeaf(leaves, tree);
+        }
+        while (!stack.isEmpty()) {
+            TimeTreeNode parent = stack.pop();
+            parent.addChild(left);
+            left = parent;
+        }
+        return left;
+    }
+
+    private static TimeTreeNode newLeaf(List<TimeTreeNode> leaves, TimeTree tree) {
+        TimeTreeNode leaf = new TimeTreeNode((String) null, tree);
+        leaves.add(leaf);
+        return leaf;
     }
 
     @Override
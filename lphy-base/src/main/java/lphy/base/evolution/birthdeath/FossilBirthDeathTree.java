@@ -74,6 +74,12 @@ public class FossilBirthDeathTree extends TaxaConditionedTreeGenerator {
         throw new UnsupportedOperationException("Not implemented!");
     }
 
+    @Override
+    public boolean hasFixedTaxa() {
+        // sampled fossils are added
+        return false;
+    }
+
     @Override
     public Map<String, Value> getParams() {
         Map<String, Value> map = super.getParams();
@@ -3,6 +3,7 @@ package lphy.base.evolution.birthdeath;
 import lphy.base.evolution.tree.TimeTree;
 import lphy.base.evolution.tree.TimeTreeNode;
 import lphy.core.model.GenerativeDistribution;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -16,7 +17,6 @@ import org.apache.commons.math3.random.RandomGenerator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import static lphy.base.evolution.birthdeath.BirthDeathConstants.*;
 
@@ -36,6 +36,13 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
     private Value<Number> rootAge;
     private Value<Number> originAge;
 
+    static final ParameterSlots<FullBirthDeathTree> SLOTS = ParameterSlots.builder(FullBirthDeathTree.class)
+            .add(lambdaParamName, t -> t.birthRate, (t, v) -> t.birthRate = v)
+            .add(muParamName, t -> t.deathRate, (t, v) -> t.deathRate = v)
+            .add(rootAgeParamName, t -> t.rootAge, (t, v) -> t.rootAge = v)
+            .add(originAgeParamName, t -> t.originAge, (t, v) -> t.originAge = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
     private List<TimeTreeNode> activeNodes;
     private int maxLineage = 1;
 
@@ -183,23 +190,17 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
 
     @Override
     public Map<String, Value> getParams() {
-        return new TreeMap<>() {{
-            put(lambdaParamName, birthRate);
-            put(muParamName, deathRate);
-            if (rootAge != null) put(rootAgeParamName, rootAge);
-            if (originAge != null) put(originAgeParamName, originAge);
-        }};
+        return params;
     }
 
-
-
     @Override
     public void setParam(String paramName, Value value) {
-        if (paramName.equals(lambdaParamName)) birthRate = value;
-        else if (paramName.equals(muParamName)) deathRate = value;
-        else if (paramName.equals(rootAgeParamName)) rootAge = value;
-        else if (paramName.equals(originAgeParamName)) originAge = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
+        SLOTS.set(this, SLOTS.slotOf(paramName), value);
+    }
+
+    @Override
+    public void setParam(int slot, Value value) {
+        SLOTS.set(this, slot, value);
     }
 
     public String toString() {
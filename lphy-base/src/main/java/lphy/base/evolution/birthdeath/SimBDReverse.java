@@ -109,6 +109,12 @@ public class SimBDReverse extends TaxaConditionedTreeGenerator {
         throw new UnsupportedOperationException("Not implemented!");
     }
 
+    @Override
+    public boolean hasFixedTaxa() {
+        // extinct tips are added
+        return false;
+    }
+
     @Override
     public Map<String, Value> getParams() {
         Map<String, Value> params = super.getParams();
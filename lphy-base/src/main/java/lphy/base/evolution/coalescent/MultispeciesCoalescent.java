@@ -6,23 +6,27 @@ import lphy.base.evolution.Taxon;
 import lphy.base.evolution.tree.TaxaConditionedTreeGenerator;
 import lphy.base.evolution.tree.TimeTree;
 import lphy.base.evolution.tree.TimeTreeNode;
-import lphy.core.model.GenerativeDistribution;
+import lphy.core.model.BatchSampler;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
 import lphy.core.simulator.RandomUtils;
+import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static lphy.base.evolution.coalescent.CoalParamNames.thetaParamName;
 
 /**
  * A Kingman coalescent tree generative distribution conditional on a species tree with a specified population size on each species branch.
+ * Many loci, such as <code>replicates=10000</code>, are simulated in parallel sharing the traversal of species tree,
+ * the mapping of taxa to species and the population sizes, see {@link #sampleArray(int)}.
  */
-public class MultispeciesCoalescent implements GenerativeDistribution {
+public class MultispeciesCoalescent implements BatchSampler<TimeTree> {
 
     public static final String SParamName = "S";
     private Value<Double[]> theta;
@@ -35,6 +39,9 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
 
     public final static String separator = "_";
 
+    // the number of loci simulated by a task in parallel, which share a random number generator
+    static final int LOCI_PER_TASK = 32;
+
     Taxa geneTreeTaxa = null;
 
     public MultispeciesCoalescent(@ParameterInfo(name = thetaParamName, description = "effective population sizes, one for each species (both extant and ancestral).") Value<Double[]> theta,
@@ -63,26 +70,37 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
     public RandomVariable<TimeTree> sample() {
 
         geneTreeTaxa = createGeneTreeTaxa();
+        GeneTreeSimulator simulator = new GeneTreeSimulator(S.value(), geneTreeTaxa, theta.value());
 
-        return new RandomVariable<TimeTree>(null, simulateGeneTree(), this);
+        return new RandomVariable<TimeTree>(null, simulator.simulate(random), this);
     }
 
-    private TimeTree simulateGeneTree() {
-        TimeTree geneTree = new TimeTree(geneTreeTaxa);
-
-        Map<String, List<TimeTreeNode>> activeNodes = new TreeMap<>();
-
-        createActiveNodes(activeNodes, geneTree);
-
-        List<TimeTreeNode> root = doSpeciesTreeBranch(S.value().getRoot(), activeNodes, theta.value());
-
-        if (root.size() != 1) {
-            throw new RuntimeException("Returned multiple gene roots from " + S.value().getRoot());
-        }
-
-        geneTree.setRoot(root.get(0));
+    /**
+     * Simulate the gene trees of many loci in parallel, where the species tree is traversed once.
+     * The loci are split into the tasks of {@link #LOCI_PER_TASK} loci, and each task has its own
+     * random number generator seeded in order, so that the result does not depend on the number of threads.
+     * @param numLoci  the number of gene trees
+     * @return  the independent gene trees.
+     */
+    @Override
+    public TimeTree[] sampleArray(int numLoci) {
 
-        return geneTree;
+        geneTreeTaxa = createGeneTreeTaxa();
+        final GeneTreeSimulator simulator = new GeneTreeSimulator(S.value(), geneTreeTaxa, theta.value());
+
+        final TimeTree[] geneTrees = new TimeTree[numLoci];
+        final int numTasks = (numLoci + LOCI_PER_TASK - 1) / LOCI_PER_TASK;
+        final long[] seeds = new long[numTasks];
+        for (int t = 0; t < numTasks; t++)
+            seeds[t] = random.nextLong();
+
+        IntStream.range(0, numTasks).parallel().forEach(t -> {
+            RandomGenerator taskRandom = new MersenneTwister(seeds[t]);
+            int to = Math.min(numLoci, (t + 1) * LOCI_PER_TASK);
+            for (int i = t * LOCI_PER_TASK; i < to; i++)
+                geneTrees[i] = simulator.simulate(taskRandom);
+        });
+        return geneTrees;
     }
 
     public Taxa getGeneTreeTaxa() {
@@ -136,50 +154,154 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
         return true;
     }
 
-    private void createActiveNodes(Map<String, List<TimeTreeNode>> activeNodes, TimeTree geneTree) {
-        for (Taxon taxon : geneTreeTaxa.getTaxonArray()) {
-            List<TimeTreeNode> taxaInSp = activeNodes.computeIfAbsent(taxon.getSpecies(), k -> new ArrayList<>());
-            taxaInSp.add(new TimeTreeNode(taxon, geneTree));
-        }
-    }
-
-    private List<TimeTreeNode> doSpeciesTreeBranch(TimeTreeNode spNode, Map<String, List<TimeTreeNode>> allLeafActiveNodes, Double[] allThetas) {
+    /**
+     * The species tree in post-order, with the taxa of gene tree in each extant species
+     * and the population size of each species branch, which is shared by all loci.
+     * The lineages and the coalescent events of a locus are kept in arrays by the indices,
+     * and the nodes of gene tree are only created at the end.
+     */
+    static final class GeneTreeSimulator {
+
+        private final Taxa geneTreeTaxa;
+        private final Taxon[] taxa;
+        // the species nodes in post-order, the root is last
+        private final TimeTreeNode[] speciesNodes;
+        private final double[] speciesAges;
+        // the age of the parent, or infinity for the root
+        private final double[] parentAges;
+        private final double[] thetas;
+        private final int[][] childSpecies;
+        // the indices of taxa in each species, only for leaves
+        private final int[][] speciesTaxa;
+
+        GeneTreeSimulator(TimeTree speciesTree, Taxa geneTreeTaxa, Double[] allThetas) {
+            this.geneTreeTaxa = geneTreeTaxa;
+            taxa = geneTreeTaxa.getTaxonArray();
+
+            List<TimeTreeNode> postOrder = new ArrayList<>();
+            Deque<TimeTreeNode> stack = new ArrayDeque<>();
+            stack.push(speciesTree.getRoot());
+            while (!stack.isEmpty()) {
+                TimeTreeNode node = stack.pop();
+                postOrder.add(node);
+                for (TimeTreeNode child : node.getChildren())
+                    stack.push(child);
+            }
+            Collections.reverse(postOrder);
+
+            final int m = postOrder.size();
+            speciesNodes = postOrder.toArray(new TimeTreeNode[m]);
+            speciesAges = new double[m];
+            parentAges = new double[m];
+            thetas = new double[m];
+            childSpecies = new int[m][];
+            speciesTaxa = new int[m][];
+
+            Map<TimeTreeNode, Integer> order = new IdentityHashMap<>(m);
+            Map<String, Integer> leafSpecies = new HashMap<>();
+            for (int s = 0; s < m; s++) {
+                TimeTreeNode spNode = speciesNodes[s];
+                order.put(spNode, s);
+                speciesAges[s] = spNode.getAge();
+                parentAges[s] = spNode.getParent() == null ? Double.POSITIVE_INFINITY : spNode.getParent().getAge();
+                thetas[s] = allThetas[spNode.getIndex()];
+
+                List<TimeTreeNode> children = spNode.getChildren();
+                childSpecies[s] = new int[children.size()];
+                for (int c = 0; c < children.size(); c++)
+                    childSpecies[s][c] = order.get(children.get(c));
+                if (spNode.isLeaf())
+                    leafSpecies.put(spNode.getId(), s);
+            }
 
-        List<TimeTreeNode> activeNodes;
-        if (!spNode.isLeaf()) {
-            activeNodes = new ArrayList<>();
-            for (TimeTreeNode child : spNode.getChildren()) {
-                activeNodes.addAll(doSpeciesTreeBranch(child, allLeafActiveNodes, allThetas));
+            // the taxa of species not in the species tree are ignored
+            List<List<Integer>> taxaInSp = new ArrayList<>(m);
+            for (int s = 0; s < m; s++)
+                taxaInSp.add(new ArrayList<>());
+            for (int i = 0; i < taxa.length; i++) {
+                Integer s = leafSpecies.get(taxa[i].getSpecies());
+                if (s != null) taxaInSp.get(s).add(i);
             }
-        } else {
-            activeNodes = allLeafActiveNodes.get(spNode.getId());
-            if (activeNodes == null) activeNodes = new ArrayList<>();
+            for (int s = 0; s < m; s++)
+                speciesTaxa[s] = taxaInSp.get(s).stream().mapToInt(Integer::intValue).toArray();
         }
 
-        double time = spNode.getAge();
-        double theta = allThetas[spNode.getIndex()];
+        /**
+         * Simulate a gene tree, which is thread-safe given a different random number generator.
+         */
+        TimeTree simulate(RandomGenerator random) {
+            final int n = taxa.length;
+            final int m = speciesNodes.length;
+            // the internal nodes of gene tree are indexed from n
+            final double[] ages = new double[Math.max(n - 1, 0)];
+            final int[] leftChild = new int[ages.length];
+            final int[] rightChild = new int[ages.length];
+            int next = n;
+
+            final int[][] lineages = new int[m][];
+            final int[] lineageCount = new int[m];
+            for (int s = 0; s < m; s++) {
+                int[] active;
+                int k = 0;
+                if (childSpecies[s].length == 0) {
+                    active = speciesTaxa[s].clone();
+                    k = active.length;
+                } else {
+                    int size = 0;
+                    for (int c : childSpecies[s]) size += lineageCount[c];
+                    active = new int[size];
+                    for (int c : childSpecies[s]) {
+                        System.arraycopy(lineages[c], 0, active, k, lineageCount[c]);
+                        k += lineageCount[c];
+                        lineages[c] = null;
+                    }
+                }
 
-        while (activeNodes.size() > 1 && (spNode.getParent() == null || time < spNode.getParent().getAge())) {
+                double time = speciesAges[s];
+                final double upper = parentAges[s];
+                final double theta = thetas[s];
+                while (k > 1 && time < upper) {
+                    double rate = (k * (k - 1.0)) / (theta * 2.0);
+
+                    // random exponential variate
+                    double x = -Math.log(random.nextDouble()) / rate;
+                    time += x;
+
+                    if (time < upper) {
+                        int i = random.nextInt(k);
+                        int a = active[i];
+                        active[i] = active[--k];
+                        i = random.nextInt(k);
+                        int b = active[i];
+                        active[i] = active[--k];
+
+                        ages[next - n] = time;
+                        leftChild[next - n] = a;
+                        rightChild[next - n] = b;
+                        active[k++] = next++;
+                    }
+                }
+                lineages[s] = active;
+                lineageCount[s] = k;
+            }
 
-            int k = activeNodes.size();
-            double rate = (k * (k - 1.0)) / (theta * 2.0);
+            if (lineageCount[m - 1] != 1) {
+                throw new RuntimeException("Returned multiple gene roots from " + speciesNodes[m - 1]);
+            }
 
-            // random exponential variate
-            double x = -Math.log(random.nextDouble()) / rate;
-            time += x;
+            TimeTree geneTree = new TimeTree(geneTreeTaxa);
+            TimeTreeNode[] nodes = new TimeTreeNode[next];
+            for (int i = 0; i < n; i++)
+                nodes[i] = new TimeTreeNode(taxa[i], geneTree);
+            for (int j = n; j < next; j++)
+                nodes[j] = new TimeTreeNode(ages[j - n], new TimeTreeNode[]{nodes[leftChild[j - n]], nodes[rightChild[j - n]]});
+            geneTree.setRoot(nodes[lineages[m - 1][0]]);
 
-            if (spNode.getParent() == null || time < spNode.getParent().getAge()) {
-                TimeTreeNode a = activeNodes.remove(random.nextInt(activeNodes.size()));
-                TimeTreeNode b = activeNodes.remove(random.nextInt(activeNodes.size()));
-                TimeTreeNode parent = new TimeTreeNode(time, new TimeTreeNode[]{a, b});
-                activeNodes.add(parent);
-            }
+            return geneTree;
         }
-
-        return activeNodes;
     }
 
-    public double logDensity(Object timeTreeObject) {
+    public double logDensity(TimeTree timeTree) {
 
         // TODO
         return 0.0;
@@ -1,6 +1,7 @@
 package lphy.base.evolution.coalescent;
 
 import lphy.base.evolution.Taxa;
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.base.evolution.tree.TaxaConditionedTreeGenerator;
 import lphy.base.evolution.tree.TimeTree;
 import lphy.base.evolution.tree.TimeTreeNode;
@@ -170,7 +171,7 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
         leavesToBeAdded.sort((o1, o2) -> Double.compare(o2.getAge(), o1.getAge())); // REVERSE ORDER - youngest age at end of list
 
         // this requires Integer as MetaData of populationLabel, which is used as index of activeNodes
-        TimeTreeNode root = simulateStructuredCoalescentForest(tree, activeNodes, leavesToBeAdded, theta.value(), Double.POSITIVE_INFINITY).get(0);
+        TimeTreeNode root = simulateStructuredCoalescentForest(tree, activeNodes, leavesToBeAdded, RateMatrixValue.toPrimitive(theta), Double.POSITIVE_INFINITY).get(0);
 
         tree.setRoot(root);
 
@@ -256,7 +257,7 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
         return (Integer) demeIndex;
     }
 
-    private List<TimeTreeNode> simulateStructuredCoalescentForest(TimeTree tree, List<List<TimeTreeNode>> activeNodes, List<TimeTreeNode> leavesToBeAdded, Double[][] popSizesMigrationRates, double stopTime) {
+    private List<TimeTreeNode> simulateStructuredCoalescentForest(TimeTree tree, List<List<TimeTreeNode>> activeNodes, List<TimeTreeNode> leavesToBeAdded, double[] popSizesMigrationRates, double stopTime) {
 
         //diagonals are coalescent rates, off-diagonals are migration rates
         double[][] rates = new double[activeNodes.size()][activeNodes.size()];
@@ -369,12 +370,18 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
     }
 
     static double populateRateMatrix(List<List<TimeTreeNode>> nodes, Double[][] popSizesMigrationRates, double[][] rates) {
+        return populateRateMatrix(nodes, RateMatrixValue.flatten(popSizesMigrationRates), rates);
+    }
+
+    // popSizesMigrationRates is in row-major
+    static double populateRateMatrix(List<List<TimeTreeNode>> nodes, double[] popSizesMigrationRates, double[][] rates) {
 
+        final int numDemes = rates.length;
         double totalRate = 0.0;
 
         // coalescent rates
         for (int i = 0; i < rates.length; i++) {
-            double popSizei = popSizesMigrationRates[i][i];
+            double popSizei = popSizesMigrationRates[i * numDemes + i];
             int sampleSizei = nodes.get(i).size();
             if (sampleSizei < 2) {
                 rates[i][i] = 0.0;
@@ -382,10 +389,10 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
                 rates[i][i] = (double) CombinatoricsUtils.binomialCoefficient(sampleSizei, 2) / popSizei;
             }
             for (int j = 0; j < rates[i].length; j++) {
-                double popSizej = popSizesMigrationRates[j][j];
+                double popSizej = popSizesMigrationRates[j * numDemes + j];
                 if (i != j) {
                     // off-diagonal migration rates are in units of expected migrants per generation (thus division by popSizei)
-                    rates[i][j] = (double) nodes.get(i).size() * (popSizesMigrationRates[i][j] * popSizej) / popSizei;
+                    rates[i][j] = (double) nodes.get(i).size() * (popSizesMigrationRates[i * numDemes + j] * popSizej) / popSizei;
                 }
                 totalRate += rates[i][j];
             }
@@ -421,6 +428,12 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
         return Double.NaN;
     }
 
+    @Override
+    public boolean hasFixedTaxa() {
+        // the taxa are numbered by the counts in k
+        return super.hasFixedTaxa() && (k == null || !k.isRandom());
+    }
+
     @Override
     public Map<String, Value> getParams() {
         Map<String, Value> params = super.getParams();
@@ -2,30 +2,29 @@ package lphy.base.evolution.likelihood;
 
 import jebl.evolution.sequences.SequenceType;
 import lphy.base.evolution.alignment.Alignment;
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.base.evolution.tree.TimeTree;
-import lphy.base.evolution.tree.TimeTreeNode;
 import lphy.core.logger.LoggerUtils;
-import lphy.core.model.GenerativeDistribution;
+import lphy.core.model.ParallelSampler;
+import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
 import lphy.core.simulator.RandomUtils;
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.EigenDecomposition;
-import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.random.RandomGenerator;
-import org.apache.commons.math3.util.FastMath;
 
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
  * Extract Alexei's code shared by {@link PhyloCTMC} and {@link PhyloCTMCSiteModel}
  * for all kinds of PhyloCTMC.
+ * The partitions sharing a tree can be simulated at the same time, see {@link ParallelSampler}.
  * Created by Alexei Drummond on 2/02/20.
  * @author Alexei Drummond
  */
-public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignment> {
+public abstract class AbstractPhyloCTMC implements ParallelSampler<Alignment> {
 
     public static final String treeParamName = "tree";
     public static final String muParamName = "mu";
@@ -48,11 +47,19 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
     protected Value<Double[]> rootFreqs;
     protected SortedMap<String, Integer> idMap = new TreeMap<>();
     protected double[][] transProb;
-    private EigenDecomposition decomposition;
-    private double[][] Ievc;
-    private double[][] Evec;
+    // shared by the generators having the same Q
+    private EigenSystem eigenSystem;
     private double[][] iexp;
-    private double[] Eval;
+    // the tree traversal shared by partitions
+    private TreeLayout layout;
+    // the states of nodes in the pre-order
+    private int[] nodeStates;
+    // site rate to the transition probabilities of branches, which are cleared in setup
+    private final Map<Double, double[][][]> branchTransProbs = new LinkedHashMap<>();
+    private static final int MAX_CACHED_SITE_RATES = 8;
+    // the max number of doubles cached in branchTransProbs, which is 16 MB
+    static final long MAX_CACHED_DOUBLES = 1L << 21;
+    long maxCachedDoubles = MAX_CACHED_DOUBLES;
 
 
     public AbstractPhyloCTMC(Value<TimeTree> tree, Value<Number> clockRate, Value<Double[]> freq,
@@ -97,44 +104,32 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
     // return Q matrix
     protected abstract Double[][] getQ();
 
+    // return Q matrix in row-major, which must not be modified
+    protected double[] getPrimitiveQ() {
+        return RateMatrixValue.flatten(getQ());
+    }
+
+    // return the number of states, which is the row/column length of Q
+    protected int getNumStates() {
+        return getQ().length;
+    }
+
     // shared code in setup()
     protected void computePAndRootFreqs() {
-        idMap.clear();
         // if internal nodes have id, then simulate sequences,
         // otherwise only sequences on tips.
-        fillIdMap(tree.value().getRoot(), idMap);
+        layout = TreeLayout.of(tree.value());
+        idMap.clear();
+        idMap.putAll(layout.getIdMap());
+        branchTransProbs.clear();
 
-        Double[][] Qm = getQ();
-        if (Qm == null)
-            throw new IllegalArgumentException("matrix Q[][] must be provided !");
         // Q matrix row/column length
-        final int numStates = Qm.length;
+        final int numStates = getNumStates();
 
         transProb = new double[numStates][numStates];
         iexp = new double[numStates][numStates];
-
-        double[][] primitive = new double[numStates][numStates];
-        for (int i = 0; i < numStates; i++) {
-            for (int j = 0; j < numStates; j++) {
-                primitive[i][j] = Qm[i][j];
-            }
-        }
-        Array2DRowRealMatrix Qmatrix = new Array2DRowRealMatrix(primitive);
-
-        decomposition = new EigenDecomposition(Qmatrix);
-        Eval = decomposition.getRealEigenvalues();
-        Ievc = new double[numStates][numStates];
-
-        // Eigen vectors
-        Evec = new double[numStates][numStates];
-        for (int i = 0; i < numStates; i++) {
-            RealVector evec = decomposition.getEigenvector(i);
-            for (int j = 0; j < numStates; j++) {
-                Evec[j][i] = evec.getEntry(j);
-            }
-        }
-
-        luinverse(Evec, Ievc, numStates);
+        // cached by the content of Q
+        eigenSystem = EigenSystem.of(getPrimitiveQ(), numStates);
 
         rootFreqs = freq;
         if (rootFreqs == null) {
@@ -142,30 +137,92 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
         }
     }
 
-    protected void traverseTree(TimeTreeNode node, int nodeState, Alignment alignment,
-                                int pos, double[][] transProb, double clockRate, double siteRate) {
-
-        if (node.isLeaf() || (node.isSingleChildNonOrigin() && node.getId() != null)) {
-            alignment.setState(node.getLeafIndex(), pos, nodeState); // no ambiguous state
-        }
-        List<TimeTreeNode> children = node.getChildren();
-        for (TimeTreeNode child : children) {
-            double branchLength = siteRate * clockRate * (node.getAge() - child.getAge());
-
-            if (branchRates != null) {
-                branchLength *= branchRates.value()[child.getIndex()];
+    /**
+     * Simulate the states of a site from the root, which visits the nodes of {@link TreeLayout} in the pre-order
+     * without recursion, and reuses the transition probabilities of the branches for the sites having the same rate.
+     * If the transition probabilities of all branches exceed {@link #MAX_CACHED_DOUBLES},
+     * they are computed branch by branch instead, which draws the same random numbers.
+     * {@link #setup()} must be called before it.
+     */
+    protected void simulateSite(int rootState, Alignment alignment, int pos, double clockRate, double siteRate) {
+        final int n = layout.size();
+        if (nodeStates == null || nodeStates.length < n)
+            nodeStates = new int[n];
+        double[][][] branchP = getBranchTransProbs(clockRate, siteRate);
+
+        nodeStates[0] = rootState;
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                double[] p;
+                if (branchP != null) {
+                    p = branchP[i][nodeStates[layout.parent[i]]];
+                } else {
+                    getTransitionProbabilities(getBranchLength(i, clockRate, siteRate), transProb);
+                    p = transProb[nodeStates[layout.parent[i]]];
+                }
+                // draw state from Q
+                nodeStates[i] = drawState(p);
             }
+            if (layout.sequenceIndex[i] >= 0)
+                alignment.setState(layout.sequenceIndex[i], pos, nodeStates[i]); // no ambiguous state
+        }
+    }
 
-            getTransitionProbabilities(branchLength, transProb);
-            // draw state from Q
-            int state = drawState(transProb[nodeState]);
+    private double getBranchLength(int i, double clockRate, double siteRate) {
+        double branchLength = siteRate * clockRate * layout.branchTimes[i];
+        if (branchRates != null) {
+            branchLength *= branchRates.value()[layout.branchRateIndex[i]];
+        }
+        return branchLength;
+    }
 
-            traverseTree(child, state, alignment, pos, transProb, clockRate, siteRate);
+    /**
+     * @return the transition probabilities of the branches in the pre-order given the site rate,
+     *         or null if they are too large to cache.
+     */
+    private double[][][] getBranchTransProbs(double clockRate, double siteRate) {
+        double[][][] branchP = branchTransProbs.get(siteRate);
+        if (branchP != null) return branchP;
+
+        final int n = layout.size();
+        final int numStates = transProb.length;
+        final long doublesPerRate = (long) n * numStates * numStates;
+        final long maxCachedRates = Math.min(MAX_CACHED_SITE_RATES, maxCachedDoubles / doublesPerRate);
+        if (maxCachedRates < 1) {
+            branchTransProbs.clear();
+            return null;
+        }
+        if (branchTransProbs.size() >= maxCachedRates) {
+            // reuse the arrays of the eldest rate
+            Double eldest = branchTransProbs.keySet().iterator().next();
+            branchP = branchTransProbs.remove(eldest);
         }
+        if (branchP == null || branchP.length != n || branchP[0].length != numStates)
+            branchP = new double[n][numStates][numStates];
+
+        for (int i = 1; i < n; i++)
+            getTransitionProbabilities(getBranchLength(i, clockRate, siteRate), branchP[i]);
+        branchTransProbs.put(siteRate, branchP);
+        return branchP;
     }
 
     //+++ public and getter +++//
 
+    /**
+     * The generator is only sampled by one thread at a time,
+     * so the random number generator is replaced during sampling.
+     */
+    @Override
+    public RandomVariable<Alignment> sample(RandomGenerator random) {
+        RandomGenerator original = this.random;
+        this.random = random;
+        try {
+            return sample();
+        } finally {
+            this.random = original;
+        }
+    }
+
     // setup() before sample()
     public void setup() {
         // overwrite the default if more setup
@@ -184,6 +241,14 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
         return tree;
     }
 
+    /**
+     * @return the tree, so that only the partitions simulated on the same tree are sampled at the same time.
+     */
+    @Override
+    public Value<?> getSharedInput() {
+        return tree;
+    }
+
     public SequenceType getDataType() {
         if (dataType == null) return SequenceType.NUCLEOTIDE;
         return dataType.value();
@@ -191,29 +256,7 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
 
     // make public for unit test
     public void getTransitionProbabilities(double branchLength, double[][] transProbs) {
-
-        int i, j, k;
-        double temp;
-
-        final int numStates = transProbs.length; // getQ().length ?
-        // inverse Eigen vectors
-        // Eigen values
-        for (i = 0; i < numStates; i++) {
-            temp = FastMath.exp(branchLength * Eval[i]);
-            for (j = 0; j < numStates; j++) {
-                iexp[i][j] = Ievc[i][j] * temp;
-            }
-        }
-
-        for (i = 0; i < numStates; i++) {
-            for (j = 0; j < numStates; j++) {
-                temp = 0.0;
-                for (k = 0; k < numStates; k++) {
-                    temp += Evec[i][k] * iexp[k][j];
-                }
-                transProbs[i][j] = FastMath.abs(temp);
-            }
-        }
+        eigenSystem.getTransitionProbabilities(branchLength, transProbs, iexp);
     }
 
     //+++ private methods +++//
@@ -234,27 +277,6 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
         return new Value<>(null, freqs);
     }
 
-    private void fillIdMap(TimeTreeNode node, SortedMap<String, Integer> idMap) {
-        // if internal nodes have id, then simulate sequences, otherwise only sequences on tips.
-        if (node.isLeaf() || node.getId() != null) {
-            Integer i = idMap.get(node.getId());
-            if (i == null) {
-                int nextValue = 0;
-                for (Integer j : idMap.values()) {
-                    if (j >= nextValue) nextValue = j + 1;
-                }
-                idMap.put(node.getId(), nextValue);
-                node.setLeafIndex(nextValue);
-            } else {
-                node.setLeafIndex(i);
-            }
-        }
-        for (TimeTreeNode child : node.getChildren()) {
-            fillIdMap(child, idMap);
-        }
-
-    }
-
     private int drawState(double[] p) {
         double U = random.nextDouble();
         double totalP = p[0];
@@ -267,117 +289,4 @@ public abstract class AbstractPhyloCTMC implements GenerativeDistribution<Alignm
         throw new RuntimeException("p vector should add to 1.0 but adds to " + totalP +  " instead.");
     }
 
-
-    private static double EPSILON = 2.220446049250313E-16;
-
-    private static void luinverse(double[][] inmat, double[][] imtrx, int size) throws IllegalArgumentException {
-        int i, j, k, l, maxi = 0, idx, ix, jx;
-        double sum, tmp, maxb, aw;
-        int[] index;
-        double[] wk;
-        double[][] omtrx;
-
-
-        index = new int[size];
-        omtrx = new double[size][size];
-
-        /* copy inmat to omtrx */
-        for (i = 0; i < size; i++) {
-            for (j = 0; j < size; j++) {
-                omtrx[i][j] = inmat[i][j];
-            }
-        }
-
-        wk = new double[size];
-        aw = 1.0;
-        for (i = 0; i < size; i++) {
-            maxb = 0.0;
-            for (j = 0; j < size; j++) {
-                if (Math.abs(omtrx[i][j]) > maxb) {
-                    maxb = Math.abs(omtrx[i][j]);
-                }
-            }
-            if (maxb == 0.0) {
-                /* Singular matrix */
-                System.err.println("Singular matrix encountered");
-                throw new IllegalArgumentException("Singular matrix");
-            }
-            wk[i] = 1.0 / maxb;
-        }
-        for (j = 0; j < size; j++) {
-            for (i = 0; i < j; i++) {
-                sum = omtrx[i][j];
-                for (k = 0; k < i; k++) {
-                    sum -= omtrx[i][k] * omtrx[k][j];
-                }
-                omtrx[i][j] = sum;
-            }
-            maxb = 0.0;
-            for (i = j; i < size; i++) {
-                sum = omtrx[i][j];
-                for (k = 0; k < j; k++) {
-                    sum -= omtrx[i][k] * omtrx[k][j];
-                }
-                omtrx[i][j] = sum;
-                tmp = wk[i] * Math.abs(sum);
-                if (tmp >= maxb) {
-                    maxb = tmp;
-                    maxi = i;
-                }
-            }
-            if (j != maxi) {
-                for (k = 0; k < size; k++) {
-                    tmp = omtrx[maxi][k];
-                    omtrx[maxi][k] = omtrx[j][k];
-                    omtrx[j][k] = tmp;
-                }
-                aw = -aw;
-                wk[maxi] = wk[j];
-            }
-            index[j] = maxi;
-            if (omtrx[j][j] == 0.0) {
-                omtrx[j][j] = EPSILON;
-            }
-            if (j != size - 1) {
-                tmp = 1.0 / omtrx[j][j];
-                for (i = j + 1; i < size; i++) {
-                    omtrx[i][j] *= tmp;
-                }
-            }
-        }
-        for (jx = 0; jx < size; jx++) {
-            for (ix = 0; ix < size; ix++) {
-                wk[ix] = 0.0;
-            }
-            wk[jx] = 1.0;
-            l = -1;
-            for (i = 0; i < size; i++) {
-                idx = index[i];
-                sum = wk[idx];
-                wk[idx] = wk[i];
-                if (l != -1) {
-                    for (j = l; j < i; j++) {
-                        sum -= omtrx[i][j] * wk[j];
-                    }
-                } else if (sum != 0.0) {
-                    l = i;
-                }
-                wk[i] = sum;
-            }
-            for (i = size - 1; i >= 0; i--) {
-                sum = wk[i];
-                for (j = i + 1; j < size; j++) {
-                    sum -= omtrx[i][j] * wk[j];
-                }
-                wk[i] = sum / omtrx[i][i];
-            }
-            for (ix = 0; ix < size; ix++) {
-                imtrx[ix][jx] = wk[ix];
-            }
-        }
-        wk = null;
-        index = null;
-        omtrx = null;
-    }
-
 }
@@ -0,0 +1,392 @@
+package lphy.base.evolution.likelihood;
+
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The transition probabilities P(t) = e^{Qt} of an instantaneous rate matrix Q,
+ * which are computed from the eigenvalues and eigenvectors of Q.
+ * The eigen systems are cached by the content of Q, and shared by all generators and threads,
+ * so that the constant Q, such as jukesCantor() or wag(), is only decomposed once.
+ * The matrices having the structure of HKY, including JC69, K80 and F81,
+ * use the closed-form P(t) without the numeric decomposition.
+ * The eigen systems cannot be changed after creation.
+ */
+abstract class EigenSystem {
+
+    // the least recently used are discarded
+    private static final int MAX_CACHED = 64;
+    private static final Map<Key, EigenSystem> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, EigenSystem> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    private static long hits = 0;
+    private static long misses = 0;
+
+    // the content of Q
+    private record Key(int numStates, double[] q) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && numStates == k.numStates && Arrays.equals(q, k.q);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * numStates + Arrays.hashCode(q);
+        }
+    }
+
+    /**
+     * @param Q  the instantaneous rate matrix
+     * @return the cached eigen system of Q, or a new one if Q is not cached.
+     */
+    static EigenSystem of(Double[][] Q) {
+        return of(RateMatrixValue.flatten(Q), Q.length);
+    }
+
+    /**
+     * @param q          the row-major instantaneous rate matrix, which is not modified or kept.
+     * @param numStates  the number of states of Q.
+     * @return the cached eigen system of Q, or a new one if Q is not cached.
+     */
+    static EigenSystem of(double[] q, int numStates) {
+        if (q.length != numStates * numStates)
+            throw new IllegalArgumentException("matrix Q[][] of " + numStates + " states must have " +
+                    numStates * numStates + " elements, but it has " + q.length + " !");
+        Key key = new Key(numStates, q);
+        synchronized (cache) {
+            EigenSystem eigenSystem = cache.get(key);
+            if (eigenSystem != null) {
+                hits++;
+                return eigenSystem;
+            }
+            misses++;
+        }
+        // the given array can be changed after this
+        key = new Key(numStates, q.clone());
+        // decompose outside the lock, the same Q decomposed by two threads gives the same result
+        EigenSystem eigenSystem = HKY.fromQ(q, numStates);
+        if (eigenSystem == null)
+            eigenSystem = new Numeric(q, numStates);
+        synchronized (cache) {
+            cache.put(key, eigenSystem);
+        }
+        return eigenSystem;
+    }
+
+    /**
+     * @return the number of states of Q.
+     */
+    abstract int getStateCount();
+
+    /**
+     * Compute P(t) into the given matrix.
+     * @param branchLength  t, which is the product of time and rates.
+     * @param transProbs    the result P(t), the size is the number of states.
+     * @param work          the workspace, the same size as transProbs,
+     *                      which must not be shared with other threads.
+     */
+    abstract void getTransitionProbabilities(double branchLength, double[][] transProbs, double[][] work);
+
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    static int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    static long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    static long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * The numeric eigen decomposition of any Q.
+     */
+    static final class Numeric extends EigenSystem {
+
+        private final double[][] Ievc;
+        private final double[][] Evec;
+        private final double[] Eval;
+
+        Numeric(double[] q, int numStates) {
+            double[][] primitive = new double[numStates][numStates];
+            for (int i = 0; i < numStates; i++)
+                System.arraycopy(q, i * numStates, primitive[i], 0, numStates);
+            Array2DRowRealMatrix Qmatrix = new Array2DRowRealMatrix(primitive, false);
+
+            EigenDecomposition decomposition = new EigenDecomposition(Qmatrix);
+            Eval = decomposition.getRealEigenvalues();
+            Ievc = new double[numStates][numStates];
+
+            // Eigen vectors
+            Evec = new double[numStates][numStates];
+            for (int i = 0; i < numStates; i++) {
+                RealVector evec = decomposition.getEigenvector(i);
+                for (int j = 0; j < numStates; j++) {
+                    Evec[j][i] = evec.getEntry(j);
+                }
+            }
+
+            luinverse(Evec, Ievc, numStates);
+        }
+
+        @Override
+        int getStateCount() {
+            return Eval.length;
+        }
+
+        @Override
+        void getTransitionProbabilities(double branchLength, double[][] transProbs, double[][] iexp) {
+            int i, j, k;
+            double temp;
+
+            final int numStates = transProbs.length; // getQ().length ?
+            // inverse Eigen vectors
+            // Eigen values
+            for (i = 0; i < numStates; i++) {
+                temp = FastMath.exp(branchLength * Eval[i]);
+                for (j = 0; j < numStates; j++) {
+                    iexp[i][j] = Ievc[i][j] * temp;
+                }
+            }
+
+            for (i = 0; i < numStates; i++) {
+                for (j = 0; j < numStates; j++) {
+                    temp = 0.0;
+                    for (k = 0; k < numStates; k++) {
+                        temp += Evec[i][k] * iexp[k][j];
+                    }
+                    transProbs[i][j] = FastMath.abs(temp);
+                }
+            }
+        }
+    }
+
+    /**
+     * The closed-form P(t) of the HKY structure in the order of A, C, G, T,
+     * where Q_ij = beta * pi_j * kappa for transitions, and beta * pi_j for transversions.
+     * JC69, K80 and F81 are its special cases.
+     */
+    static final class HKY extends EigenSystem {
+
+        // relative tolerance to recognise the structure
+        private static final double TOLERANCE = 1e-12;
+        // purines are A and G, pyrimidines are C and T
+        private static final boolean[] PURINE = new boolean[]{true, false, true, false};
+
+        private final double beta;
+        private final double[] freqs;
+        // the sum of frequencies in the same class as the state
+        private final double[] classFreqs;
+        // the eigenvalue of the class of the state
+        private final double[] lambda;
+
+        private HKY(double beta, double kappa, double[] freqs) {
+            this.beta = beta;
+            this.freqs = freqs;
+            final double piR = freqs[0] + freqs[2];
+            final double piY = freqs[1] + freqs[3];
+            classFreqs = new double[4];
+            lambda = new double[4];
+            for (int j = 0; j < 4; j++) {
+                classFreqs[j] = PURINE[j] ? piR : piY;
+                lambda[j] = beta * (classFreqs[j] * kappa + 1.0 - classFreqs[j]);
+            }
+        }
+
+        /**
+         * @return the closed-form eigen system, or null if Q does not have the HKY structure.
+         */
+        static HKY fromQ(double[] q, int numStates) {
+            if (numStates != 4) return null;
+            // transversions to A, C, G, T are beta * pi_j
+            double[] freqs = new double[]{q[4], q[1], q[4 + 2], q[3]};
+            double beta = 0;
+            double max = 0;
+            for (int j = 0; j < 4; j++) {
+                if (!(freqs[j] > 0)) return null;
+                beta += freqs[j];
+            }
+            for (int j = 0; j < 4; j++)
+                freqs[j] /= beta;
+            // A to G is a transition
+            final double kappa = q[2] / (beta * freqs[2]);
+            if (!(kappa > 0) || Double.isInfinite(kappa)) return null;
+
+            for (double x : q)
+                max = Math.max(max, Math.abs(x));
+            for (int i = 0; i < 4; i++) {
+                double rowSum = 0;
+                for (int j = 0; j < 4; j++) {
+                    if (i == j) continue;
+                    double qij = beta * freqs[j] * (PURINE[i] == PURINE[j] ? kappa : 1.0);
+                    if (Math.abs(q[i * 4 + j] - qij) > TOLERANCE * max) return null;
+                    rowSum += qij;
+                }
+                if (Math.abs(q[i * 4 + i] + rowSum) > TOLERANCE * max) return null;
+            }
+            return new HKY(beta, kappa, freqs);
+        }
+
+        @Override
+        int getStateCount() {
+            return 4;
+        }
+
+        @Override
+        void getTransitionProbabilities(double branchLength, double[][] transProbs, double[][] work) {
+            final double eBeta = FastMath.exp(-beta * branchLength);
+            for (int j = 0; j < 4; j++) {
+                final double pi = freqs[j];
+                final double eLambda = FastMath.exp(-lambda[j] * branchLength);
+                // the same class
+                final double same = pi + pi * (1.0 / classFreqs[j] - 1.0) * eBeta;
+                final double diff = pi * (1.0 - eBeta);
+                for (int i = 0; i < 4; i++) {
+                    if (i == j)
+                        transProbs[i][j] = same + (classFreqs[j] - pi) / classFreqs[j] * eLambda;
+                    else if (PURINE[i] == PURINE[j])
+                        transProbs[i][j] = FastMath.abs(same - pi / classFreqs[j] * eLambda);
+                    else
+                        transProbs[i][j] = diff;
+                }
+            }
+        }
+    }
+
+    private static double EPSILON = 2.220446049250313E-16;
+
+    private static void luinverse(double[][] inmat, double[][] imtrx, int size) throws IllegalArgumentException {
+        int i, j, k, l, maxi = 0, idx, ix, jx;
+        double sum, tmp, maxb, aw;
+        int[] index;
+        double[] wk;
+        double[][] omtrx;
+
+
+        index = new int[size];
+        omtrx = new double[size][size];
+
+        /* copy inmat to omtrx */
+        for (i = 0; i < size; i++) {
+            for (j = 0; j < size; j++) {
+                omtrx[i][j] = inmat[i][j];
+            }
+        }
+
+        wk = new double[size];
+        aw = 1.0;
+        for (i = 0; i < size; i++) {
+            maxb = 0.0;
+            for (j = 0; j < size; j++) {
+                if (Math.abs(omtrx[i][j]) > maxb) {
+                    maxb = Math.abs(omtrx[i][j]);
+                }
+            }
+            if (maxb == 0.0) {
+                /* Singular matrix */
+                System.err.println("Singular matrix encountered");
+                throw new IllegalArgumentException("Singular matrix");
+            }
+            wk[i] = 1.0 / maxb;
+        }
+        for (j = 0; j < size; j++) {
+            for (i = 0; i < j; i++) {
+                sum = omtrx[i][j];
+                for (k = 0; k < i; k++) {
+                    sum -= omtrx[i][k] * omtrx[k][j];
+                }
+                omtrx[i][j] = sum;
+            }
+            maxb = 0.0;
+            for (i = j; i < size; i++) {
+                sum = omtrx[i][j];
+                for (k = 0; k < j; k++) {
+                    sum -= omtrx[i][k] * omtrx[k][j];
+                }
+                omtrx[i][j] = sum;
+                tmp = wk[i] * Math.abs(sum);
+                if (tmp >= maxb) {
+                    maxb = tmp;
+                    maxi = i;
+                }
+            }
+            if (j != maxi) {
+                for (k = 0; k < size; k++) {
+                    tmp = omtrx[maxi][k];
+                    omtrx[maxi][k] = omtrx[j][k];
+                    omtrx[j][k] = tmp;
+                }
+                aw = -aw;
+                wk[maxi] = wk[j];
+            }
+            index[j] = maxi;
+            if (omtrx[j][j] == 0.0) {
+                omtrx[j][j] = EPSILON;
+            }
+            if (j != size - 1) {
+                tmp = 1.0 / omtrx[j][j];
+                for (i = j + 1; i < size; i++) {
+                    omtrx[i][j] *= tmp;
+                }
+            }
+        }
+        for (jx = 0; jx < size; jx++) {
+            for (ix = 0; ix < size; ix++) {
+                wk[ix] = 0.0;
+            }
+            wk[jx] = 1.0;
+            l = -1;
+            for (i = 0; i < size; i++) {
+                idx = index[i];
+                sum = wk[idx];
+                wk[idx] = wk[i];
+                if (l != -1) {
+                    for (j = l; j < i; j++) {
+                        sum -= omtrx[i][j] * wk[j];
+                    }
+                } else if (sum != 0.0) {
+                    l = i;
+                }
+                wk[i] = sum;
+            }
+            for (i = size - 1; i >= 0; i--) {
+                sum = wk[i];
+                for (j = i + 1; j < size; j++) {
+                    sum -= omtrx[i][j] * wk[j];
+                }
+                wk[i] = sum / omtrx[i][i];
+            }
+            for (ix = 0; ix < size; ix++) {
+                imtrx[ix][jx] = wk[ix];
+            }
+        }
+        wk = null;
+        index = null;
+        omtrx = null;
+    }
+}
@@ -4,7 +4,9 @@ import jebl.evolution.sequences.SequenceType;
 import lphy.base.distribution.Categorical;
 import lphy.base.evolution.alignment.Alignment;
 import lphy.base.evolution.alignment.SimpleAlignment;
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.base.evolution.tree.TimeTree;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
@@ -13,9 +15,8 @@ import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
 
+import java.util.Map;
 import java.util.Objects;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 /**
  * Created by Alexei Drummond on 2/02/20.
@@ -34,6 +35,18 @@ public class PhyloCTMC extends AbstractPhyloCTMC {
     public static final String QParamName = "Q";
     public static final String siteRatesParamName = "siteRates";
 
+    static final ParameterSlots<PhyloCTMC> SLOTS = ParameterSlots.builder(PhyloCTMC.class)
+            .add(AbstractPhyloCTMC.treeParamName, c -> c.tree, (c, v) -> c.tree = v)
+            .add(AbstractPhyloCTMC.muParamName, c -> c.clockRate, (c, v) -> c.clockRate = v)
+            .add(AbstractPhyloCTMC.rootFreqParamName, c -> c.freq, (c, v) -> c.freq = v)
+            .add(QParamName, c -> c.Q, (c, v) -> c.Q = v)
+            .add(siteRatesParamName, c -> c.siteRates, (c, v) -> c.siteRates = v)
+            .add(AbstractPhyloCTMC.branchRatesParamName, c -> c.branchRates, (c, v) -> c.branchRates = v)
+            .add(AbstractPhyloCTMC.LParamName, c -> c.L, (c, v) -> c.L = v)
+            .add(AbstractPhyloCTMC.dataTypeParamName, c -> c.dataType, (c, v) -> c.dataType = v)
+            .add(AbstractPhyloCTMC.rootSeqParamName, c -> c.rootSeq, (c, v) -> c.rootSeq = v).build();
+    private final Map<String, Value> params = SLOTS.view(this);
+
 
     public PhyloCTMC(@ParameterInfo(name = AbstractPhyloCTMC.treeParamName, verb = "on", narrativeName = "phylogenetic time tree", description = "the time tree.") Value<TimeTree> tree,
                      @ParameterInfo(name = AbstractPhyloCTMC.muParamName, narrativeName = "molecular clock rate", description = "the clock rate. Default value is 1.0.", optional = true) Value<Number> mu,
@@ -82,39 +95,36 @@ public class PhyloCTMC extends AbstractPhyloCTMC {
         throw new RuntimeException("One of " + AbstractPhyloCTMC.LParamName + " or " + siteRatesParamName + " must be specified.");
     }
 
+    @Override
+    protected double[] getPrimitiveQ() {
+        return RateMatrixValue.toPrimitive(Q);
+    }
+
+    @Override
+    protected int getNumStates() {
+        if (Objects.requireNonNull(Q) instanceof RateMatrixValue rateMatrixValue)
+            return rateMatrixValue.getNumStates();
+        return Q.value().length;
+    }
+
     @Override
     protected Double[][] getQ() {
         return Objects.requireNonNull(Q).value();
     }
 
     @Override
-    public SortedMap<String, Value> getParams() {
-        SortedMap<String, Value> map = new TreeMap<>();
-        map.put(AbstractPhyloCTMC.treeParamName, tree);
-        if (clockRate != null) map.put(AbstractPhyloCTMC.muParamName, clockRate);
-        if (freq != null) map.put(AbstractPhyloCTMC.rootFreqParamName, freq);
-        map.put(QParamName, Q);
-        if (siteRates != null) map.put(siteRatesParamName, siteRates);
-        if (branchRates != null) map.put(AbstractPhyloCTMC.branchRatesParamName, branchRates);
-        if (L != null) map.put(AbstractPhyloCTMC.LParamName, L);
-        if (dataType != null) map.put(AbstractPhyloCTMC.dataTypeParamName, dataType);
-        if (rootSeq != null) map.put(AbstractPhyloCTMC.rootSeqParamName, rootSeq);
-        return map;
+    public Map<String, Value> getParams() {
+        return params;
     }
 
     @Override
     public void setParam(String paramName, Value value) {
-        if (paramName.equals(AbstractPhyloCTMC.treeParamName)) tree = value;
-        else if (paramName.equals(AbstractPhyloCTMC.muParamName)) clockRate = value;
-        else if (paramName.equals(AbstractPhyloCTMC.rootFreqParamName)) freq = value;
-        else if (paramName.equals(QParamName)) Q = value;
-        else if (paramName.equals(siteRatesParamName)) siteRates = value;
-        else if (paramName.equals(AbstractPhyloCTMC.branchRatesParamName)) branchRates = value;
-        else if (paramName.equals(AbstractPhyloCTMC.LParamName)) L = value;
-            //        else if (paramName.equals(stateNamesParamName)) stateNames = value;
-        else if (paramName.equals(AbstractPhyloCTMC.dataTypeParamName)) dataType = value;
-        else if (paramName.equals(AbstractPhyloCTMC.rootSeqParamName)) rootSeq = value;
-        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
+        SLOTS.set(this, SLOTS.slotOf(paramName), value);
+    }
+
+    @Override
+    public void setParam(int slot, Value value) {
+        SLOTS.set(this, slot, value);
     }
 
     // use default setup()
@@ -141,12 +151,10 @@ public class PhyloCTMC extends AbstractPhyloCTMC {
             if (rootSeq != null) {
                 // use simulated or user specified root sequence
                 int rootState = rootSeq.value().getState(0, i); // root taxon is 0
-                traverseTree(tree.value().getRoot(), rootState, a, i, transProb, mu,
-                        (siteRates == null) ? 1.0 : siteRates.value()[i]);
+                simulateSite(rootState, a, i, mu, (siteRates == null) ? 1.0 : siteRates.value()[i]);
             } else {
                 int rootState = Categorical.sample(rootFreqs.value(), random);
-                traverseTree(tree.value().getRoot(), rootState, a, i, transProb, mu,
-                        (siteRates == null) ? 1.0 : siteRates.value()[i]);
+                simulateSite(rootState, a, i, mu, (siteRates == null) ? 1.0 : siteRates.value()[i]);
             }
 
         }
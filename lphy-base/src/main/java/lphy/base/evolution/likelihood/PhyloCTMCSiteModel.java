@@ -63,6 +63,16 @@ public class PhyloCTMCSiteModel extends AbstractPhyloCTMC {
         throw new RuntimeException("One of " + AbstractPhyloCTMC.LParamName + " or " + siteModelParamName + " site rates must be specified.");
     }
 
+    @Override
+    protected double[] getPrimitiveQ() {
+        return Objects.requireNonNull(siteModel.value()).getPrimitiveQ();
+    }
+
+    @Override
+    protected int getNumStates() {
+        return Objects.requireNonNull(siteModel.value()).stateCount();
+    }
+
     @Override
     protected Double[][] getQ() {
         return Objects.requireNonNull(siteModel.value()).getQ();
@@ -151,8 +161,7 @@ public class PhyloCTMCSiteModel extends AbstractPhyloCTMC {
         for (int i = 0; i < siteCount; i++) {
 
             int rootState = Categorical.sample(rootFreqs.value(), random);
-            traverseTree(tree.value().getRoot(), rootState, a, i, transProb, mu,
-                    finalSiteRates[i]);
+            simulateSite(rootState, a, i, mu, finalSiteRates[i]);
         }
 
         return new RandomVariable<>(null, a, this);
@@ -106,7 +106,8 @@ public class SparsePhyloCTMC extends PhyloCTMC {
 
         // 2) The total expected # of events = branchLength * N * mu
         //    We'll compute mu from the Q matrix.
-        Double[][] Qm = getQ();
+        // row-major
+        double[] Qm = getPrimitiveQ();
         double mu = (this.clockRate == null) ? computeMeanOffDiagonalRate(Qm) : ValueUtils.doubleValue(clockRate);
 
         int N = getSiteCount();
@@ -208,19 +209,20 @@ public class SparsePhyloCTMC extends PhyloCTMC {
     /**
      * Sample a new state from the parentState's off-diagonal rates in the Q matrix.
      */
-    private int sampleNewState(int parentState, Double[][] Qm) {
-        int numStates = Qm.length;
+    private int sampleNewState(int parentState, double[] Qm) {
+        int numStates = getNumStates();
+        final int row = parentState * numStates;
         double sumOffDiag = 0.0;
         for (int s = 0; s < numStates; s++) {
             if (s != parentState) {
-                sumOffDiag += Qm[parentState][s];
+                sumOffDiag += Qm[row + s];
             }
         }
         double r = random.nextDouble() * sumOffDiag;
         double cumulative = 0.0;
         for (int s = 0; s < numStates; s++) {
             if (s == parentState) continue;
-            cumulative += Qm[parentState][s];
+            cumulative += Qm[row + s];
             if (r <= cumulative) return s;
         }
         // fallback if rounding errors occur
@@ -249,14 +251,14 @@ public class SparsePhyloCTMC extends PhyloCTMC {
      * Compute the average off-diagonal rate from the Q matrix (row sums of off-diagonal entries).
      * This is used as "mu" in Poisson(lambda) = lambda = branchLength * mu * N.
      */
-    private double computeMeanOffDiagonalRate(Double[][] Qm) {
-        int numStates = Qm.length;
+    private double computeMeanOffDiagonalRate(double[] Qm) {
+        int numStates = getNumStates();
         double sum = 0.0;
         int count = 0;
         for (int i = 0; i < numStates; i++) {
             for (int j = 0; j < numStates; j++) {
                 if (i != j) {
-                    sum += Qm[i][j];
+                    sum += Qm[i * numStates + j];
                     count++;
                 }
             }
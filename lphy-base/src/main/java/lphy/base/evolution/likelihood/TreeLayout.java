@@ -0,0 +1,113 @@
+package lphy.base.evolution.likelihood;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+
+import java.util.*;
+
+/**
+ * The nodes of a {@link TimeTree} in the pre-order, and the branch times and sequence indices,
+ * which are prepared once and shared by all partitions simulated on the same tree,
+ * so that {@link AbstractPhyloCTMC} can traverse the tree without recursion.
+ * The sequence indices are in the order the ids are visited, the same as the recursive traversal
+ * in the previous version. They are only kept in the layout, so the leaf indices of the tree are not changed.
+ * The layout is rebuilt if the tree is changed in place, see {@link TimeTree#getVersion()}.
+ */
+final class TreeLayout {
+
+    // the trees being simulated, which use identity equals
+    private static final Map<TimeTree, TreeLayout> cache = new WeakHashMap<>();
+
+    private final TimeTreeNode root;
+    private final long version;
+    // id to sequence index
+    private final SortedMap<String, Integer> idMap;
+    // the index of parent node in the pre-order, -1 for root
+    final int[] parent;
+    // the time of branch above the node, 0 for root
+    final double[] branchTimes;
+    // the index of branch rate, which is the node index
+    final int[] branchRateIndex;
+    // the row in the alignment, or -1 if the node has no sequence
+    final int[] sequenceIndex;
+
+    private TreeLayout(TimeTree tree) {
+        root = tree.getRoot();
+        version = tree.getVersion();
+        final int nodeCount = tree.getNodeCount();
+
+        List<TimeTreeNode> nodes = new ArrayList<>(nodeCount);
+        List<Integer> parents = new ArrayList<>(nodeCount);
+        // pre-order, the children are popped in their order
+        ArrayDeque<TimeTreeNode> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> parentStack = new ArrayDeque<>();
+        stack.push(root);
+        parentStack.push(-1);
+        while (!stack.isEmpty()) {
+            TimeTreeNode node = stack.pop();
+            int p = parentStack.pop();
+            int i = nodes.size();
+            nodes.add(node);
+            parents.add(p);
+            List<TimeTreeNode> children = node.getChildren();
+            for (int c = children.size() - 1; c >= 0; c--) {
+                stack.push(children.get(c));
+                parentStack.push(i);
+            }
+        }
+
+        final int n = nodes.size();
+        parent = new int[n];
+        branchTimes = new double[n];
+        branchRateIndex = new int[n];
+        sequenceIndex = new int[n];
+        SortedMap<String, Integer> ids = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            TimeTreeNode node = nodes.get(i);
+            parent[i] = parents.get(i);
+            if (parent[i] >= 0)
+                branchTimes[i] = nodes.get(parent[i]).getAge() - node.getAge();
+            branchRateIndex[i] = node.getIndex();
+
+            // if internal nodes have id, then simulate sequences, otherwise only sequences on tips.
+            int index = -1;
+            if (node.isLeaf() || node.getId() != null) {
+                index = ids.computeIfAbsent(node.getId(), id -> ids.size());
+            }
+            if (node.isLeaf() || (node.isSingleChildNonOrigin() && node.getId() != null))
+                sequenceIndex[i] = index;
+            else
+                sequenceIndex[i] = -1;
+        }
+        idMap = Collections.unmodifiableSortedMap(ids);
+    }
+
+    /**
+     * @return the layout of the tree, which is only created once for the same tree.
+     */
+    static TreeLayout of(TimeTree tree) {
+        synchronized (cache) {
+            TreeLayout layout = cache.get(tree);
+            // rebuild if the tree is changed
+            if (layout == null || layout.root != tree.getRoot() || layout.version != tree.getVersion()) {
+                layout = new TreeLayout(tree);
+                cache.put(tree, layout);
+            }
+            return layout;
+        }
+    }
+
+    /**
+     * @return the number of nodes in the pre-order.
+     */
+    int size() {
+        return parent.length;
+    }
+
+    /**
+     * @return the map of ids to the sequence indices, which cannot be modified.
+     */
+    SortedMap<String, Integer> getIdMap() {
+        return idMap;
+    }
+}
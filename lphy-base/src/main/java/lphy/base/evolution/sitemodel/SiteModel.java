@@ -1,5 +1,6 @@
 package lphy.base.evolution.sitemodel;
 
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.core.model.MultiDimensional;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.MethodInfo;
@@ -10,8 +11,11 @@ import lphy.core.model.annotation.TypeInfo;
         examples = {"simpleBModelTest.lphy"})
 public class SiteModel implements MultiDimensional {
 
-    // instantaneous rate matrix
+    // instantaneous rate matrix, boxed from primitiveQ if it is not given
     Double[][] Q;
+    // Q in row-major, created from Q if it is not given
+    private double[] primitiveQ;
+    private final int numStates;
 
     // rate per site before accounting for proportion invariable.
     Double[] siteRates;
@@ -23,17 +27,48 @@ public class SiteModel implements MultiDimensional {
     int nchar;
 
     public SiteModel(Double[][] Q, Double[] siteRates, Double proportionInvariable) {
+        this(Q, null, siteRates, proportionInvariable);
+    }
+
+    /**
+     * @param primitiveQ  Q in row-major, which must not be modified, or null to create it from Q.
+     */
+    public SiteModel(Double[][] Q, double[] primitiveQ, Double[] siteRates, Double proportionInvariable) {
         this.Q = Q;
+        this.primitiveQ = primitiveQ;
+        this.numStates = Q.length;
+        this.siteRates = siteRates;
+        this.proportionInvariable = proportionInvariable;
+    }
+
+    /**
+     * @param primitiveQ  Q in row-major, which must not be modified. Q is only boxed when {@link #getQ()} is called.
+     * @param numStates   the number of rows and columns of Q.
+     */
+    public SiteModel(double[] primitiveQ, int numStates, Double[] siteRates, Double proportionInvariable) {
+        this.primitiveQ = primitiveQ;
+        this.numStates = numStates;
         this.siteRates = siteRates;
         this.proportionInvariable = proportionInvariable;
     }
 
     @MethodInfo(description = "the Q matrix for this site model",
             category = GeneratorCategory.SITE_MODEL, examples = {"simpleBModelTest.lphy"})
-    public Double[][] getQ() {
+    public synchronized Double[][] getQ() {
+        if (Q == null)
+            Q = RateMatrixValue.box(primitiveQ, numStates);
         return Q;
     }
 
+    /**
+     * @return Q in row-major, which must not be modified.
+     */
+    public double[] getPrimitiveQ() {
+        if (primitiveQ == null)
+            primitiveQ = RateMatrixValue.flatten(Q);
+        return primitiveQ;
+    }
+
     public boolean hasSiteRates() {
         return siteRates != null;
     }
@@ -44,7 +79,7 @@ public class SiteModel implements MultiDimensional {
     }
 
     public Integer stateCount() {
-        return Q.length;
+        return numStates;
     }
 
     @MethodInfo(description = "the proportion of invariable sites")
@@ -54,6 +89,6 @@ public class SiteModel implements MultiDimensional {
 
     @Override
     public int getDimension() {
-        return 1 + Q.length * Q.length + siteRates.length;
+        return 1 + numStates * numStates + siteRates.length;
     }
 }
@@ -5,7 +5,6 @@ import lphy.core.model.ValueUtils;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * Description is copied from https://taming-the-beast.org/tutorials/LanguagePhylogenies/ :
@@ -52,16 +51,17 @@ public class BinaryCovarion extends RateMatrix {
         double[] vfreq = ValueUtils.doubleArrayValue(getParams().get(vfreqParamName));
         double[] hfreq = ValueUtils.doubleArrayValue(getParams().get(hfreqParamName));
 
-        Double[][] Q = setupUnnormalizedQMatrix(alpha, switchRate, vfreq, hfreq);
+        double[] Q = setupUnnormalizedQMatrix(alpha, switchRate, vfreq, hfreq);
         Double[] freqs = getFrequencies(vfreq, hfreq);
 
         // normalise rate matrix to one expected substitution per unit time
         normalize(freqs, Q);
 
-        return new DoubleArray2DValue(Q, this);
+        return new RateMatrixValue(Q, NumOfStates, this);
     }
 
-    private Double[][] setupUnnormalizedQMatrix(double a, double s, double[] vf, double[] hf) {
+    // row-major
+    private double[] setupUnnormalizedQMatrix(double a, double s, double[] vf, double[] hf) {
         double f0 = hf[0];
         double f1 = hf[1];
         double p0 = vf[0];
@@ -70,65 +70,62 @@ public class BinaryCovarion extends RateMatrix {
         assert Math.abs(1.0 - f0 - f1) < 1e-8;
         assert Math.abs(1.0 - p0 - p1) < 1e-8;
 
-        Double[][] unnormalizedQ = new Double[NumOfStates][NumOfStates];
+        double[] unnormalizedQ = new double[NumOfStates * NumOfStates];
 
-        unnormalizedQ[0][1] = a * p1;
-        unnormalizedQ[0][2] = s;
-        unnormalizedQ[0][3] = 0.0;
+        unnormalizedQ[1] = a * p1;
+        unnormalizedQ[2] = s;
+        unnormalizedQ[3] = 0.0;
 
-        unnormalizedQ[1][0] = a * p0;
-        unnormalizedQ[1][2] = 0.0;
-        unnormalizedQ[1][3] = s;
+        unnormalizedQ[NumOfStates] = a * p0;
+        unnormalizedQ[NumOfStates + 2] = 0.0;
+        unnormalizedQ[NumOfStates + 3] = s;
 
-        unnormalizedQ[2][0] = s;
-        unnormalizedQ[2][1] = 0.0;
-        unnormalizedQ[2][3] = p1;
+        unnormalizedQ[2 * NumOfStates] = s;
+        unnormalizedQ[2 * NumOfStates + 1] = 0.0;
+        unnormalizedQ[2 * NumOfStates + 3] = p1;
 
-        unnormalizedQ[3][0] = 0.0;
-        unnormalizedQ[3][1] = s;
-        unnormalizedQ[3][2] = p0;
+        unnormalizedQ[3 * NumOfStates] = 0.0;
+        unnormalizedQ[3 * NumOfStates + 1] = s;
+        unnormalizedQ[3 * NumOfStates + 2] = p0;
 
         // set up diagonal
         for (int i = 0; i < NumOfStates; i++) {
             double sum = 0.0;
             for (int j = 0; j < NumOfStates; j++) {
                 if (i != j)
-                    sum += unnormalizedQ[i][j];
+                    sum += unnormalizedQ[i * NumOfStates + j];
             }
-            unnormalizedQ[i][i] = -sum;
+            unnormalizedQ[i * NumOfStates + i] = -sum;
         }
 
         return unnormalizedQ;
     }
 
-    void normalize(Double[] freqs, Double[][] Q) {
+    // Q is in row-major
+    void normalize(Double[] freqs, double[] Q) {
         double subst = 0.0;
         int dimension = freqs.length;
 
         for (int i = 0; i < dimension; i++) {
-            subst += -Q[i][i] * freqs[i];
+            subst += -Q[i * dimension + i] * freqs[i];
         }
 
         // normalize, including switches
-        for (int i = 0; i < dimension; i++) {
-            for (int j = 0; j < dimension; j++) {
-                Q[i][j] = Q[i][j] / subst;
-            }
+        for (int i = 0; i < Q.length; i++) {
+            Q[i] = Q[i] / subst;
         }
 
         double switchingProportion = 0.0;
-        switchingProportion += Q[0][2] * freqs[2];
-        switchingProportion += Q[2][0] * freqs[0];
-        switchingProportion += Q[1][3] * freqs[3];
-        switchingProportion += Q[3][1] * freqs[1];
+        switchingProportion += Q[2] * freqs[2];
+        switchingProportion += Q[2 * dimension] * freqs[0];
+        switchingProportion += Q[dimension + 3] * freqs[3];
+        switchingProportion += Q[3 * dimension + 1] * freqs[1];
 
         //System.out.println("switchingProportion=" + switchingProportion);
 
         // normalize, removing switches
-        for (int i = 0; i < dimension; i++) {
-            for (int j = 0; j < dimension; j++) {
-                Q[i][j] = Q[i][j] / (1.0 - switchingProportion);
-            }
+        for (int i = 0; i < Q.length; i++) {
+            Q[i] = Q[i] / (1.0 - switchingProportion);
         }
     }
 
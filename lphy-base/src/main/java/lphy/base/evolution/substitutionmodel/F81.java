@@ -5,7 +5,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * F81: AC = AG = AT = CG = CT = GT, unequal base frequencies, k + 3 free parameters
@@ -32,31 +31,30 @@ public class F81 extends RateMatrix {
             description = "The F81 instantaneous rate matrix. Takes base frequencies and produces an F81 rate matrix.")
     public Value<Double[][]> apply() {
         Value<Double[]> freq = getFreq();
-        return new DoubleArray2DValue(f81(freq.value()), this);
+        return f81(freq.value());
     }
 
-    private Double[][] f81(Double[] freqs) {
+    private RateMatrixValue f81(Double[] freqs) {
 
         int numStates = 4;
 
-        Double[][] Q = new Double[numStates][numStates];
+        // row-major
+        double[] Q = new double[numStates * numStates];
 
         double[] totalRates = new double[numStates];
 
         for (int i = 0; i < numStates; i++) {
             for (int j = 0; j < numStates; j++) {
                 if (i != j) {
-                    Q[i][j] = freqs[j];
-                } else Q[i][i] = 0.0;
-                totalRates[i] += Q[i][j];
+                    Q[i * numStates + j] = freqs[j];
+                }
+                totalRates[i] += Q[i * numStates + j];
             }
-            Q[i][i] = -totalRates[i];
+            Q[i * numStates + i] = -totalRates[i];
         }
 
         // normalise rate matrix to one expected substitution per unit time
-        normalize(freqs, Q);
-
-        return Q;
+        return normalizedValue(freqs, Q, numStates);
     }
 
     public Value<Double[]> getFreq() {
@@ -5,7 +5,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * GTR: AC, AG, AT, CG, CT, GT, unequal base frequencies, k + 8 free parameters
@@ -46,23 +45,22 @@ public class GTR extends RateMatrix {
     public Value<Double[][]> apply() {
         Value<Double[]> rates = getRates();
         Value<Double[]> freq = getParams().get(freqParamName);
-        return new DoubleArray2DValue(gtr(rates.value(), freq.value()), this);
+        return gtr(rates.value(), freq.value());
     }
 
-    private Double[][] gtr(Double[] rates, Double[] freqs) {
+    private RateMatrixValue gtr(Double[] rates, Double[] freqs) {
 
         int numStates = 4;
 
-        Double[][] Q = new Double[numStates][numStates];
-
-        double[] totalRates = new double[numStates];
+        // row-major
+        double[] Q = new double[numStates * numStates];
 
         // construct off-diagonals
         int upper = 0;
         for (int i = 0; i < numStates; i++) {
             for (int j = i + 1; j < numStates; j++) {
-                Q[i][j] = rates[upper] * freqs[j];
-                Q[j][i] = rates[upper] * freqs[i];
+                Q[i * numStates + j] = rates[upper] * freqs[j];
+                Q[j * numStates + i] = rates[upper] * freqs[i];
                 upper += 1;
             }
         }
@@ -72,15 +70,13 @@ public class GTR extends RateMatrix {
             double totalRate = 0.0;
             for (int j = 0; j < numStates; j++) {
                 if (j != i) {
-                    totalRate += Q[i][j];
+                    totalRate += Q[i * numStates + j];
                 }
             }
-            Q[i][i] = -totalRate;
+            Q[i * numStates + i] = -totalRate;
         }
         // normalise rate matrix to one expected substitution per unit time
-        normalize(freqs, Q, totalRateDefault1());
-
-        return Q;
+        return normalizedValue(freqs, Q, numStates);
     }
 
     public Value<Double[]> getRates() {
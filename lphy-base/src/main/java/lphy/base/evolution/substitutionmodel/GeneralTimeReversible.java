@@ -4,7 +4,6 @@ import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * Created by Alexei Drummond on 2/02/20.
@@ -38,7 +37,7 @@ public class GeneralTimeReversible extends RateMatrix {
         Value<Double[]> freq = getFreq();
         update (rates, freq);
 
-        return new DoubleArray2DValue(generalTimeReversible(rates.value(), freq.value()), this);
+        return generalTimeReversible(rates.value(), freq.value());
     }
 
     // symmetric rate matrix: rates and indicators dimension = n(n-1)/2
@@ -49,18 +48,17 @@ public class GeneralTimeReversible extends RateMatrix {
             throw new RuntimeException("Expected dimension of " + ratesDim + " for the rates of a " + numStates + " state model.");
     }
 
-    private Double[][] generalTimeReversible(Double[] rates, Double[] freqs) {
+    private RateMatrixValue generalTimeReversible(Double[] rates, Double[] freqs) {
 
-        Double[][] Q = new Double[numStates][numStates];
-
-        double[] totalRates = new double[numStates];
+        // row-major
+        double[] Q = new double[numStates * numStates];
 
         // construct off-diagonals
         int upper = 0;
         for (int i = 0; i < numStates; i++) {
             for (int j = i + 1; j < numStates; j++) {
-                Q[i][j] = rates[upper] * freqs[j];
-                Q[j][i] = rates[upper] * freqs[i];
+                Q[i * numStates + j] = rates[upper] * freqs[j];
+                Q[j * numStates + i] = rates[upper] * freqs[i];
                 upper += 1;
             }
         }
@@ -70,15 +68,13 @@ public class GeneralTimeReversible extends RateMatrix {
             double totalRate = 0.0;
             for (int j = 0; j < numStates; j++) {
                 if (j != i) {
-                    totalRate += Q[i][j];
+                    totalRate += Q[i * numStates + j];
                 }
             }
-            Q[i][i] = -totalRate;
+            Q[i * numStates + i] = -totalRate;
         }
         // normalise rate matrix to one expected substitution per unit time
-        normalize(freqs, Q, totalRateDefault1());
-
-        return Q;
+        return normalizedValue(freqs, Q, numStates);
     }
 
     public Value<Double[]> getRates() {
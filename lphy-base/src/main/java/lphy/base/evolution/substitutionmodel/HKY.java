@@ -6,7 +6,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 import java.util.Map;
 
@@ -48,7 +47,7 @@ public class HKY extends RateMatrix {
         double kappa = ValueUtils.doubleValue((Value<Number>)params.get(kappaParamName));
         Double[] freq = ((Value<Double[]>)params.get(freqParamName)).value();
 
-        return new DoubleArray2DValue(hky(kappa, freq), this);
+        return hky(kappa, freq);
     }
 
     public Value<Double> getKappa() {
@@ -59,11 +58,12 @@ public class HKY extends RateMatrix {
         return getParams().get(freqParamName);
     }
 
-    private Double[][] hky(double kappa, Double[] freqs) {
+    private RateMatrixValue hky(double kappa, Double[] freqs) {
 
         int numStates = 4;
-        
-        Double[][] Q = new Double[numStates][numStates];
+
+        // row-major
+        double[] Q = new double[numStates * numStates];
 
         double[] totalRates = new double[numStates];
 
@@ -71,20 +71,18 @@ public class HKY extends RateMatrix {
             for (int j = 0; j < numStates; j++) {
                 if (i != j) {
                     if (Math.abs(i-j) == 2) {
-                        Q[i][j] = kappa * freqs[j];
+                        Q[i * numStates + j] = kappa * freqs[j];
                     } else {
-                        Q[i][j] = freqs[j];
+                        Q[i * numStates + j] = freqs[j];
                     }
-                } else Q[i][i] = 0.0;
-                totalRates[i] += Q[i][j];
+                }
+                totalRates[i] += Q[i * numStates + j];
             }
-            Q[i][i] = -totalRates[i];
+            Q[i * numStates + i] = -totalRates[i];
         }
 
         // normalise rate matrix to rate
-        normalize(freqs, Q);
-
-        return Q;
+        return normalizedValue(freqs, Q, numStates);
     }
 
     public static void main(String... args) throws ClassNotFoundException {
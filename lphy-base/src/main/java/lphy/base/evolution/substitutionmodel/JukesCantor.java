@@ -6,7 +6,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * JC69: AC = AG = AT = CG = CT = GT, equal base frequencies, k free parameters
@@ -30,6 +29,6 @@ public class JukesCantor extends RateMatrix {
     public Value<Double[][]> apply() {
         Value<Number> rateValue = getParams().get(meanRateParamName);
         double rate = (rateValue != null) ? ValueUtils.doubleValue(rateValue) : 1.0;
-        return new DoubleArray2DValue(LewisMK.jc(rate, 4), this);
+        return new RateMatrixValue(LewisMK.jc(rate, 4), 4, this);
     }
 }
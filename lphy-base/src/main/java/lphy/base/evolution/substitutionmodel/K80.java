@@ -5,7 +5,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * K80: AC = AT = CG = GT, AG = CT, equal base frequencies, k + 1 free parameters
@@ -35,14 +34,15 @@ public class K80 extends RateMatrix {
             description = "The K80 instantaneous rate matrix. Takes a kappa and produces a K80 rate matrix.")
     public Value<Double[][]> apply() {
         Value<Double> kappa = getKappa();
-        return new DoubleArray2DValue(k80(kappa.value()), this);
+        return k80(kappa.value());
     }
 
-    private Double[][] k80(double kappa) {
+    private RateMatrixValue k80(double kappa) {
 
         int numStates = 4;
 
-        Double[][] Q = new Double[numStates][numStates];
+        // row-major
+        double[] Q = new double[numStates * numStates];
 
         double[] totalRates = new double[numStates];
 
@@ -50,19 +50,17 @@ public class K80 extends RateMatrix {
             for (int j = 0; j < numStates; j++) {
                 if (i != j) {
                     if (Math.abs(i-j) == 2) {
-                        Q[i][j] = kappa;
+                        Q[i * numStates + j] = kappa;
                     } else {
-                        Q[i][j] = 1.0;
+                        Q[i * numStates + j] = 1.0;
                     }
                 }
-                totalRates[i] += Q[i][j];
+                totalRates[i] += Q[i * numStates + j];
             }
-            Q[i][i] = -totalRates[i];
+            Q[i * numStates + i] = -totalRates[i];
         }
 
-        normalize(new Double[] {0.25, 0.25, 0.25, 0.25}, Q, totalRateDefault1());
-
-        return Q;
+        return normalizedValue(new Double[] {0.25, 0.25, 0.25, 0.25}, Q, numStates);
     }
 
     public Value<Double> getKappa() {
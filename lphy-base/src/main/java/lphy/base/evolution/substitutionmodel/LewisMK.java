@@ -6,7 +6,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * lewisMK: for discrete morphological data.
@@ -37,18 +36,19 @@ public class LewisMK extends RateMatrix {
         Value<Integer> numStates = getParams().get(numStatesParamName);
         Value<Number> rateValue = getParams().get(meanRateParamName);
         double rate = (rateValue != null) ? ValueUtils.doubleValue(rateValue) : 1.0;
-        return new DoubleArray2DValue( jc(rate, numStates.value()), this);
+        return new RateMatrixValue(jc(rate, numStates.value()), numStates.value(), this);
     }
 
-    static Double[][] jc(Double meanRate, int numStates) {
-        Double[][] Q = new Double[numStates][numStates];
+    // row-major
+    static double[] jc(double meanRate, int numStates) {
+        double[] Q = new double[numStates * numStates];
 
         for (int i = 0; i < numStates; i++) {
             for (int j = 0; j < numStates; j++) {
                 if (i != j) {
-                    Q[i][j] = 1.0 / (numStates-1.0) * meanRate;
+                    Q[i * numStates + j] = 1.0 / (numStates-1.0) * meanRate;
                 } else {
-                    Q[i][i] = -1.0 * meanRate;
+                    Q[i * numStates + i] = -1.0 * meanRate;
                 }
             }
         }
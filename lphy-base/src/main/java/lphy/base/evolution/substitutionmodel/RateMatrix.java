@@ -20,10 +20,6 @@ public abstract class RateMatrix extends DeterministicFunction<Double[][]> {
     }
 
 
-    void normalize(Double[] freqs, Double[][] Q) {
-        normalize(freqs, Q, totalRateDefault1());
-    }
-
     protected void normalize(Double[] freqs, Double[][] Q, double rate) {
         // normalise rate matrix to one expected substitution per unit time
         double subst = 0.0;
@@ -38,21 +34,32 @@ public abstract class RateMatrix extends DeterministicFunction<Double[][]> {
         }
     }
 
-    // Java Double matter
-    Double[][] normalize(double[] freqs, double[][] Q, double rate) {
-        Double[][] Qn = new Double[Q.length][Q.length];
-        // normalise rate matrix to one expected substitution per unit time
+    /**
+     * normalise the row-major rate matrix in place to the mean rate of {@link #totalRateDefault1()},
+     * and return it as a {@link RateMatrixValue}.
+     */
+    protected RateMatrixValue normalizedValue(Double[] freqs, double[] Q, int numStates) {
+        normalize(freqs, Q, numStates, totalRateDefault1());
+        return new RateMatrixValue(Q, numStates, this);
+    }
+
+    // normalise the row-major rate matrix in place to one expected substitution per unit time
+    protected static void normalize(Double[] freqs, double[] Q, int numStates, double rate) {
+        double[] f = new double[numStates];
+        for (int i = 0; i < numStates; i++)
+            f[i] = freqs[i];
+        normalize(f, Q, numStates, rate);
+    }
+
+    protected static void normalize(double[] freqs, double[] Q, int numStates, double rate) {
         double subst = 0.0;
-        for (int i = 0; i < Q.length; i++) {
-            subst += -Q[i][i] * freqs[i];
+        for (int i = 0; i < numStates; i++) {
+            subst += -Q[i * numStates + i] * freqs[i];
         }
 
         for (int i = 0; i < Q.length; i++) {
-            for (int j = 0; j < Q.length; j++) {
-                Qn[i][j] = rate * (Q[i][j] / subst);
-            }
+            Q[i] = rate * (Q[i] / subst);
         }
-        return Qn;
     }
 
     public double totalRateDefault1() {
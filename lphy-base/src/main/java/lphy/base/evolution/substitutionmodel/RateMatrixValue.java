@@ -0,0 +1,114 @@
+package lphy.base.evolution.substitutionmodel;
+
+import lphy.core.model.DeterministicFunction;
+import lphy.core.model.Value;
+import lphy.core.model.datatype.DoubleArray2DValue;
+
+/**
+ * The value of an instantaneous rate matrix, which is backed by a flat row-major double[],
+ * so that the simulations, such as {@link lphy.base.evolution.likelihood.PhyloCTMC},
+ * can use the matrix without unboxing it. The Double[][] is the view for the LPhy language.
+ * Neither the primitive array nor the view should be modified after creation.
+ * If the view is replaced by {@link #setValue(Double[][])}, the primitive array is recreated from it,
+ * before the listeners are notified.
+ */
+public class RateMatrixValue extends DoubleArray2DValue {
+
+    private int numStates;
+    // row-major, Q[i][j] is q[i * numStates + j]
+    private double[] q;
+
+    /**
+     * @param id         the id, which can be null
+     * @param q          the row-major matrix, which is owned by this value.
+     * @param numStates  the number of rows and columns.
+     * @param function   the function that produced this value, which can be null.
+     */
+    public RateMatrixValue(String id, double[] q, int numStates, DeterministicFunction function) {
+        super(id, box(checkLength(q, numStates), numStates), function);
+        this.numStates = numStates;
+        this.q = q;
+    }
+
+    public RateMatrixValue(double[] q, int numStates, DeterministicFunction function) {
+        this(null, q, numStates, function);
+    }
+
+    private static double[] checkLength(double[] q, int numStates) {
+        if (q.length != numStates * numStates)
+            throw new IllegalArgumentException("The rate matrix of " + numStates + " states must have " +
+                    numStates * numStates + " elements, but it has " + q.length + " !");
+        return q;
+    }
+
+    @Override
+    public void setValue(Double[][] value) {
+        double[] q = flatten(value);
+        synchronized (this) {
+            this.q = q;
+            this.numStates = value.length;
+        }
+        // the listeners are not called with the lock
+        super.setValue(value);
+    }
+
+    /**
+     * @param q          the row-major matrix
+     * @param numStates  the number of rows and columns.
+     * @return  the boxed copy of q.
+     */
+    public static Double[][] box(double[] q, int numStates) {
+        Double[][] Q = new Double[numStates][numStates];
+        for (int i = 0; i < numStates; i++)
+            for (int j = 0; j < numStates; j++)
+                Q[i][j] = q[i * numStates + j];
+        return Q;
+    }
+
+    /**
+     * @param Q  a square matrix
+     * @return  the row-major copy of Q.
+     */
+    public static double[] flatten(Double[][] Q) {
+        final int numStates = Q.length;
+        double[] q = new double[numStates * numStates];
+        for (int i = 0; i < numStates; i++) {
+            if (Q[i].length != numStates)
+                throw new IllegalArgumentException("The rate matrix must be square, but row " + i +
+                        " has " + Q[i].length + " columns instead of " + numStates + " !");
+            for (int j = 0; j < numStates; j++)
+                q[i * numStates + j] = Q[i][j];
+        }
+        return q;
+    }
+
+    /**
+     * @param Q  the value of a square matrix, such as the output of {@link RateMatrix}.
+     * @return  the row-major matrix, which is not copied if Q is a {@link RateMatrixValue},
+     *          so it must not be modified.
+     */
+    public static double[] toPrimitive(Value<Double[][]> Q) {
+        if (Q instanceof RateMatrixValue rateMatrixValue)
+            return rateMatrixValue.getPrimitive();
+        return flatten(Q.value());
+    }
+
+    /**
+     * @return  the row-major matrix, which must not be modified.
+     */
+    public synchronized double[] getPrimitive() {
+        return q;
+    }
+
+    public synchronized int getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * @return Q[i][j]
+     */
+    public synchronized double get(int i, int j) {
+        return q[i * numStates + j];
+    }
+
+}
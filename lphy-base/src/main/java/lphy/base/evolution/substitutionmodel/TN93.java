@@ -5,7 +5,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * TN93: AC = AT = CG = GT, AG, CT, unequal base frequencies, k + 5 free parameters
@@ -44,18 +43,19 @@ public class TN93 extends RateMatrix {
         Value<Double> kappa1 = getKappa1();
         Value<Double> kappa2 = getKappa2();
         Value<Double[]> freq = getParams().get(freqParamName);
-        return new DoubleArray2DValue(getName() + "(" + kappa1.getLabel() + ", " + kappa2.getLabel() + ", " + freq.getLabel() + ")", hky(kappa1.value(), kappa2.value(), freq.value()), this);
+        return new RateMatrixValue(getName() + "(" + kappa1.getLabel() + ", " + kappa2.getLabel() + ", " + freq.getLabel() + ")", hky(kappa1.value(), kappa2.value(), freq.value()), 4, this);
     }
 
-    private Double[][] hky(double kappa1, double kappa2, Double[] freqs) {
+    private double[] hky(double kappa1, double kappa2, Double[] freqs) {
 
         int numStates = 4;
 
-        Double[][] Q = {
-                {0.0, freqs[1], freqs[2] * kappa1, freqs[3]},
-                {freqs[0], 0.0, freqs[2], freqs[3] * kappa2},
-                {freqs[0] * kappa1, freqs[1], 0.0, freqs[3]},
-                {freqs[0], freqs[1] * kappa2, freqs[2], 0.0}
+        // row-major
+        double[] Q = {
+                0.0, freqs[1], freqs[2] * kappa1, freqs[3],
+                freqs[0], 0.0, freqs[2], freqs[3] * kappa2,
+                freqs[0] * kappa1, freqs[1], 0.0, freqs[3],
+                freqs[0], freqs[1] * kappa2, freqs[2], 0.0
         };
 
         double[] totalRates = new double[numStates];
@@ -63,11 +63,12 @@ public class TN93 extends RateMatrix {
 
         for (int i = 0; i < numStates; i++) {
             for (int j = 0; j < numStates; j++) {
-                totalRates[i] += Q[i][j];
+                totalRates[i] += Q[i * numStates + j];
             }
+            Q[i * numStates + i] = -totalRates[i];
         }
 
-        normalize(freqs, Q);
+        normalize(freqs, Q, numStates, totalRateDefault1());
 
         return Q;
     }
@@ -6,7 +6,6 @@ import lphy.core.model.annotation.Citation;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 import java.util.stream.Stream;
 
@@ -46,12 +45,10 @@ public class WAG extends RateMatrix {
     public Value<Double[][]> apply() {
         Value<Double[]> freq = getParams().get(freqParamName);
 
-        Double[][] Q = freq != null ? getQ(freq.value()) : getQ(null);
-
-        return new DoubleArray2DValue(Q, this);
+        return freq != null ? getQ(freq.value()) : getQ(null);
     }
 
-    protected Double[][] getQ(Double[] freqs) {
+    protected RateMatrixValue getQ(Double[] freqs) {
         double[] f;
         if (freqs != null) {
             f = Stream.of(freqs).mapToDouble(Double::doubleValue).toArray();
@@ -63,9 +60,14 @@ public class WAG extends RateMatrix {
         double totalRate = wag.setParametersNoScale(null);
         // this is Q before normalise
         double[][] Q = wag.getRelativeRates();
+        final int numStates = Q.length;
+        double[] q = new double[numStates * numStates];
+        for (int i = 0; i < numStates; i++)
+            System.arraycopy(Q[i], 0, q, i * numStates, numStates);
 
         // normalise rate matrix to one expected substitution per unit time
-        return normalize(f, Q, totalRateDefault1());
+        normalize(f, q, numStates, totalRateDefault1());
+        return new RateMatrixValue(q, numStates, this);
     }
 
     // can be null
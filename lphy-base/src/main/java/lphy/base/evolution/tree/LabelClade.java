@@ -25,14 +25,13 @@ public class LabelClade extends DeterministicFunction<TimeTree> {
             description = "Find the most recent common ancestor of given taxa names in the tree and give it a label.")
     @Override
     public Value<TimeTree> apply() {
-        // make a deep copy of the tree
+        // find mrca node in the original tree, whose index is kept by the copy
         TimeTree tree = getTree().value();
-        TimeTree newTree = new TimeTree(tree);
+        int mrcaIndex = tree.getLCAIndex().getMRCA(getTaxa().value()).getIndex();
 
-        // find mrca node
-        Value<TimeTree> treeValue = new Value<>("newTree", newTree);
-        MRCA mrcaInstance = new MRCA(treeValue, getTaxa());
-        TimeTreeNode mrca = mrcaInstance.apply().value();
+        // make a deep copy of the tree
+        TimeTree newTree = new TimeTree(tree);
+        TimeTreeNode mrca = newTree.getNodeByIndex(mrcaIndex);
 
         // set label metadata
         String label = getLabel().value();
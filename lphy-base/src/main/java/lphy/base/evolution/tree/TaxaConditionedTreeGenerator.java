@@ -110,6 +110,17 @@ public abstract class TaxaConditionedTreeGenerator implements GenerativeDistribu
         return taxa;
     }
 
+    /**
+     * @return true if every tree sampled from this generator has the same taxa,
+     *         which requires the values defining the taxa to be non-random.
+     */
+    public boolean hasFixedTaxa() {
+        for (Value value : new Value[]{n, taxaValue, ages})
+            if (value != null && value.isRandom())
+                return false;
+        return true;
+    }
+
     protected int n() {
         if (n != null) return n.value();
         return getTaxa().ntaxa();
@@ -27,6 +27,13 @@ public class TimeTree implements HasTaxa, MultiDimensional {
     // number of leaves
     int n = 0;
 
+    // lazily built, and discarded when the topology is changed,
+    // volatile so that the index is safely published to the other threads reading this tree
+    private volatile TimeTreeLCA lcaIndex = null;
+    // incremented by the changes of nodes, see getVersion(),
+    // which are made by one thread before the tree is shared
+    private long version = 0;
+
     public TimeTree(ArrayList<TimeTreeNode> nodes) {
         this.nodes = nodes;
         TimeTreeNode root = null;
@@ -56,6 +63,8 @@ public class TimeTree implements HasTaxa, MultiDimensional {
     public void setRoot(TimeTreeNode root, boolean reindexLeaves) {
 
         rootNode = root;
+        lcaIndex = null;
+        version++;
         rootNode.setParent(null);
         rootNode.tree = this;
         nodes = new ArrayList<>();
@@ -225,6 +234,49 @@ public class TimeTree implements HasTaxa, MultiDimensional {
         return rootNode;
     }
 
+    /**
+     * Discards the LCA index, which is called by the nodes of this tree
+     * when their children, parent, indices or ids are changed.
+     */
+    void topologyChanged() {
+        lcaIndex = null;
+        version++;
+    }
+
+    /**
+     * Called by the nodes of this tree when their ages are changed.
+     */
+    void agesChanged() {
+        version++;
+    }
+
+    /**
+     * @return the number of changes to the topology, ids and ages of this tree,
+     *         so that the data derived from the tree can be rebuilt after it is changed in place.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The index is built on the first call, and rebuilt after the topology is changed.
+     * It is only built once, when the tree is read by multiple threads.
+     * @return the lowest common ancestor index of this tree for MRCA and clade queries.
+     */
+    public TimeTreeLCA getLCAIndex() {
+        TimeTreeLCA index = lcaIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = lcaIndex;
+                if (index == null) {
+                    index = new TimeTreeLCA(this);
+                    lcaIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     @MethodInfo(description = "get all taxa names")
     public String[] getTaxaNames() {
         return taxa.getTaxaNames();
@@ -309,6 +361,11 @@ public class TimeTree implements HasTaxa, MultiDimensional {
         return age;
     }
 
+    @MethodInfo(description = "returns true if the given taxa names form a clade in the tree, i.e. their most recent common ancestor has no other leaves.")
+    public Boolean isMonophyletic(String[] taxa) {
+        return getLCAIndex().isMonophyletic(taxa);
+    }
+
     @MethodInfo(description = "the total length of the tree")
     public Double treeLength() {
 
@@ -0,0 +1,247 @@
+package lphy.base.evolution.tree;
+
+import java.util.*;
+
+/**
+ * Lowest common ancestor index of a {@link TimeTree}, built from an Euler tour
+ * of the tree and a sparse table of range minima over the tour depths.
+ * After an O(N log N) build, the MRCA of two nodes is found in O(1),
+ * the MRCA of k taxa in O(k), and a clade check costs O(k).
+ * Leaves are numbered in depth-first order, so every clade covers
+ * a contiguous range of leaf positions, which gives the clade leaf bitsets.
+ * The index reflects the topology at the time it was built,
+ * {@link TimeTree#setRoot(TimeTreeNode, boolean)} and the topology changes
+ * of {@link TimeTreeNode}, such as adding or removing children, discard it.
+ * @see TimeTree#getLCAIndex()
+ */
+public class TimeTreeLCA {
+
+    private final TimeTree tree;
+    // nodes by index
+    private final TimeTreeNode[] nodes;
+    // node index at each step of the Euler tour
+    private final int[] euler;
+    // depth at each step of the Euler tour
+    private final int[] depth;
+    // first position of each node in the Euler tour
+    private final int[] first;
+    // sparse[k][i] is the tour position of min depth in [i, i + 2^k)
+    private final int[][] sparse;
+    // depth-first leaf order range [leafStart, leafEnd) of the clade under each node
+    private final int[] leafStart;
+    private final int[] leafEnd;
+    // the leaf index of the leaf at each depth-first position
+    private final int[] leafOrder;
+    private final Map<String, TimeTreeNode> leavesById;
+
+    public TimeTreeLCA(TimeTree tree) {
+        if (tree.getRoot() == null)
+            throw new IllegalArgumentException("Cannot index a tree without root !");
+        this.tree = tree;
+
+        List<TimeTreeNode> nodeList = tree.getNodes();
+        final int nodeCount = nodeList.size();
+        nodes = new TimeTreeNode[nodeCount];
+        for (TimeTreeNode node : nodeList) {
+            int index = node.getIndex();
+            if (index < 0 || index >= nodeCount || nodes[index] != null)
+                throw new IllegalArgumentException("Node indices are not consistent in the tree : " + index);
+            nodes[index] = node;
+        }
+
+        final int tourLength = 2 * nodeCount - 1;
+        euler = new int[tourLength];
+        depth = new int[tourLength];
+        first = new int[nodeCount];
+        leafStart = new int[nodeCount];
+        leafEnd = new int[nodeCount];
+        leafOrder = new int[tree.n()];
+        leavesById = new HashMap<>();
+
+        eulerTour(tree.getRoot());
+        sparse = buildSparseTable(depth);
+    }
+
+    // iterative to cope with very unbalanced trees
+    private void eulerTour(TimeTreeNode root) {
+        Deque<TimeTreeNode> stack = new ArrayDeque<>();
+        // the next child to visit for each node on the stack
+        int[] nextChild = new int[nodes.length];
+        int pos = 0;
+        int leafPos = 0;
+
+        stack.push(root);
+        first[root.getIndex()] = pos;
+        euler[pos] = root.getIndex();
+        depth[pos++] = 0;
+        leafStart[root.getIndex()] = leafPos;
+
+        while (!stack.isEmpty()) {
+            TimeTreeNode node = stack.peek();
+            int i = node.getIndex();
+            if (node.isLeaf()) {
+                leafOrder[leafPos++] = node.getLeafIndex();
+                if (node.getId() != null) leavesById.put(node.getId(), node);
+            }
+            if (nextChild[i] < node.getChildCount()) {
+                TimeTreeNode child = node.getChildren().get(nextChild[i]++);
+                stack.push(child);
+                int c = child.getIndex();
+                first[c] = pos;
+                leafStart[c] = leafPos;
+                euler[pos] = c;
+                depth[pos++] = stack.size() - 1;
+            } else {
+                stack.pop();
+                leafEnd[i] = leafPos;
+                // back to the parent
+                if (!stack.isEmpty()) {
+                    euler[pos] = stack.peek().getIndex();
+                    depth[pos++] = stack.size() - 1;
+                }
+            }
+        }
+        if (pos != euler.length)
+            throw new IllegalArgumentException("The tree has " + pos + " Euler tour steps, but expected " + euler.length);
+    }
+
+    private static int[][] buildSparseTable(int[] depth) {
+        final int len = depth.length;
+        final int levels = 32 - Integer.numberOfLeadingZeros(len);
+        int[][] table = new int[levels][];
+        table[0] = new int[len];
+        for (int i = 0; i < len; i++) table[0][i] = i;
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int[] prev = table[k - 1];
+            int[] curr = new int[len - (1 << k) + 1];
+            for (int i = 0; i < curr.length; i++) {
+                int a = prev[i];
+                int b = prev[i + half];
+                curr[i] = depth[a] <= depth[b] ? a : b;
+            }
+            table[k] = curr;
+        }
+        return table;
+    }
+
+    public TimeTree getTree() {
+        return tree;
+    }
+
+    /**
+     * @param id  the taxon name
+     * @return the leaf node with the given id, or null if the tree has no such leaf.
+     */
+    public TimeTreeNode getLeaf(String id) {
+        return leavesById.get(id);
+    }
+
+    /**
+     * @return the most recent common ancestor of the two nodes in O(1).
+     */
+    public TimeTreeNode getMRCA(TimeTreeNode node1, TimeTreeNode node2) {
+        return nodes[mrcaIndex(checkNode(node1).getIndex(), checkNode(node2).getIndex())];
+    }
+
+    /**
+     * @param nodes  nodes of this tree
+     * @return the most recent common ancestor of the given nodes in O(k).
+     */
+    public TimeTreeNode getMRCA(List<TimeTreeNode> nodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("Require at least one node to find the MRCA !");
+        int mrca = checkNode(nodes.get(0)).getIndex();
+        for (int i = 1; i < nodes.size(); i++)
+            mrca = mrcaIndex(mrca, checkNode(nodes.get(i)).getIndex());
+        return this.nodes[mrca];
+    }
+
+    /**
+     * @param taxa  the taxa names
+     * @return the most recent common ancestor of the leaves with given taxa names in O(k).
+     * @throws IllegalArgumentException if a taxon is not a leaf of the tree.
+     */
+    public TimeTreeNode getMRCA(String... taxa) {
+        return getMRCA(getLeaves(taxa));
+    }
+
+    /**
+     * @return true if the given taxa and no other leaves form a clade in the tree.
+     * @throws IllegalArgumentException if a taxon is not a leaf of the tree.
+     */
+    public boolean isMonophyletic(String... taxa) {
+        List<TimeTreeNode> leaves = getLeaves(taxa);
+        int distinct = (int) leaves.stream().distinct().count();
+        return getCladeSize(getMRCA(leaves)) == distinct;
+    }
+
+    /**
+     * @return true if ancestor is the node itself or one of its ancestors, in O(1).
+     */
+    public boolean isAncestor(TimeTreeNode ancestor, TimeTreeNode node) {
+        int a = checkNode(ancestor).getIndex();
+        int d = checkNode(node).getIndex();
+        return mrcaIndex(a, d) == a;
+    }
+
+    /**
+     * @return the number of leaves under this node, which is 1 for a leaf.
+     */
+    public int getCladeSize(TimeTreeNode node) {
+        int i = checkNode(node).getIndex();
+        return leafEnd[i] - leafStart[i];
+    }
+
+    /**
+     * @return the bitset of {@link TimeTreeNode#getLeafIndex() leaf indices} in the clade under this node.
+     */
+    public BitSet getCladeBitSet(TimeTreeNode node) {
+        int i = checkNode(node).getIndex();
+        BitSet bitSet = new BitSet(leafOrder.length);
+        for (int p = leafStart[i]; p < leafEnd[i]; p++)
+            bitSet.set(leafOrder[p]);
+        return bitSet;
+    }
+
+    /**
+     * @return the bitset of {@link TimeTreeNode#getLeafIndex() leaf indices} of the given taxa.
+     */
+    public BitSet getTaxaBitSet(String... taxa) {
+        BitSet bitSet = new BitSet(leafOrder.length);
+        for (TimeTreeNode leaf : getLeaves(taxa))
+            bitSet.set(leaf.getLeafIndex());
+        return bitSet;
+    }
+
+    private List<TimeTreeNode> getLeaves(String[] taxa) {
+        List<TimeTreeNode> leaves = new ArrayList<>(taxa.length);
+        for (String taxon : taxa) {
+            TimeTreeNode leaf = leavesById.get(taxon);
+            // if the given taxa is not belong to this tree, then throw exception
+            if (leaf == null) throw new IllegalArgumentException("Taxa " + taxon + " is not part of the given tree.");
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+
+    private TimeTreeNode checkNode(TimeTreeNode node) {
+        int i = node.getIndex();
+        if (i < 0 || i >= nodes.length || nodes[i] != node)
+            throw new IllegalArgumentException("The node " + node + " is not indexed in this tree !");
+        return node;
+    }
+
+    private int mrcaIndex(int i, int j) {
+        int l = first[i];
+        int r = first[j];
+        if (l > r) {
+            int tmp = l;
+            l = r;
+            r = tmp;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(r - l + 1);
+        int a = sparse[k][l];
+        int b = sparse[k][r - (1 << k) + 1];
+        return euler[depth[a] <= depth[b] ? a : b];
+    }
+}
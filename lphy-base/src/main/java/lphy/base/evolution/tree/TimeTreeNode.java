@@ -164,6 +164,7 @@ public class TimeTreeNode {
 
     public void setParent(TimeTreeNode newParent) {
         parent = newParent;
+        topologyChanged();
     }
 
     public String toString() {
@@ -177,6 +178,7 @@ public class TimeTreeNode {
 
     public final void setIndex(int index) {
         this.index = index;
+        topologyChanged();
     }
 
     public final int getLeafIndex() {
@@ -185,6 +187,12 @@ public class TimeTreeNode {
 
     public final void setLeafIndex(int index) {
         this.leafIndex = index;
+        topologyChanged();
+    }
+
+    // the LCA index of the tree is built from the children, indices and leaf ids
+    private void topologyChanged() {
+        if (tree != null) tree.topologyChanged();
     }
 
 
@@ -194,20 +202,24 @@ public class TimeTreeNode {
         }
         children.add(child);
         if (child != null) child.parent = this;
+        topologyChanged();
     }
 
     public void removeChild(TimeTreeNode child) {
         child.parent = null;
         children.remove(child);
+        topologyChanged();
     }
 
 
     public final void setAge(double age) {
         this.age = age;
+        if (tree != null) tree.agesChanged();
     }
 
     public final void setId(String id) {
         this.id = id;
+        topologyChanged();
     }
 
     public final void setLineage(int lineage) {
@@ -272,6 +284,7 @@ public class TimeTreeNode {
                 child.sort();
             }
             children.sort(Comparator.comparingInt(o -> o.index));
+            topologyChanged();
         }
     }
 
@@ -311,6 +324,7 @@ public class TimeTreeNode {
         if (children.size() > 0) {
             children.set(0, left);
             left.setParent(this);
+            topologyChanged();
         } else {
             addChild(left);
         }
@@ -326,6 +340,7 @@ public class TimeTreeNode {
             children.add(right);
         }
         right.setParent(this);
+        topologyChanged();
     }
 
     /**
@@ -1,12 +1,12 @@
 package lphy.base.function;
 
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.core.model.DeterministicFunction;
 import lphy.core.model.Value;
 import lphy.core.model.ValueUtils;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * Created by Alexei Drummond on 2/02/20.
@@ -27,12 +27,13 @@ public class BinaryRateMatrix extends DeterministicFunction<Double[][]> {
                     "        ⎣ λ -λ⎦")
     public Value<Double[][]> apply() {
         Value<Number> lambda = getParams().get(lambdaParamName);
-        return new DoubleArray2DValue(binaryCTMC(ValueUtils.doubleValue(lambda)), this);
+        return new RateMatrixValue(binaryCTMC(ValueUtils.doubleValue(lambda)), 2, this);
     }
 
-    private Double[][] binaryCTMC(double lambda) {
+    // row-major
+    private double[] binaryCTMC(double lambda) {
 
-        Double[][] Q = {{-1.0, 1.0}, {lambda, -lambda}};
+        double[] Q = {-1.0, 1.0, lambda, -lambda};
 
         double[] freqs = {lambda / (lambda + 1.0), 1.0 / (lambda + 1.0)};
 
@@ -40,10 +41,8 @@ public class BinaryRateMatrix extends DeterministicFunction<Double[][]> {
 
         double subst = rate[0] * freqs[0] + rate[1] * freqs[1];
 
-        for (int i = 0; i < 2; i++) {
-            for (int j = 0; j < 2; j++) {
-                Q[i][j] = Q[i][j] / subst;
-            }
+        for (int i = 0; i < Q.length; i++) {
+            Q[i] = Q[i] / subst;
         }
 
         return Q;
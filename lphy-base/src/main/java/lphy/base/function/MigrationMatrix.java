@@ -1,11 +1,11 @@
 package lphy.base.function;
 
+import lphy.base.evolution.substitutionmodel.RateMatrixValue;
 import lphy.core.model.DeterministicFunction;
 import lphy.core.model.Value;
 import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
-import lphy.core.model.datatype.DoubleArray2DValue;
 
 /**
  * Created by Alexei Drummond on 2/02/20.
@@ -36,24 +36,26 @@ public class MigrationMatrix extends DeterministicFunction<Double[][]> {
     public Value<Double[][]> apply() {
         Value<Double[]> rates = getParams().get(mParamName);
         Value<Double[]> popSizes = getParams().get(thetaParamName);
-        return new DoubleArray2DValue( migrationMatrix(popSizes.value(), rates.value()), this);
+        int numDemes = popSizes.value().length;
+        return new RateMatrixValue(migrationMatrix(popSizes.value(), rates.value()), numDemes, this);
     }
 
-    private Double[][] migrationMatrix(Double[] popSizes, Double[] rates) {
+    // row-major
+    private double[] migrationMatrix(Double[] popSizes, Double[] rates) {
 
         int numDemes = popSizes.length;
 
-        Double[][] matrix = new Double[numDemes][numDemes];
+        double[] matrix = new double[numDemes * numDemes];
 
         // construct matrix
         int index = 0;
         for (int i = 0; i < numDemes; i++) {
             for (int j = 0; j < numDemes; j++) {
                 if (i != j) {
-                    matrix[i][j] = rates[index];
+                    matrix[i * numDemes + j] = rates[index];
                     index += 1;
                 } else {
-                    matrix[i][i] = popSizes[i];
+                    matrix[i * numDemes + i] = popSizes[i];
                 }
             }
         }
@@ -19,6 +19,9 @@ public final class MetaDataOptions {
 
     protected static final String SPECIESE_REGEX = "speciesRegex";
 
+    // "true" to import the alignment using lphy.base.parser.StreamingAlignmentImporter
+    protected static final String STREAMING = "streaming";
+
     public static final String OPT_DESC = "the map containing optional arguments and their values for reuse, " +
             "                          such as " + AGE_DIRECTION + " and " + AGE_REGEX + ".";
 
@@ -41,6 +44,15 @@ public final class MetaDataOptions {
         return options == null ? null : options.get( SPECIESE_REGEX );
     }
 
+    /**
+     * @param optionsVal
+     * @return true, if the alignment is decoded in one pass from the memory-mapped file.
+     */
+    public static boolean isStreaming(Value<Map<String, String>> optionsVal) {
+        Map<String, String> options = optionsVal == null ? null : optionsVal.value();
+        return options != null && Boolean.parseBoolean(options.get( STREAMING ));
+    }
+
     public static boolean isSame(Map<String, String> options1, Map<String, String> options2) {
         if (options1 == options2) return true; // include null == null
         if (options1 == null || options2 == null) return false;
@@ -19,6 +19,8 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * D = readFasta(file="h3n2_2deme.fna");
@@ -65,16 +67,35 @@ public class ReadDelim extends DeterministicFunction<Table> {
         Boolean header = ((Value<Boolean>) getParams().get(ReaderConst.HEADER)).value();
 //TODO  String commentChar = ((Value<String>) getParams().get(ReaderConst.COMMENT)).value();
 
-        Table map = readDelim(filePath, delimiter, header);
+        Path path = UserDir.getUserPath(filePath);
+        Table map;
+        try {
+            // the cached table is shared, so get a copy
+            map = ReaderCache.get(path, "readDelim", List.of(delimiter, header),
+                    () -> readDelim(path, delimiter, header), ReadDelim::copy);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            LoggerUtils.log.severe("File " + Path.of(filePath).toAbsolutePath() + " is not found !\n" +
+                    "The current working dir = " + UserDir.getUserDir());
+            map = new Table();
+        } catch (IOException e) {
+            LoggerUtils.logStackTrace(e);
+            map = new Table();
+        }
         return new TableValue(null, map, this);
     }
 
+    // the columns are copied, but not their elements, which are strings
+    private static Table copy(Table table) {
+        Table copy = new Table();
+        for (Map.Entry<String, List> entry : table.entrySet())
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        return copy;
+    }
+
     // TODO ignore "#"
-    private Table readDelim(String filePath, String delimiter, boolean header) {
+    private Table readDelim(Path path, String delimiter, boolean header) throws IOException {
         Table dataMap = new Table();
 
-        Path path = UserDir.getUserPath(filePath);
-
         try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
             String line;
             String[] keys = null;
@@ -136,11 +157,6 @@ public class ReadDelim extends DeterministicFunction<Table> {
             } else {
                 LoggerUtils.log.severe("File is empty !");
             }
-        } catch (FileNotFoundException | NoSuchFileException e) {
-            LoggerUtils.log.severe("File " + Path.of(filePath).toAbsolutePath() + " is not found !\n" +
-                    "The current working dir = " + UserDir.getUserDir());
-        } catch (IOException e) {
-            LoggerUtils.logStackTrace(e);
         }
 
         return dataMap;
@@ -11,6 +11,7 @@ import lphy.base.evolution.alignment.Alignment;
 import lphy.base.evolution.alignment.MetaDataAlignment;
 import lphy.base.evolution.alignment.SimpleAlignment;
 import lphy.base.function.alignment.MetaDataOptions;
+import lphy.base.parser.StreamingAlignmentImporter;
 import lphy.core.io.UserDir;
 import lphy.core.logger.LoggerUtils;
 import lphy.core.model.DeterministicFunction;
@@ -25,6 +26,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -67,17 +69,43 @@ public class ReadFasta extends DeterministicFunction<Alignment> {
 
         Path nexPath = UserDir.getUserPath(filePath);
 
-        Reader reader = getReader(nexPath.toString());
-
         Value<SequenceType> sequenceTypeVal = getParams().get(ReaderConst.SEQUENCE_TYPE);
         SequenceType sequenceType = sequenceTypeVal != null ? sequenceTypeVal.value() : null;
         // if null, then guess the sequence type
-        Alignment faData = getAlignment(reader, sequenceType, ageRegxStr, ageDirectionStr, spRegxStr);
+        Alignment faData;
+        final boolean streaming = MetaDataOptions.isStreaming(optionsVal);
+        try {
+            // the cached alignment is shared, which is only changed by the options below before caching,
+            // so get a copy
+            faData = ReaderCache.get(nexPath, "readFasta",
+                    Arrays.asList(streaming, sequenceType, ageRegxStr, ageDirectionStr, spRegxStr), () -> {
+                        if (streaming)
+                            return StreamingAlignmentImporter.importFasta(nexPath, sequenceType,
+                                    ageRegxStr, ageDirectionStr, spRegxStr);
+                        Reader reader = getReader(nexPath.toString());
+                        try {
+                            return getAlignment(reader, sequenceType, ageRegxStr, ageDirectionStr, spRegxStr);
+                        } finally {
+                            if (reader != null) reader.close();
+                        }
+                    }, ReadFasta::copy);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read Fasta file ! " + nexPath, e);
+        }
 
         return new Value<>(null, faData, this);
 
     }
 
+    // the imported alignment is either MetaDataAlignment or SimpleAlignment
+    private static Alignment copy(Alignment alignment) {
+        if (alignment instanceof MetaDataAlignment metaDataAlignment)
+            return new MetaDataAlignment(metaDataAlignment);
+        if (alignment instanceof SimpleAlignment simpleAlignment)
+            return new SimpleAlignment(simpleAlignment);
+        throw new IllegalArgumentException("Cannot copy the alignment " + alignment.getClass().getName());
+    }
+
     /**
      * The utility method to import an alignment in a fasta format from reader.
      * If both ageRegxStr and spRegxStr are null, then create a {@link SimpleAlignment}.
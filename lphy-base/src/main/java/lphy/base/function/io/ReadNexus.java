@@ -4,6 +4,7 @@ import jebl.evolution.io.ImportException;
 import lphy.base.evolution.alignment.MetaDataAlignment;
 import lphy.base.function.alignment.MetaDataOptions;
 import lphy.base.parser.NexusParser;
+import lphy.base.parser.StreamingAlignmentImporter;
 import lphy.core.io.UserDir;
 import lphy.core.logger.LoggerUtils;
 import lphy.core.model.DeterministicFunction;
@@ -14,6 +15,7 @@ import lphy.core.model.annotation.ParameterInfo;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
@@ -59,9 +61,6 @@ public class ReadNexus extends DeterministicFunction<MetaDataAlignment> {
 
         Path nexPath = UserDir.getUserPath(filePath.value());
 
-        //*** parsing ***//
-        NexusParser nexusParser = new NexusParser(nexPath.toString());
-
         // "options" is optional, those getters can handle null
         String ageDirectionStr = MetaDataOptions.getAgeDirectionStr(options);
         String ageRegxStr = MetaDataOptions.getAgeRegxStr(options);
@@ -69,9 +68,30 @@ public class ReadNexus extends DeterministicFunction<MetaDataAlignment> {
 
         MetaDataAlignment nexusData = null;
         try {
+            // the cached alignment is shared, which is only changed by the options below before caching,
+            // so get a copy
+            nexusData = ReaderCache.get(nexPath, "readNexus",
+                    Arrays.asList(MetaDataOptions.isStreaming(options), ageDirectionStr, ageRegxStr, spRegxStr),
+                    () -> importNexus(nexPath, ageDirectionStr, ageRegxStr, spRegxStr), MetaDataAlignment::new);
+        } catch (IOException e) {
+            LoggerUtils.logStackTrace(e);
+        }
+
+        return new Value<>(null, nexusData, this);
+
+    }
+
+    private MetaDataAlignment importNexus(Path nexPath, String ageDirectionStr,
+                                          String ageRegxStr, String spRegxStr) throws IOException {
+        MetaDataAlignment nexusData = null;
+        try {
+            //*** parsing ***//
             // if ageDirectionStr = null, then assume forward
-            nexusData = nexusParser.importNexus(ageDirectionStr);
-        } catch (IOException | ImportException e) {
+            if (MetaDataOptions.isStreaming(options))
+                nexusData = StreamingAlignmentImporter.importNexus(nexPath, ageDirectionStr);
+            else
+                nexusData = new NexusParser(nexPath.toString()).importNexus(ageDirectionStr);
+        } catch (ImportException e) {
             LoggerUtils.logStackTrace(e);
         }
         // set age to Taxon
@@ -87,8 +107,7 @@ public class ReadNexus extends DeterministicFunction<MetaDataAlignment> {
         if (spRegxStr != null)
             Objects.requireNonNull(nexusData).setSpeciesParsedFromTaxaName(spRegxStr);
 
-        return new Value<>(null, nexusData, this);
-
+        return nexusData;
     }
 
 }
@@ -1,12 +1,9 @@
 package lphy.base.function.io;
 
-import jebl.evolution.io.ImportException;
-import jebl.evolution.io.NewickImporter;
-import jebl.evolution.io.NexusImporter;
-import jebl.evolution.io.TreeImporter;
-import jebl.evolution.trees.Tree;
 import lphy.base.evolution.tree.TimeTree;
-import lphy.base.evolution.tree.WrappedJEBLTimeTreeNode;
+import lphy.base.parser.newick.NewickTreeReader;
+import lphy.base.parser.newick.TreeParsingException;
+import lphy.base.parser.nexus.NexusTreeReader;
 import lphy.core.io.UserDir;
 import lphy.core.logger.LoggerUtils;
 import lphy.core.model.DeterministicFunction;
@@ -15,17 +12,20 @@ import lphy.core.model.annotation.GeneratorCategory;
 import lphy.core.model.annotation.GeneratorInfo;
 import lphy.core.model.annotation.ParameterInfo;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 /**
- * Newick or Nexus
+ * Newick or Nexus, which are parsed by the streaming tree readers.
  * @see lphy.base.function.tree.Newick
+ * @see NewickTreeReader
+ * @see NexusTreeReader
  */
 public class ReadTrees extends DeterministicFunction<TimeTree[]> {
 
@@ -53,30 +53,20 @@ public class ReadTrees extends DeterministicFunction<TimeTree[]> {
 
         TimeTree[] timeTrees = new TimeTree[0];
 
-        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            //*** parsing ***//
-            TreeImporter treeImporter;
-            // format = Newick
-            if (format.equalsIgnoreCase("Newick")) {
-                boolean unquotedLabels = false;
-                treeImporter = new NewickImporter(reader, unquotedLabels);
-            } else { //default
-                boolean compactTrees = false;
-                treeImporter = new NexusImporter(reader, compactTrees, 0);
-            }
+        try {
+            // the cached trees are shared, so get the copies
+            timeTrees = ReaderCache.get(path, "readTrees", List.of(format.toLowerCase()), () -> {
+                //*** parsing ***//
+                Iterator<TimeTree> treeIterator = readTrees(path, format);
+                List<TimeTree> treeList = new ArrayList<>();
+                treeIterator.forEachRemaining(treeList::add);
+                return treeList.toArray(TimeTree[]::new);
+            }, trees -> Arrays.stream(trees).map(TimeTree::new).toArray(TimeTree[]::new));
 
-            List<jebl.evolution.trees.Tree> treeList = treeImporter.importTrees();
-
-            timeTrees = new TimeTree[treeList.size()];
-            for (int i = 0; i < treeList.size(); i++) {
-                Tree jeblTree = treeList.get(i);
-                timeTrees[i] = WrappedJEBLTimeTreeNode.Utils.convert(jeblTree);
-            }
-
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             LoggerUtils.log.severe("File " + Path.of(filePath).toAbsolutePath() + " is not found !\n" +
                     "The current working dir = " + UserDir.getUserDir());
-        } catch (IOException | ImportException e) {
+        } catch (IOException | TreeParsingException e) {
             LoggerUtils.logStackTrace(e);
         }
 
@@ -84,4 +74,19 @@ public class ReadTrees extends DeterministicFunction<TimeTree[]> {
 
     }
 
+    /**
+     * Lazily parse the trees from the memory-mapped file one at a time,
+     * so that the caller can consume trees without holding all of them.
+     * @param path    the tree file
+     * @param format  Nexus or Newick (case-insensitive)
+     * @return the iterator of trees in the file
+     * @throws IOException
+     */
+    public static Iterator<TimeTree> readTrees(Path path, String format) throws IOException {
+        ByteBuffer buffer = NewickTreeReader.mapFile(path);
+        if (format.equalsIgnoreCase("Newick"))
+            return new NewickTreeReader(buffer);
+        return new NexusTreeReader(buffer);
+    }
+
 }
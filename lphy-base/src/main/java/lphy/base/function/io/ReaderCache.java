@@ -0,0 +1,220 @@
+package lphy.base.function.io;
+
+import lphy.core.logger.LoggerUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.UnaryOperator;
+
+/**
+ * The process-wide cache of the data parsed from files by the readers, such as {@link ReadNexus},
+ * so that a file is not parsed again when the lphy script is re-parsed for every replicate
+ * or in the studio. The key is the absolute path, size and last modified time of the file,
+ * and the reader with its options. So, a modified file is parsed again.
+ * <p>
+ * The cached data are shared by all replicates and threads, so they are never returned.
+ * Each caller gets its own copy made by the reader, which it can change,
+ * such as setting the ages of taxa, without changing the other replicates.
+ * The same file being parsed by multiple threads is only parsed once.
+ * The least recently used data are discarded, when the total size of the cached files
+ * is over {@link #getMaxBytes()}.
+ */
+public final class ReaderCache {
+
+    /**
+     * Parse the data from a file.
+     * @param <T> the type of parsed data
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        /**
+         * @return  the parsed data, or null if it fails, which is not cached.
+         */
+        T load() throws IOException;
+    }
+
+    private record Key(Path path, long size, long lastModified, String reader, List<Object> options) { }
+
+    private record Entry(Object data, long bytes) { }
+
+    // access order for LRU
+    private static final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // the files being parsed
+    private static final Map<Key, FutureTask<Object>> loading = new HashMap<>();
+
+    // the size of files is the estimated memory of parsed data
+    private static long maxBytes = Runtime.getRuntime().maxMemory() / 4;
+    private static long totalBytes = 0;
+    private static long hits = 0;
+    private static long misses = 0;
+
+    private ReaderCache() { }
+
+    /**
+     * Get the data parsed from the file, which is parsed by the loader if it is not cached,
+     * or the file is modified.
+     * @param path     the file path
+     * @param reader   the name of reader, such as readNexus
+     * @param options  the options changing the parsed data, which can be null elements.
+     * @param loader   to parse the file
+     * @param copy     to copy the cached data, which must not share any mutable state with it,
+     *                 or the identity if the data are immutable.
+     * @return  the copy of the cached data, or of the data parsed by the loader,
+     *          or null if the loader fails.
+     * @param <T> the type of parsed data
+     * @throws IOException  if the file does not exist, or the loader throws it.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Path path, String reader, List<?> options, Loader<T> loader,
+                            UnaryOperator<T> copy) throws IOException {
+        Path absPath = path.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(absPath, BasicFileAttributes.class);
+        final Key key = new Key(absPath, attrs.size(), attrs.lastModifiedTime().toMillis(),
+                reader, options == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(options)));
+
+        FutureTask<Object> task = null;
+        boolean isLoader = false;
+        T data = null;
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry != null) {
+                hits++;
+                data = (T) entry.data;
+            } else {
+                task = loading.get(key);
+                if (task == null) {
+                    misses++;
+                    task = new FutureTask<>(loader::load);
+                    loading.put(key, task);
+                    isLoader = true;
+                }
+            }
+        }
+        if (data != null)
+            return copy.apply(data);
+
+        if (isLoader) {
+            task.run();
+            Object loaded = null;
+            try {
+                loaded = task.get();
+            } catch (InterruptedException | ExecutionException ignored) {
+                // rethrow below
+            }
+            // cache before removing from loading, so that the file is not parsed again by other threads
+            synchronized (cache) {
+                if (loaded != null)
+                    put(key, loaded);
+                loading.remove(key);
+            }
+        }
+
+        try {
+            data = (T) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing " + absPath, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) throw ioe;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+
+        return data == null ? null : copy.apply(data);
+    }
+
+    // must be in synchronized (cache)
+    private static void put(Key key, Object data) {
+        // the older versions of the modified file
+        Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            Key k = e.getKey();
+            if (k.path.equals(key.path) && k.reader.equals(key.reader) && k.options.equals(key.options)) {
+                totalBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+
+        if (maxBytes == 0 || key.size > maxBytes) {
+            LoggerUtils.log.fine("Do not cache " + key.path + " which is larger than " + maxBytes + " bytes.");
+            return;
+        }
+        cache.put(key, new Entry(data, key.size));
+        totalBytes += key.size;
+        evict();
+    }
+
+    // discard the least recently used, must be in synchronized (cache)
+    private static void evict() {
+        Iterator<Entry> it = cache.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return  the maximum total size of the cached files, the default is a quarter of the max heap.
+     */
+    public static long getMaxBytes() {
+        synchronized (cache) {
+            return maxBytes;
+        }
+    }
+
+    /**
+     * @param bytes  the maximum total size of the cached files, where 0 disables caching.
+     */
+    public static void setMaxBytes(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("The max bytes of reader cache cannot be negative : " + bytes);
+        synchronized (cache) {
+            maxBytes = bytes;
+            evict();
+        }
+    }
+
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+            totalBytes = 0;
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /**
+     * @return  the number of files cached.
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public static long getTotalBytes() {
+        synchronized (cache) {
+            return totalBytes;
+        }
+    }
+
+    public static long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    public static long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+}
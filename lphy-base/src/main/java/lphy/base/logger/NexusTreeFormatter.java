@@ -1,21 +1,85 @@
 package lphy.base.logger;
 
+import lphy.base.evolution.tree.TaxaConditionedTreeGenerator;
 import lphy.base.evolution.tree.TimeTree;
+import lphy.base.parser.newick.NewickTreeWriter;
 import lphy.base.parser.nexus.NexusUtils;
 import lphy.core.logger.ValueFormatter;
+import lphy.core.model.Generator;
 import lphy.core.model.Symbols;
+import lphy.core.model.Value;
 
+import java.io.IOException;
+
+/**
+ * The trees in Nexus, where the leaves are labelled by the indices in the translate command,
+ * which is created from the taxa of the 1st tree.
+ * The header is written before the other replicates are simulated, so the translate command
+ * is only written if all replicates have the same taxa, such as the trees conditioned on
+ * the constant taxa. Otherwise, e.g. the tips are sampled by RhoSampleTree, the leaves are
+ * labelled by the taxa names. The taxa named by numbers are not translated either, since
+ * the indices are not shorter than the names and would be confused with them.
+ * @see NewickTreeWriter
+ * @see TaxaConditionedTreeGenerator#hasFixedTaxa()
+ */
 public class NexusTreeFormatter implements ValueFormatter<TimeTree> {
 
     String valueID;
     TimeTree tree;
+    // the taxa names in the translate command, or null if not translated
+    private String[] translatedNames;
+
+    // shared by the header and all trees logged by this formatter
+    private NewickTreeWriter treeWriter;
 
 //    public NexusTreeFormatter() {
 //    }
 
+    /**
+     * The leaves are labelled by the taxa names, unless {@link #init(Value)} finds
+     * all replicates have the same taxa.
+     */
     public NexusTreeFormatter(String valueID, TimeTree tree) {
+        this(valueID, tree, false);
+    }
+
+    /**
+     * @param fixedTaxa  true if all trees to be logged have the taxa of the given tree,
+     *                   then the leaves are labelled by the indices in the translate command.
+     */
+    public NexusTreeFormatter(String valueID, TimeTree tree, boolean fixedTaxa) {
         this.valueID = Symbols.getCanonical(valueID);
         this.tree = tree;
+        setTranslation(fixedTaxa);
+    }
+
+    /**
+     * Translate the taxa, if the tree is either constant or sampled by
+     * a {@link TaxaConditionedTreeGenerator} having the fixed taxa.
+     */
+    @Override
+    public void init(Value<TimeTree> value) {
+        Generator generator = value.getGenerator();
+        boolean fixedTaxa = !value.isRandom() ||
+                (generator instanceof TaxaConditionedTreeGenerator treeGenerator && treeGenerator.hasFixedTaxa());
+        setTranslation(fixedTaxa);
+    }
+
+    private void setTranslation(boolean fixedTaxa) {
+        if (treeWriter != null)
+            throw new IllegalStateException("The translation cannot be changed after the trees are written !");
+        String[] taxaNames = tree.getTaxaNames();
+        this.translatedNames = !fixedTaxa || isNumeric(taxaNames) ? null : taxaNames;
+    }
+
+    // true if all names are integers
+    private static boolean isNumeric(String[] taxaNames) {
+        for (String name : taxaNames) {
+            if (name == null || name.isEmpty()) return false;
+            for (int i = 0; i < name.length(); i++)
+                if (!Character.isDigit(name.charAt(i))) return false;
+        }
+        return true;
     }
 
     @Override
@@ -40,7 +104,10 @@ public class NexusTreeFormatter implements ValueFormatter<TimeTree> {
     public String header() {
 //        if (this.valueID == null)
 //            setValueID(id);
-        return NexusUtils.buildHeader(tree);
+        String header = NexusUtils.buildHeader(tree);
+        if (translatedNames == null)
+            return header;
+        return header + "\n" + NewickTreeWriter.getTranslateCommand(translatedNames);
     }
 
     @Override
@@ -55,7 +122,21 @@ public class NexusTreeFormatter implements ValueFormatter<TimeTree> {
      */
     @Override
     public String format(TimeTree tree) {
-        return NexusUtils.buildBody(tree);
+        return getTreeWriter().toNewick(tree);
+    }
+
+    /**
+     * Stream the Newick representation of the provided {@link TimeTree}.
+     */
+    @Override
+    public void format(TimeTree tree, Appendable out) throws IOException {
+        getTreeWriter().write(tree, out);
+    }
+
+    private NewickTreeWriter getTreeWriter() {
+        if (treeWriter == null)
+            treeWriter = new NewickTreeWriter(NewickTreeWriter.SHORTEST, translatedNames, true);
+        return treeWriter;
     }
 
     /**
@@ -0,0 +1,145 @@
+package lphy.base.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The single-pass tokeniser shared by the streaming readers,
+ * which reads the bytes of a (memory-mapped) buffer in place.
+ * Only the tokens kept by the readers, such as labels, are decoded into strings.
+ */
+public abstract class ByteBufferTokenizer {
+
+    protected final ByteBuffer buffer;
+    protected int pos;
+    protected final int limit;
+
+    // reusable buffer to decode strings
+    private byte[] bytes = new byte[64];
+
+    /**
+     * @param buffer  the bytes to read from the current position to the limit.
+     */
+    protected ByteBufferTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Memory-map the file, so that it is parsed straight from the file bytes.
+     * @param path  the file
+     * @return the read-only buffer of the whole file
+     * @throws IOException
+     */
+    public static ByteBuffer mapFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Cannot map the file larger than 2GB : " + path);
+            // the mapping is still valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    protected int peek() {
+        return pos < limit ? buffer.get(pos) : -1;
+    }
+
+    protected int read() {
+        return pos < limit ? buffer.get(pos++) : -1;
+    }
+
+    protected boolean isEnd() {
+        return pos >= limit;
+    }
+
+    protected static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    protected void skipSpace() {
+        while (pos < limit && isSpace(buffer.get(pos))) pos++;
+    }
+
+    // after '[', nested comments are allowed
+    protected void skipComment() {
+        int depth = 0;
+        while (pos < limit) {
+            int c = buffer.get(pos++);
+            if (c == '[') depth++;
+            else if (c == ']' && --depth == 0) return;
+        }
+        throw parsingException("Missing ']'");
+    }
+
+    protected void skipSpaceAndComments() {
+        skipSpace();
+        while (peek() == '[') {
+            skipComment();
+            skipSpace();
+        }
+    }
+
+    // the doubled quote inside quotes is an escaped quote
+    protected String readQuoted() {
+        final int quote = read();
+        StringBuilder builder = null;
+        int start = pos;
+        while (true) {
+            if (pos >= limit) throw parsingException("Missing closing quote");
+            int c = buffer.get(pos);
+            if (c == quote) {
+                if (pos + 1 < limit && buffer.get(pos + 1) == quote) {
+                    if (builder == null) builder = new StringBuilder();
+                    builder.append(decode(start, pos + 1));
+                    pos += 2;
+                    start = pos;
+                    continue;
+                }
+                String s = decode(start, pos);
+                pos++;
+                return builder == null ? s : builder.append(s).toString();
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * The Nexus word, where comments are skipped.
+     * @return a quoted or unquoted word, or one of the punctuations ';' ',' '=',
+     *         or null at the end of file.
+     */
+    protected String readWord() {
+        skipSpaceAndComments();
+        if (pos >= limit) return null;
+        int c = peek();
+        if (c == '\'' || c == '"') return readQuoted();
+        if (c == ';' || c == ',' || c == '=') {
+            pos++;
+            return String.valueOf((char) c);
+        }
+        int start = pos;
+        while (pos < limit) {
+            c = buffer.get(pos);
+            if (isSpace(c) || c == ';' || c == ',' || c == '=' || c == '[') break;
+            pos++;
+        }
+        return decode(start, pos);
+    }
+
+    protected String decode(int start, int end) {
+        int len = end - start;
+        if (len > bytes.length) bytes = new byte[Math.max(len, bytes.length * 2)];
+        buffer.get(start, bytes, 0, len);
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    protected RuntimeException parsingException(String message) {
+        return new IllegalArgumentException(message + " at byte " + pos);
+    }
+}
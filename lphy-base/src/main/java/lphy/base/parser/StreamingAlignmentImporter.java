@@ -0,0 +1,574 @@
+package lphy.base.parser;
+
+import jebl.evolution.io.ImportException;
+import jebl.evolution.sequences.SequenceType;
+import jebl.evolution.sequences.State;
+import jebl.evolution.sequences.Utils;
+import lphy.base.evolution.Taxa;
+import lphy.base.evolution.Taxon;
+import lphy.base.evolution.alignment.Alignment;
+import lphy.base.evolution.alignment.CharSetBlock;
+import lphy.base.evolution.alignment.MetaDataAlignment;
+import lphy.base.evolution.alignment.SimpleAlignment;
+import lphy.base.evolution.datatype.Continuous;
+import lphy.base.evolution.datatype.DataType;
+import lphy.base.spi.SequenceTypeBaseImpl;
+import lphy.core.logger.LoggerUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Import the alignment from a memory-mapped Fasta or Nexus file in one pass.
+ * The characters are decoded straight into the integer states of the alignment
+ * through a lookup table, without creating the intermediate sequence strings.
+ * It supports the TAXA, DATA, CHARACTERS (sequential or interleaved MATRIX),
+ * ASSUMPTIONS (CHARSET) and CALIBRATION (TIPCALIBRATION) blocks.
+ * The continuous data, the SYMBOLS in FORMAT, and the ambiguity sets, such as {AG} or (AG),
+ * in the MATRIX are not decoded here, {@link #importNexus(Path, String)} falls back to
+ * {@link NexusParser} for them.
+ * @see lphy.base.function.io.ReadNexus
+ * @see lphy.base.function.io.ReadFasta
+ */
+public class StreamingAlignmentImporter extends ByteBufferTokenizer {
+
+    // the code is not a state of the data type
+    private static final int ILLEGAL = -1;
+    // the code is the match character, which copies the state of the first sequence
+    private static final int MATCH = -2;
+
+    public StreamingAlignmentImporter(ByteBuffer buffer) {
+        super(buffer);
+    }
+
+    /**
+     * The Nexus features which are not decoded by this importer,
+     * so that the file has to be imported by {@link NexusParser}.
+     */
+    public static class UnsupportedNexusException extends UnsupportedOperationException {
+        public UnsupportedNexusException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The lookup table from the ASCII code to the state index.
+     */
+    protected static int[] createStateTable(SequenceType sequenceType, String gapCharacters,
+                                            String missingCharacters, String matchCharacters) {
+        int[] table = new int[128];
+        for (int c = 0; c < table.length; c++) {
+            State state = sequenceType.getState((char) c);
+            table[c] = state == null ? ILLEGAL : state.getIndex();
+        }
+        for (char c : gapCharacters.toCharArray())
+            if (c < 128) table[c] = sequenceType.getGapState().getIndex();
+        for (char c : missingCharacters.toCharArray())
+            if (c < 128) table[c] = sequenceType.getUnknownState().getIndex();
+        for (char c : matchCharacters.toCharArray())
+            if (c < 128) table[c] = MATCH;
+        return table;
+    }
+
+    // decode the character at the site given the first sequence
+    private int decodeState(int c, int[] table, int[] firstRow, int site) {
+        int state = c >= 0 && c < table.length ? table[c] : ILLEGAL;
+        if (state == MATCH) {
+            if (firstRow == null || site >= firstRow.length)
+                throw parsingException("The match character is not allowed in the first sequence");
+            return firstRow[site];
+        }
+        if (state == ILLEGAL)
+            throw parsingException("Illegal sequence character '" + (char) c + "'");
+        return state;
+    }
+
+    // the ambiguity set {AG} or (AG) takes one site, but more than one character
+    private void checkAmbiguitySet(int c) {
+        if (c == '{' || c == '(')
+            throw new UnsupportedNexusException("The ambiguity set '" + (char) c +
+                    "...' is not decoded by the streaming importer");
+    }
+
+    //****** Fasta ******//
+
+    /**
+     * Import the alignment in a fasta format.
+     * If both ageRegxStr and spRegxStr are null, then create a {@link SimpleAlignment}.
+     * @param path             the fasta file.
+     * @param sequenceType     {@link SequenceType}. If null, then guess the sequence type
+     *                         between Nucleotide and Amino Acid from the first sequence.
+     * @param ageRegxStr       Java regular expression to extract dates from taxa names.
+     * @param ageDirectionStr  {@link MetaDataAlignment.AgeDirection}.
+     * @param spRegxStr        Java regular expression to extract species from taxa names.
+     * @return  {@link Alignment} imported from a fasta format.
+     * @throws IOException
+     * @see lphy.base.function.io.ReadFasta#getAlignment(java.io.Reader, SequenceType, String, String, String)
+     */
+    public static Alignment importFasta(Path path, SequenceType sequenceType, String ageRegxStr,
+                                        String ageDirectionStr, String spRegxStr) throws IOException {
+        StreamingAlignmentImporter importer = new StreamingAlignmentImporter(mapFile(path));
+        return importer.readFasta(sequenceType, ageRegxStr, ageDirectionStr, spRegxStr);
+    }
+
+    public Alignment readFasta(SequenceType sequenceType, String ageRegxStr,
+                               String ageDirectionStr, String spRegxStr) {
+        List<String> names = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        int[] table = null;
+        int nchar = -1;
+
+        skipSpace();
+        while (!isEnd()) {
+            if (read() != '>')
+                throw parsingException("Expect '>' at the start of a fasta sequence");
+            // the name is the 1st word, the rest of line is the description
+            while (pos < limit && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) pos++;
+            int start = pos;
+            while (pos < limit && !isSpace(buffer.get(pos))) pos++;
+            names.add(decode(start, pos));
+            skipLine();
+
+            if (table == null) {
+                if (sequenceType == null) sequenceType = guessSequenceType();
+                table = createStateTable(sequenceType, "-", "?", "");
+            }
+
+            int[] row = nchar < 0 ? new int[1024] : new int[nchar];
+            int site = 0;
+            // until the next line starting with '>'
+            while (pos < limit) {
+                int c = buffer.get(pos);
+                if (c == '>' && (buffer.get(pos - 1) == '\n' || buffer.get(pos - 1) == '\r')) break;
+                pos++;
+                if (isSpace(c)) continue;
+                if (site == row.length) {
+                    if (nchar >= 0)
+                        throw parsingException("Sequence " + (rows.size()) + " has different length ! Alignment is required.");
+                    row = Arrays.copyOf(row, row.length * 2);
+                }
+                row[site] = decodeState(c, table, null, site);
+                site++;
+            }
+            if (nchar < 0) {
+                nchar = site;
+                row = Arrays.copyOf(row, nchar);
+            } else if (site != nchar)
+                throw parsingException("Sequence " + (rows.size()) + " has different length ! Alignment is required.");
+            rows.add(row);
+        }
+        if (rows.size() < 1)
+            throw new IllegalArgumentException("Fasta file has no sequence !");
+
+        Taxa taxa = createTaxa(names);
+        int[][] states = rows.toArray(int[][]::new);
+
+        Alignment faData;
+        if ( !(ageRegxStr == null && spRegxStr == null) ) {
+            faData = new MetaDataAlignment(taxa, states, sequenceType);
+            // set age to Taxon
+            if (ageRegxStr != null)
+                ((MetaDataAlignment) faData).setAgesParsedFromTaxaName(ageRegxStr, ageDirectionStr);
+            // set species to Taxon
+            if (spRegxStr != null)
+                ((MetaDataAlignment) faData).setSpeciesParsedFromTaxaName(spRegxStr);
+        } else {
+            faData = new SimpleAlignment(taxa, states, sequenceType);
+        }
+        return faData;
+    }
+
+    // guess from the characters of the current sequence, without moving the position
+    private SequenceType guessSequenceType() {
+        StringBuilder builder = new StringBuilder();
+        for (int p = pos; p < limit; p++) {
+            int c = buffer.get(p);
+            if (c == '>' && (buffer.get(p - 1) == '\n' || buffer.get(p - 1) == '\r')) break;
+            if (!isSpace(c)) builder.append((char) c);
+        }
+        SequenceType sequenceType = Utils.guessSequenceType(builder);
+        if (sequenceType == null)
+            throw parsingException("Cannot guess the sequence type from the first sequence");
+        return sequenceType;
+    }
+
+    private void skipLine() {
+        while (pos < limit && buffer.get(pos) != '\n') pos++;
+    }
+
+    private static Taxa createTaxa(List<String> names) {
+        Taxon[] taxons = new Taxon[names.size()];
+        for (int i = 0; i < taxons.length; i++)
+            taxons[i] = new Taxon(names.get(i));
+        return Taxa.createTaxa(taxons);
+    }
+
+    //****** Nexus ******//
+
+    private SequenceType sequenceType = null;
+    private int taxonCount = 0, siteCount = 0;
+    private String gapCharacters = "-";
+    private String missingCharacters = "?";
+    private String matchCharacters = ".";
+    private boolean isInterleaved = false;
+
+    // from TAXA block, or the MATRIX if TAXA block does not exist
+    private List<String> taxaNames = null;
+    private int[][] states = null;
+    private Map<String, List<CharSetBlock>> charsetMap = null;
+    private Map<String, String> ageMap = null;
+    private ChronoUnit chronoUnit = ChronoUnit.YEARS;
+
+    /**
+     * Import the alignment in a Nexus format.
+     * If the file uses the features not supported by this importer,
+     * such as continuous data, SYMBOLS or ambiguity sets, then import it by {@link NexusParser}.
+     * @param path             the nexus file.
+     * @param ageDirectionStr  the direction of ages in TIPCALIBRATION, see {@link MetaDataAlignment.AgeDirection}.
+     *                         If null, then assume forward.
+     * @return LPHY {@link MetaDataAlignment}.
+     * @throws IOException
+     * @throws ImportException  if the file is imported by {@link NexusParser} and fails.
+     * @see NexusParser#importNexus(String)
+     */
+    public static MetaDataAlignment importNexus(Path path, String ageDirectionStr) throws IOException, ImportException {
+        StreamingAlignmentImporter importer = new StreamingAlignmentImporter(mapFile(path));
+        try {
+            return importer.readNexus(ageDirectionStr);
+        } catch (UnsupportedNexusException e) {
+            LoggerUtils.log.info(e.getMessage() + ", so import " + path.getFileName() + " by NexusParser.");
+            return new NexusParser(path.toString()).importNexus(ageDirectionStr);
+        }
+    }
+
+    /**
+     * @param ageDirectionStr  the direction of ages in TIPCALIBRATION.
+     * @return LPHY {@link MetaDataAlignment}.
+     * @throws UnsupportedNexusException  if the features not supported by this importer are found.
+     */
+    public MetaDataAlignment readNexus(String ageDirectionStr) {
+        String word;
+        while ((word = readWord()) != null) {
+            if (!word.equalsIgnoreCase("begin")) continue;
+            String blockName = readWord();
+            if (blockName == null) break;
+            expect(";");
+            switch (blockName.toUpperCase()) {
+                case "TAXA" -> readTaxaBlock();
+                case "DATA", "CHARACTERS" -> readDataBlock();
+                case "ASSUMPTIONS", "SETS" -> readAssumptionsBlock();
+                case "CALIBRATION" -> readCalibrationBlock();
+                default -> skipBlock();
+            }
+        }
+        if (states == null)
+            throw new IllegalArgumentException("DATA or CHARACTERS block is missing");
+
+        MetaDataAlignment nexusData = new MetaDataAlignment(createTaxa(taxaNames), states, sequenceType);
+        if (charsetMap != null)
+            nexusData.setCharsetMap(charsetMap);
+        if (ageMap != null) {
+            nexusData.setChronoUnit(chronoUnit);
+            if (ageMap.size() != taxonCount)
+                LoggerUtils.log.warning(ageMap.size() + " tips have dates, but taxon count = " + taxonCount);
+            nexusData.assignAges(ageMap, ageDirectionStr);
+        }
+        LoggerUtils.log.info("Load " + nexusData);
+        return nexusData;
+    }
+
+    private void readTaxaBlock() {
+        String command;
+        while ((command = readWord()) != null) {
+            if (isEndBlock(command)) return;
+            if (command.equalsIgnoreCase("DIMENSIONS")) {
+                readDimensions();
+            } else if (command.equalsIgnoreCase("TAXLABELS")) {
+                taxaNames = new ArrayList<>();
+                String name;
+                while ((name = readWord()) != null && !name.equals(";"))
+                    taxaNames.add(name);
+                if (taxonCount > 0 && taxaNames.size() != taxonCount)
+                    throw parsingException("Number of taxa doesn't match NTAX field");
+                taxonCount = taxaNames.size();
+            } else skipCommand(command);
+        }
+    }
+
+    private void readDataBlock() {
+        siteCount = 0;
+        sequenceType = null;
+        String command;
+        while ((command = readWord()) != null) {
+            if (isEndBlock(command)) return;
+            if (command.equalsIgnoreCase("DIMENSIONS")) {
+                readDimensions();
+            } else if (command.equalsIgnoreCase("FORMAT")) {
+                readFormat();
+            } else if (command.equalsIgnoreCase("MATRIX")) {
+                if (taxonCount < 1 || siteCount < 1)
+                    throw parsingException("Missing NTAX or NCHAR in DIMENSIONS");
+                if (sequenceType == null)
+                    throw parsingException("Missing DATATYPE in FORMAT");
+                if (DataType.isSame(sequenceType, Continuous.getInstance()))
+                    throw new UnsupportedNexusException("The continuous data are not decoded by the streaming importer");
+                if (isInterleaved) readInterleavedMatrix();
+                else readSequentialMatrix();
+            } else skipCommand(command);
+        }
+    }
+
+    // ntax=n nchar=n;
+    private void readDimensions() {
+        String key;
+        while ((key = readWord()) != null && !key.equals(";")) {
+            expect("=");
+            String value = readWord();
+            try {
+                if (key.equalsIgnoreCase("NTAX")) taxonCount = Integer.parseInt(value);
+                else if (key.equalsIgnoreCase("NCHAR")) siteCount = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw parsingException("Invalid " + key + " = " + value);
+            }
+        }
+    }
+
+    // datatype=dna gap=- missing=? matchchar=. interleave;
+    private void readFormat() {
+        String key = readWord();
+        while (key != null && !key.equals(";")) {
+            String next = readWord();
+            String value = null;
+            if ("=".equals(next)) {
+                value = readWord();
+                next = readWord();
+            }
+            if (key.equalsIgnoreCase("DATATYPE")) {
+                sequenceType = SequenceTypeBaseImpl.getDataType(value);
+                if (sequenceType == null)
+                    throw new RuntimeException("Cannot find the sequence type ! " + value +
+                            " does not exist in " + SequenceTypeBaseImpl.getDataTypeList());
+            } else if (key.equalsIgnoreCase("GAP")) {
+                gapCharacters = value;
+            } else if (key.equalsIgnoreCase("MISSING")) {
+                missingCharacters = value;
+            } else if (key.equalsIgnoreCase("MATCHCHAR")) {
+                matchCharacters = value;
+            } else if (key.equalsIgnoreCase("INTERLEAVE")) {
+                isInterleaved = value == null || !value.equalsIgnoreCase("no");
+            } else if (key.equalsIgnoreCase("SYMBOLS")) {
+                throw new UnsupportedNexusException("SYMBOLS = " + value + " is not decoded by the streaming importer");
+            }
+            key = next;
+        }
+    }
+
+    // the index of taxon in the matrix
+    private int indexOfTaxon(String name, Map<String, Integer> taxonIndex, int order) {
+        Integer index = taxonIndex.get(name);
+        if (index != null) return index;
+        if (taxaNames != null && taxonIndex.size() == taxaNames.size())
+            throw parsingException("Unexpected taxon: " + name);
+        // no TAXA block, then use the order in the MATRIX
+        if (order >= taxonCount)
+            throw parsingException("More than NTAX = " + taxonCount + " taxa in the MATRIX");
+        taxonIndex.put(name, order);
+        return order;
+    }
+
+    private Map<String, Integer> initTaxonIndex() {
+        Map<String, Integer> taxonIndex = new HashMap<>();
+        if (taxaNames != null) {
+            for (int i = 0; i < taxaNames.size(); i++)
+                taxonIndex.put(taxaNames.get(i), i);
+        }
+        return taxonIndex;
+    }
+
+    private void readSequentialMatrix() {
+        final int[] table = createStateTable(sequenceType, gapCharacters, missingCharacters, matchCharacters);
+        Map<String, Integer> taxonIndex = initTaxonIndex();
+        String[] names = new String[taxonCount];
+        states = new int[taxonCount][];
+        int[] firstRow = null;
+
+        for (int i = 0; i < taxonCount; i++) {
+            String name = readWord();
+            if (name == null || name.equals(";"))
+                throw parsingException("Too few taxa in the MATRIX, expecting " + taxonCount);
+            int t = indexOfTaxon(name, taxonIndex, i);
+            names[t] = name;
+
+            int[] row = new int[siteCount];
+            int site = 0;
+            while (site < siteCount) {
+                skipSpaceAndComments();
+                int c = read();
+                if (c < 0 || c == ';')
+                    throw parsingException(name + " has length " + site + ", expecting " + siteCount);
+                checkAmbiguitySet(c);
+                row[site] = decodeState(c, table, firstRow, site);
+                site++;
+            }
+            if (firstRow == null) firstRow = row;
+            states[t] = row;
+        }
+        expect(";");
+        if (taxaNames == null) taxaNames = Arrays.asList(names);
+    }
+
+    private void readInterleavedMatrix() {
+        final int[] table = createStateTable(sequenceType, gapCharacters, missingCharacters, matchCharacters);
+        Map<String, Integer> taxonIndex = initTaxonIndex();
+        String[] names = new String[taxonCount];
+        states = new int[taxonCount][siteCount];
+        int[] charsRead = new int[taxonCount];
+        int[] firstRow = null;
+        int order = 0;
+
+        String name;
+        while ((name = readWord()) != null && !name.equals(";")) {
+            int t = indexOfTaxon(name, taxonIndex, order);
+            if (names[t] == null) {
+                names[t] = name;
+                order++;
+            }
+            int[] row = states[t];
+            if (firstRow == null) firstRow = row;
+            // the rest of the line
+            int site = charsRead[t];
+            while (pos < limit) {
+                int c = buffer.get(pos);
+                if (c == '\n' || c == '\r' || c == ';') break;
+                if (c == ' ' || c == '\t') {
+                    pos++;
+                } else if (c == '[') {
+                    skipComment();
+                } else {
+                    pos++;
+                    if (site >= siteCount)
+                        throw parsingException(name + " has more than " + siteCount + " sites");
+                    checkAmbiguitySet(c);
+                    row[site] = decodeState(c, table, row == firstRow ? null : firstRow, site);
+                    site++;
+                }
+            }
+            charsRead[t] = site;
+        }
+        for (int t = 0; t < taxonCount; t++) {
+            if (charsRead[t] != siteCount)
+                throw parsingException((names[t] == null ? "Taxon " + t : names[t]) +
+                        " has length " + charsRead[t] + ", expecting " + siteCount);
+        }
+        if (taxaNames == null) taxaNames = Arrays.asList(names);
+    }
+
+    /**
+     * begin assumptions;
+     * charset coding = 2-457 660-896;
+     * end;
+     */
+    private void readAssumptionsBlock() {
+        if (charsetMap == null) charsetMap = new TreeMap<>();
+        String command;
+        while ((command = readWord()) != null) {
+            if (isEndBlock(command)) return;
+            if (command.equalsIgnoreCase("CHARSET")) {
+                String charset = readWord();
+                expect("=");
+                List<CharSetBlock> charSetBlocks = new ArrayList<>();
+                String oneBlock;
+                while ((oneBlock = readWord()) != null && !oneBlock.equals(";")) {
+                    try {
+                        charSetBlocks.add(CharSetBlock.Utils.parseCharSet(oneBlock));
+                    } catch (IllegalArgumentException e) {
+                        throw parsingException("Charset " + charset + " : " + e.getMessage());
+                    }
+                }
+                charsetMap.put(charset, charSetBlocks);
+            } else skipCommand(command);
+        }
+    }
+
+    /**
+     * begin calibration;
+     * options scale = years;
+     * tipcalibration 94 = 1994:D4ElSal94, 1984:D4Mexico84 D4Philip84;
+     * end;
+     */
+    private void readCalibrationBlock() {
+        String command;
+        while ((command = readWord()) != null) {
+            if (isEndBlock(command)) return;
+            if (command.equalsIgnoreCase("OPTIONS")) {
+                String key = readWord();
+                if ("SCALE".equalsIgnoreCase(key)) {
+                    expect("=");
+                    String scale = readWord().toLowerCase();
+                    if (scale.endsWith("s"))
+                        scale = scale.substring(0, scale.length() - 1);
+                    if (!scale.equals("year"))
+                        throw new UnsupportedOperationException("Unsupported scale = " + scale);
+                    chronoUnit = ChronoUnit.YEARS;
+                    expect(";");
+                } else skipCommand(key);
+            } else if (command.equalsIgnoreCase("TIPCALIBRATION")) {
+                ageMap = new LinkedHashMap<>();
+                List<String> words = new ArrayList<>();
+                String word;
+                do {
+                    word = readWord();
+                    if (word == null || word.equals(",") || word.equals(";")) {
+                        putDates(words);
+                        words.clear();
+                    } else words.add(word);
+                } while (word != null && !word.equals(";"));
+                if (ageMap.isEmpty())
+                    throw parsingException("Cannot parse TIPCALIBRATION !");
+            } else skipCommand(command);
+        }
+    }
+
+    // [label =] date:taxon1 taxon2 ...
+    private void putDates(List<String> words) {
+        if (words.isEmpty()) return;
+        int from = words.size() > 1 && words.get(1).equals("=") ? 2 : 0;
+        String mapping = String.join(" ", words.subList(from, words.size()));
+        int colon = mapping.indexOf(':');
+        if (colon < 0) throw parsingException("Expect date:taxon in TIPCALIBRATION, but find " + mapping);
+        String date = mapping.substring(0, colon).trim();
+        for (String taxonNm : mapping.substring(colon + 1).trim().split("\\s+"))
+            if (!taxonNm.isEmpty()) ageMap.put(taxonNm, date);
+    }
+
+    private static boolean isEndBlock(String word) {
+        return word.equalsIgnoreCase("END") || word.equalsIgnoreCase("ENDBLOCK");
+    }
+
+    private void skipBlock() {
+        String command;
+        while ((command = readWord()) != null) {
+            if (isEndBlock(command)) {
+                skipCommand(command);
+                return;
+            }
+            skipCommand(command);
+        }
+    }
+
+    // skip to the end of command including ';'
+    private void skipCommand(String command) {
+        String word = command;
+        while (word != null && !word.equals(";")) word = readWord();
+    }
+
+    private void expect(String token) {
+        String word = readWord();
+        if (!token.equals(word))
+            throw parsingException("Expect '" + token + "', but find " + word);
+    }
+
+}
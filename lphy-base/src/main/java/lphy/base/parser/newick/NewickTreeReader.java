@@ -0,0 +1,369 @@
+package lphy.base.parser.newick;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+
+import lphy.base.parser.ByteBufferTokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A hand-written single-pass Newick reader, which tokenises the bytes
+ * of a (memory-mapped) buffer and builds the {@link TimeTree} directly,
+ * without creating an intermediate parse tree.
+ * It reads the trees one at a time, so it can also be used as a lazy iterator
+ * over the trees separated by ';'.
+ * Node metadata are parsed in the same way as {@link NewickASTVisitor}.
+ * @see lphy.base.parser.nexus.NexusTreeReader
+ */
+public class NewickTreeReader extends ByteBufferTokenizer implements Iterator<TimeTree> {
+
+    // same as NewickASTVisitor
+    public static final double DEFAULT_LENGTH = 0.001;
+
+    // map the labels in trees into taxa names, such as Nexus translate
+    protected Map<String, String> translation = null;
+
+    private TimeTree nextTree = null;
+
+    /**
+     * @param buffer  the bytes of Newick strings, which are read from the current position to the limit.
+     */
+    public NewickTreeReader(ByteBuffer buffer) {
+        super(buffer);
+    }
+
+    /**
+     * @param newick  one or more Newick strings separated by ';'.
+     */
+    public NewickTreeReader(String newick) {
+        this(ByteBuffer.wrap(newick.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public void setTranslation(Map<String, String> translation) {
+        this.translation = translation;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextTree == null) nextTree = readTree();
+        return nextTree != null;
+    }
+
+    @Override
+    public TimeTree next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        TimeTree tree = nextTree;
+        nextTree = null;
+        return tree;
+    }
+
+    /**
+     * @return all the remaining trees.
+     */
+    public List<TimeTree> readAll() {
+        List<TimeTree> trees = new ArrayList<>();
+        forEachRemaining(trees::add);
+        return trees;
+    }
+
+    /**
+     * Read the next tree, which ends at ';' or the end of buffer.
+     * @return the next tree, or null if there are no more trees.
+     */
+    public TimeTree readTree() {
+        skipSpaceAndComments();
+        if (pos >= limit) return null;
+        TimeTreeNode root = readNewickNode();
+        return createTimeTree(root);
+    }
+
+    /**
+     * Build the tree from the current position to ';', and consume ';'.
+     * Branch lengths are stored into ages, which are converted later.
+     * @return the root node
+     */
+    protected TimeTreeNode readNewickNode() {
+        Deque<TimeTreeNode> stack = new ArrayDeque<>();
+        TimeTreeNode root = newNode();
+        TimeTreeNode current = root;
+        boolean closed = false;
+        while (true) {
+            skipSpace();
+            if (!closed && peek() == '(') {
+                pos++;
+                stack.push(current);
+                TimeTreeNode child = newNode();
+                current.addChild(child);
+                current = child;
+                continue;
+            }
+            readPost(current);
+            closed = false;
+
+            skipSpace();
+            int c = peek();
+            if (c == ',') {
+                pos++;
+                if (stack.isEmpty()) throw parsingException("Unexpected ','");
+                TimeTreeNode sibling = newNode();
+                stack.peek().addChild(sibling);
+                current = sibling;
+            } else if (c == ')') {
+                pos++;
+                if (stack.isEmpty()) throw parsingException("Unbalanced ')'");
+                current = stack.pop();
+                closed = true;
+            } else if (c == ';' || c < 0) {
+                if (!stack.isEmpty()) throw parsingException("Missing ')'");
+                if (c == ';') pos++;
+                return root;
+            } else throw parsingException("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private TimeTreeNode newNode() {
+        TimeTreeNode node = new TimeTreeNode((String) null, null);
+        node.setAge(DEFAULT_LENGTH);
+        return node;
+    }
+
+    // post: label? meta? (':' meta? length meta?)?
+    private void readPost(TimeTreeNode node) {
+        skipSpace();
+        int c = peek();
+        if (c == '\'' || c == '"' || isLabelChar(c)) {
+            String label = readLabel();
+            if (translation != null) label = translation.getOrDefault(label, label);
+            node.setId(label);
+        }
+        readMetaOrSkipComments(node);
+        if (peek() == ':') {
+            pos++;
+            readMetaOrSkipComments(node);
+            node.setAge(readDouble());
+            readMetaOrSkipComments(node);
+        }
+    }
+
+    private void readMetaOrSkipComments(TimeTreeNode node) {
+        skipSpace();
+        while (peek() == '[') {
+            if (pos + 1 < limit && buffer.get(pos + 1) == '&') {
+                pos += 2;
+                readMetaData(node);
+            } else skipComment();
+            skipSpace();
+        }
+    }
+
+    // after "[&" until ']'
+    private void readMetaData(TimeTreeNode node) {
+        while (true) {
+            skipSpace();
+            if (peek() == ']') {
+                pos++;
+                return;
+            }
+            String key = readAttribute();
+            skipSpace();
+            // a flag without value, such as [&R]
+            if (peek() == '=') {
+                pos++;
+                skipSpace();
+                node.setMetaData(key, readAttribValue());
+                skipSpace();
+            }
+            int c = peek();
+            if (c == ',') pos++;
+            else if (c != ']') throw parsingException("Expect ',' or ']' in metadata");
+        }
+    }
+
+    // number, string, or vector of them
+    private Object readAttribValue() {
+        if (peek() == '{') {
+            pos++;
+            List<String> elements = new ArrayList<>();
+            while (true) {
+                skipSpace();
+                elements.add(readAttribute());
+                skipSpace();
+                int c = read();
+                if (c == '}') break;
+                if (c != ',') throw parsingException("Expect ',' or '}' in metadata vector");
+            }
+            try {
+                Double[] arrayValues = new Double[elements.size()];
+                for (int i = 0; i < arrayValues.length; i++)
+                    arrayValues[i] = Double.parseDouble(elements.get(i));
+                return arrayValues;
+            } catch (NumberFormatException ex) {
+                // it is a non-numerical vector -- store as String
+                return elements.toArray(String[]::new);
+            }
+        }
+        boolean quoted = peek() == '\'' || peek() == '"';
+        String value = readAttribute();
+        if (!quoted && isNumber(value))
+            return Double.parseDouble(value);
+        return value;
+    }
+
+    private String readAttribute() {
+        int c = peek();
+        if (c == '\'' || c == '"') return readQuoted();
+        int start = pos;
+        while (pos < limit) {
+            c = buffer.get(pos);
+            if (c == ',' || c == ']' || c == '=' || c == '{' || c == '}' || isSpace(c)) break;
+            pos++;
+        }
+        if (start == pos) throw parsingException("Empty metadata");
+        return decode(start, pos);
+    }
+
+    private static boolean isNumber(String s) {
+        int i = 0, len = s.length();
+        if (len > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) i++;
+        boolean digit = false;
+        for (; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') digit = true;
+            else if (ch != '.' && ch != 'e' && ch != 'E' && ch != '-' && ch != '+') return false;
+        }
+        return digit;
+    }
+
+    protected String readLabel() {
+        int c = peek();
+        if (c == '\'' || c == '"') return readQuoted();
+        int start = pos;
+        while (pos < limit && isLabelChar(buffer.get(pos))) pos++;
+        return decode(start, pos);
+    }
+
+    /**
+     * Parse the decimal number straight from the bytes.
+     * Use the exact fast path when the significand and power of ten are
+     * both exactly representable, otherwise fall back to {@link Double#parseDouble(String)}.
+     */
+    protected double readDouble() {
+        skipSpace();
+        final int start = pos;
+        boolean negative = false;
+        int c = peek();
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean anyDigit = false;
+        boolean dot = false;
+        while (pos < limit) {
+            c = buffer.get(pos);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (significand == 0 && c == '0') {
+                    // leading zeros are not significant
+                    if (dot) exp10--;
+                } else if (digits < 18) {
+                    significand = significand * 10 + (c - '0');
+                    digits++;
+                    if (dot) exp10--;
+                } else {
+                    // drop the digit and fall back to the exact parser below
+                    digits++;
+                    if (!dot) exp10++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else break;
+            pos++;
+        }
+        if (!anyDigit) throw parsingException("Expect a number");
+        if (pos < limit && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            pos++;
+            int sign = 1;
+            c = peek();
+            if (c == '-' || c == '+') {
+                sign = c == '-' ? -1 : 1;
+                pos++;
+            }
+            int e = 0;
+            boolean expDigit = false;
+            while (pos < limit && (c = buffer.get(pos)) >= '0' && c <= '9') {
+                if (e < 100000) e = e * 10 + (c - '0');
+                expDigit = true;
+                pos++;
+            }
+            if (!expDigit) throw parsingException("Expect the exponent");
+            exp10 += sign * e;
+        }
+        // 2^53 and 10^22 are the exact limits of double
+        if (digits <= 15 && exp10 >= -22 && exp10 <= 22) {
+            double d = (double) significand;
+            d = exp10 < 0 ? d / POW10[-exp10] : d * POW10[exp10];
+            return negative ? -d : d;
+        }
+        return Double.parseDouble(decode(start, pos));
+    }
+
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10.0;
+    }
+
+    /**
+     * Convert the branch lengths stored in ages into ages,
+     * where the youngest leaf has age 0.
+     * Then create the tree and index leaves in the depth-first order.
+     */
+    protected TimeTree createTimeTree(TimeTreeNode root) {
+        // pre-order, the depth of parents are set before children
+        List<TimeTreeNode> preOrder = new ArrayList<>();
+        Deque<TimeTreeNode> stack = new ArrayDeque<>();
+        Set<String> leafIds = new HashSet<>();
+        stack.push(root);
+        // the root branch is not included
+        root.setAge(0.0);
+        double maxDepth = 0.0;
+        while (!stack.isEmpty()) {
+            TimeTreeNode node = stack.pop();
+            preOrder.add(node);
+            if (!node.isRoot()) node.setAge(node.getParent().getAge() + node.getAge());
+            if (node.isLeaf()) {
+                maxDepth = Math.max(maxDepth, node.getAge());
+                if (node.getId() != null && !leafIds.add(node.getId()))
+                    throw new TreeParsingException("Duplicate taxon found: " + node.getId());
+            }
+            List<TimeTreeNode> children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--)
+                stack.push(children.get(i));
+        }
+        for (TimeTreeNode node : preOrder) {
+            double age = maxDepth - node.getAge();
+            node.setAge(node.isLeaf() && age < 0 ? 0 : age);
+        }
+
+        TimeTree tree = new TimeTree();
+        tree.setRoot(root, true);
+        return tree;
+    }
+
+    protected static boolean isLabelChar(int c) {
+        return c >= 0 ? !(isSpace(c) || c == '(' || c == ')' || c == '[' || c == ']' ||
+                c == ',' || c == ':' || c == ';' || c == '\'' || c == '"') :
+                c != -1; // non-ASCII bytes of UTF-8
+    }
+
+    @Override
+    protected TreeParsingException parsingException(String message) {
+        return new TreeParsingException(message + " at byte " + pos, pos, null);
+    }
+}
@@ -0,0 +1,242 @@
+package lphy.base.parser.newick;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Write a {@link TimeTree} in the Newick format to an {@link Appendable},
+ * such as a buffered file writer, without building the whole string in memory.
+ * The output is same as {@link TimeTree#toNewick(boolean)}, except that the numbers are formatted
+ * to the given decimal places, and the leaf labels can be replaced by the indices in a Nexus translate command.
+ * The nodes are visited without recursion, so the depth of tree is not limited by the stack.
+ * @see NewickTreeReader
+ */
+public class NewickTreeWriter {
+
+    /**
+     * Format numbers in the shortest string that can be parsed back to the same double.
+     */
+    public static final int SHORTEST = -1;
+
+    // 10^0 to 10^15 are exact in double
+    private static final long[] POW10 = new long[16];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final int decimalPlaces;
+    private final boolean includeSingleChildNodes;
+    // taxon name to the label in the translate command, null to use the names
+    private final Map<String, String> translation;
+
+    // reused to format numbers
+    private final StringBuilder number = new StringBuilder(32);
+    // reused stacks for traversal
+    private final ArrayDeque<TimeTreeNode> nodeStack = new ArrayDeque<>();
+    private int[] childIndexStack = new int[64];
+
+    /**
+     * The same as {@link TimeTree#toString()}.
+     */
+    public NewickTreeWriter() {
+        this(SHORTEST, null, true);
+    }
+
+    /**
+     * @param decimalPlaces   the max decimal places of branch lengths and numeric metadata,
+     *                        where the trailing zeros are removed, or {@link #SHORTEST}.
+     * @param taxaNames       the taxa names in the translate command, see {@link #getTranslateCommand(String[])},
+     *                        or null to write the names of leaves.
+     *                        If given, writing a tree having a leaf not in them throws IllegalArgumentException.
+     * @param includeSingleChildNodes  if false, the nodes having a single child are skipped.
+     */
+    public NewickTreeWriter(int decimalPlaces, String[] taxaNames, boolean includeSingleChildNodes) {
+        if (decimalPlaces < SHORTEST || decimalPlaces >= POW10.length)
+            throw new IllegalArgumentException("The decimal places must be in [0, " + (POW10.length - 1) +
+                    "] or SHORTEST, but it is " + decimalPlaces);
+        this.decimalPlaces = decimalPlaces;
+        this.includeSingleChildNodes = includeSingleChildNodes;
+        if (taxaNames != null) {
+            translation = new HashMap<>(taxaNames.length * 2);
+            for (int i = 0; i < taxaNames.length; i++)
+                translation.put(taxaNames[i], String.valueOf(i + 1));
+        } else
+            translation = null;
+    }
+
+    /**
+     * @param taxaNames  the taxa names, which are labelled from 1 in the order.
+     * @return the Nexus translate command in the trees block.
+     */
+    public static String getTranslateCommand(String[] taxaNames) {
+        StringBuilder builder = new StringBuilder("\ttranslate\n");
+        for (int i = 0; i < taxaNames.length; i++) {
+            builder.append("\t\t").append(i + 1).append(" ").append(taxaNames[i]);
+            builder.append(i < taxaNames.length - 1 ? ",\n" : "\n");
+        }
+        return builder.append("\t\t;").toString();
+    }
+
+    /**
+     * @return the Newick string of the tree.
+     */
+    public String toNewick(TimeTree tree) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            write(tree, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write the Newick string of the tree, ending with ';'.
+     * This is not thread-safe, as the buffers are reused.
+     */
+    public void write(TimeTree tree, Appendable out) throws IOException {
+        nodeStack.clear();
+        int depth = 0;
+        TimeTreeNode node = skipSingleChildNodes(tree.getRoot());
+        nodeStack.push(node);
+        childIndexStack[0] = 0;
+
+        while (!nodeStack.isEmpty()) {
+            node = nodeStack.peek();
+            int childIndex = childIndexStack[depth];
+            List<TimeTreeNode> children = node.getChildren();
+
+            if (!node.isLeaf() && childIndex < children.size()) {
+                // go down to the next child
+                out.append(childIndex == 0 ? '(' : ',');
+                childIndexStack[depth] = childIndex + 1;
+                if (++depth == childIndexStack.length)
+                    childIndexStack = Arrays.copyOf(childIndexStack, depth * 2);
+                childIndexStack[depth] = 0;
+                nodeStack.push(skipSingleChildNodes(children.get(childIndex)));
+            } else {
+                // all children are written
+                nodeStack.pop();
+                depth--;
+                writeNode(node, out);
+            }
+        }
+    }
+
+    private TimeTreeNode skipSingleChildNodes(TimeTreeNode node) {
+        if (!includeSingleChildNodes)
+            while (node.getChildCount() == 1)
+                node = node.getChildren().get(0);
+        return node;
+    }
+
+    // the part after the children
+    private void writeNode(TimeTreeNode node, Appendable out) throws IOException {
+        if (node.isLeaf()) {
+            String id = node.getId();
+            if (translation != null && id != null) {
+                String label = translation.get(id);
+                // the raw name could be read as the index of another taxon
+                if (label == null)
+                    throw new IllegalArgumentException("The taxon " + id + " is not in the translate command, " +
+                            "which is created from the taxa " + translation.keySet() + " !");
+                out.append(label);
+            } else
+                out.append(id);
+            writeMetaData(node, out);
+        } else {
+            out.append(')');
+            if (node.getId() != null)
+                out.append(node.getId());
+        }
+
+        if (node.isRoot()) {
+            out.append(":0.0;");
+        } else {
+            if (!node.isLeaf())
+                writeMetaData(node, out);
+            out.append(':');
+            writeNumber(getBranchLength(node), out);
+        }
+    }
+
+    private void writeMetaData(TimeTreeNode node, Appendable out) throws IOException {
+        Map<String, Object> metaData = node.getMetaData();
+        if (metaData == null || metaData.isEmpty()) return;
+        out.append("[&");
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : metaData.entrySet()) {
+            if (!first) out.append(',');
+            out.append(entry.getKey()).append('=');
+            if (entry.getValue() instanceof Double d)
+                writeNumber(d, out);
+            else
+                out.append(String.valueOf(entry.getValue()));
+            first = false;
+        }
+        out.append(']');
+    }
+
+    // same as TimeTree
+    private double getBranchLength(TimeTreeNode node) {
+        TimeTreeNode parent = node.getParent();
+        if (!includeSingleChildNodes && parent.getChildCount() == 1)
+            parent = parent.getParent();
+        if (parent != null) return parent.getAge() - node.getAge();
+        return 0.0;
+    }
+
+    private void writeNumber(double x, Appendable out) throws IOException {
+        number.setLength(0);
+        appendNumber(x, decimalPlaces, number);
+        out.append(number);
+    }
+
+    /**
+     * Format a double without creating a String.
+     * @param x              the number
+     * @param decimalPlaces  the max decimal places, where the trailing zeros are removed
+     *                       but at least one is kept, or {@link #SHORTEST}
+     *                       for the shortest string parsed back to the same double.
+     * @param builder        to append the number
+     */
+    public static void appendNumber(double x, int decimalPlaces, StringBuilder builder) {
+        if (decimalPlaces == SHORTEST || Double.isNaN(x) || Double.isInfinite(x)) {
+            builder.append(x);
+            return;
+        }
+        final long scale = POW10[decimalPlaces];
+        final double scaled = Math.abs(x) * scale;
+        // too large to be exact in long arithmetic
+        if (scaled >= 0x1p53) {
+            builder.append(x);
+            return;
+        }
+        long digits = Math.round(scaled);
+        if (x < 0 && digits != 0)
+            builder.append('-');
+        builder.append(digits / scale).append('.');
+        long fraction = digits % scale;
+        if (fraction == 0 || decimalPlaces == 0) {
+            builder.append('0');
+            return;
+        }
+        // remove trailing zeros
+        int places = decimalPlaces;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            places--;
+        }
+        // leading zeros
+        for (long p = POW10[places - 1]; p > fraction; p /= 10)
+            builder.append('0');
+        builder.append(fraction);
+    }
+}
@@ -0,0 +1,99 @@
+package lphy.base.parser.nexus;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.parser.newick.NewickTreeReader;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read the trees from the "trees" blocks of a Nexus file one at a time,
+ * using the optional "translate" command to map the tree labels into taxa names.
+ * The other blocks are skipped without being parsed.
+ * @see NewickTreeReader
+ */
+public class NexusTreeReader extends NewickTreeReader {
+
+    private boolean inTreesBlock = false;
+
+    /**
+     * @param buffer  the bytes of a Nexus file, e.g. from {@link NewickTreeReader#mapFile(java.nio.file.Path)}.
+     */
+    public NexusTreeReader(ByteBuffer buffer) {
+        super(buffer);
+    }
+
+    public NexusTreeReader(String nexus) {
+        super(nexus);
+    }
+
+    /**
+     * @return the next tree in the trees blocks, or null if there are no more trees.
+     */
+    @Override
+    public TimeTree readTree() {
+        while (true) {
+            if (!inTreesBlock && !findTreesBlock()) return null;
+
+            String command = readWord();
+            if (command == null) return null;
+
+            switch (command.toLowerCase()) {
+                case "translate" -> readTranslate();
+                case "tree", "utree" -> {
+                    // tree [*] name = [&R] newick;
+                    String word = readWord();
+                    while (word != null && !word.equals("=")) word = readWord();
+                    if (word == null) return null;
+                    return super.readTree();
+                }
+                case "end", "endblock" -> {
+                    skipCommand();
+                    inTreesBlock = false;
+                }
+                case ";" -> {}
+                default -> skipCommand();
+            }
+        }
+    }
+
+    // move to the command after "begin trees;"
+    private boolean findTreesBlock() {
+        String word;
+        while ((word = readWord()) != null) {
+            if (word.equalsIgnoreCase("begin")) {
+                word = readWord();
+                if (word != null && word.equalsIgnoreCase("trees")) {
+                    skipCommand();
+                    inTreesBlock = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // translate 1 name1, 2 name2, ... ;
+    private void readTranslate() {
+        Map<String, String> translation = new HashMap<>();
+        while (true) {
+            String key = readWord();
+            if (key == null || key.equals(";")) break;
+            if (key.equals(",")) continue;
+            String value = readWord();
+            if (value == null || value.equals(";") || value.equals(","))
+                throw parsingException("Missing the taxon name of " + key + " in translate");
+            translation.put(key, value);
+        }
+        setTranslation(translation);
+    }
+
+    // skip to the end of command including ';'
+    private void skipCommand() {
+        String word;
+        do {
+            word = readWord();
+        } while (word != null && !word.equals(";"));
+    }
+}
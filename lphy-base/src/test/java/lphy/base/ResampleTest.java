@@ -1,6 +1,7 @@
 package lphy.base;
 
 import lphy.base.evolution.Taxa;
+import lphy.base.evolution.alignment.Alignment;
 import lphy.base.evolution.tree.TimeTree;
 import lphy.core.model.Value;
 import lphy.core.parser.LPhyListenerImpl;
@@ -147,5 +148,113 @@ public class ResampleTest {
 
     }
 
+    /**
+     * Test {@link Sampler#setFixedValues(java.util.Collection)} only resamples the values downstream,
+     * and reuses the values held fixed and their ancestors.
+     */
+    @Test
+    public void testResampleHoldFixed() {
+        parse("Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);");
+        parse("ψ ~ Coalescent(n=8, theta=Θ);");
+        parse("r ~ LogNormal(meanlog=0.0, sdlog=0.5);");
+        parse("D ~ PhyloCTMC(tree=ψ, Q=jukesCantor(), mu=r, L=20);");
+
+        LPhyParserDictionary parserDictionary = getParser();
+        Map<String, Value<?>> modelDict = parserDictionary.getModelDictionary();
+        Value<?> theta = modelDict.get("Θ");
+        Value<?> tree = modelDict.get("ψ");
+
+        Sampler sampler = new Sampler(parserDictionary);
+        // canonical id
+        sampler.setFixedValues(Set.of("psi"));
+        for (int i = 0; i < 3; i++) {
+            Value<?> rate = modelDict.get("r");
+            Value<?> alignment = modelDict.get("D");
+            sampler.sample(null);
+
+            assertSame(tree, modelDict.get("ψ"));
+            assertSame(theta, modelDict.get("Θ"));
+            assertNotEquals(rate.value(), modelDict.get("r").value(), "r should change");
+            assertNotSame(alignment, modelDict.get("D"));
+            assertNotSame(alignment.value(), modelDict.get("D").value(), "D should change");
+        }
+        assertEquals(4, modelDict.size());
+
+        sampler.setFixedValues(Set.of("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> sampler.sample(null));
+    }
+
+    /**
+     * The alignments of partitions sharing a tree are resampled at the same time,
+     * which should be reproducible given the same seed.
+     */
+    @Test
+    public void testResamplePartitionsInParallel() {
+        parse("ψ ~ Coalescent(n=10, theta=1.0);");
+        parse("D1 ~ PhyloCTMC(tree=ψ, Q=jukesCantor(), L=30);");
+        parse("D2 ~ PhyloCTMC(tree=ψ, Q=hky(kappa=2.0, freq=[0.1,0.2,0.3,0.4]), L=30);");
 
+        LPhyParserDictionary parserDictionary = getParser();
+        Map<String, Value<?>> modelDict = parserDictionary.getModelDictionary();
+        Sampler sampler = new Sampler(parserDictionary);
+        sampler.setFixedValues(Set.of("ψ"));
+
+        sampler.sample(11L);
+        Value<?> d1 = modelDict.get("D1");
+        Value<?> d2 = modelDict.get("D2");
+        sampler.sample(11L);
+        assertNotSame(d1, modelDict.get("D1"));
+        assertEquals(sequences(d1), sequences(modelDict.get("D1")));
+        assertEquals(sequences(d2), sequences(modelDict.get("D2")));
+        assertNotEquals(sequences(d1), sequences(d2));
+    }
+
+    /**
+     * The partitions sharing a tree are also resampled at the same time, when re-parsing the script
+     * is chosen, where the values are resampled from the dictionary instead.
+     */
+    @Test
+    public void testPartitionsInParallelByDefault() {
+        parse("ψ ~ Coalescent(n=10, theta=1.0);");
+        parse("D1 ~ PhyloCTMC(tree=ψ, Q=jukesCantor(), L=30);");
+
+        LPhyParserDictionary parserDictionary = getParser();
+        Map<String, Value<?>> modelDict = parserDictionary.getModelDictionary();
+        final int[] resampled = {0};
+        Sampler sampler = new Sampler(parserDictionary) {
+            {
+                isSampleValuesUsingParser = true;
+            }
+            @Override
+            protected void resampleFromDictionary(LPhyParserDictionary parserDict) {
+                resampled[0]++;
+                super.resampleFromDictionary(parserDict);
+            }
+        };
+        // a single partition is sampled by re-parsing
+        sampler.sample(11L);
+        assertEquals(0, resampled[0]);
+
+        parse("D2 ~ PhyloCTMC(tree=ψ, Q=hky(kappa=2.0, freq=[0.1,0.2,0.3,0.4]), L=30);");
+        sampler.sample(11L);
+        assertEquals(1, resampled[0]);
+        Value<?> tree = modelDict.get("ψ");
+        Value<?> d1 = modelDict.get("D1");
+        Value<?> d2 = modelDict.get("D2");
+
+        sampler.sample(11L);
+        assertEquals(2, resampled[0]);
+        assertNotSame(tree, modelDict.get("ψ"));
+        assertEquals(tree.value().toString(), modelDict.get("ψ").value().toString());
+        assertEquals(sequences(d1), sequences(modelDict.get("D1")));
+        assertEquals(sequences(d2), sequences(modelDict.get("D2")));
+    }
+
+    private static String sequences(Value<?> alignment) {
+        Alignment a = (Alignment) alignment.value();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < a.ntaxa(); i++)
+            builder.append(a.getTaxa().getTaxaNames()[i]).append("=").append(a.getSequence(i)).append("\n");
+        return builder.toString();
+    }
 }
@@ -0,0 +1,78 @@
+package lphy.base.distribution;
+
+import lphy.core.model.RandomVariable;
+import lphy.core.model.Value;
+import lphy.core.parser.ParserSingleton;
+import lphy.core.simulator.RandomUtils;
+import lphy.core.vectorization.VectorizedRandomVariable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static lphy.core.parser.ParserSingleton.getParser;
+import static lphy.core.parser.ParserSingleton.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the batch sampling gives the same samples as calling sample() repeatedly,
+ * and the array-backed vectors created by IID and VectorizedDistribution.
+ */
+public class BatchSamplingTest {
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+        ParserSingleton.clear();
+    }
+
+    @Test
+    public void sameAsSample() {
+        final int n = 100;
+        Normal normal = new Normal(new Value<>(null, 1.0), new Value<>(null, 2.0));
+        double[] expected = new double[n];
+        for (int i = 0; i < n; i++)
+            expected[i] = normal.sample().value();
+
+        RandomUtils.setSeed(777);
+        normal = new Normal(new Value<>(null, 1.0), new Value<>(null, 2.0));
+        assertArrayEquals(expected, normal.sampleDoubles(n));
+
+        RandomUtils.setSeed(777);
+        Poisson poisson = new Poisson(new Value<>(null, 3.0), null, null, new Value<>(null, 5));
+        int[] expectedInt = new int[n];
+        for (int i = 0; i < n; i++)
+            expectedInt[i] = poisson.sample().value();
+
+        RandomUtils.setSeed(777);
+        poisson = new Poisson(new Value<>(null, 3.0), null, null, new Value<>(null, 5));
+        int[] actualInt = poisson.sampleIntegers(n);
+        assertArrayEquals(expectedInt, actualInt);
+        for (int val : actualInt)
+            assertTrue(val <= 5);
+    }
+
+    @Test
+    public void iidVector() {
+        parse("x ~ Normal(mean=0, sd=1, replicates=5);");
+        Value<?> x = getParser().getModelDictionary().get("x");
+        VectorizedRandomVariable<Double> vector = assertInstanceOf(VectorizedRandomVariable.class, x);
+        assertEquals(5, vector.size());
+        assertInstanceOf(Double[].class, vector.value());
+
+        RandomVariable<Double> component = vector.getComponentValue(2);
+        assertEquals("x_2", component.getId());
+        assertEquals(vector.getComponent(2), component.value());
+        assertInstanceOf(Normal.class, component.getGenerator());
+        assertSame(component, vector.getComponentValue(2));
+    }
+
+    @Test
+    public void vectorizedDistribution() {
+        parse("y ~ Poisson(lambda=[1.0, 20.0, 300.0]);");
+        Value<?> y = getParser().getModelDictionary().get("y");
+        VectorizedRandomVariable<Integer> vector = assertInstanceOf(VectorizedRandomVariable.class, y);
+        assertEquals(3, vector.size());
+        assertInstanceOf(Integer[].class, vector.value());
+        assertTrue(vector.getComponent(2) > vector.getComponent(0));
+        assertEquals(300.0, ((Poisson) vector.getComponentValue(2).getGenerator()).getParams().get("lambda").value());
+    }
+}
@@ -0,0 +1,83 @@
+package lphy.base.distribution;
+
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the indices sampled by geometric skips have the expected number of successes.
+ */
+public class SparseBernoulliTest {
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+    }
+
+    private static void assertSortedInRange(int[] indices, int n) {
+        for (int i = 0; i < indices.length; i++) {
+            assertTrue(indices[i] >= 0 && indices[i] < n, "index " + indices[i] + " out of range");
+            if (i > 0)
+                assertTrue(indices[i] > indices[i - 1], "indices are not sorted or distinct");
+        }
+    }
+
+    @Test
+    public void sampleSuccesses() {
+        RandomGenerator random = RandomUtils.getRandom();
+        final int n = 100000;
+        for (double p : new double[]{0.001, 0.05, 0.5, 0.9}) {
+            int[] indices = SparseBernoulli.sampleSuccesses(p, n, random);
+            assertSortedInRange(indices, n);
+            double sd = Math.sqrt(n * p * (1 - p));
+            assertEquals(n * p, indices.length, 5 * sd, "p = " + p);
+        }
+
+        assertEquals(0, SparseBernoulli.sampleSuccesses(0.0, n, random).length);
+        assertEquals(n, SparseBernoulli.sampleSuccesses(1.0, n, random).length);
+        assertEquals(0, SparseBernoulli.sampleSuccesses(0.5, 0, random).length);
+    }
+
+    @Test
+    public void sampleIndices() {
+        RandomGenerator random = RandomUtils.getRandom();
+        final int n = 50;
+        for (int k : new int[]{0, 1, 10, 30, 49, 50, 60}) {
+            int[] indices = SparseBernoulli.sampleIndices(k, n, random);
+            assertSortedInRange(indices, n);
+            assertEquals(Math.min(k, n), indices.length);
+        }
+
+        // every position is equally likely to be true
+        final int reps = 20000;
+        int[] counts = new int[n];
+        for (int r = 0; r < reps; r++) {
+            for (int i : SparseBernoulli.sampleIndices(5, n, random))
+                counts[i]++;
+        }
+        double expected = reps * 5.0 / n;
+        for (int c : counts)
+            assertEquals(expected, c, 5 * Math.sqrt(expected));
+    }
+
+    @Test
+    public void bernoulliMulti() {
+        RandomBooleanArray randomBooleanArray = new RandomBooleanArray(new Value<>(null, 20), new Value<>(null, 7));
+        Boolean[] mask = randomBooleanArray.sample().value();
+        assertEquals(20, mask.length);
+        int weight = 0;
+        for (Boolean b : mask)
+            if (b) weight++;
+        assertEquals(7, weight);
+
+        BernoulliMulti bernoulliMulti = new BernoulliMulti(new Value<>(null, 0.2), new Value<>(null, 1000), null);
+        mask = bernoulliMulti.sample().value();
+        assertEquals(1000, mask.length);
+        for (Boolean b : mask)
+            assertNotNull(b);
+    }
+}
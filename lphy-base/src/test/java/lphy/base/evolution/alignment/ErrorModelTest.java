@@ -0,0 +1,65 @@
+package lphy.base.evolution.alignment;
+
+import lphy.base.evolution.datatype.Binary;
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ErrorModelTest {
+
+    final int ntaxa = 20;
+    final int nchar = 5000;
+
+    // 0, 1 and a few unknown states
+    private SimpleAlignment createAlignment() {
+        Map<String, Integer> idMap = new TreeMap<>();
+        for (int i = 0; i < ntaxa; i++)
+            idMap.put("t" + i, i);
+        SimpleAlignment alignment = new SimpleAlignment(idMap, nchar, Binary.getInstance());
+        for (int i = 0; i < ntaxa; i++)
+            for (int j = 0; j < nchar; j++)
+                alignment.setState(i, j, j % 100 == 0 ? Binary.UNKNOWN_STATE.getIndex() : (i + j) % 2);
+        return alignment;
+    }
+
+    private void assertErrorRates(double alpha, double beta) {
+        RandomUtils.setSeed(777);
+        SimpleAlignment original = createAlignment();
+        ErrorModel errorModel = new ErrorModel(new Value<>(null, alpha), new Value<>(null, beta),
+                new Value<>(null, original));
+        Alignment alignment = errorModel.sample().value();
+
+        int[] counts = new int[2];
+        int[] errors = new int[2];
+        for (int i = 0; i < ntaxa; i++) {
+            for (int j = 0; j < nchar; j++) {
+                int raw = original.getState(i, j);
+                int state = raw == 0 ? 0 : 1;
+                int newState = alignment.getState(i, j);
+                counts[state]++;
+                if (newState == 1 - state)
+                    errors[state]++;
+                else // the unknown state is kept without errors
+                    assertEquals(raw, newState, "taxon " + i + " site " + j);
+            }
+        }
+        assertEquals(alpha, (double) errors[0] / counts[0], 0.01, "alpha");
+        assertEquals(beta, (double) errors[1] / counts[1], 0.01, "beta");
+    }
+
+    @Test
+    void testErrorRates() {
+        assertErrorRates(0.0, 0.0);
+        assertErrorRates(0.01, 0.3);
+        // the cells without errors are drawn for the states having error probabilities > 0.5
+        assertErrorRates(0.8, 0.2);
+        assertErrorRates(0.1, 0.95);
+        assertErrorRates(0.9, 0.7);
+        assertErrorRates(1.0, 1.0);
+    }
+}
@@ -0,0 +1,66 @@
+package lphy.base.evolution.birthdeath;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BirthDeathSamplingTreeTest {
+
+    @Test
+    public void testReconstructedTree() {
+        RandomUtils.setSeed(777);
+        final double lambda = 2.0, mu = 1.0, rho = 0.3, rootAge = 2.0;
+        BirthDeathSamplingTree birthDeath = new BirthDeathSamplingTree(new Value<>(null, lambda),
+                new Value<>(null, mu), new Value<>(null, rho), new Value<>(null, rootAge));
+
+        final int reps = 20000;
+        double sumTips = 0;
+        int rootAtRootAge = 0;
+        for (int i = 0; i < reps; i++) {
+            TimeTree tree = birthDeath.sample().value();
+            int n = tree.n();
+            sumTips += n;
+            assertEquals(2 * n - 1, tree.getNodeCount());
+
+            Set<String> ids = new HashSet<>();
+            for (TimeTreeNode node : tree.getNodes()) {
+                if (node.isLeaf()) {
+                    assertEquals(0.0, node.getAge());
+                    ids.add(node.getId());
+                } else {
+                    assertEquals(2, node.getChildCount());
+                    assertTrue(node.getAge() <= rootAge);
+                    for (TimeTreeNode child : node.getChildren())
+                        assertTrue(child.getAge() <= node.getAge());
+                }
+            }
+            assertEquals(n, ids.size());
+            if (tree.getRoot().getAge() == rootAge) rootAtRootAge++;
+        }
+
+        // each lineage at the root has sampled descendants with probability p,
+        // and the number of them is geometric with the mean 1 / P(H > root age).
+        double r = lambda - mu;
+        double p = rho * r / (rho * lambda + (r - rho * lambda) * Math.exp(-r * rootAge));
+        double tail = 1.0 / (1.0 + rho * lambda * Math.expm1(r * rootAge) / r);
+        double expectedTips = 2.0 / (tail * (2.0 - p));
+        double expectedBoth = p / (2.0 - p);
+
+        assertEquals(expectedTips, sumTips / reps, 0.03 * expectedTips);
+        assertEquals(expectedBoth, (double) rootAtRootAge / reps, 0.02);
+    }
+
+    @Test
+    public void testInvalidRho() {
+        BirthDeathSamplingTree birthDeath = new BirthDeathSamplingTree(new Value<>(null, 2.0),
+                new Value<>(null, 1.0), new Value<>(null, 0.0), new Value<>(null, 1.0));
+        assertThrows(IllegalArgumentException.class, birthDeath::sample);
+    }
+}
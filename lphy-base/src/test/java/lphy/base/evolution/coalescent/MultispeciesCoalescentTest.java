@@ -0,0 +1,80 @@
+package lphy.base.evolution.coalescent;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.parser.newick.NewickTreeReader;
+import lphy.core.model.Value;
+import lphy.core.parser.ParserSingleton;
+import lphy.core.simulator.RandomUtils;
+import lphy.core.vectorization.VectorizedRandomVariable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static lphy.core.parser.ParserSingleton.getParser;
+import static lphy.core.parser.ParserSingleton.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultispeciesCoalescentTest {
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+        ParserSingleton.clear();
+    }
+
+    private MultispeciesCoalescent createMSC() {
+        TimeTree speciesTree = new NewickTreeReader("(A:1.0,B:1.0);").readTree();
+        // A, B and the root
+        Double[] thetas = new Double[]{0.1, 0.1, 0.5};
+        return new MultispeciesCoalescent(new Value<>(null, thetas), null, null, new Value<>(null, speciesTree));
+    }
+
+    @Test
+    public void testBatchSameDistributionAsSample() {
+        MultispeciesCoalescent msc = createMSC();
+        final int numLoci = 4000;
+
+        // one gene per species, so they coalesce in the root population with the mean waiting time theta
+        double sum = 0;
+        for (int i = 0; i < numLoci; i++)
+            sum += msc.sample().value().getRoot().getAge();
+        assertEquals(1.5, sum / numLoci, 0.03);
+
+        TimeTree[] geneTrees = msc.sampleArray(numLoci);
+        assertEquals(numLoci, geneTrees.length);
+        sum = 0;
+        for (TimeTree geneTree : geneTrees) {
+            assertEquals(2, geneTree.n());
+            assertTrue(geneTree.getRoot().getAge() > 1.0);
+            sum += geneTree.getRoot().getAge();
+        }
+        assertEquals(1.5, sum / numLoci, 0.03);
+    }
+
+    @Test
+    public void testBatchIsReproducible() {
+        MultispeciesCoalescent msc = createMSC();
+        String[] trees1 = Arrays.stream(msc.sampleArray(100)).map(TimeTree::toString).toArray(String[]::new);
+        RandomUtils.setSeed(777);
+        msc = createMSC();
+        String[] trees2 = Arrays.stream(msc.sampleArray(100)).map(TimeTree::toString).toArray(String[]::new);
+        assertArrayEquals(trees1, trees2);
+        // not the same tree for all loci
+        assertNotEquals(trees1[0], trees1[MultispeciesCoalescent.LOCI_PER_TASK]);
+    }
+
+    @Test
+    public void testReplicates() {
+        parse("sp ~ Yule(lambda=1.0, n=4);\n" +
+                "Θ ~ LogNormal(meanlog=-2.0, sdlog=0.5, replicates=7);\n" +
+                "g ~ MultispeciesCoalescent(theta=Θ, n=[2,2,2,2], S=sp, replicates=100);");
+        Value<?> g = getParser().getModelDictionary().get("g");
+        VectorizedRandomVariable<TimeTree> vector = assertInstanceOf(VectorizedRandomVariable.class, g);
+        assertEquals(100, vector.size());
+        for (int i = 0; i < vector.size(); i++) {
+            assertEquals(8, vector.getComponent(i).n());
+            assertSame(vector.getComponent(i), vector.getComponentValue(i).value());
+        }
+    }
+}
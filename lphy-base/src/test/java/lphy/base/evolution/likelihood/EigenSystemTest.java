@@ -0,0 +1,82 @@
+package lphy.base.evolution.likelihood;
+
+import lphy.base.evolution.substitutionmodel.GTR;
+import lphy.base.evolution.substitutionmodel.HKY;
+import lphy.base.evolution.substitutionmodel.JukesCantor;
+import lphy.core.model.Value;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EigenSystemTest {
+
+    @BeforeEach
+    void setUp() {
+        EigenSystem.clearCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        EigenSystem.clearCache();
+    }
+
+    private static double[] flatten(Double[][] Q) {
+        double[] q = new double[Q.length * Q.length];
+        for (int i = 0; i < Q.length; i++)
+            for (int j = 0; j < Q.length; j++)
+                q[i * Q.length + j] = Q[i][j];
+        return q;
+    }
+
+    private static void assertSameTransProbs(EigenSystem expected, EigenSystem actual) {
+        final int n = expected.getStateCount();
+        double[][] p1 = new double[n][n];
+        double[][] p2 = new double[n][n];
+        double[][] work = new double[n][n];
+        for (double t : new double[]{0.0, 1e-6, 0.01, 0.1, 1.0, 10.0, 100.0}) {
+            expected.getTransitionProbabilities(t, p1, work);
+            actual.getTransitionProbabilities(t, p2, work);
+            for (int i = 0; i < n; i++)
+                assertArrayEquals(p1[i], p2[i], 1e-12, "t = " + t + ", row " + i);
+        }
+    }
+
+    @Test
+    void testClosedFormSameAsNumeric() {
+        Double[][][] Qs = new Double[][][]{
+                new JukesCantor(new Value<>(null, 1.0)).apply().value(),
+                new HKY(new Value<>(null, 5.0), new Value<>(null, new Double[]{0.1, 0.2, 0.3, 0.4}),
+                        new Value<>(null, 2.0)).apply().value(),
+                // F81
+                new HKY(new Value<>(null, 1.0), new Value<>(null, new Double[]{0.4, 0.3, 0.2, 0.1}),
+                        null).apply().value()
+        };
+        for (Double[][] Q : Qs) {
+            EigenSystem eigenSystem = EigenSystem.of(Q);
+            assertInstanceOf(EigenSystem.HKY.class, eigenSystem);
+            assertSameTransProbs(new EigenSystem.Numeric(flatten(Q), Q.length), eigenSystem);
+        }
+    }
+
+    @Test
+    void testCache() {
+        Double[][] gtrQ = new GTR(new Value<>(null, new Double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0}),
+                new Value<>(null, new Double[]{0.1, 0.2, 0.3, 0.4}), null).apply().value();
+        EigenSystem gtr = EigenSystem.of(gtrQ);
+        assertInstanceOf(EigenSystem.Numeric.class, gtr);
+
+        // the same content but different instances
+        Double[][] gtrQ2 = new GTR(new Value<>(null, new Double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0}),
+                new Value<>(null, new Double[]{0.1, 0.2, 0.3, 0.4}), null).apply().value();
+        assertNotSame(gtrQ, gtrQ2);
+        assertSame(gtr, EigenSystem.of(gtrQ2));
+        assertEquals(1, EigenSystem.getHits());
+        assertEquals(1, EigenSystem.getMisses());
+
+        Double[][] jcQ = new JukesCantor(new Value<>(null, 1.0)).apply().value();
+        assertNotSame(gtr, EigenSystem.of(jcQ));
+        assertEquals(2, EigenSystem.getCacheSize());
+    }
+}
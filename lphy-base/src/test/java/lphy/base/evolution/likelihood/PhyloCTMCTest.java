@@ -0,0 +1,114 @@
+package lphy.base.evolution.likelihood;
+
+import lphy.base.distribution.Categorical;
+import lphy.base.evolution.alignment.Alignment;
+import lphy.base.evolution.alignment.SimpleAlignment;
+import lphy.base.evolution.coalescent.Coalescent;
+import lphy.base.evolution.substitutionmodel.JukesCantor;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhyloCTMCTest {
+
+    static void assertSameStates(Alignment expected, Alignment actual) {
+        assertEquals(expected.ntaxa(), actual.ntaxa());
+        assertEquals(expected.nchar(), actual.nchar());
+        for (int i = 0; i < expected.ntaxa(); i++)
+            for (int j = 0; j < expected.nchar(); j++)
+                assertEquals(expected.getState(i, j), actual.getState(i, j), "taxon " + i + " site " + j);
+    }
+
+    // the recursive traversal of the tree, which draws the states in the pre-order
+    private static void traverseTree(PhyloCTMC phyloCTMC, TimeTreeNode node, int nodeState, Alignment alignment,
+                                     int pos, Double[] branchRates, double clockRate, double siteRate) {
+        if (node.isLeaf() || (node.isSingleChildNonOrigin() && node.getId() != null))
+            alignment.setState(phyloCTMC.idMap.get(node.getId()), pos, nodeState);
+        final int numStates = phyloCTMC.transProb.length;
+        for (TimeTreeNode child : node.getChildren()) {
+            double branchLength = siteRate * clockRate * (node.getAge() - child.getAge()) *
+                    branchRates[child.getIndex()];
+            double[][] p = new double[numStates][numStates];
+            phyloCTMC.getTransitionProbabilities(branchLength, p);
+
+            double U = phyloCTMC.random.nextDouble();
+            int state = -1;
+            double totalProb = 0.0;
+            do {
+                state += 1;
+                totalProb += p[nodeState][state];
+            } while (U > totalProb && state < numStates - 1);
+
+            traverseTree(phyloCTMC, child, state, alignment, pos, branchRates, clockRate, siteRate);
+        }
+    }
+
+    private static Alignment simulateRecursively(PhyloCTMC phyloCTMC, TimeTree tree, Double[] siteRates,
+                                                 Double[] branchRates, int seed) {
+        phyloCTMC.setup();
+        phyloCTMC.random = new MersenneTwister(seed);
+        Alignment alignment = new SimpleAlignment(phyloCTMC.idMap, siteRates.length, phyloCTMC.getDataType());
+        for (int i = 0; i < siteRates.length; i++) {
+            int rootState = Categorical.sample(phyloCTMC.rootFreqs.value(), phyloCTMC.random);
+            traverseTree(phyloCTMC, tree.getRoot(), rootState, alignment, i, branchRates, 0.3, siteRates[i]);
+        }
+        phyloCTMC.random = RandomUtils.getRandom();
+        return alignment;
+    }
+
+    /**
+     * {@link AbstractPhyloCTMC#simulateSite(int, Alignment, int, double, double)} should simulate
+     * the same alignment as the recursive traversal, given the same random numbers.
+     */
+    @Test
+    void testSimulateSiteSameAsTraverseTree() {
+        RandomUtils.setSeed(123);
+        final int n = 12;
+        TimeTree tree = new Coalescent(new Value<>(null, 1.0), new Value<>(null, n), null).sample().value();
+        int[] leafIndices = new int[n];
+        for (int i = 0; i < n; i++)
+            leafIndices[i] = tree.getNodeByIndex(i).getLeafIndex();
+
+        final int length = 50;
+        Double[] siteRates = new Double[length];
+        for (int i = 0; i < length; i++)
+            siteRates[i] = new double[]{0.0, 0.5, 1.0, 2.0}[i % 4] + (i >= 40 ? i * 0.01 : 0.0);
+        Double[] branchRates = new Double[tree.getNodeCount()];
+        for (int i = 0; i < branchRates.length; i++)
+            branchRates[i] = 0.5 + i * 0.1;
+
+        PhyloCTMC phyloCTMC = new PhyloCTMC(new Value<>("ψ", tree), new Value<>(null, 0.3), null,
+                new JukesCantor(new Value<>(null, 1.0)).apply(), new Value<>(null, siteRates),
+                new Value<>(null, branchRates), null, null, null);
+
+        Alignment actual = phyloCTMC.sample(new MersenneTwister(7)).value();
+        // the random generator is restored
+        assertSame(RandomUtils.getRandom(), phyloCTMC.random);
+        assertSameStates(simulateRecursively(phyloCTMC, tree, siteRates, branchRates, 7), actual);
+
+        // the layout is shared by the partitions on the same tree
+        TreeLayout layout = TreeLayout.of(tree);
+        assertSame(layout, TreeLayout.of(tree));
+        assertEquals(n, layout.getIdMap().size());
+        // the leaf indices of the tree are not changed by the layout
+        for (int i = 0; i < n; i++)
+            assertEquals(leafIndices[i], tree.getNodeByIndex(i).getLeafIndex());
+
+        // the layout is rebuilt after the ages are changed in place
+        TimeTreeNode root = tree.getRoot();
+        root.setAge(root.getAge() * 2);
+        assertNotSame(layout, TreeLayout.of(tree));
+        actual = phyloCTMC.sample(new MersenneTwister(8)).value();
+        assertSameStates(simulateRecursively(phyloCTMC, tree, siteRates, branchRates, 8), actual);
+
+        // the transition probabilities of branches are computed one by one, if they are too large to cache
+        phyloCTMC.maxCachedDoubles = 1;
+        actual = phyloCTMC.sample(new MersenneTwister(9)).value();
+        assertSameStates(simulateRecursively(phyloCTMC, tree, siteRates, branchRates, 9), actual);
+    }
+}
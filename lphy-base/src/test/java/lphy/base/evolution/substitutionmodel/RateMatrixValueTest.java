@@ -0,0 +1,74 @@
+package lphy.base.evolution.substitutionmodel;
+
+import lphy.core.model.Value;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateMatrixValueTest {
+
+    static void assertRateMatrix(Value<Double[][]> value, int numStates) {
+        RateMatrixValue rateMatrix = assertInstanceOf(RateMatrixValue.class, value);
+        Double[][] Q = value.value();
+        double[] q = rateMatrix.getPrimitive();
+        assertEquals(numStates, rateMatrix.getNumStates());
+        assertEquals(numStates, Q.length);
+        for (int i = 0; i < numStates; i++) {
+            double rowSum = 0;
+            for (int j = 0; j < numStates; j++) {
+                assertEquals(Q[i][j], q[i * numStates + j]);
+                assertEquals(Q[i][j], rateMatrix.get(i, j));
+                rowSum += q[i * numStates + j];
+            }
+            assertEquals(0, rowSum, 1e-12, "row " + i);
+            assertTrue(Q[i][i] < 0, "diagonal " + i);
+        }
+    }
+
+    @Test
+    void testRateMatrices() {
+        Value<Double[]> freqs = new Value<>(null, new Double[]{0.1, 0.2, 0.3, 0.4});
+        assertRateMatrix(new GTR(new Value<>(null, new Double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0}), freqs, null).apply(), 4);
+        assertRateMatrix(new HKY(new Value<>(null, 2.0), freqs, null).apply(), 4);
+        assertRateMatrix(new F81(freqs, null).apply(), 4);
+        assertRateMatrix(new K80(new Value<>(null, 2.0), null).apply(), 4);
+        assertRateMatrix(new TN93(new Value<>(null, 2.0), new Value<>(null, 3.0), freqs, null).apply(), 4);
+        assertRateMatrix(new JukesCantor(new Value<>(null, 1.0)).apply(), 4);
+        assertRateMatrix(new LewisMK(new Value<>(null, 3), null).apply(), 3);
+        assertRateMatrix(new WAG(null, null).apply(), 20);
+    }
+
+    @Test
+    void testListenerSeesPrimitive() {
+        RateMatrixValue value = (RateMatrixValue) new JukesCantor(new Value<>(null, 1.0)).apply();
+        Double[][] Q = {{-1.0, 1.0}, {2.0, -2.0}};
+        List<double[]> seen = new ArrayList<>();
+        value.addValueListener((oldValue, newValue) -> {
+            assertSame(Q, newValue);
+            assertEquals(2, value.getNumStates());
+            seen.add(value.getPrimitive());
+        });
+
+        value.setValue(Q);
+        assertEquals(1, seen.size());
+        assertArrayEquals(new double[]{-1.0, 1.0, 2.0, -2.0}, seen.get(0));
+    }
+
+    @Test
+    void testReplaceView() {
+        RateMatrixValue value = (RateMatrixValue) new JukesCantor(new Value<>(null, 1.0)).apply();
+        double[] q = value.getPrimitive();
+        assertSame(q, RateMatrixValue.toPrimitive(value));
+
+        value.setValue(new Double[][]{{-1.0, 1.0}, {2.0, -2.0}});
+        assertEquals(2, value.getNumStates());
+        assertArrayEquals(new double[]{-1.0, 1.0, 2.0, -2.0}, value.getPrimitive());
+
+        Value<Double[][]> plain = new Value<>(null, new Double[][]{{-1.0, 1.0}, {2.0, -2.0}});
+        assertArrayEquals(value.getPrimitive(), RateMatrixValue.toPrimitive(plain));
+        assertThrows(IllegalArgumentException.class, () -> RateMatrixValue.flatten(new Double[][]{{1.0, 2.0}, {3.0}}));
+    }
+}
@@ -0,0 +1,114 @@
+package lphy.base.evolution.tree;
+
+import lphy.base.function.tree.Newick;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeTreeLCATest {
+    TimeTree tree;
+
+    @BeforeEach
+    void setUp() {
+        String newickTree = "(((((1:2.0, (2:1.0, 3:1.0):1.0):2.0, (5:2.0, 6:2.0):2.0):2.0):0.0,4:6.0):6.0, 7:12.0)";
+        tree = Newick.parseNewick(newickTree);
+    }
+
+    // the naive MRCA walking up from the first node
+    private static TimeTreeNode walkUpMRCA(TimeTreeNode node1, TimeTreeNode node2) {
+        Set<TimeTreeNode> ancestors = new HashSet<>();
+        for (TimeTreeNode node = node1; node != null; node = node.getParent())
+            ancestors.add(node);
+        TimeTreeNode node = node2;
+        while (!ancestors.contains(node)) node = node.getParent();
+        return node;
+    }
+
+    @Test
+    void pairwiseMRCATest() {
+        TimeTreeLCA lca = tree.getLCAIndex();
+        List<TimeTreeNode> nodes = tree.getNodes();
+        for (TimeTreeNode node1 : nodes) {
+            for (TimeTreeNode node2 : nodes) {
+                assertSame(walkUpMRCA(node1, node2), lca.getMRCA(node1, node2));
+            }
+        }
+    }
+
+    @Test
+    void concurrentLCAIndexTest() {
+        // the index is only built once, when the tree is shared by threads
+        Set<TimeTreeLCA> indices = IntStream.range(0, 16).parallel()
+                .mapToObj(i -> tree.getLCAIndex())
+                .collect(Collectors.toSet());
+        assertEquals(1, indices.size());
+        assertSame(tree.getLCAIndex(), indices.iterator().next());
+    }
+
+    @Test
+    void taxaMRCATest() {
+        TimeTreeLCA lca = tree.getLCAIndex();
+        assertSame(tree.getRoot(), lca.getMRCA("4", "7"));
+        assertSame(lca.getLeaf("5"), lca.getMRCA("5"));
+
+        TimeTreeNode mrca = lca.getMRCA("5", "3", "1");
+        assertEquals(4.0, mrca.getAge());
+        assertEquals(5, lca.getCladeSize(mrca));
+        assertTrue(lca.isAncestor(mrca, lca.getLeaf("2")));
+        assertFalse(lca.isAncestor(mrca, lca.getLeaf("4")));
+
+        assertThrows(IllegalArgumentException.class, () -> lca.getMRCA("9"));
+    }
+
+    @Test
+    void monophylyTest() {
+        assertTrue(tree.isMonophyletic(new String[]{"2", "3"}));
+        assertTrue(tree.isMonophyletic(new String[]{"1", "2", "3"}));
+        assertFalse(tree.isMonophyletic(new String[]{"1", "2"}));
+        assertTrue(tree.isMonophyletic(new String[]{"1", "2", "3", "5", "6", "4"}));
+        assertFalse(tree.isMonophyletic(new String[]{"1", "2", "3", "5", "6", "7"}));
+    }
+
+    @Test
+    void cladeBitSetTest() {
+        TimeTreeLCA lca = tree.getLCAIndex();
+        TimeTreeNode mrca = lca.getMRCA("5", "6");
+        BitSet expected = lca.getTaxaBitSet("5", "6");
+        assertEquals(expected, lca.getCladeBitSet(mrca));
+        assertEquals(tree.n(), lca.getCladeBitSet(tree.getRoot()).cardinality());
+    }
+
+    @Test
+    void resetRootTest() {
+        TimeTreeLCA lca = tree.getLCAIndex();
+        assertSame(lca, tree.getLCAIndex());
+        tree.setRoot(tree.getRoot(), true);
+        assertNotSame(lca, tree.getLCAIndex());
+    }
+
+    @Test
+    void topologyChangedTest() {
+        TimeTreeLCA lca = tree.getLCAIndex();
+        // move leaf 1 to the last child of its parent
+        TimeTreeNode leaf1 = lca.getLeaf("1");
+        TimeTreeNode parent = leaf1.getParent();
+        parent.removeChild(leaf1);
+        parent.addChild(leaf1);
+        assertNotSame(lca, tree.getLCAIndex());
+        assertSame(parent, tree.getLCAIndex().getMRCA("1", "2"));
+
+        lca = tree.getLCAIndex();
+        lca.getLeaf("7").setId("8");
+        assertNotSame(lca, tree.getLCAIndex());
+        assertNotNull(tree.getLCAIndex().getLeaf("8"));
+        assertNull(tree.getLCAIndex().getLeaf("7"));
+    }
+}
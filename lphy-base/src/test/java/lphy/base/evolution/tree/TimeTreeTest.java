@@ -26,6 +26,18 @@ class TimeTreeTest {
         tree = Objects.requireNonNull(simulator.sample()).value();
     }
 
+    @Test
+    void getVersion() {
+        long version = tree.getVersion();
+        TimeTreeNode root = tree.getRoot();
+        root.setAge(root.getAge() + 1);
+        assertTrue(tree.getVersion() > version, "changing ages in place");
+
+        version = tree.getVersion();
+        root.getChildren().get(0).setId("x");
+        assertTrue(tree.getVersion() > version, "changing ids in place");
+    }
+
     // Root node must be the last element of the node list.
     @Test
     void getNodes() {
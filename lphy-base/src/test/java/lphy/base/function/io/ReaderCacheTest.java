@@ -0,0 +1,135 @@
+package lphy.base.function.io;
+
+import lphy.core.model.Value;
+import lphy.core.model.datatype.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReaderCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    long maxBytes;
+
+    @BeforeEach
+    void setUp() {
+        maxBytes = ReaderCache.getMaxBytes();
+        ReaderCache.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReaderCache.setMaxBytes(maxBytes);
+        ReaderCache.clear();
+    }
+
+    @Test
+    void testHitAndModifiedFile() throws IOException {
+        Path file = tempDir.resolve("traits.tsv");
+        Files.writeString(file, "taxon\tage\nA\t1.0\nB\t2.0\n");
+
+        ReadDelim readDelim = new ReadDelim(new Value<>(null, file.toString()), new Value<>(null, "\t"),
+                null, null);
+        Table table1 = readDelim.apply().value();
+        Table table2 = readDelim.apply().value();
+
+        // every call gets its own copy
+        assertNotSame(table1, table2);
+        assertEquals(table1, table2);
+        assertEquals(List.of(1.0, 2.0), table1.get("age"));
+        table1.get("age").set(0, 10.0);
+        assertEquals(List.of(1.0, 2.0), readDelim.apply().value().get("age"));
+        assertEquals(1, ReaderCache.getMisses());
+        assertEquals(2, ReaderCache.getHits());
+
+        // the different options are cached separately
+        ReadDelim noHeader = new ReadDelim(new Value<>(null, file.toString()), new Value<>(null, "\t"),
+                new Value<>(null, false), null);
+        assertNotSame(table1, noHeader.apply().value());
+        assertEquals(2, ReaderCache.size());
+
+        // the modified file is parsed again, and replaces the old one
+        Files.writeString(file, "taxon\tage\nA\t1.0\nB\t2.0\nC\t3.0\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        Table table3 = readDelim.apply().value();
+        assertNotSame(table1, table3);
+        assertEquals(List.of(1.0, 2.0, 3.0), table3.get("age"));
+        assertEquals(2, ReaderCache.size());
+    }
+
+    @Test
+    void testLRU() throws IOException {
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = tempDir.resolve("f" + i + ".txt");
+            Files.writeString(files[i], "0123456789");
+        }
+        ReaderCache.setMaxBytes(25);
+
+        Object data0 = ReaderCache.get(files[0], "test", null, Object::new, UnaryOperator.identity());
+        ReaderCache.get(files[1], "test", null, Object::new, UnaryOperator.identity());
+        // touch 0, so that 1 is the least recently used
+        assertSame(data0, ReaderCache.get(files[0], "test", null, Object::new, UnaryOperator.identity()));
+        ReaderCache.get(files[2], "test", null, Object::new, UnaryOperator.identity());
+
+        assertEquals(2, ReaderCache.size());
+        assertEquals(20, ReaderCache.getTotalBytes());
+        assertSame(data0, ReaderCache.get(files[0], "test", null, Object::new, UnaryOperator.identity()));
+        long misses = ReaderCache.getMisses();
+        ReaderCache.get(files[1], "test", null, Object::new, UnaryOperator.identity());
+        assertEquals(misses + 1, ReaderCache.getMisses());
+
+        // failures are not cached
+        assertNull(ReaderCache.get(files[2], "fail", null, () -> null, UnaryOperator.identity()));
+        assertEquals(2, ReaderCache.size());
+    }
+
+    @Test
+    void testConcurrentLoadOnce() throws Exception {
+        Path file = tempDir.resolve("big.txt");
+        Files.writeString(file, "data");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return ReaderCache.get(file, "test", null, () -> {
+                        loads.incrementAndGet();
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return new Object();
+                    }, UnaryOperator.identity());
+                }));
+            }
+            start.countDown();
+            Object first = futures.get(0).get();
+            for (Future<Object> future : futures)
+                assertSame(first, future.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,82 @@
+package lphy.base.logger;
+
+import lphy.base.evolution.birthdeath.RhoSampleTree;
+import lphy.base.evolution.birthdeath.Yule;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.parser.nexus.NexusTreeReader;
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NexusTreeFormatterTest {
+
+    static final String[] TAXA = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    private static Value<TimeTree> sampleYule() {
+        return new Yule(new Value<>(null, 1.0), null, new Value<>(null, TAXA), null).sample();
+    }
+
+    // log the trees like the replicates of a simulation, where the formatter is created from the 1st one
+    private static String writeNexus(List<Value<TimeTree>> replicates) throws IOException {
+        NexusTreeFormatter formatter = new NexusTreeFormatter("ψ", replicates.get(0).value());
+        formatter.init(replicates.get(0));
+
+        StringWriter nexus = new StringWriter();
+        nexus.append(formatter.header()).append("\n");
+        for (int i = 0; i < replicates.size(); i++) {
+            nexus.append(formatter.getRowName(i));
+            formatter.format(replicates.get(i).value(), nexus);
+            nexus.append("\n");
+        }
+        nexus.append(formatter.footer());
+        return nexus.toString();
+    }
+
+    private static Set<String> getTips(TimeTree tree) {
+        return new TreeSet<>(Arrays.asList(tree.getTaxaNames()));
+    }
+
+    // the branch lengths can differ by round-off
+    private static void assertSameTips(List<Value<TimeTree>> replicates, String nexus) {
+        List<TimeTree> trees = new NexusTreeReader(nexus).readAll();
+        assertEquals(replicates.size(), trees.size());
+        for (int i = 0; i < trees.size(); i++)
+            assertEquals(getTips(replicates.get(i).value()), getTips(trees.get(i)));
+    }
+
+    @Test
+    void testFixedTaxa() throws IOException {
+        RandomUtils.setSeed(7);
+        List<Value<TimeTree>> replicates = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            replicates.add(sampleYule());
+
+        String nexus = writeNexus(replicates);
+        assertTrue(nexus.contains("\ttranslate\n"), nexus);
+        assertSameTips(replicates, nexus);
+    }
+
+    @Test
+    void testVaryingTaxa() throws IOException {
+        RandomUtils.setSeed(7);
+        List<Value<TimeTree>> replicates = new ArrayList<>();
+        Set<Set<String>> tipSets = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            Value<TimeTree> tree = new RhoSampleTree(sampleYule(), new Value<>(null, 0.5)).sample();
+            replicates.add(tree);
+            tipSets.add(getTips(tree.value()));
+        }
+        assertTrue(tipSets.size() > 1, "the tips should change between replicates : " + tipSets);
+
+        // the taxa of later trees are not in the 1st tree, so the leaves are labelled by names
+        String nexus = writeNexus(replicates);
+        assertFalse(nexus.contains("translate"), nexus);
+        assertSameTips(replicates, nexus);
+    }
+}
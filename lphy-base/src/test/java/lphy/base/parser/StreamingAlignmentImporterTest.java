@@ -0,0 +1,141 @@
+package lphy.base.parser;
+
+import jebl.evolution.io.ImportException;
+import lphy.base.evolution.alignment.Alignment;
+import lphy.base.evolution.alignment.MetaDataAlignment;
+import lphy.base.function.io.ReadFasta;
+import lphy.core.spi.LoaderManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAlignmentImporterTest {
+
+    @BeforeAll
+    static void setUp() {
+        // register sequence types
+        LoaderManager.getLphyCoreLoader();
+    }
+
+    private static Path getDataPath(String fileName) {
+        return Paths.get(System.getProperty("user.dir"), "..", "tutorials", "data", fileName);
+    }
+
+    private static void assertSameAlignment(Alignment expected, Alignment actual) {
+        assertEquals(expected.getSequenceType().getName(), actual.getSequenceType().getName());
+        assertEquals(expected.ntaxa(), actual.ntaxa());
+        assertEquals(expected.nchar(), actual.nchar());
+        assertArrayEquals(expected.getTaxa().getTaxaNames(), actual.getTaxa().getTaxaNames());
+        assertArrayEquals(expected.getTaxa().getAges(), actual.getTaxa().getAges());
+        for (int i = 0; i < expected.ntaxa(); i++)
+            for (int j = 0; j < expected.nchar(); j++)
+                assertEquals(expected.getState(i, j), actual.getState(i, j), "Taxon " + i + " site " + j);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"H5N1.nex", "RSV2.nex", "h3n2.nexus", "hcv.nexus", "cpacific.nex"})
+    void importNexusSameAsNexusParser(String fileName) throws IOException, ImportException {
+        Path path = getDataPath(fileName);
+        MetaDataAlignment expected = new NexusParser(path.toString()).importNexus("forward");
+        MetaDataAlignment actual = StreamingAlignmentImporter.importNexus(path, "forward");
+        assertSameAlignment(expected, actual);
+        assertEquals(String.valueOf(expected.getCharsetMap()), String.valueOf(actual.getCharsetMap()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"h3n2_2deme.fna", "APOBS1.fasta", "Ch14.fasta"})
+    void importFastaSameAsJEBL(String fileName) throws IOException {
+        Path path = getDataPath(fileName);
+        Alignment expected;
+        try (Reader reader = Files.newBufferedReader(path)) {
+            expected = ReadFasta.getAlignment(reader, null, null, null, null);
+        }
+        Alignment actual = StreamingAlignmentImporter.importFasta(path, null, null, null, null);
+        assertSameAlignment(expected, actual);
+    }
+
+    @Test
+    void importInterleavedNexus() {
+        String nexus = """
+                #NEXUS
+                begin data;
+                dimensions ntax=2 nchar=6;
+                format datatype=dna gap=- missing=? matchchar=. interleave;
+                matrix
+                [first block] a ACG
+                'taxon b' A.-
+                a T?A
+                'taxon b' .NA
+                ;
+                end;
+                """;
+        StreamingAlignmentImporter importer = new StreamingAlignmentImporter(
+                ByteBuffer.wrap(nexus.getBytes(StandardCharsets.UTF_8)));
+        MetaDataAlignment alignment = importer.readNexus(null);
+        assertArrayEquals(new String[]{"a", "taxon b"}, alignment.getTaxa().getTaxaNames());
+        assertEquals(6, alignment.nchar());
+        assertEquals("ACGT?A", alignment.getSequence(0));
+        assertEquals("AC-TNA", alignment.getSequence(1));
+    }
+
+    @Test
+    void importSymbolsByNexusParser(@TempDir Path dir) throws IOException, ImportException {
+        Path path = dir.resolve("symbols.nex");
+        Files.writeString(path, """
+                #NEXUS
+                begin data;
+                dimensions ntax=2 nchar=4;
+                format datatype=dna symbols="ACGT" missing=?;
+                matrix
+                a ACGT
+                b AC?T
+                ;
+                end;
+                """);
+        StreamingAlignmentImporter importer = new StreamingAlignmentImporter(
+                ByteBuffer.wrap(Files.readAllBytes(path)));
+        assertThrows(StreamingAlignmentImporter.UnsupportedNexusException.class, () -> importer.readNexus(null));
+
+        MetaDataAlignment expected = new NexusParser(path.toString()).importNexus(null);
+        MetaDataAlignment actual = StreamingAlignmentImporter.importNexus(path, null);
+        assertSameAlignment(expected, actual);
+    }
+
+    @Test
+    void importAmbiguitySet() {
+        String nexus = """
+                #NEXUS
+                begin data;
+                dimensions ntax=2 nchar=3;
+                format datatype=dna;
+                matrix
+                a A{CG}T
+                b ACT
+                ;
+                end;
+                """;
+        StreamingAlignmentImporter importer = new StreamingAlignmentImporter(
+                ByteBuffer.wrap(nexus.getBytes(StandardCharsets.UTF_8)));
+        // importNexus(Path, String) falls back to NexusParser
+        assertThrows(StreamingAlignmentImporter.UnsupportedNexusException.class, () -> importer.readNexus(null));
+    }
+
+    @Test
+    void importInvalidFasta() {
+        StreamingAlignmentImporter importer = new StreamingAlignmentImporter(
+                ByteBuffer.wrap(">a\nACGT\n>b\nACG\n".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> importer.readFasta(null, null, null, null));
+    }
+}
@@ -0,0 +1,102 @@
+package lphy.base.parser.newick;
+
+import jebl.evolution.io.ImportException;
+import jebl.evolution.io.NexusImporter;
+import jebl.evolution.trees.Tree;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+import lphy.base.evolution.tree.WrappedJEBLTimeTreeNode;
+import lphy.base.function.io.ReadTrees;
+import lphy.base.function.tree.Newick;
+import lphy.base.parser.nexus.NexusTreeReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NewickTreeReaderTest {
+
+    private static Map<String, Double> leafAges(TimeTree tree) {
+        Map<String, Double> ages = new TreeMap<>();
+        for (TimeTreeNode leaf : tree.getLeafNodes())
+            ages.put(leaf.getId(), leaf.getAge());
+        return ages;
+    }
+
+    private static void assertSameTree(TimeTree expected, TimeTree actual) {
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        assertEquals(expected.rootAge(), actual.rootAge(), 1E-10);
+        assertEquals(expected.treeLength(), actual.treeLength(), 1E-8);
+        Map<String, Double> expectedAges = leafAges(expected);
+        Map<String, Double> actualAges = leafAges(actual);
+        assertEquals(expectedAges.keySet(), actualAges.keySet());
+        for (String id : expectedAges.keySet())
+            assertEquals(expectedAges.get(id), actualAges.get(id), 1E-10, "Leaf " + id);
+    }
+
+    @Test
+    void readNewick() {
+        String newick = "(((((1:2.0, (2:1.0, 3:1.0):1.0):2.0, (5:2.0, 6:2.0):2.0):2.0):0.0,4:6.0):6.0, 7:12.0)";
+        TimeTree tree = new NewickTreeReader(newick).readTree();
+        assertSameTree(Newick.parseNewick(newick), tree);
+        assertEquals(1, tree.getSingleChildNodeCount());
+        assertEquals(12.0, tree.rootAge());
+    }
+
+    @Test
+    void readMetaDataAndQuotedLabels() {
+        String newick = "('taxon ''a''':1.5e-1[&rate=0.5],b[&type=\"x\",pos={1,2.5}]:0.15)[&R];";
+        TimeTree tree = new NewickTreeReader(newick).readTree();
+        Map<String, Double> ages = leafAges(tree);
+        assertEquals(Set.of("taxon 'a'", "b"), ages.keySet());
+        assertEquals(0.15, tree.rootAge(), 1E-12);
+
+        TimeTreeNode a = tree.getLeafNodes().get(0);
+        TimeTreeNode b = tree.getLeafNodes().get(1);
+        assertEquals(0.5, a.getMetaData("rate"));
+        assertEquals("x", b.getMetaData("type"));
+        assertArrayEquals(new Double[]{1.0, 2.5}, (Double[]) b.getMetaData("pos"));
+    }
+
+    @Test
+    void iterateTrees() {
+        NewickTreeReader reader = new NewickTreeReader("(a:1,b:1);\n(a:2,b:2);\n((a:1,b:1):1,c:2);\n");
+        List<TimeTree> trees = reader.readAll();
+        assertEquals(3, trees.size());
+        assertEquals(2.0, trees.get(1).rootAge());
+        assertEquals(3, trees.get(2).n());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void readInvalidNewick() {
+        assertThrows(TreeParsingException.class, () -> new NewickTreeReader("((a:1,b:1);").readTree());
+        assertThrows(TreeParsingException.class, () -> new NewickTreeReader("(a:1,a:1);").readTree());
+    }
+
+    @Test
+    void readNexusSameAsJEBL() throws IOException, ImportException {
+        Path path = Paths.get(System.getProperty("user.dir"), "..", "examples", "io", "data", "RSV2_11_samples.trees");
+
+        List<Tree> jeblTrees;
+        try (Reader reader = Files.newBufferedReader(path)) {
+            jeblTrees = new NexusImporter(reader, false, 0).importTrees();
+        }
+
+        Iterator<TimeTree> iterator = ReadTrees.readTrees(path, "nexus");
+        assertInstanceOf(NexusTreeReader.class, iterator);
+        int i = 0;
+        while (iterator.hasNext()) {
+            TimeTree tree = iterator.next();
+            assertSameTree(WrappedJEBLTimeTreeNode.Utils.convert(jeblTrees.get(i)), tree);
+            i++;
+        }
+        assertEquals(jeblTrees.size(), i);
+    }
+}
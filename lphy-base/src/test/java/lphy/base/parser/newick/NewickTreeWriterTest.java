@@ -0,0 +1,99 @@
+package lphy.base.parser.newick;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+import lphy.base.logger.NexusTreeFormatter;
+import lphy.base.parser.nexus.NexusTreeReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NewickTreeWriterTest {
+
+    static final String NEWICK = "(((A:1.0,B:1.0)[&rate=0.5]:0.25):0.75,(C:0.3333333333333333[&type=x],D:1.2):0.8);";
+
+    private static String format(double x, int decimalPlaces) {
+        StringBuilder builder = new StringBuilder();
+        NewickTreeWriter.appendNumber(x, decimalPlaces, builder);
+        return builder.toString();
+    }
+
+    @Test
+    void testSameAsToNewick() {
+        TimeTree tree = new NewickTreeReader(NEWICK).readTree();
+        assertEquals(1, tree.getSingleChildNodeCount());
+
+        assertEquals(tree.toString(), new NewickTreeWriter().toNewick(tree));
+        assertEquals(tree.toNewick(false),
+                new NewickTreeWriter(NewickTreeWriter.SHORTEST, null, false).toNewick(tree));
+    }
+
+    @Test
+    void testAppendNumber() {
+        assertEquals("0.3", format(0.1 + 0.2, 3));
+        assertEquals("1.0", format(1.0, 4));
+        assertEquals("0.0", format(-0.00004, 4));
+        assertEquals("-0.05", format(-0.05, 3));
+        assertEquals("12.3457", format(12.3456789, 4));
+        assertEquals("0.001", format(0.0012, 3));
+        assertEquals("3.0", format(2.6, 0));
+        assertEquals(Double.toString(1e20), format(1e20, 3));
+        assertEquals(Double.toString(0.1 + 0.2), format(0.1 + 0.2, NewickTreeWriter.SHORTEST));
+        assertEquals("NaN", format(Double.NaN, 3));
+    }
+
+    @Test
+    void testFixedPrecision() {
+        TimeTree tree = new NewickTreeReader(NEWICK).readTree();
+        String newick = new NewickTreeWriter(3, null, true).toNewick(tree);
+        assertTrue(newick.contains("C[&type=x]:0.333"), newick);
+        assertTrue(newick.contains("D:1.2"), newick);
+    }
+
+    @Test
+    void testNexusTranslateRoundTrip() throws IOException {
+        TimeTree tree = new NewickTreeReader(NEWICK).readTree();
+        NexusTreeFormatter formatter = new NexusTreeFormatter("ψ", tree, true);
+
+        StringWriter nexus = new StringWriter();
+        nexus.append(formatter.header()).append("\n");
+        for (int i = 0; i < 2; i++) {
+            nexus.append(formatter.getRowName(i));
+            formatter.format(tree, nexus);
+            nexus.append("\n");
+        }
+        nexus.append(formatter.footer());
+
+        // leaves are labelled by the indices in translate
+        assertTrue(nexus.toString().contains("\ttranslate\n\t\t1 "), nexus.toString());
+        assertFalse(formatter.format(tree).contains("A:"));
+
+        List<TimeTree> trees = new NexusTreeReader(nexus.toString()).readAll();
+        assertEquals(2, trees.size());
+        for (TimeTree actual : trees) {
+            assertEquals(tree.toString(), actual.toString());
+            for (TimeTreeNode leaf : actual.getLeafNodes())
+                assertTrue(List.of("A", "B", "C", "D").contains(leaf.getId()), leaf.getId());
+        }
+    }
+
+    @Test
+    void testTaxaNotTranslated() throws IOException {
+        TimeTree tree = new NewickTreeReader(NEWICK).readTree();
+        NexusTreeFormatter formatter = new NexusTreeFormatter("ψ", tree, true);
+        // E is not in the translate command created from the 1st tree
+        TimeTree other = new NewickTreeReader("((A:1.0,E:1.0):1.0,(C:1.5,D:1.5):0.5);").readTree();
+        assertThrows(IllegalArgumentException.class, () -> formatter.format(other, new StringWriter()));
+
+        // the numeric names are never translated
+        TimeTree numeric = new NewickTreeReader("((0:1.0,1:1.0):1.0,2:2.0);").readTree();
+        NexusTreeFormatter numericFormatter = new NexusTreeFormatter("ψ", numeric, true);
+        assertFalse(numericFormatter.header().contains("translate"), numericFormatter.header());
+        TimeTree larger = new NewickTreeReader("((0:1.0,3:1.0):1.0,(1:0.5,2:0.5):1.5);").readTree();
+        assertEquals(larger.toString(), numericFormatter.format(larger));
+    }
+}
@@ -0,0 +1,71 @@
+package lphy.base.simulator;
+
+import lphy.core.simulator.GeneratorProfiler;
+import lphy.core.simulator.RandomUtils;
+import lphy.core.simulator.Sampler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratorProfilerTest {
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+    }
+
+    @Test
+    public void testProfile() {
+        Sampler sampler = Sampler.createSampler("Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);\n" +
+                "ψ ~ Coalescent(n=10, theta=Θ);");
+        GeneratorProfiler profiler = new GeneratorProfiler();
+        sampler.setProfiler(profiler);
+
+        final int reps = 5;
+        for (int i = 0; i < reps; i++)
+            sampler.sample(null);
+
+        Map<String, GeneratorProfiler.Record> byGenerator = profiler.getGeneratorRecords().stream()
+                .collect(Collectors.toMap(GeneratorProfiler.Record::getName, Function.identity()));
+        assertEquals(reps, byGenerator.get("LogNormal").getCalls());
+        assertEquals(reps, byGenerator.get("Coalescent").getCalls());
+
+        Map<String, GeneratorProfiler.Record> byValue = profiler.getValueRecords().stream()
+                .collect(Collectors.toMap(GeneratorProfiler.Record::getName, Function.identity()));
+        assertEquals(reps, byValue.get("Θ").getCalls());
+        assertEquals(reps, byValue.get("ψ").getCalls());
+
+        List<GeneratorProfiler.Record> records = profiler.getGeneratorRecords();
+        for (int i = 1; i < records.size(); i++)
+            assertTrue(records.get(i - 1).getTotalNanos() >= records.get(i).getTotalNanos(),
+                    "Records should be sorted by total time");
+        assertTrue(profiler.summary().contains("Coalescent"));
+
+        profiler.reset();
+        assertTrue(profiler.getGeneratorRecords().isEmpty());
+        // the profiler is only active during sampling
+        assertNull(GeneratorProfiler.getActive());
+    }
+
+    @Test
+    public void testProfileParsing() {
+        GeneratorProfiler profiler = new GeneratorProfiler();
+        GeneratorProfiler previous = GeneratorProfiler.setActive(profiler);
+        try {
+            Sampler.createSampler("Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);\n" +
+                    "ψ ~ Coalescent(n=10, theta=Θ);");
+        } finally {
+            GeneratorProfiler.setActive(previous);
+        }
+        Map<String, GeneratorProfiler.Record> byValue = profiler.getValueRecords().stream()
+                .collect(Collectors.toMap(GeneratorProfiler.Record::getName, Function.identity()));
+        assertEquals(1, byValue.get("Θ").getCalls());
+        assertEquals(1, byValue.get("ψ").getCalls());
+    }
+}
@@ -0,0 +1,43 @@
+package lphy.base.simulator;
+
+import lphy.core.model.Value;
+import lphy.core.simulator.NamedRandomValueSimulator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NamedRandomValueSimulatorTest {
+
+    static final String MODEL = "data {\n" +
+            "  n = 6;\n" +
+            "}\n" +
+            "model {\n" +
+            "  Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);\n" +
+            "  ψ ~ Coalescent(n=n, theta=Θ);\n" +
+            "}";
+
+    // the tree of each replicate
+    private static List<String> simulateTrees(long seed) throws IOException {
+        Map<Integer, List<Value>> allReps = new NamedRandomValueSimulator()
+                .simulate(MODEL, 3, null, null, seed);
+        return allReps.values().stream().map(values -> {
+            Optional<Value> tree = values.stream().filter(v -> "ψ".equals(v.getId())).findFirst();
+            assertTrue(tree.isPresent());
+            return tree.get().value().toString();
+        }).toList();
+    }
+
+    @Test
+    public void testSeedIsSetOnce() throws IOException {
+        List<String> trees = simulateTrees(123);
+        // the seed is not set again for every replicate
+        assertEquals(3, trees.stream().distinct().count(), trees.toString());
+        // the 1st replicate simulated during parsing is seeded too
+        assertEquals(trees, simulateTrees(123));
+    }
+}
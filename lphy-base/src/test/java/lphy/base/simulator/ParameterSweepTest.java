@@ -0,0 +1,92 @@
+package lphy.base.simulator;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.core.model.Value;
+import lphy.core.simulator.NamedRandomValueSimulator;
+import lphy.core.simulator.ParameterSweep;
+import lphy.core.simulator.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParameterSweepTest {
+
+    static final String MODEL = "data {\n" +
+            "  n = {{n = 6}};\n" +
+            "}\n" +
+            "model {\n" +
+            "  Θ ~ LogNormal(meanlog={{meanlog = 3.0}}, sdlog=1.0);\n" +
+            "  ψ ~ Coalescent(n=n, theta=Θ);\n" +
+            "}";
+
+    @Test
+    public void testParseGridPoints() {
+        List<String[]> gridPoints = ParameterSweep.parseGridPoints(List.of(
+                "# n x meanlog", "n=4|8; meanlog = 1.0|2.0|3.0", "", "n=10"));
+
+        assertEquals(7, gridPoints.size());
+        assertArrayEquals(new String[]{"n=4", "meanlog=1.0"}, gridPoints.get(0));
+        assertArrayEquals(new String[]{"n=4", "meanlog=2.0"}, gridPoints.get(1));
+        assertArrayEquals(new String[]{"n=8", "meanlog=3.0"}, gridPoints.get(5));
+        assertArrayEquals(new String[]{"n=10"}, gridPoints.get(6));
+
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parseGridPoints(List.of("n")));
+    }
+
+    @Test
+    public void testConcurrentGridPointsAreReproducible() throws Exception {
+        List<String[]> gridPoints = ParameterSweep.parseGridPoints(List.of("n=4|8|12;meanlog=1.0|3.0"));
+
+        List<List<String>> sequential = new ArrayList<>();
+        for (int i = 0; i < gridPoints.size(); i++)
+            sequential.add(simulate(gridPoints.get(i), 100 + i));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < gridPoints.size(); i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> simulate(gridPoints.get(index), 100 + index)));
+            }
+            for (int i = 0; i < gridPoints.size(); i++)
+                assertEquals(sequential.get(i), futures.get(i).get(), "grid point " + i);
+        } finally {
+            executor.shutdown();
+        }
+
+        // the constants of grid points are applied
+        for (int i = 0; i < gridPoints.size(); i++) {
+            int n = Integer.parseInt(gridPoints.get(i)[0].substring(2));
+            String leaves = "leaves=" + n + " ";
+            assertTrue(sequential.get(i).stream().anyMatch(s -> s.startsWith(leaves)), sequential.get(i).toString());
+        }
+    }
+
+    // the tree and theta of 2 replicates at a grid point
+    private List<String> simulate(String[] constants, long seed) throws Exception {
+        RandomUtils.setLocalRandom(seed);
+        try {
+            NamedRandomValueSimulator simulator = new NamedRandomValueSimulator();
+            Map<Integer, List<Value>> allReps = simulator.simulate(MODEL, 2, constants, null, null);
+            List<String> result = new ArrayList<>();
+            for (List<Value> values : allReps.values()) {
+                for (Value value : values) {
+                    if (value.value() instanceof TimeTree tree)
+                        result.add("leaves=" + tree.leafCount() + " " + tree);
+                    else
+                        result.add(value.getId() + "=" + value.value());
+                }
+            }
+            return result;
+        } finally {
+            RandomUtils.clearLocalRandom();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package lphy.base.simulator;
+
+import lphy.base.evolution.tree.TimeTree;
+import lphy.core.model.Value;
+import lphy.core.model.ValueSnapshot;
+import lphy.core.simulator.NamedRandomValueSimulator;
+import lphy.core.simulator.RandomUtils;
+import lphy.core.simulator.Sampler;
+import lphy.core.simulator.SimulatorListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicateSnapshotTest {
+
+    static final String MODEL = "data {\n" +
+            "  n = 6;\n" +
+            "}\n" +
+            "model {\n" +
+            "  Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);\n" +
+            "  ψ ~ Coalescent(n=n, theta=Θ);\n" +
+            "}";
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+    }
+
+    private static Value getValue(List<Value> values, String id) {
+        Optional<Value> value = values.stream().filter(v -> id.equals(v.getId())).findFirst();
+        assertTrue(value.isPresent(), id);
+        return value.get();
+    }
+
+    @Test
+    public void testSnapshotsOfReplicates() {
+        // resample from the parser dictionary, which changes the values in place
+        Sampler sampler = new Sampler(Sampler.createSampler(MODEL).getParserDictionary()) {{
+            isSampleValuesUsingParser = false;
+        }};
+
+        Map<Integer, List<Value>> allReps = sampler.sampleAll(3, List.of(), null);
+        assertEquals(3, allReps.size());
+
+        List<Value> rep0 = allReps.get(SimulatorListener.REPLICATES_START_INDEX);
+        List<Value> rep1 = allReps.get(SimulatorListener.REPLICATES_START_INDEX + 1);
+        for (Value value : rep0)
+            assertInstanceOf(ValueSnapshot.class, value);
+
+        // the data are shared, but the random variables are not
+        assertSame(getValue(rep0, "n"), getValue(rep1, "n"));
+        Value<TimeTree> tree0 = getValue(rep0, "ψ");
+        assertNotSame(tree0, getValue(rep1, "ψ"));
+        assertNotEquals(tree0.value(), getValue(rep1, "ψ").value());
+
+        // the snapshot keeps the old value after resampling
+        Value<?> current = sampler.getParserDictionary().getModelDictionary().get("ψ");
+        assertNotSame(current.value(), tree0.value());
+        assertTrue(NamedRandomValueSimulator.isNamedRandomValue(tree0));
+        assertFalse(sampler.getParserDictionary().isObservedVariable(tree0));
+
+        assertThrows(UnsupportedOperationException.class, () -> tree0.setValue(null));
+        assertThrows(UnsupportedOperationException.class, () -> rep0.remove(0));
+    }
+
+    @Test
+    public void testArraysAreCopied() {
+        Double[][] array = new Double[][]{{1.0, 2.0}, {3.0}};
+        Value<Double[][]> value = new Value<>("x", array);
+        ValueSnapshot<Double[][]> snapshot = ValueSnapshot.of(value);
+
+        array[0][1] = 0.0;
+        assertEquals(2.0, snapshot.value()[0][1]);
+        assertFalse(snapshot.isRandom());
+        assertSame(snapshot, ValueSnapshot.of(snapshot));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setId("y"));
+    }
+}
@@ -0,0 +1,84 @@
+package lphy.base.simulator;
+
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import lphy.core.simulator.Sampler;
+import lphy.core.simulator.SamplingMonitor;
+import lphy.core.simulator.SimulatorListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SampleAllTest {
+
+    static final String MODEL = "Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);\n" +
+            "ψ ~ Coalescent(n=6, theta=Θ);";
+
+    // record the calls in order
+    static class CallRecorder implements SimulatorListener {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void start(Object... configs) {
+            calls.add("start");
+        }
+
+        @Override
+        public void replicate(int index, List<Value> values) {
+            assertFalse(values.isEmpty());
+            calls.add("rep" + index);
+        }
+
+        @Override
+        public void complete() {
+            calls.add("complete");
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+    }
+
+    @Test
+    public void testSampleAll() {
+        Sampler sampler = Sampler.createSampler(MODEL);
+        CallRecorder recorder = new CallRecorder();
+
+        Map<Integer, List<Value>> valuesAllRepsMap = sampler.sampleAll(3, List.of(recorder), null);
+
+        assertEquals(3, valuesAllRepsMap.size());
+        assertEquals(List.of("start", "rep0", "rep1", "rep2", "complete"), recorder.calls);
+    }
+
+    @Test
+    public void testStopSampling() {
+        Sampler sampler = Sampler.createSampler(MODEL);
+        CallRecorder recorder = new CallRecorder();
+        List<Integer> progress = new ArrayList<>();
+
+        SamplingMonitor monitor = new SamplingMonitor() {
+            @Override
+            public boolean isStopped() {
+                return progress.size() >= 2;
+            }
+
+            @Override
+            public void replicateSampled(int index, int numReplicates) {
+                assertEquals(100, numReplicates);
+                progress.add(index);
+            }
+        };
+        int sampled = sampler.sampleAll(100, List.of(recorder), null, monitor);
+
+        assertEquals(2, sampled);
+        assertEquals(List.of(0, 1), progress);
+        // listeners are still completed after stopping
+        assertEquals(List.of("start", "rep0", "rep1", "complete"), recorder.calls);
+    }
+}
@@ -1,4 +1,4 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
 
 import lphy.base.evolution.substitutionmodel.GTR;
@@ -10,11 +10,11 @@ import lphy.base.function.MigrationMatrix;
 import lphy.base.function.tree.MigrationCount;
 import lphy.base.function.tree.Newick;
 import lphy.base.function.tree.NodeCount;
-import lphy.base.lightweight.distributions.*;
-import lphy.core.model.component.Generator;
-import lphy.core.model.component.Value;
+import lphy.lightweight.distributions.*;
+import lphy.core.model.GeneratorUtils;
+import lphy.core.model.Value;
 import lphy.core.parser.antlr.LPhyBaseListener;
-import lphy.core.parser.function.Range;
+import lphy.core.vectorization.operation.Range;
 
 import java.util.*;
 
@@ -37,7 +37,7 @@ public class AbstractLightweightBaseListener extends LPhyBaseListener {
                 Dirichlet.class, Gamma.class, DiscretizedGamma.class, Beta.class, Poisson.class};
 
         for (Class<?> genClass : genClasses) {
-            String name = Generator.getGeneratorName(genClass);
+            String name = GeneratorUtils.getGeneratorName(genClass);
 
             Set<Class<?>> genDistSet = genDistDictionary.computeIfAbsent(name, k -> new HashSet<>());
             genDistSet.add(genClass);
@@ -49,7 +49,7 @@ public class AbstractLightweightBaseListener extends LPhyBaseListener {
 
         for (Class<?> functionClass : functionClasses) {
 
-            String name = Generator.getGeneratorName(functionClass);
+            String name = GeneratorUtils.getGeneratorName(functionClass);
 
             Set<Class<?>> funcSet = functionDictionary.computeIfAbsent(name, k -> new HashSet<>());
             funcSet.add(functionClass);
@@ -1,8 +1,8 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
-import lphy.core.model.component.GenerativeDistribution;
-import lphy.core.model.component.RandomVariable;
-import lphy.core.model.component.Value;
+import lphy.core.model.GenerativeDistribution;
+import lphy.core.model.RandomVariable;
+import lphy.core.model.Value;
 
 import java.util.Map;
 
@@ -24,6 +24,11 @@ public class GenerativeDistributionAdapter<T> extends GeneratorAdapter<T> implem
         return sample();
     }
 
+    @Override
+    public double logDensity(T value) {
+        return ((LGenerativeDistribution<T>)baseDistribution).logDensity(value);
+    }
+
 //    public static void main(String[] args) {
 //
 //        Beta beta = new Beta(1.0, 2.0);
@@ -1,7 +1,7 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
-import lphy.core.model.component.Generator;
-import lphy.core.model.component.Value;
+import lphy.core.model.Generator;
+import lphy.core.model.Value;
 
 import java.util.Map;
 import java.util.TreeMap;
@@ -28,6 +28,13 @@ public abstract class GeneratorAdapter<T> implements Generator<T> {
        }
     }
 
+    /**
+     * @return the lightweight generator working on the raw values.
+     */
+    public LGenerator<T> getBaseGenerator() {
+        return baseDistribution;
+    }
+
     @Override
     public String getName() {
         return baseDistribution.getName();
@@ -42,6 +49,13 @@ public abstract class GeneratorAdapter<T> implements Generator<T> {
         return params;
     }
 
+    @Override
+    public void setParam(String paramName, Value<?> value) {
+        params.put(paramName, value);
+        // pass the raw value to the lightweight generator
+        baseDistribution.setArgumentValue(paramName, value.value());
+    }
+
     @Override
     public String getUniqueId() {
         return null;
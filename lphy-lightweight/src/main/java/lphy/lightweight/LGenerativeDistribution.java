@@ -1,9 +1,10 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
-import lphy.core.model.component.Argument;
-import lphy.core.model.component.Citation;
-import lphy.core.model.component.Generator;
-import lphy.core.model.component.GeneratorInfo;
+import lphy.core.parser.argument.Argument;
+import lphy.core.model.annotation.Citation;
+import lphy.core.model.annotation.CitationUtils;
+import lphy.core.model.GeneratorUtils;
+import lphy.core.model.annotation.GeneratorInfo;
 import net.steppschuh.markdowngenerator.link.Link;
 import net.steppschuh.markdowngenerator.list.UnorderedList;
 import net.steppschuh.markdowngenerator.text.Text;
@@ -35,7 +36,7 @@ public interface LGenerativeDistribution<T> extends LGenerator<T> {
 
     static String getLightweightGeneratorMarkdown(Class<? extends LGenerator> generatorClass) {
 
-        GeneratorInfo generatorInfo = Generator.getGeneratorInfo(generatorClass);
+        GeneratorInfo generatorInfo = GeneratorUtils.getGeneratorInfo(generatorClass);
 
         List<Argument> arguments = LGenerator.getArguments(generatorClass,0);
 
@@ -43,7 +44,7 @@ public interface LGenerativeDistribution<T> extends LGenerator<T> {
 
         StringBuilder signature = new StringBuilder();
 
-        signature.append(Generator.getGeneratorName(generatorClass)).append("(");
+        signature.append(GeneratorUtils.getGeneratorName(generatorClass)).append("(");
 
         int count = 0;
         for (Argument argument : arguments) {
@@ -77,7 +78,7 @@ public interface LGenerativeDistribution<T> extends LGenerator<T> {
             e.printStackTrace();
         }
 
-        Citation citation = Generator.getCitation(generatorClass);
+        Citation citation = CitationUtils.getCitation(generatorClass);
         if (citation != null) {
             md.append(new Heading("Reference", 3)).append("\n\n");
             md.append(citation.value());
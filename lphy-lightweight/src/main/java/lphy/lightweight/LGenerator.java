@@ -1,7 +1,8 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
-import lphy.core.model.component.Argument;
-import lphy.core.model.component.ParameterInfo;
+import lphy.core.model.MethodDispatcher;
+import lphy.core.parser.argument.Argument;
+import lphy.core.model.annotation.ParameterInfo;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
@@ -31,7 +32,7 @@ public interface LGenerator<T> {
     default void setArgumentValue(Argument argument, Object val) {
         try {
             Method method = getSetMethod(argument);
-            method.invoke(this, val);
+            MethodDispatcher.invoke(method, this, val);
         } catch (IllegalAccessException e) {
             e.printStackTrace();
         } catch (InvocationTargetException e) {
@@ -42,30 +43,28 @@ public interface LGenerator<T> {
     /**
      * @param argument the argument to get the set method of
      * @return the method that allows the setting of the given argument
+     * @throws IllegalArgumentException if this generator has no set method for the argument.
      */
     default Method getSetMethod(Argument argument) {
-        try {
-            return getClass().getMethod(argument.setMethodName(), argument.type);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        return null;
+        Method method = MethodDispatcher.getMethod(getClass(), argument.setMethodName(), argument.type);
+        if (method == null)
+            throw new IllegalArgumentException("Cannot find the set method for argument " + argument.name + " !",
+                    new NoSuchMethodException(getClass().getName() + "." + argument.setMethodName()));
+        return method;
     }
 
     default void setArgumentValue(String name, Object val) {
         try {
-            Method method = getClass().getMethod(Argument.setMethodName(name), val.getClass());
-            method.invoke(this, val);
-        } catch (NoSuchMethodException e) {
-
-            Method[] methods = getClass().getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals(name)) {
-                    try {
-                        method.invoke(this,val);
-                        break;
-                    } catch (InvocationTargetException | IllegalAccessException ignored) {
-                    }
+            Method method = MethodDispatcher.getMethod(getClass(), Argument.setMethodName(name), val.getClass());
+            if (method != null) {
+                MethodDispatcher.invoke(method, this, val);
+                return;
+            }
+            for (Method setter : MethodDispatcher.getMethods(getClass(), name)) {
+                try {
+                    MethodDispatcher.invoke(setter, this, val);
+                    break;
+                } catch (InvocationTargetException | IllegalAccessException ignored) {
                 }
             }
         } catch (IllegalAccessException e) {
@@ -78,7 +77,7 @@ public interface LGenerator<T> {
     default Object getArgumentValue(Argument argument) {
         try {
             Method method = getClass().getMethod(argument.getMethodName());
-            return method.invoke(this);
+            return MethodDispatcher.invoke(method, this);
         } catch (NoSuchMethodException e) {
             e.printStackTrace();
         } catch (IllegalAccessException e) {
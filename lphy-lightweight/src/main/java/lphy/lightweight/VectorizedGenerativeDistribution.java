@@ -1,8 +1,8 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
-import lphy.base.lightweight.distributions.*;
-import lphy.core.model.component.Argument;
-import lphy.core.model.component.Generator;
+import lphy.lightweight.distributions.*;
+import lphy.core.parser.argument.Argument;
+import lphy.core.model.GeneratorUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,7 +19,7 @@ public class VectorizedGenerativeDistribution<T> extends VectorizedGenerator<T>
                 Dirichlet.class, Gamma.class, DiscretizedGamma.class, Beta.class, Poisson.class};
 
         for (Class<?> genClass : genClasses) {
-            String name = Generator.getGeneratorName(genClass);
+            String name = GeneratorUtils.getGeneratorName(genClass);
 
             Set<Class<?>> genDistSet = genDistDictionary.computeIfAbsent(name, k -> new HashSet<>());
             genDistSet.add(genClass);
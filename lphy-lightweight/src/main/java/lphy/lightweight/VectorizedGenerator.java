@@ -1,6 +1,6 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
-import lphy.core.model.component.Argument;
+import lphy.core.parser.argument.Argument;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
@@ -1,8 +1,8 @@
-package lphy.base.lightweight.distributions;
+package lphy.lightweight.distributions;
 
-import lphy.base.lightweight.LGenerativeDistribution;
-import lphy.core.model.component.GeneratorInfo;
-import lphy.core.model.component.ParameterInfo;
+import lphy.lightweight.LGenerativeDistribution;
+import lphy.core.model.annotation.GeneratorInfo;
+import lphy.core.model.annotation.ParameterInfo;
 import org.apache.commons.math3.distribution.BinomialDistribution;
 
 public class Binomial implements LGenerativeDistribution<Integer> {
@@ -1,10 +1,10 @@
-package lphy.base.lightweight.distributions;
+package lphy.lightweight.distributions;
 
-import lphy.base.lightweight.LGenerativeDistribution;
+import lphy.lightweight.LGenerativeDistribution;
 import lphy.base.math.MathUtils;
-import lphy.core.model.component.GeneratorInfo;
-import lphy.core.model.component.ParameterInfo;
-import lphy.core.util.RandomUtils;
+import lphy.core.model.annotation.GeneratorInfo;
+import lphy.core.model.annotation.ParameterInfo;
+import lphy.core.simulator.RandomUtils;
 
 /**
  * Created by Alexei Drummond on 18/12/19.
@@ -4,4 +4,4 @@
  * @deprecated is this still in dev?
  */
 @Deprecated
-package lphy.base.lightweight.distributions;
\ No newline at end of file
+package lphy.lightweight.distributions;
\ No newline at end of file
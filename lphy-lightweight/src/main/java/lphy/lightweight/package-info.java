@@ -1,3 +1,3 @@
-package lphy.base.lightweight;
+package lphy.lightweight;
 
 //TODO: not used
\ No newline at end of file
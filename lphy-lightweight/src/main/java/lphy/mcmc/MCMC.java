@@ -1,47 +1,433 @@
-package lphy.io.mcmc;
+package lphy.mcmc;
 
-import lphy.core.model.RandomVariable;
-import lphy.core.model.Value;
-import lphy.core.model.ValueListener;
+import lphy.base.distribution.Dirichlet;
+import lphy.base.distribution.ParametricDistribution;
+import lphy.base.distribution.WeightedDirichlet;
+import lphy.core.logger.LoggerUtils;
+import lphy.core.model.*;
 import lphy.core.parser.graphicalmodel.GraphicalModel;
+import lphy.core.parser.graphicalmodel.GraphicalModelUtils;
+import lphy.core.simulator.RandomUtils;
+import lphy.lightweight.GeneratorAdapter;
+import lphy.lightweight.LGenerator;
+import lphy.mcmc.operators.DeltaExchangeOperator;
+import lphy.mcmc.operators.RandomWalkOperator;
+import lphy.mcmc.operators.ScaleArrayOperator;
+import lphy.mcmc.operators.ScaleOperator;
+import org.apache.commons.math3.random.RandomGenerator;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
 
+/**
+ * The Metropolis-Hastings MCMC sampling the random variables of a {@link GraphicalModel}.
+ * The log posterior is the sum of the log densities of the random variables,
+ * which are cached, so that a proposal only recomputes the deterministic values downstream
+ * of the variables changed by the operator, and the densities depending on them.
+ * The update plan of each operator is created once in the constructor.
+ * The old values are recorded by the {@link ValueListener}s during the proposal,
+ * and restored if the proposal is rejected.
+ * The model is the graphical model of core {@link Value}s and {@link Generator}s created by the LPhy parser,
+ * because the lightweight generators only enter a model through {@link GeneratorAdapter}.
+ * For these adapters, the deterministic values are recomputed by the raw
+ * {@link LGenerator#generateRaw()} without creating a {@link Value},
+ * and the densities are computed by the raw {@link lphy.lightweight.LGenerativeDistribution#logDensity(Object)}.
+ * The unobserved random variables without a density, such as an alignment from PhyloCTMC,
+ * are kept fixed and excluded from the posterior. An observed variable without a density is an error,
+ * because the posterior would miss its likelihood.
+ */
 public class MCMC {
 
     GraphicalModel model;
+    OperatorSchedule schedule;
 
-    Map<RandomVariable, Object> oldValues = new HashMap<>();
+    RandomGenerator random = RandomUtils.getRandom();
+
+    // the random variables in the posterior, the values to evaluate their densities, and the cached log densities
+    private final RandomVariable[] variables;
+    private final Value[] densityValues;
+    private final double[] logDensities;
+    private double logPosterior;
+
+    // the values changed by the proposals, which are restored if rejected
+    private final Value[] tracked;
+    private final Object[] oldValues;
+    private final boolean[] changed;
+    private final int[] changedStack;
+    private int changedCount = 0;
 
     boolean inAcceptReject = false;
 
-    public MCMC(GraphicalModel model) {
+    // the update plan for each operator in the schedule
+    private final Proposal[] proposals;
+
+    /**
+     * @param model      the graphical model, whose values are the initial state.
+     * @param operators  the operators on the random variables of this model.
+     */
+    public MCMC(GraphicalModel model, List<Operator<?>> operators) {
         this.model = model;
+        this.schedule = new OperatorSchedule(operators);
+
+        List<Value> allValues = GraphicalModelUtils.getAllValuesFromSinks(model);
+        Set<Value> modelValues = Collections.newSetFromMap(new IdentityHashMap<>());
+        modelValues.addAll(allValues);
+        // the value produced by each generator
+        Map<Generator, Value> producers = new IdentityHashMap<>();
+        for (Value value : allValues) {
+            if (value.getGenerator() != null) producers.put(value.getGenerator(), value);
+        }
+
+        // the random variables with densities
+        Map<Value, Integer> variableIndex = new IdentityHashMap<>();
+        List<RandomVariable> variableList = new ArrayList<>();
+        List<String> fixed = new ArrayList<>();
+        for (Value value : allValues) {
+            if (value instanceof RandomVariable variable) {
+                if (hasDensity(variable.getGenerativeDistribution())) {
+                    variableIndex.put(variable, variableList.size());
+                    variableList.add(variable);
+                } else if (model.isObservedVariable(variable)) {
+                    throw new IllegalArgumentException("The observed variable " + variable.getId() + " from " +
+                            variable.getGenerativeDistribution().getName() + " has no density, " +
+                            "so its likelihood cannot be included in the posterior !");
+                } else fixed.add(variable.getId());
+            }
+        }
+        if (!fixed.isEmpty())
+            LoggerUtils.log.warning("Random variables " + fixed + " have no density, " +
+                    "which are fixed and excluded from the posterior !");
+
+        variables = variableList.toArray(new RandomVariable[0]);
+        densityValues = new Value[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            // the observed variable uses the value in the data block
+            densityValues[i] = model.isObservedVariable(variables[i]) ?
+                    model.getDataDictionary().get(variables[i].getId()) : variables[i];
+        }
+        logDensities = new double[variables.length];
+
+        // the plan of each operator, and the values to track
+        Map<Value, Integer> trackedIndex = new IdentityHashMap<>();
+        List<Value> trackedList = new ArrayList<>();
+        proposals = new Proposal[schedule.getOperatorCount()];
+        for (int i = 0; i < proposals.length; i++) {
+            Operator<?> operator = schedule.getOperator(i);
+            for (RandomVariable<?> variable : operator.getVariables()) {
+                if (!modelValues.contains(variable))
+                    throw new IllegalArgumentException("The variable " + variable.getId() + " of operator " +
+                            operator.getName() + " is not in the model !");
+                if (model.isObservedVariable(variable))
+                    throw new IllegalArgumentException("Cannot operate on the observed variable " +
+                            variable.getId() + " !");
+            }
+            proposals[i] = createProposal(operator, producers, variableIndex);
+            for (Value value : proposals[i].trackedValues) {
+                if (!trackedIndex.containsKey(value)) {
+                    trackedIndex.put(value, trackedList.size());
+                    trackedList.add(value);
+                }
+            }
+        }
+
+        tracked = trackedList.toArray(new Value[0]);
+        oldValues = new Object[tracked.length];
+        changed = new boolean[tracked.length];
+        changedStack = new int[tracked.length];
+        for (int i = 0; i < tracked.length; i++) {
+            final int index = i;
+            tracked[i].addValueListener((oldValue, newValue) -> {
+                // only the value before the proposal is kept
+                if (inAcceptReject && !changed[index]) {
+                    changed[index] = true;
+                    oldValues[index] = oldValue;
+                    changedStack[changedCount++] = index;
+                }
+            });
+        }
+
+        logPosterior = computeLogPosterior();
+    }
+
+    /**
+     * @param model  the graphical model
+     * @return the default operators: a scale operator on each positive real variable (or vector),
+     *         a delta exchange on each Dirichlet vector, and a random walk on each other real variable.
+     *         Other variables, such as trees, are kept fixed.
+     */
+    public static List<Operator<?>> createDefaultOperators(GraphicalModel model) {
+        List<Operator<?>> operators = new ArrayList<>();
+        for (Value value : GraphicalModelUtils.getAllValuesFromSinks(model)) {
+            if (value instanceof RandomVariable variable && !model.isObservedVariable(variable) &&
+                    hasDensity(variable.getGenerativeDistribution())) {
+                Object val = variable.value();
+                if (val instanceof Double d) {
+                    if (d > 0.0) operators.add(new ScaleOperator(variable, 0.75, 1.0));
+                    else operators.add(new RandomWalkOperator(variable, 1.0, 1.0));
+                } else if (variable.getGenerativeDistribution() instanceof Dirichlet) {
+                    // the sum of frequencies must be 1
+                    Double[] arr = (Double[]) val;
+                    if (arr.length > 1) operators.add(new DeltaExchangeOperator(variable, 0.1, arr.length));
+                } else if (val instanceof Double[] arr && arr.length > 0 &&
+                        Arrays.stream(arr).allMatch(d -> d > 0.0) &&
+                        !(variable.getGenerativeDistribution() instanceof WeightedDirichlet)) {
+                    operators.add(new ScaleArrayOperator(variable, 0.75, arr.length));
+                }
+            }
+        }
+        return operators;
+    }
+
+    /**
+     * @param generativeDistribution  the distribution
+     * @return true if the class implements either logDensity or density,
+     *         otherwise the default methods in {@link GenerativeDistribution} call each other.
+     */
+    public static boolean hasDensity(GenerativeDistribution<?> generativeDistribution) {
+        for (Class<?> c = generativeDistribution.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if ((method.getName().equals("logDensity") || method.getName().equals("density")) &&
+                        method.getParameterCount() == 1 && !Modifier.isAbstract(method.getModifiers()))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public void run(long chainLength) {
+        run(chainLength, 0, null);
+    }
+
+    /**
+     * @param chainLength  the number of proposals.
+     * @param logEvery     call the logger every this number of proposals, or 0 to disable.
+     * @param logger       the logger of the current state, which can be null.
+     */
+    public void run(long chainLength, long logEvery, StateLogger logger) {
+        for (long i = 0; i < chainLength; i++) {
+            step();
+            if (logger != null && logEvery > 0 && (i + 1) % logEvery == 0)
+                logger.log(i + 1, this);
+        }
+    }
+
+    /**
+     * Propose a new state by the operator selected from the schedule, and accept or reject it.
+     * @return true if the proposal is accepted.
+     */
+    public boolean step() {
+        int i = schedule.selectOperator(random);
+        Proposal proposal = proposals[i];
+
+        changedCount = 0;
+        inAcceptReject = true;
+        double logHastingsRatio = proposal.operator.operate();
+
+        boolean accept = false;
+        boolean evaluated = false;
+        double newLogPosterior = Double.NEGATIVE_INFINITY;
+        if (logHastingsRatio != Double.NEGATIVE_INFINITY) {
+            propagate(proposal);
+            newLogPosterior = updateLogDensities(proposal);
+            evaluated = true;
+            double logAlpha = newLogPosterior - logPosterior + logHastingsRatio;
+            // NaN is rejected
+            accept = logAlpha >= 0.0 || Math.log(random.nextDouble()) < logAlpha;
+        }
+        inAcceptReject = false;
+
+        if (accept) {
+            logPosterior = newLogPosterior;
+            for (int j = 0; j < changedCount; j++) {
+                int index = changedStack[j];
+                changed[index] = false;
+                oldValues[index] = null;
+            }
+            schedule.accept(i);
+        } else {
+            restore(proposal, evaluated);
+            schedule.reject(i);
+        }
+        changedCount = 0;
+        return accept;
+    }
 
-        for (Value value : model.getModelValues()) {
-            if (value instanceof RandomVariable) {
-                value.addValueListener(new ValueListener() {
-                    @Override
-                    public void valueSet(Object oldValue, Object newValue) {
-                        if (inAcceptReject) oldValues.put((RandomVariable)value, oldValue);
-                    }
-                });
+    // recompute the deterministic values downstream in topological order, and update the distributions
+    private void propagate(Proposal proposal) {
+        for (Step step : proposal.steps) {
+            step.refresh();
+            if (step.recompute) {
+                // the raw value of a lightweight generator, without creating a Value
+                Object newValue = step.raw != null ? step.raw.generateRaw() : step.generator.generate().value();
+                step.output.setValue(newValue);
             }
         }
     }
 
-    public void run(int chainLength) {
+    private double updateLogDensities(Proposal proposal) {
+        double delta = 0.0;
+        for (int k = 0; k < proposal.densities.length; k++) {
+            int index = proposal.densities[k];
+            double oldLogDensity = logDensities[index];
+            double newLogDensity = logDensity(index);
+            proposal.backup[k] = oldLogDensity;
+            logDensities[index] = newLogDensity;
+            delta += newLogDensity - oldLogDensity;
+        }
+        // the difference is undefined if the current state has zero density
+        if (Double.isInfinite(logPosterior) || Double.isNaN(logPosterior))
+            return sum(logDensities);
+        return logPosterior + delta;
+    }
+
+    private void restore(Proposal proposal, boolean evaluated) {
+        // in reverse order of the changes
+        for (int j = changedCount - 1; j >= 0; j--) {
+            int index = changedStack[j];
+            tracked[index].setValue(oldValues[index]);
+            changed[index] = false;
+            oldValues[index] = null;
+        }
+        for (Step step : proposal.steps)
+            step.refresh();
+        if (evaluated) {
+            for (int k = 0; k < proposal.densities.length; k++)
+                logDensities[proposal.densities[k]] = proposal.backup[k];
+        }
+    }
 
-        double logPosterior = model.computeLogPosterior();
+    private double logDensity(int index) {
+        GenerativeDistribution distribution = variables[index].getGenerativeDistribution();
+        return distribution.logDensity(densityValues[index].value());
+    }
 
-        for (int i = 0; i < chainLength; i++) {
-            oldValues.clear();
-            inAcceptReject = true;
-            //Operator operator = pickRandomOperator();
-            //double hastingsRatio = operator.operate();
+    private static double sum(double[] values) {
+        double sum = 0.0;
+        for (double v : values) sum += v;
+        return sum;
+    }
 
+    /**
+     * Compute the log densities of all random variables in the posterior,
+     * and replace the cached values.
+     * @return the log posterior of the current state.
+     */
+    public double computeLogPosterior() {
+        for (int i = 0; i < variables.length; i++)
+            logDensities[i] = logDensity(i);
+        logPosterior = sum(logDensities);
+        return logPosterior;
+    }
+
+    /**
+     * @return the log posterior of the current state, which is updated incrementally.
+     */
+    public double getLogPosterior() {
+        return logPosterior;
+    }
+
+    public OperatorSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * @return the random variables in the posterior.
+     */
+    public List<RandomVariable> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    public GraphicalModel getModel() {
+        return model;
+    }
+
+    /**
+     * The logger of the MCMC state.
+     */
+    @FunctionalInterface
+    public interface StateLogger {
+        void log(long sample, MCMC mcmc);
+    }
+
+    /*
+     * Create the update plan of the operator by traversing the graph downstream from its variables,
+     * until reaching the random variables, whose densities change but values do not.
+     */
+    private Proposal createProposal(Operator<?> operator, Map<Generator, Value> producers,
+                                    Map<Value, Integer> variableIndex) {
+        Set<Value> changedValues = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Integer> densities = new LinkedHashSet<>();
+        // the deterministic values in reverse post-order
+        LinkedList<Value> deterministic = new LinkedList<>();
+        List<Value> downstreamVariables = new ArrayList<>();
+        Set<Value> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (RandomVariable<?> variable : operator.getVariables()) {
+            changedValues.add(variable);
+            Integer index = variableIndex.get(variable);
+            if (index != null) densities.add(index);
+        }
+        for (RandomVariable<?> variable : operator.getVariables())
+            visitDownstream(variable, producers, visited, deterministic, downstreamVariables);
+        changedValues.addAll(deterministic);
+
+        List<Step> steps = new ArrayList<>();
+        for (Value value : deterministic)
+            steps.add(createStep(value.getGenerator(), value, true, changedValues));
+        for (Value value : downstreamVariables) {
+            Step step = createStep(value.getGenerator(), value, false, changedValues);
+            if (step.names.length > 0) steps.add(step);
+            Integer index = variableIndex.get(value);
+            if (index != null) densities.add(index);
+        }
+
+        List<Value> trackedValues = new ArrayList<>(operator.getVariables());
+        trackedValues.addAll(deterministic);
+        int[] densityArray = densities.stream().mapToInt(Integer::intValue).toArray();
+        return new Proposal(operator, steps.toArray(new Step[0]), densityArray,
+                new double[densityArray.length], trackedValues);
+    }
+
+    private static void visitDownstream(Value<?> value, Map<Generator, Value> producers, Set<Value> visited,
+                                        LinkedList<Value> deterministic, List<Value> downstreamVariables) {
+        for (GraphicalModelNode<?> node : value.getOutputs()) {
+            Value output = producers.get(node);
+            if (output == null || !visited.add(output)) continue;
+            if (output instanceof RandomVariable) {
+                downstreamVariables.add(output);
+            } else {
+                visitDownstream(output, producers, visited, deterministic, downstreamVariables);
+                // all values depending on this one have been added
+                deterministic.addFirst(output);
+            }
         }
+    }
 
+    private static Step createStep(Generator<?> generator, Value output, boolean recompute, Set<Value> changedValues) {
+        List<String> names = new ArrayList<>();
+        List<Value> params = new ArrayList<>();
+        // only the distributions caching their parameters need to be updated
+        if (generator instanceof ParametricDistribution || generator instanceof GeneratorAdapter) {
+            for (Map.Entry<String, Value> entry : generator.getParams().entrySet()) {
+                if (changedValues.contains(entry.getValue())) {
+                    names.add(entry.getKey());
+                    params.add(entry.getValue());
+                }
+            }
+        }
+        LGenerator<?> raw = generator instanceof GeneratorAdapter<?> adapter ? adapter.getBaseGenerator() : null;
+        return new Step(generator, raw, output, recompute, names.toArray(new String[0]), params.toArray(new Value[0]));
     }
+
+    private record Step(Generator generator, LGenerator<?> raw, Value output, boolean recompute,
+                        String[] names, Value[] params) {
+        void refresh() {
+            for (int i = 0; i < names.length; i++)
+                generator.setParam(names[i], params[i]);
+        }
+    }
+
+    private record Proposal(Operator<?> operator, Step[] steps, int[] densities, double[] backup,
+                            List<Value> trackedValues) { }
 }
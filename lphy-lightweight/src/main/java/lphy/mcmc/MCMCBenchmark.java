@@ -0,0 +1,61 @@
+package lphy.mcmc;
+
+import lphy.core.parser.REPL;
+import lphy.core.simulator.RandomUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Benchmark the MCMC on the coalescent examples, using the default operators,
+ * and compare the time of a proposal to the time of the full posterior computation.
+ * Usage: <code>MCMCBenchmark [chainLength] [lphy files...]</code>,
+ * the default files are the coalescent examples in the examples folder.
+ */
+public class MCMCBenchmark {
+
+    static final String[] COALESCENT_EXAMPLES = new String[]{
+            "examples/coalescent/jcCoalescent.lphy",
+            "examples/coalescent/hkyCoalescent.lphy",
+            "examples/coalescent/exponentialCoalescent.lphy",
+            "examples/coalescent/simpleSerialCoalescent.lphy"};
+
+    public static void main(String[] args) throws IOException {
+        long chainLength = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+        String[] files = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length) : COALESCENT_EXAMPLES;
+
+        for (String file : files) {
+            RandomUtils.setSeed(777);
+            REPL repl = new REPL();
+            repl.source(new File(file), null);
+
+            List<Operator<?>> operators = MCMC.createDefaultOperators(repl);
+            if (operators.isEmpty()) {
+                System.out.println(file + " : no variables to operate, skip.\n");
+                continue;
+            }
+            MCMC mcmc = new MCMC(repl, operators);
+
+            // warm up
+            mcmc.run(Math.min(chainLength / 10, 10000));
+            mcmc.getSchedule().reset();
+
+            long start = System.nanoTime();
+            mcmc.run(chainLength);
+            double nsPerStep = (double) (System.nanoTime() - start) / chainLength;
+
+            int evaluations = (int) Math.min(chainLength, 100000);
+            start = System.nanoTime();
+            for (int i = 0; i < evaluations; i++)
+                mcmc.computeLogPosterior();
+            double nsPerEvaluation = (double) (System.nanoTime() - start) / evaluations;
+
+            System.out.println(file + " : " + chainLength + " steps, " + mcmc.getVariables().size() +
+                    " variables in the posterior, log posterior = " + mcmc.getLogPosterior());
+            System.out.printf("  %.1f ns per proposal, %.1f ns per full posterior computation%n",
+                    nsPerStep, nsPerEvaluation);
+            System.out.println(mcmc.getSchedule().report());
+        }
+    }
+}
@@ -1,4 +1,4 @@
-package lphy.io.mcmc;
+package lphy.mcmc;
 
 import lphy.core.model.RandomVariable;
 
@@ -7,10 +7,26 @@ import java.util.List;
 public interface Operator<T> {
 
     /**
-     *
-     * @return Green-Hastings ratio
+     * Propose a new state by setting the new values to the variables,
+     * whose old values are recorded by {@link MCMC} and restored if the proposal is rejected.
+     * @return the log of Green-Hastings ratio,
+     *         or {@link Double#NEGATIVE_INFINITY} to reject the proposal immediately.
      */
     double operate();
 
     List<RandomVariable<T>> getVariables();
+
+    /**
+     * @return the relative weight of this operator to be selected in the {@link OperatorSchedule}.
+     */
+    default double getWeight() {
+        return 1.0;
+    }
+
+    default String getName() {
+        List<RandomVariable<T>> variables = getVariables();
+        String name = getClass().getSimpleName();
+        if (variables.size() == 1) return name + "(" + variables.get(0).getId() + ")";
+        return name;
+    }
 }
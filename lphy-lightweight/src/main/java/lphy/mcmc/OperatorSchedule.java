@@ -0,0 +1,107 @@
+package lphy.mcmc;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The operators selected at random in proportion to their weights,
+ * and the counts of accepted and rejected proposals of each operator.
+ */
+public class OperatorSchedule {
+
+    private final Operator<?>[] operators;
+    // the cumulative weights normalised to 1
+    private final double[] cumulativeWeights;
+
+    private final long[] accepted;
+    private final long[] rejected;
+
+    public OperatorSchedule(List<Operator<?>> operators) {
+        if (operators.isEmpty())
+            throw new IllegalArgumentException("MCMC requires at least one operator !");
+        this.operators = operators.toArray(new Operator[0]);
+        cumulativeWeights = new double[this.operators.length];
+        double sum = 0.0;
+        for (int i = 0; i < this.operators.length; i++) {
+            double weight = this.operators[i].getWeight();
+            if (!(weight > 0.0))
+                throw new IllegalArgumentException("The weight of operator " + this.operators[i].getName() +
+                        " must be positive ! weight = " + weight);
+            sum += weight;
+            cumulativeWeights[i] = sum;
+        }
+        for (int i = 0; i < cumulativeWeights.length; i++)
+            cumulativeWeights[i] /= sum;
+        accepted = new long[this.operators.length];
+        rejected = new long[this.operators.length];
+    }
+
+    /**
+     * @return the index of the operator selected in proportion to its weight.
+     */
+    public int selectOperator(RandomGenerator random) {
+        double u = random.nextDouble();
+        int i = Arrays.binarySearch(cumulativeWeights, u);
+        // insertion point if not found
+        if (i < 0) i = -i - 1;
+        // avoid rounding error at the end
+        return Math.min(i, cumulativeWeights.length - 1);
+    }
+
+    public int getOperatorCount() {
+        return operators.length;
+    }
+
+    public Operator<?> getOperator(int i) {
+        return operators[i];
+    }
+
+    public List<Operator<?>> getOperators() {
+        return Collections.unmodifiableList(Arrays.asList(operators));
+    }
+
+    public void accept(int i) {
+        accepted[i]++;
+    }
+
+    public void reject(int i) {
+        rejected[i]++;
+    }
+
+    public long getAccepted(int i) {
+        return accepted[i];
+    }
+
+    public long getRejected(int i) {
+        return rejected[i];
+    }
+
+    /**
+     * @return the acceptance probability of the operator, or NaN if it has not been used.
+     */
+    public double getAcceptanceProbability(int i) {
+        long total = accepted[i] + rejected[i];
+        return total == 0 ? Double.NaN : (double) accepted[i] / total;
+    }
+
+    public void reset() {
+        Arrays.fill(accepted, 0);
+        Arrays.fill(rejected, 0);
+    }
+
+    /**
+     * @return the table of operator performance.
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-40s %10s %10s %10s%n", "Operator", "Accepted", "Rejected", "Pr(accept)"));
+        for (int i = 0; i < operators.length; i++) {
+            builder.append(String.format("%-40s %10d %10d %10.4f%n", operators[i].getName(),
+                    accepted[i], rejected[i], getAcceptanceProbability(i)));
+        }
+        return builder.toString();
+    }
+}
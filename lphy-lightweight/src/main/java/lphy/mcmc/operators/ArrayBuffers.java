@@ -0,0 +1,33 @@
+package lphy.mcmc.operators;
+
+/**
+ * Two arrays used in turn for the proposed value of a vector, so that an operator
+ * does not allocate an array per proposal. The array of the current value is never written,
+ * so that it can be restored when the proposal is rejected.
+ * The array of an earlier state is reused, so it must be copied if it is kept, such as by a logger.
+ */
+final class ArrayBuffers {
+
+    private Double[] first;
+    private Double[] second;
+
+    /**
+     * @param current  the current value of the vector
+     * @return the copy of the current value in the array which is not the current value.
+     */
+    Double[] copyOf(Double[] current) {
+        // the value is set outside the operator
+        if (current != first && current != second) {
+            first = current;
+            second = null;
+        }
+        Double[] spare = current == first ? second : first;
+        if (spare == null || spare.length != current.length) {
+            spare = new Double[current.length];
+            if (current == first) second = spare;
+            else first = spare;
+        }
+        System.arraycopy(current, 0, spare, 0, current.length);
+        return spare;
+    }
+}
@@ -0,0 +1,64 @@
+package lphy.mcmc.operators;
+
+import lphy.core.model.RandomVariable;
+import lphy.core.simulator.RandomUtils;
+import lphy.mcmc.Operator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Move a random amount between two random elements of a vector,
+ * so that the sum is unchanged, such as the frequencies from a Dirichlet distribution.
+ * The new array is a copy in one of the two {@link ArrayBuffers}, so that the old array
+ * can be restored when the proposal is rejected.
+ */
+public class DeltaExchangeOperator implements Operator<Double[]> {
+
+    RandomVariable<Double[]> variable;
+    private final ArrayBuffers buffers = new ArrayBuffers();
+
+    RandomGenerator random = RandomUtils.getRandom();
+    double delta;
+    double weight;
+
+    public DeltaExchangeOperator(RandomVariable<Double[]> variable, double delta, double weight) {
+        if (!(delta > 0.0))
+            throw new IllegalArgumentException("Delta must be positive ! delta = " + delta);
+        if (variable.value().length < 2)
+            throw new IllegalArgumentException("Delta exchange requires at least 2 elements in " + variable.getId());
+        this.variable = variable;
+        this.delta = delta;
+        this.weight = weight;
+    }
+
+    @Override
+    public double operate() {
+        Double[] newValue = buffers.copyOf(variable.value());
+        int i = random.nextInt(newValue.length);
+        int j = random.nextInt(newValue.length - 1);
+        if (j >= i) j++;
+
+        double d = random.nextDouble() * delta;
+        newValue[i] = newValue[i] - d;
+        newValue[j] = newValue[j] + d;
+        // outside the support
+        if (newValue[i] <= 0.0)
+            return Double.NEGATIVE_INFINITY;
+
+        variable.setValue(newValue);
+        // symmetric
+        return 0.0;
+    }
+
+    @Override
+    public List<RandomVariable<Double[]>> getVariables() {
+        return Collections.singletonList(variable);
+    }
+
+    @Override
+    public double getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,47 @@
+package lphy.mcmc.operators;
+
+import lphy.core.model.RandomVariable;
+import lphy.core.simulator.RandomUtils;
+import lphy.mcmc.Operator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The symmetric random walk with a uniform step in [-windowSize, windowSize].
+ */
+public class RandomWalkOperator implements Operator<Double> {
+
+    RandomVariable<Double> variable;
+
+    RandomGenerator random = RandomUtils.getRandom();
+    double windowSize;
+    double weight;
+
+    public RandomWalkOperator(RandomVariable<Double> variable, double windowSize, double weight) {
+        if (!(windowSize > 0.0))
+            throw new IllegalArgumentException("Window size must be positive ! windowSize = " + windowSize);
+        this.variable = variable;
+        this.windowSize = windowSize;
+        this.weight = weight;
+    }
+
+    @Override
+    public double operate() {
+        double newValue = variable.value() + (2.0 * random.nextDouble() - 1.0) * windowSize;
+        variable.setValue(newValue);
+        // symmetric
+        return 0.0;
+    }
+
+    @Override
+    public List<RandomVariable<Double>> getVariables() {
+        return Collections.singletonList(variable);
+    }
+
+    @Override
+    public double getWeight() {
+        return weight;
+    }
+}
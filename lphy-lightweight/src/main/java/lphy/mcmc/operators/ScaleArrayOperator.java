@@ -0,0 +1,55 @@
+package lphy.mcmc.operators;
+
+import lphy.core.model.RandomVariable;
+import lphy.core.simulator.RandomUtils;
+import lphy.mcmc.Operator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scale one random element of a vector of positive values.
+ * The new array is a copy in one of the two {@link ArrayBuffers}, so that the old array
+ * can be restored when the proposal is rejected.
+ */
+public class ScaleArrayOperator implements Operator<Double[]> {
+
+    RandomVariable<Double[]> variable;
+    private final ArrayBuffers buffers = new ArrayBuffers();
+
+    RandomGenerator random = RandomUtils.getRandom();
+    double scaleFactor;
+    double weight;
+
+    public ScaleArrayOperator(RandomVariable<Double[]> variable, double scaleFactor, double weight) {
+        if (!(scaleFactor > 0.0 && scaleFactor < 1.0))
+            throw new IllegalArgumentException("Scale factor must be in (0, 1) ! scaleFactor = " + scaleFactor);
+        this.variable = variable;
+        this.scaleFactor = scaleFactor;
+        this.weight = weight;
+    }
+
+    @Override
+    public double operate() {
+        Double[] newValue = buffers.copyOf(variable.value());
+        int i = random.nextInt(newValue.length);
+
+        double scale = scaleFactor + (random.nextDouble() * ((1.0 / scaleFactor) - scaleFactor));
+        newValue[i] = scale * newValue[i];
+
+        variable.setValue(newValue);
+
+        return -Math.log(scale);
+    }
+
+    @Override
+    public List<RandomVariable<Double[]>> getVariables() {
+        return Collections.singletonList(variable);
+    }
+
+    @Override
+    public double getWeight() {
+        return weight;
+    }
+}
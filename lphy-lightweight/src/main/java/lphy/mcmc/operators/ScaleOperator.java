@@ -1,8 +1,8 @@
-package lphy.io.mcmc.operators;
+package lphy.mcmc.operators;
 
-import lphy.base.math.RandomUtils;
 import lphy.core.model.RandomVariable;
-import lphy.io.mcmc.Operator;
+import lphy.core.simulator.RandomUtils;
+import lphy.mcmc.Operator;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.Collections;
@@ -14,10 +14,18 @@ public class ScaleOperator implements Operator<Double> {
 
     RandomGenerator random = RandomUtils.getRandom();
     double scaleFactor = 0.75;
+    double weight = 1.0;
 
     public ScaleOperator(RandomVariable<Double> variable, double scaleFactor) {
+        this(variable, scaleFactor, 1.0);
+    }
+
+    public ScaleOperator(RandomVariable<Double> variable, double scaleFactor, double weight) {
+        if (!(scaleFactor > 0.0 && scaleFactor < 1.0))
+            throw new IllegalArgumentException("Scale factor must be in (0, 1) ! scaleFactor = " + scaleFactor);
         this.variable = variable;
         this.scaleFactor = scaleFactor;
+        this.weight = weight;
     }
 
     @Override
@@ -41,4 +49,9 @@ public class ScaleOperator implements Operator<Double> {
     public List<RandomVariable<Double>> getVariables() {
         return Collections.singletonList(variable);
     }
+
+    @Override
+    public double getWeight() {
+        return weight;
+    }
 }
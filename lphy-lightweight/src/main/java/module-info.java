@@ -0,0 +1,11 @@
+module lphy.lightweight {
+    requires transitive lphy.base;
+    requires markdowngenerator;
+
+    exports lphy.lightweight;
+    exports lphy.lightweight.distributions;
+
+    // MCMC
+    exports lphy.mcmc;
+    exports lphy.mcmc.operators;
+}
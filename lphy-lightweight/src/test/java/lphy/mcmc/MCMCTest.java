@@ -0,0 +1,84 @@
+package lphy.mcmc;
+
+import lphy.core.model.RandomVariable;
+import lphy.core.model.Value;
+import lphy.core.parser.REPL;
+import lphy.core.simulator.RandomUtils;
+import lphy.mcmc.operators.ScaleOperator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the MCMC samples the prior, and the incremental posterior equals the full computation.
+ */
+public class MCMCTest {
+
+    @BeforeEach
+    void setUp() {
+        RandomUtils.setSeed(777);
+    }
+
+    @Test
+    public void samplePrior() {
+        REPL repl = new REPL();
+        repl.parse("model { x ~ LogNormal(meanlog=1.0, sdlog=0.5); }");
+        RandomVariable<Double> x = (RandomVariable<Double>) repl.getModelDictionary().get("x");
+
+        MCMC mcmc = new MCMC(repl, List.of(new ScaleOperator(x, 0.5)));
+        mcmc.run(1000);
+
+        final int n = 20000;
+        double[] sum = new double[2];
+        mcmc.run(n * 5L, 5, (sample, m) -> {
+            double logX = Math.log(x.value());
+            sum[0] += logX;
+            sum[1] += logX * logX;
+        });
+        double mean = sum[0] / n;
+        double sd = Math.sqrt(sum[1] / n - mean * mean);
+        assertEquals(1.0, mean, 0.05);
+        assertEquals(0.5, sd, 0.05);
+
+        OperatorSchedule schedule = mcmc.getSchedule();
+        assertEquals(n * 5L + 1000, schedule.getAccepted(0) + schedule.getRejected(0));
+        double pAccept = schedule.getAcceptanceProbability(0);
+        assertTrue(pAccept > 0.1 && pAccept < 0.99, "Pr(accept) = " + pAccept);
+    }
+
+    @Test
+    public void observedWithoutDensity() {
+        REPL repl = new REPL();
+        repl.parse("data { k = 1; } model { p ~ Beta(alpha=2.0, beta=2.0); k ~ Categorical(p=[p, 1.0-p]); }");
+        assertThrows(IllegalArgumentException.class, () -> new MCMC(repl, MCMC.createDefaultOperators(repl)));
+    }
+
+    @Test
+    public void incrementalPosterior() {
+        REPL repl = new REPL();
+        repl.parse("model { Θ ~ LogNormal(meanlog=3.0, sdlog=1.0); t = Θ * 2.0; " +
+                "μ ~ Exp(mean=t); ψ ~ Coalescent(theta=t, taxa=taxa(names=1:10)); }");
+        Value<Double> theta = (Value<Double>) repl.getModelDictionary().get("Θ");
+        Value<Double> t = (Value<Double>) repl.getModelDictionary().get("t");
+
+        List<Operator<?>> operators = MCMC.createDefaultOperators(repl);
+        // Θ and μ, the tree is fixed
+        assertEquals(2, operators.size());
+
+        MCMC mcmc = new MCMC(repl, operators);
+        // Θ, μ and ψ
+        assertEquals(3, mcmc.getVariables().size());
+        for (int i = 0; i < 100; i++) {
+            mcmc.run(50);
+            // deterministic values are consistent with the accepted or restored state
+            assertEquals(theta.value() * 2.0, t.value(), 1e-12);
+            double logPosterior = mcmc.getLogPosterior();
+            assertEquals(mcmc.computeLogPosterior(), logPosterior, 1e-8);
+        }
+        assertTrue(mcmc.getSchedule().getAccepted(0) > 0);
+        assertTrue(mcmc.getSchedule().getAccepted(1) > 0);
+    }
+}
@@ -134,6 +134,10 @@ public class Utils {
      * @param panel    clear panel and parser, then paint.
      */
     public static void readFileFromDir(String lphyFileName, String dir, GraphicalModelPanel panel) throws IOException {
+        if (panel.isSampling()) {
+            LoggerUtils.log.warning("Cannot load " + lphyFileName + " while sampling, please wait or stop sampling !");
+            return;
+        }
         final JProgressBar progressBar = panel.getProgressBar();
         progressBar.setValue(0);
         panel.sampleButton.setEnabled(false);
@@ -169,6 +173,10 @@ public class Utils {
      * @throws IOException
      */
     public static void readFile(File lphyFile, GraphicalModelPanel panel) {
+        if (panel.isSampling()) {
+            LoggerUtils.log.warning("Cannot load " + lphyFile + " while sampling, please wait or stop sampling !");
+            return;
+        }
         // verify final file path
 //        if (!lphyFile.exists())
         BufferedReader reader = null;
@@ -2,7 +2,6 @@ package lphystudio.app.alignmentcomponent;
 
 import jebl.evolution.sequences.SequenceType;
 import lphy.base.evolution.alignment.Alignment;
-import lphy.base.evolution.alignment.ErrorAlignment;
 import lphy.base.evolution.likelihood.AbstractPhyloCTMC;
 import lphy.base.evolution.likelihood.PhyloCTMC;
 import lphy.base.evolution.tree.TimeTree;
@@ -14,7 +13,7 @@ import lphystudio.app.treecomponent.TimeTreeComponent;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -36,6 +35,14 @@ public class AlignmentComponent extends JComponent {
 
     private Font taxaFont = taxaMinFont;
 
+    // created once, which only computes its layout once
+    private TimeTreeComponent treeComponent = null;
+    // the order of taxa to draw, and their indices in the alignment
+    private String[] taxa2Draw = null;
+    private int[] rows = null;
+    // the image tiles of the matrix at the current zoom level
+    private AlignmentTileCache tileCache = null;
+
 //    private boolean isClamped;
 
     public AlignmentComponent(Value<? extends Alignment> av) {
@@ -79,6 +86,7 @@ public class AlignmentComponent extends JComponent {
         preferences.addPreferenceChangeListener(evt -> computeMinMaxSize());
     }
 
+    // only used to compute the size of component, all sites are drawn
     private int visibleNChar() {
         return Math.min(1000, alignment.nchar());
     }
@@ -146,7 +154,6 @@ public class AlignmentComponent extends JComponent {
         // alignment taxa order is not same as the order to draw tips in the tree
         // if isShowingTree() then extract the order to draw tips into taxa2Draw,
         // otherwise use the alignment taxa order
-        String[] taxa2Draw = alignment.getTaxaNames();
         if (isShowingTree()) {
 
             int ytrans = (int)Math.round(h/2);
@@ -154,17 +161,19 @@ public class AlignmentComponent extends JComponent {
             int treeHeight = (int)Math.round(height - h);
             g.translate(0, ytrans);
 
-            TimeTreeComponent treeComponent = new TimeTreeComponent(timeTree.value());
-            treeComponent.setBorder(BorderFactory.createEmptyBorder(1,1,1,0));
+            if (treeComponent == null) {
+                treeComponent = new TimeTreeComponent(timeTree.value());
+                treeComponent.setBorder(BorderFactory.createEmptyBorder(1, 1, 1, 0));
+            }
             treeComponent.setSize(maxTaxaWidth*2, treeHeight);
             treeComponent.paintComponent(g);
             width -= 2.0*maxTaxaWidth;
             xdelta = 2*maxTaxaWidth;
             g.translate(0, -ytrans);
 
-            taxa2Draw = treeComponent.getTips2Draw();
-            assert taxa2Draw.length == alignment.ntaxa();
-        }
+            updateTaxa2Draw(treeComponent.getTips2Draw());
+        } else
+            updateTaxa2Draw(alignment.getTaxaNames());
 
         int maxWidth = 0;
         int[] sWidth = new int[taxa2Draw.length];
@@ -174,43 +183,81 @@ public class AlignmentComponent extends JComponent {
             if (sWidth[i] > maxWidth) maxWidth = sWidth[i];
         }
 
-        double w = (width - maxWidth - spacer) / (double) visibleNChar();
-
-        int ascent = g.getFontMetrics().getAscent();
-        double ydelta = (h - ascent) / 2.0 + ascent;
-
-        List<String> algTaxaNames = Arrays.asList(alignment.taxaNames());
-        // draw alignment
-        for (int i = 0; i < taxa2Draw.length; i++) {
-            double y = i * h;
-
-            if (!isShowingTree()) {
-                g.setColor(Color.black);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, width + xdelta, height);
+
+        if (!isShowingTree()) {
+            int ascent = g.getFontMetrics().getAscent();
+            double ydelta = (h - ascent) / 2.0 + ascent;
+            // only draw the names in the clip
+            int first = Math.max(0, (int) Math.floor((clip.y - h) / h));
+            int last = Math.min(taxa2Draw.length - 1, (int) Math.ceil((clip.y + clip.height) / h));
+            g.setColor(Color.black);
+            for (int i = first; i <= last; i++) {
+                double y = i * h;
                 g.drawString(taxa2Draw[i], maxWidth-sWidth[i]+xdelta,(int)Math.round(y+ydelta));
             }
+        }
 
-            for (int j = 0; j < visibleNChar(); j++) {
-                // need to adjust id according to what taxa order is used.
-                int adjustedId = algTaxaNames.indexOf(taxa2Draw[i]);
+        // draw alignment from the image tiles
+        int x0 = xdelta + maxWidth + spacer;
+        int matrixWidth = width - maxWidth - spacer;
+        if (matrixWidth > 0 && height > 0)
+            drawTiles(g2d, clip, x0, matrixWidth, height);
 
-                int state = alignment.getState(adjustedId, j);
-//                int col = SequenceTypeFactory.getColourIndex(state, alignment.getSequenceType());
-                Color c = ColourPalette.getColour(state, colors);
+        g.translate(-insets.left, -insets.top);
 
-                if (alignment instanceof ErrorAlignment && showErrorsIfAvailable
-                        && ((ErrorAlignment)alignment).isError(adjustedId,j)) {
-                    c = new Color(255-c.getRed(), 255-c.getGreen(), 255-c.getBlue());
-                }
+    }
 
-                g.setColor(c);
+    private void updateTaxa2Draw(String[] taxaNames) {
+        if (taxa2Draw != null && Arrays.equals(taxa2Draw, taxaNames)) return;
+        taxa2Draw = taxaNames;
+        // map to the taxa index in alignment once
+        List<String> algTaxaNames = Arrays.asList(alignment.taxaNames());
+        rows = new int[taxa2Draw.length];
+        for (int i = 0; i < taxa2Draw.length; i++)
+            rows[i] = algTaxaNames.indexOf(taxa2Draw[i]);
+    }
 
-                Rectangle2D rect2D = new Rectangle2D.Double(j * w + xdelta + maxWidth + spacer, y, w, h * 0.95);
+    // blit the tiles intersecting the clip, the missing tiles are rendered in background
+    private void drawTiles(Graphics2D g2d, Rectangle clip, int x0, int matrixWidth, int matrixHeight) {
+        // the pixels per unit in HiDPI screen
+        double scale = Math.max(1.0, g2d.getTransform().getScaleX());
+        int width = (int) Math.ceil(matrixWidth * scale);
+        int height = (int) Math.ceil(matrixHeight * scale);
 
-                g2d.fill(rect2D);
+        if (tileCache == null || !tileCache.isSameZoom(rows, showErrorsIfAvailable, width, height)) {
+            if (tileCache != null) tileCache.dispose();
+            tileCache = new AlignmentTileCache(alignment, rows, colors, showErrorsIfAvailable, width, height);
+        }
+        final AlignmentTileCache cache = tileCache;
+        final double tileSize = AlignmentTileCache.TILE_SIZE / scale;
+
+        int txFrom = Math.max(0, (int) Math.floor((clip.x - x0) / tileSize));
+        int txTo = Math.min(cache.getTileCountX() - 1, (int) Math.floor((clip.x + clip.width - x0) / tileSize));
+        int tyFrom = Math.max(0, (int) Math.floor(clip.y / tileSize));
+        int tyTo = Math.min(cache.getTileCountY() - 1, (int) Math.floor((clip.y + clip.height) / tileSize));
+
+        for (int ty = tyFrom; ty <= tyTo; ty++) {
+            for (int tx = txFrom; tx <= txTo; tx++) {
+                BufferedImage tile;
+                if (isDisplayable()) {
+                    tile = cache.getTile(tx, ty, () -> {
+                        // only repaint if the zoom level is not changed
+                        if (cache == tileCache) repaint();
+                    });
+                } else // painted into other components, or into image
+                    tile = cache.getTileNow(tx, ty);
+
+                if (tile != null) {
+                    double x = x0 + tx * tileSize;
+                    double y = ty * tileSize;
+                    g2d.drawImage(tile, (int) Math.round(x), (int) Math.round(y),
+                            (int) Math.round(x + tile.getWidth() / scale) - (int) Math.round(x),
+                            (int) Math.round(y + tile.getHeight() / scale) - (int) Math.round(y), null);
+                }
             }
         }
-        g.translate(-insets.left, -insets.top);
-
     }
 
     boolean isShowingTree() {
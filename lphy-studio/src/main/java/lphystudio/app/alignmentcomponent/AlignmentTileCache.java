@@ -0,0 +1,230 @@
+package lphystudio.app.alignmentcomponent;
+
+import lphy.base.evolution.alignment.Alignment;
+import lphy.base.evolution.alignment.ErrorAlignment;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The pre-rasterised image tiles of an alignment matrix at one zoom level,
+ * which are rendered in background threads from the states of the alignment.
+ * Each pixel is coloured by the cell at its centre, if a cell is not smaller than a pixel,
+ * otherwise by the average colour of the cells covered by the pixel.
+ * The least recently used tiles are discarded, if there are too many.
+ */
+class AlignmentTileCache {
+
+    static final int TILE_SIZE = 256;
+    // 256 tiles of 256 * 256 ARGB take 64 MB
+    static final int MAX_TILES = 256;
+    // the max number of cells sampled per pixel in each dimension when zoomed out,
+    // which are at the middles of equal intervals to avoid aliasing with periodic sites
+    static final int MAX_SAMPLES = 16;
+    // leave the gap between rows if the rows are not thinner than this in pixels
+    static final double MIN_ROW_HEIGHT_FOR_GAP = 4;
+
+    private static final ExecutorService RENDERER = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), r -> {
+                Thread thread = new Thread(r, "alignment-tile-renderer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    final Alignment alignment;
+    // the taxon index in the alignment of each row to draw
+    final int[] rows;
+    final boolean showErrors;
+    // the size of the whole matrix in pixels
+    final int width;
+    final int height;
+
+    // colours of states, where the last is for the unknown states
+    private final int[] argb;
+    private final int[] errorArgb;
+
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean disposed = false;
+
+    AlignmentTileCache(Alignment alignment, int[] rows, Color[] colors, boolean showErrors, int width, int height) {
+        this.alignment = alignment;
+        this.rows = rows;
+        this.showErrors = showErrors && alignment instanceof ErrorAlignment;
+        this.width = width;
+        this.height = height;
+
+        argb = new int[colors.length + 1];
+        errorArgb = new int[colors.length + 1];
+        for (int i = 0; i <= colors.length; i++) {
+            Color c = i < colors.length ? colors[i] : ColourPalette.UNKNOWN;
+            argb[i] = c.getRGB();
+            errorArgb[i] = new Color(255 - c.getRed(), 255 - c.getGreen(), 255 - c.getBlue()).getRGB();
+        }
+    }
+
+    /**
+     * @return true if the tiles are rendered for the same rows, colours and size.
+     */
+    boolean isSameZoom(int[] rows, boolean showErrors, int width, int height) {
+        return this.width == width && this.height == height &&
+                this.showErrors == (showErrors && alignment instanceof ErrorAlignment) &&
+                Arrays.equals(this.rows, rows);
+    }
+
+    int getTileCountX() {
+        return (width + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    int getTileCountY() {
+        return (height + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    private static long key(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xffffffffL);
+    }
+
+    /**
+     * Get the tile if it is cached, otherwise render it in background.
+     * @param onRendered  called in the rendering thread after the tile is cached, such as repaint.
+     * @return  the tile, or null if it is not rendered yet.
+     */
+    BufferedImage getTile(int tx, int ty, Runnable onRendered) {
+        final long key = key(tx, ty);
+        synchronized (tiles) {
+            BufferedImage tile = tiles.get(key);
+            if (tile != null) return tile;
+        }
+        if (pending.add(key)) {
+            RENDERER.execute(() -> {
+                try {
+                    if (disposed) return;
+                    BufferedImage tile = renderTile(tx, ty);
+                    synchronized (tiles) {
+                        tiles.put(key, tile);
+                    }
+                } finally {
+                    pending.remove(key);
+                }
+                if (!disposed) onRendered.run();
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Get the tile, which is rendered in the current thread if it is not cached.
+     */
+    BufferedImage getTileNow(int tx, int ty) {
+        final long key = key(tx, ty);
+        synchronized (tiles) {
+            BufferedImage tile = tiles.get(key);
+            if (tile != null) return tile;
+        }
+        BufferedImage tile = renderTile(tx, ty);
+        synchronized (tiles) {
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Stop rendering the tiles not started yet.
+     */
+    void dispose() {
+        disposed = true;
+    }
+
+    BufferedImage renderTile(int tx, int ty) {
+        final int x0 = tx * TILE_SIZE;
+        final int y0 = ty * TILE_SIZE;
+        final int w = Math.min(TILE_SIZE, width - x0);
+        final int h = Math.min(TILE_SIZE, height - y0);
+        final int nchar = alignment.nchar();
+        final int nrow = rows.length;
+
+        final double sitesPerPixel = (double) nchar / width;
+        final double rowsPerPixel = (double) nrow / height;
+        final double rowHeight = 1.0 / rowsPerPixel;
+        final boolean gap = rowHeight >= MIN_ROW_HEIGHT_FOR_GAP;
+
+        // the range of sites covered by each pixel column in this tile
+        int[] siteFrom = new int[w];
+        int[] siteTo = new int[w];
+        for (int i = 0; i < w; i++) {
+            int px = x0 + i;
+            if (sitesPerPixel <= 1) {
+                siteFrom[i] = Math.min(nchar - 1, (int) ((px + 0.5) * sitesPerPixel));
+                siteTo[i] = siteFrom[i] + 1;
+            } else {
+                siteFrom[i] = (int) (px * sitesPerPixel);
+                siteTo[i] = Math.max(siteFrom[i] + 1, Math.min(nchar, (int) ((px + 1) * sitesPerPixel)));
+            }
+        }
+
+        int[] pixels = new int[w * h];
+        for (int j = 0; j < h; j++) {
+            int py = y0 + j;
+            int rowFrom, rowTo;
+            if (rowsPerPixel <= 1) {
+                rowFrom = Math.min(nrow - 1, (int) ((py + 0.5) * rowsPerPixel));
+                rowTo = rowFrom + 1;
+                // the gap between rows, which is 5% of the row height
+                if (gap && (py + 0.5) - rowFrom * rowHeight > 0.95 * rowHeight)
+                    continue;
+            } else {
+                rowFrom = (int) (py * rowsPerPixel);
+                rowTo = Math.max(rowFrom + 1, Math.min(nrow, (int) ((py + 1) * rowsPerPixel)));
+            }
+            final int rowSpan = rowTo - rowFrom;
+            final int rowSamples = Math.min(rowSpan, MAX_SAMPLES);
+
+            for (int i = 0; i < w; i++) {
+                if (rowTo - rowFrom == 1 && siteTo[i] - siteFrom[i] == 1) {
+                    pixels[j * w + i] = getARGB(rows[rowFrom], siteFrom[i]);
+                } else {
+                    // summarise the cells covered by the pixel
+                    final int siteSpan = siteTo[i] - siteFrom[i];
+                    final int siteSamples = Math.min(siteSpan, MAX_SAMPLES);
+                    int r = 0, g = 0, b = 0, n = 0;
+                    for (int k = 0; k < rowSamples; k++) {
+                        int row = rowFrom + (int) ((k + 0.5) * rowSpan / rowSamples);
+                        for (int l = 0; l < siteSamples; l++) {
+                            int site = siteFrom[i] + (int) ((l + 0.5) * siteSpan / siteSamples);
+                            int c = getARGB(rows[row], site);
+                            r += (c >> 16) & 0xff;
+                            g += (c >> 8) & 0xff;
+                            b += c & 0xff;
+                            n++;
+                        }
+                    }
+                    pixels[j * w + i] = 0xff000000 | ((r / n) << 16) | ((g / n) << 8) | (b / n);
+                }
+            }
+        }
+
+        BufferedImage tile = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        tile.setRGB(0, 0, w, h, pixels, 0, w);
+        return tile;
+    }
+
+    private int getARGB(int taxon, int site) {
+        int state = alignment.getState(taxon, site);
+        int col = state >= 0 && state < argb.length - 1 ? state : argb.length - 1;
+        if (showErrors && ((ErrorAlignment) alignment).isError(taxon, site))
+            return errorArgb[col];
+        return argb[col];
+    }
+}
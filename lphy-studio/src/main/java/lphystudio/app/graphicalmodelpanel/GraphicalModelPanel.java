@@ -4,11 +4,13 @@ import jebl.evolution.sequences.SequenceType;
 import lphy.core.codebuilder.CanonicalCodeBuilder;
 import lphy.core.exception.SimulatorParsingException;
 import lphy.core.logger.LoggerUtils;
+import lphy.core.logger.TextFileFormatted;
 import lphy.core.model.*;
 import lphy.core.parser.LPhyParserDictionary;
 import lphy.core.parser.graphicalmodel.GraphicalModel;
 import lphy.core.parser.graphicalmodel.GraphicalModelListener;
 import lphy.core.simulator.Sampler;
+import lphy.core.simulator.SamplingMonitor;
 import lphy.core.simulator.SimulatorListener;
 import lphy.core.vectorization.VectorizedFunction;
 import lphystudio.app.alignmentcomponent.AlignmentComponent;
@@ -20,6 +22,7 @@ import lphystudio.app.treecomponent.TimeTreeExtraPlotComponent;
 import lphystudio.core.codecolorizer.LineCodeColorizer;
 import lphystudio.core.editor.UndoManagerHelper;
 import lphystudio.core.layeredgraph.Layering;
+import lphystudio.core.logger.AlignmentTextArea;
 import lphystudio.core.swing.TidyComboBox;
 import lphystudio.core.swing.TidyTextField;
 import lphystudio.core.valueeditor.Abstract2DEditor;
@@ -37,8 +40,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.*;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The main panel to include prob graphical model,
@@ -62,6 +68,8 @@ public class GraphicalModelPanel extends JPanel {
     JLabel repsLabel = new JLabel("reps:");
     JTextField repsField = new TidyTextField("1", 4);
     public JButton sampleButton;
+    // stop sampling after the current replicate
+    JButton stopButton = new JButton("Stop");
     JCheckBox showConstantNodes = new JCheckBox("Show constants");
     JComboBox<Layering> layeringAlgorithm = new TidyComboBox<>(new Layering[]{
             new Layering.LongestPathFromSinks(), new Layering.LongestPathFromSources()
@@ -104,6 +112,12 @@ public class GraphicalModelPanel extends JPanel {
         sampleButton = new JButton("Sample");
         sampleButton.setToolTipText(LPhyParserDictionary.Utils.SAMPLE_FROM_PARSER);
         buttonPanel.add(sampleButton);
+        stopButton.setToolTipText("Stop sampling after the current replicate");
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(e -> {
+            if (samplingWorker != null) samplingWorker.stop();
+        });
+        buttonPanel.add(stopButton);
 
         buttonPanel.add(new JLabel(" Layering:"));
         buttonPanel.add(layeringAlgorithm);
@@ -244,40 +258,189 @@ public class GraphicalModelPanel extends JPanel {
         }
     }
 
+    /**
+     * @return true if the values are being sampled in the parser dictionary,
+     *         when the model cannot be edited.
+     */
+    public boolean isSampling() {
+        return samplingWorker != null && !samplingWorker.isDone();
+    }
+
+    // the interpreters and value editors are disabled while sampling
+    private void setEditable(boolean editable) {
+        dataInterpreter.setEditable(editable);
+        modelInterpreter.setEditable(editable);
+        setValueEditorsEditable(rightPane.currentSelectionContainer.getViewport().getView(), editable);
+    }
+
+    private static void setValueEditorsEditable(Component component, boolean editable) {
+        if (component instanceof JTextField textField)
+            textField.setEditable(editable);
+        else if (component instanceof Container container) {
+            for (Component child : container.getComponents())
+                setValueEditorsEditable(child, editable);
+        }
+    }
+
     private void startLongRunningTask() {
-        // Create a SwingWorker to perform the calculations
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                // Make the progress bar visible
-                SwingUtilities.invokeLater(() -> progressBar.setVisible(true));
-
-                // Simulate long-running task
-//                for (int i = 0; i <= 100; i++) {
-//                    Thread.sleep(50); // Simulate work
-//                    setProgress(i); // Update progress
-//                }
-                sample(getReps(), progressBar);
-                return null;
-            }
+        if (isSampling()) return;
+        // Sample in a background thread, so that the UI is responsive and sampling can be stopped
+        samplingWorker = new SamplingWorker(getReps());
+        samplingWorker.execute();
+    }
 
-            @Override
-            protected void process(java.util.List<Void> chunks) {
-                // Update the progress bar
-                progressBar.setValue(getProgress());
-            }
+    // the current sampling task
+    private SamplingWorker samplingWorker;
 
-            @Override
-            protected void done() {
-                // Task is done, reset the progress bar
-//                progressBar.setVisible(false);
-//                progressBar.setValue(0);
-//                JOptionPane.showMessageDialog(component, "Task completed!");
+    /**
+     * Sample replicates off the event dispatch thread. The result of every replicate is streamed
+     * to the loggers on the event dispatch thread, and then released,
+     * except of the values required by "Save Alignments to Directory".
+     * The replicates are sampled in sequence, because the {@link Sampler} resamples the values
+     * in the same parser dictionary using the global random number generator.
+     * The model cannot be edited or loaded until sampling is done.
+     */
+    private class SamplingWorker extends SwingWorker<Integer, Void> implements SamplingMonitor {
+
+        final int reps;
+        // not SwingWorker#cancel, which calls done() before the loggers are completed
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        final long start = System.currentTimeMillis();
+        final String id;
+
+        SamplingWorker(int reps) {
+            this.reps = reps;
+            // show current selected value after sampling
+            if (displayedElement instanceof Value && !((Value) displayedElement).isAnonymous()) {
+                id = ((Value) displayedElement).getId();
+            } else id = null;
+
+            sampleButton.setEnabled(false);
+            repsField.setEnabled(false);
+            stopButton.setEnabled(true);
+            setEditable(false);
+            progressBar.setValue(0);
+            progressBar.setString(null);
+            progressBar.setVisible(true);
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName()))
+                    progressBar.setValue((Integer) evt.getNewValue());
+            });
+        }
+
+        void stop() {
+            stopped.set(true);
+            stopButton.setEnabled(false);
+        }
+
+        @Override
+        public boolean isStopped() {
+            return stopped.get();
+        }
+
+        @Override
+        public void replicateSampled(int index, int numReplicates) {
+            setProgress(Math.min(100, 100 * (index + 1) / numReplicates));
+        }
+
+        @Override
+        protected Integer doInBackground() {
+            // key is the replicate index, value is the result required to save alignments
+            Map<Integer, List<Value>> exportedValuesMap = new ConcurrentSkipListMap<>();
+            valuesAllRepsMap = exportedValuesMap;
+
+            // add Loggers here, to trigger after click Sample button
+            List<SimulatorListener> loggers = new ArrayList<>();
+            // the loggers are Swing components, so call them in the order of replicates on the EDT
+            for (SimulatorListener logger : rightPane.getGUISimulatorListener())
+                loggers.add(new EventDispatchListener(logger));
+            loggers.add(new ExportedValuesCollector(exportedValuesMap));
+
+            // GraphicalModelSampler notifies listeners in ParserDictionary
+            Sampler sampler = new GraphicalModelSampler(component.getParserDictionary());
+            // shown in the Profile tab, null unless the tab is shown
+            sampler.setProfiler(rightPane.getProfiler());
+            // Sampler use the lphy code in component.getParser(), and output results to loggers
+            // if null then use a random seed
+            return sampler.sampleAll(reps, loggers, null, this);
+        }
+
+        @Override
+        protected void done() {
+            int sampled = 0;
+            try {
+                sampled = get();
+            } catch (InterruptedException | ExecutionException e) {
+                LoggerUtils.log.severe("Sampling failed : " + e.getCause());
+                LoggerUtils.logStackTrace(e);
             }
-        };
+            showSampledValues(id);
+
+            long end = System.currentTimeMillis();
+            LoggerUtils.log.info("sample(" + sampled + "/" + reps + ") took " + (end - start) + " ms.");
 
-        // Execute the worker thread
-        worker.execute();
+            // refresh all viewerComponent
+            rightPane.refresh();
+
+            if (sampled < reps) progressBar.setString(sampled + " / " + reps);
+            else progressBar.setValue(100);
+            stopButton.setEnabled(false);
+            repsField.setEnabled(true);
+            sampleButton.setEnabled(true);
+            setEditable(true);
+        }
+    }
+
+    /**
+     * Forward the calls to a {@link SimulatorListener} to the event dispatch thread in order.
+     */
+    private static class EventDispatchListener implements SimulatorListener {
+        final SimulatorListener listener;
+
+        EventDispatchListener(SimulatorListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void start(Object... configs) {
+            SwingUtilities.invokeLater(() -> listener.start(configs));
+        }
+
+        @Override
+        public void replicate(int index, List<Value> values) {
+            SwingUtilities.invokeLater(() -> listener.replicate(index, values));
+        }
+
+        @Override
+        public void complete() {
+            SwingUtilities.invokeLater(listener::complete);
+        }
+    }
+
+    /**
+     * Only keep the simulated alignments and the values loggable into a file of every replicate,
+     * which are required by "Save Alignments to Directory".
+     */
+    private class ExportedValuesCollector implements SimulatorListener {
+        final Map<Integer, List<Value>> exportedValuesMap;
+
+        ExportedValuesCollector(Map<Integer, List<Value>> exportedValuesMap) {
+            this.exportedValuesMap = exportedValuesMap;
+        }
+
+        @Override
+        public void start(Object... configs) { }
+
+        @Override
+        public void replicate(int index, List<Value> values) {
+            Set<Value> exported = new LinkedHashSet<>(
+                    AlignmentTextArea.getSimulatedAlignmentValues(values, component.getParserDictionary()));
+            exported.addAll(TextFileFormatted.getLoggableValues(values, TextFileFormatted.class));
+            exportedValuesMap.put(index, new ArrayList<>(exported));
+        }
+
+        @Override
+        public void complete() { }
     }
 
     public JProgressBar getProgressBar() {
@@ -296,6 +459,10 @@ public class GraphicalModelPanel extends JPanel {
      * @param reader
      */
     public void source(BufferedReader reader) {
+        if (isSampling()) {
+            LoggerUtils.log.warning("Cannot load the model while sampling, please wait or stop sampling !");
+            return;
+        }
 
         LPhyParserDictionary metaData = component.getParserDictionary();
 
@@ -347,38 +514,16 @@ public class GraphicalModelPanel extends JPanel {
         return reps;
     }
 
-    // Key is the replicate index, value is the result of each replicate.
+    // Key is the replicate index, value is the simulated alignments and the values loggable into a file
+    // of each replicate, other values are not kept.
     Map<Integer, List<Value>> valuesAllRepsMap;
 
     public Map<Integer, List<Value>> getValuesAllRepsMap() {
         return valuesAllRepsMap;
     }
 
-    private void sample(int reps, JProgressBar progressBar) {
-        sampleButton.setEnabled(false);
-        progressBar.setValue(0);
-
-        long start = System.currentTimeMillis();
-
-        // add Loggers here, to trigger after click Sample button
-        List<SimulatorListener> loggers = rightPane.getGUISimulatorListener();
-
-        String id = null;
-        if (displayedElement instanceof Value && !((Value) displayedElement).isAnonymous()) {
-            id = ((Value) displayedElement).getId();
-        }
-
-        progressBar.setValue(5);
-        // GraphicalModelSampler notifies listeners in ParserDictionary
-        Sampler sampler = new GraphicalModelSampler(component.getParserDictionary());
-        progressBar.setValue(10);
-        // Sampler use the lphy code in component.getParser(), and output results to loggers
-        // if null then use a random seed
-        valuesAllRepsMap = sampler.sampleAll(reps, loggers, null);
-//        this.sampler = sampler;
-        progressBar.setValue(90);
-
-        // refresh graphical nodes
+    // refresh graphical nodes and show the sampled values, which must be called on the EDT
+    private void showSampledValues(String id) {
         component.modelChanged();
 
         // show current selected value
@@ -397,16 +542,6 @@ public class GraphicalModelPanel extends JPanel {
                 }
             }
         }
-        long end = System.currentTimeMillis();
-        LoggerUtils.log.info("sample(" + reps + ") took " + (end - start) + " ms.");
-
-        progressBar.setValue(95);
-
-        // refresh all viewerComponent
-        rightPane.refresh();
-
-        progressBar.setValue(100);
-        sampleButton.setEnabled(true);
     }
 
     void showValue(Value value) {
@@ -494,6 +629,7 @@ public class GraphicalModelPanel extends JPanel {
             viewer = viewerPanel;
         }
 
+        if (isSampling()) setValueEditorsEditable(viewer, false);
         rightPane.currentSelectionContainer.setViewportView(viewer);
         rightPane.currentSelectionContainer.setBorder(
                 BorderFactory.createTitledBorder(
@@ -600,6 +736,10 @@ public class GraphicalModelPanel extends JPanel {
      * clear panel, parser, and interpreters
      */
     public void clear() {
+        if (isSampling()) {
+            LoggerUtils.log.warning("Cannot clear the model while sampling, please wait or stop sampling !");
+            return;
+        }
         dataInterpreter.clear();
         modelInterpreter.clear();
         component.clear();
@@ -4,13 +4,16 @@ import lphy.core.model.Value;
 import lphy.core.parser.LPhyParserDictionary;
 import lphy.core.parser.graphicalmodel.GraphicalModelChangeListener;
 import lphy.core.simulator.Sampler;
+import lphy.core.simulator.SamplingMonitor;
 import lphy.core.simulator.SimulatorListener;
 
+import javax.swing.*;
 import java.util.List;
-import java.util.Map;
 
 /**
- * Sampler for graphical model, which notifies {@link GraphicalModelChangeListener}
+ * Sampler for graphical model, which notifies {@link GraphicalModelChangeListener}.
+ * The sampling can run in a background thread, such as a {@link SwingWorker},
+ * but the listeners are Swing components, so they are always notified on the event dispatch thread.
  */
 public class GraphicalModelSampler extends Sampler {
 
@@ -24,18 +27,25 @@ public class GraphicalModelSampler extends Sampler {
     @Override
     public List<Value> sample(Long seed) {
         List<Value> res = super.sample(seed);
-        parserDictionary.notifyListeners();
+        notifyListeners();
         return res;
     }
 
     @Override
-    public Map<Integer, List<Value>> sampleAll(int numReplicates,
-                                               List<? extends SimulatorListener> loggers, Long seed) {
-        Map<Integer, List<Value>> res = super.sampleAll(numReplicates, loggers, seed);
-        parserDictionary.notifyListeners();
+    public int sampleAll(int numReplicates, List<? extends SimulatorListener> loggers,
+                         Long seed, SamplingMonitor monitor) {
+        int res = super.sampleAll(numReplicates, loggers, seed, monitor);
+        notifyListeners();
         return res;
     }
 
+    private void notifyListeners() {
+        if (SwingUtilities.isEventDispatchThread())
+            parserDictionary.notifyListeners();
+        else
+            SwingUtilities.invokeLater(parserDictionary::notifyListeners);
+    }
+
     @Override
     public LPhyParserDictionary getParserDictionary() {
         return this.parserDictionary;
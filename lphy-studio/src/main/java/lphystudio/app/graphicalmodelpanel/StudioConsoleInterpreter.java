@@ -57,6 +57,9 @@ public class StudioConsoleInterpreter extends JPanel {
 
     Map<String, String> canonicalWords = new TreeMap<>();
 
+    // false while sampling, which changes the parser dictionary in another thread
+    private boolean editable = true;
+
     /** command history **/
     private List<String> commandsHistory = new ArrayList<>();
     private int currCMD = -1;
@@ -270,7 +273,19 @@ public class StudioConsoleInterpreter extends JPanel {
         return words[words.length - 1];
     }
 
+    /**
+     * @param editable  false to reject the input, such as when sampling.
+     */
+    public void setEditable(boolean editable) {
+        this.editable = editable;
+        interpreterField.setEditable(editable);
+    }
+
     public void interpretInput(String input, LPhyParserDictionary.Context context) {
+        if (!editable) {
+            LoggerUtils.log.warning("Cannot change the model while sampling, please wait or stop sampling !");
+            return;
+        }
 
         try {
             // if set to data block from studio using button,
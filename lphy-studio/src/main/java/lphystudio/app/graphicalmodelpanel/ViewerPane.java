@@ -1,8 +1,10 @@
 package lphystudio.app.graphicalmodelpanel;
 
+import lphy.core.simulator.GeneratorProfiler;
 import lphy.core.simulator.SimulatorListener;
 import lphystudio.app.graphicalmodelcomponent.GraphicalModelComponent;
 import lphystudio.core.logger.AlignmentTextArea;
+import lphystudio.core.logger.GeneratorProfileTable;
 import lphystudio.core.logger.TreeTextArea;
 import lphystudio.core.logger.VariableSummaryTable;
 import lphystudio.core.logger.VariableTextArea;
@@ -35,11 +37,17 @@ public class ViewerPane extends JTabbedPane {
 
     ErrorPanel errorPanel;
 
+    JSplitPane profilePane;
+
     VariableSummaryTable variableSummary = new VariableSummaryTable();//true, true
     VariableTextArea variableTextArea = new VariableTextArea();//true, true
     TreeTextArea treeTextArea = new TreeTextArea();
     AlignmentTextArea alignmentTextArea;
 
+    GeneratorProfiler profiler = new GeneratorProfiler();
+    GeneratorProfileTable generatorProfile = new GeneratorProfileTable(profiler, false);
+    GeneratorProfileTable valueProfile = new GeneratorProfileTable(profiler, true);
+
     JComponent[] viewerComponent = new JComponent[Viewer.values().length];
 
     JMenu viewerMenu = new JMenu("View");
@@ -63,6 +71,7 @@ public class ViewerPane extends JTabbedPane {
         Variable_Log("Variable Log"),
         Tree_Log ("Tree Log"),
         Alignment_Log ("Alignment"),
+        Profile ("Profile"),
         Errors ("Errors");
 
         public String name;
@@ -101,6 +110,10 @@ public class ViewerPane extends JTabbedPane {
 
         errorPanel = new ErrorPanel();
 
+        profilePane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(generatorProfile), new JScrollPane(valueProfile));
+        profilePane.setResizeWeight(0.5);
+
         viewerComponent[Viewer.Current.ordinal()] = currentSelectionContainer;
         viewerComponent[Viewer.Constants.ordinal()] = valueScrollPane;
         viewerComponent[Viewer.Variables.ordinal()] = variablesScrollPane;
@@ -111,6 +124,7 @@ public class ViewerPane extends JTabbedPane {
         viewerComponent[Viewer.Variable_Log.ordinal()] = variableLogScrollPane;
         viewerComponent[Viewer.Tree_Log.ordinal()] = treeLogScrollPane;
         viewerComponent[Viewer.Alignment_Log.ordinal()] = alignmentLogPanel;
+        viewerComponent[Viewer.Profile.ordinal()] = profilePane;
         viewerComponent[Viewer.Errors.ordinal()] = errorPanel;
 
         for (Viewer viewer : Viewer.values()) {
@@ -144,7 +158,17 @@ public class ViewerPane extends JTabbedPane {
     }
 
     public List<SimulatorListener> getGUISimulatorListener() {
-        return List.of(variableTextArea, treeTextArea, variableSummary, alignmentTextArea);
+        return List.of(variableTextArea, treeTextArea, variableSummary, alignmentTextArea,
+                generatorProfile, valueProfile);
+    }
+
+    /**
+     * Profiling is opt-in, which is enabled by showing the Profile tab from the View menu.
+     * @return the profiler of the generators, whose results are shown in the Profile tab,
+     *         or null if the Profile tab is hidden.
+     */
+    public GeneratorProfiler getProfiler() {
+        return getShowViewer(Viewer.Profile) ? profiler : null;
     }
 
     @Deprecated
@@ -169,7 +193,8 @@ public class ViewerPane extends JTabbedPane {
     }
 
     static boolean getShowViewer(Viewer viewer) {
-        return preferences.getBoolean("show" + viewer.name, true);
+        // the profiling has overhead, so the Profile tab is hidden by default
+        return preferences.getBoolean("show" + viewer.name, viewer != Viewer.Profile);
     }
 
     void setShowViewer(boolean show, Viewer viewer) {
@@ -8,20 +8,27 @@ import lphystudio.app.FontUtils;
 import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.*;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
-import java.awt.geom.Rectangle2D;
+import java.awt.geom.*;
+import java.awt.image.BufferedImage;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.*;
 import java.util.prefs.Preferences;
 
 /**
+ * The node coordinates are computed once per tree, and the tree is rendered into a cached image,
+ * which is only redrawn when the size or the settings changed.
+ * For large trees, the clades outside of the visible area are culled,
+ * and the clades narrower than a pixel are collapsed into a line.
  * @author Alexei Drummond
  */
 public class TimeTreeComponent extends JComponent {
 
+    // collapse the clade narrower than this in pixels
+    static final double COLLAPSE_PIXELS = 1.0;
+    // do not draw leaf labels if tips are closer than this in pixels
+    static final double MIN_LABEL_SPACING = 2.0;
+
     static Preferences preferences = Preferences.userNodeForPackage(TimeTreeComponent.class);
 
     TimeTreeDrawing treeDrawing;
@@ -57,6 +64,55 @@ public class TimeTreeComponent extends JComponent {
 
     List<String> tips2Draw = null;
 
+    // the canonical coordinates computed once per tree
+    private NodeLayout rootLayout;
+    // the nodes drawn without collapsing, which are decorated after the branches
+    final List<NodeLayout> visibleNodes = new ArrayList<>();
+    private static final NodeLayout[] NO_CHILDREN = new NodeLayout[0];
+
+    // the back buffer and the state when it was rendered
+    private BufferedImage buffer;
+    private Rectangle bufferRect;
+    private Rectangle2D bufferBounds;
+    private double bufferScale;
+    private Font bufferFont;
+
+    // the max width of leaf labels, and the font to measure it
+    private int maxLabelWidth;
+    private Font labelFont;
+
+    // reused during drawing
+    private AffineTransform transform;
+    private double tipAxisScale;
+    private final double[] src = new double[6];
+    private final double[] dst = new double[6];
+    private final Line2D.Double line = new Line2D.Double();
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+    private final Rectangle2D.Double rectangle = new Rectangle2D.Double();
+
+    /**
+     * The canonical coordinates of a node and the range of its clade.
+     */
+    private static final class NodeLayout {
+        final TimeTreeNode node;
+        final NodeLayout[] children;
+        // the canonical position and height of the node
+        final double x, y;
+        // the range of canonical positions and the minimum height in the clade
+        final double xMin, xMax, yMin;
+
+        NodeLayout(TimeTreeNode node, NodeLayout[] children, double x, double y,
+                   double xMin, double xMax, double yMin) {
+            this.node = node;
+            this.children = children;
+            this.x = x;
+            this.y = y;
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.yMin = yMin;
+        }
+    }
+
     public TimeTreeComponent() {
     }
 
@@ -77,6 +133,7 @@ public class TimeTreeComponent extends JComponent {
     public void setBorder(Border border) {
         super.setBorder(border);
         borderSet = true;
+        clearCache();
     }
 
     public void setTimeTree(TimeTree timeTree) {
@@ -87,6 +144,9 @@ public class TimeTreeComponent extends JComponent {
         if (tree.getRoot().getMetaData(StructuredCoalescent.populationLabel) != null) {
             setColorTraitName(StructuredCoalescent.populationLabel);
         }
+        computeLayout();
+        labelFont = null;
+        clearCache();
     }
 
     public TimeTree getTimeTree() {
@@ -176,7 +236,53 @@ public class TimeTreeComponent extends JComponent {
         }
     }
 
-    void drawNode(Point2D p, Graphics2D g, NodeDecorator decorator) {
+    /**
+     * Compute the canonical coordinates of all nodes and the order of tips to draw,
+     * which only needs to be done once per tree.
+     */
+    void computeLayout() {
+        TimeTreeNode root = tree.getRoot();
+        p = 0.0; // canonical positioning goes from 0 to 1.
+        setTipValues(root);
+        positionInternalNodes(root);
+
+        //TODO only available for StructuredCoalescent demes now
+        if (root.getMetaData(StructuredCoalescent.populationLabel) != null) {
+            uniqueMetaData.clear();
+            getUniqueMetaData(StructuredCoalescent.populationLabel, root, uniqueMetaData);
+        }
+
+        tips2Draw = new ArrayList<>();
+        rootLayout = createLayout(root);
+    }
+
+    private NodeLayout createLayout(TimeTreeNode node) {
+        double x = getCanonicalNodeX(node);
+        double y = getCanonicalNodeY(node.getAge());
+        if (node.isLeaf()) {
+            tips2Draw.add(node.getId());
+            return new NodeLayout(node, NO_CHILDREN, x, y, x, x, y);
+        }
+        List<TimeTreeNode> childNodes = node.getChildren();
+        NodeLayout[] children = new NodeLayout[childNodes.size()];
+        double xMin = (Double) node.getMetaData("p_min");
+        double xMax = (Double) node.getMetaData("p_max");
+        double yMin = y;
+        for (int i = 0; i < children.length; i++) {
+            children[i] = createLayout(childNodes.get(i));
+            if (children[i].yMin < yMin) yMin = children[i].yMin;
+        }
+        return new NodeLayout(node, children, x, y, xMin, xMax, yMin);
+    }
+
+    /**
+     * Clear the cached image, so the tree is redrawn at the next repaint.
+     */
+    public void clearCache() {
+        buffer = null;
+    }
+
+    void drawNode(double x, double y, Graphics2D g, NodeDecorator decorator) {
 
         double nodeSize = decorator.getNodeSize();
 
@@ -185,16 +291,18 @@ public class TimeTreeComponent extends JComponent {
 
         switch (decorator.getNodeShape()) {
             case circle:
-                shape = new Ellipse2D.Double(p.getX() - halfSize, p.getY() - halfSize, nodeSize, nodeSize);
+                ellipse.setFrame(x - halfSize, y - halfSize, nodeSize, nodeSize);
+                shape = ellipse;
                 break;
             case square:
-                shape = new Rectangle2D.Double(p.getX() - halfSize, p.getY() - halfSize, nodeSize, nodeSize);
+                rectangle.setFrame(x - halfSize, y - halfSize, nodeSize, nodeSize);
+                shape = rectangle;
                 break;
             case triangle:
                 Path2D path = new Path2D.Double();
-                path.moveTo(p.getX(), p.getY() - halfSize);
-                path.lineTo(p.getX() + halfSize, p.getY() + halfSize);
-                path.lineTo(p.getX() - halfSize, p.getY() + halfSize);
+                path.moveTo(x, y - halfSize);
+                path.lineTo(x + halfSize, y + halfSize);
+                path.lineTo(x - halfSize, y + halfSize);
                 path.closePath();
                 shape = path;
             default:
@@ -245,7 +353,30 @@ public class TimeTreeComponent extends JComponent {
         return orientation.getTransform(bounds).transform(canonicalPoint2D, null);
     }
 
-    final void drawBranch(TimeTreeNode node, TimeTreeNode childNode, Graphics2D g) {
+    // transform the canonical node point into dst[0], dst[1]
+    private void transformNode(NodeLayout layout) {
+        src[0] = layout.x;
+        src[1] = layout.y;
+        transform.transform(src, 0, dst, 0, 1);
+    }
+
+    // the transformed bounding box of the canonical rectangle intersects the clip,
+    // which works because all orientations are rotations and flips by right angles
+    private boolean intersects(Rectangle2D clip, double x0, double y0, double x1, double y1) {
+        if (clip == null) return true;
+        src[0] = x0;
+        src[1] = y0;
+        src[2] = x1;
+        src[3] = y1;
+        transform.transform(src, 0, dst, 0, 2);
+        double minX = Math.min(dst[0], dst[2]);
+        double minY = Math.min(dst[1], dst[3]);
+        return clip.intersects(minX, minY, Math.max(dst[0], dst[2]) - minX, Math.max(dst[1], dst[3]) - minY);
+    }
+
+    final void drawBranch(NodeLayout layout, NodeLayout childLayout, Graphics2D g) {
+        TimeTreeNode node = layout.node;
+        TimeTreeNode childNode = childLayout.node;
 
         if (colorTraitName != null) {
             int childColorIndex = getIntegerTrait(childNode, colorTraitName);
@@ -254,16 +385,49 @@ public class TimeTreeComponent extends JComponent {
 
             if (childColorIndex == parentColorIndex && node.getChildren().size() == 1) {
                 System.out.println("Parent and single child have same state!!");
-                drawNode(getTransformedNodePoint2D(node), g, NodeDecorator.BLACK_DOT);
+                transformNode(layout);
+                drawNode(dst[0], dst[1], g, NodeDecorator.BLACK_DOT);
             }
 
             g.setColor(traitColorTable.getColor(childColorIndex));
         }
 
-        Shape shape = branchStyle.getBranchShape(getCanonicalNodePoint2D(childNode), getCanonicalNodePoint2D(node));
-        Shape transformed = orientation.getTransform(bounds).createTransformedShape(shape);
+        if (branchStyle == BranchStyle.SQUARE || branchStyle == BranchStyle.LINE) {
+            // transform points, rather than creating and transforming shapes
+            src[0] = childLayout.x;
+            src[1] = childLayout.y;
+            src[2] = childLayout.x;
+            src[3] = layout.y;
+            src[4] = layout.x;
+            src[5] = layout.y;
+            transform.transform(src, 0, dst, 0, 3);
+            if (branchStyle == BranchStyle.SQUARE) {
+                line.setLine(dst[0], dst[1], dst[2], dst[3]);
+                g.draw(line);
+                line.setLine(dst[2], dst[3], dst[4], dst[5]);
+            } else
+                line.setLine(dst[0], dst[1], dst[4], dst[5]);
+            g.draw(line);
+        } else {
+            Shape shape = branchStyle.getBranchShape(new Point2D.Double(childLayout.x, childLayout.y),
+                    new Point2D.Double(layout.x, layout.y));
+            g.draw(transform.createTransformedShape(shape));
+        }
+    }
 
-        g.draw(transformed);
+    // draw the clade narrower than a pixel as a line from the node to its youngest tip
+    private void drawCollapsedClade(NodeLayout layout, Graphics2D g) {
+        if (colorTraitName != null) {
+            int colorIndex = getIntegerTrait(layout.node, colorTraitName);
+            if (colorIndex >= 0) g.setColor(traitColorTable.getColor(colorIndex));
+        }
+        src[0] = layout.x;
+        src[1] = layout.y;
+        src[2] = layout.x;
+        src[3] = layout.yMin;
+        transform.transform(src, 0, dst, 0, 2);
+        line.setLine(dst[0], dst[1], dst[2], dst[3]);
+        g.draw(line);
     }
 
     private void getUniqueMetaData(String traitName, TimeTreeNode node, List<Object> uniqueMetaData) {
@@ -308,114 +472,133 @@ public class TimeTreeComponent extends JComponent {
         return -1;
     }
 
-    final void drawNodeLabel(TimeTreeNode node, Graphics2D g) {
+    final void drawNodeLabel(NodeLayout layout, Graphics2D g) {
+        TimeTreeNode node = layout.node;
 
         if (node.getId() != null) {
 
-            Point2D nodePoint = getTransformedNodePoint2D(node);
+            transformNode(layout);
 
             if (colorTraitName != null) {
                 int colorIndex = getIntegerTrait(node, colorTraitName);
                 if (colorIndex >= 0) g.setColor(traitColorTable.getColor(colorIndex));
             }
-            treeDrawing.drawString(node.getId(), nodePoint.getX(), nodePoint.getY(), g);
+            treeDrawing.drawString(node.getId(), dst[0], dst[1], g);
         }
     }
 
     /**
-     * Draws the tree
-     *
-     * @param treeDrawing
-     * @param node
-     * @param g
+     * Draws the clade, which is culled if it is outside the clip,
+     * or collapsed if it is narrower than a pixel.
      */
-    void draw(TimeTreeDrawing treeDrawing, TimeTreeNode node, Graphics2D g) {
+    void drawClade(NodeLayout layout, Rectangle2D clip, boolean showLabels, Graphics2D g) {
+        if (!intersects(clip, layout.xMin, layout.yMin, layout.xMax, layout.y))
+            return;
 
-        TimeTree tree = treeDrawing.getTree();
-
-        g.setStroke(new BasicStroke((float) treeDrawing.getLineThickness()));
-
-        p = 0.0; // canonical positioning goes from 0 to 1.
-
-        if (node.isRoot()) {
-            setTipValues(node);
-            positionInternalNodes(node);
-
-            //TODO only available for StructuredCoalescent demes now
-            if (node.getMetaData(StructuredCoalescent.populationLabel) != null) {
-                uniqueMetaData.clear();
-                getUniqueMetaData(StructuredCoalescent.populationLabel, node, uniqueMetaData);
-            }
+        if (layout.children.length > 0 && (layout.xMax - layout.xMin) * tipAxisScale < COLLAPSE_PIXELS) {
+            drawCollapsedClade(layout, g);
+            return;
+        }
+        visibleNodes.add(layout);
 
-            tips2Draw = new ArrayList<>();
+        if (showLabels) {
+            drawNodeLabel(layout, g);
         }
 
-        if (treeDrawing.showLeafLabels()) {
-            drawNodeLabel(node, g);
+        for (NodeLayout child : layout.children) {
+            drawClade(child, clip, showLabels, g);
         }
 
-        if (!node.isLeaf()) {
+        for (NodeLayout child : layout.children) {
+            if (intersects(clip, Math.min(child.x, layout.x), child.y, Math.max(child.x, layout.x), layout.y))
+                drawBranch(layout, child, g);
+        }
+    }
 
-            for (TimeTreeNode childNode : node.getChildren()) {
-                draw(treeDrawing, childNode, g);
-            }
+    /**
+     * Draws the tree
+     * @param g     graphics, which is translated to the insets
+     * @param clip  the area to draw, or null to draw the whole tree
+     */
+    void drawTree(Graphics2D g, Rectangle2D clip) {
+        if (rootLayout == null) computeLayout();
 
-            for (TimeTreeNode childNode : node.getChildren()) {
+        g.setStroke(new BasicStroke((float) treeDrawing.getLineThickness()));
 
-                drawBranch(node, childNode, g);
-            }
+        transform = orientation.getTransform(bounds);
+        // the pixels per unit of canonical tip position
+        tipAxisScale = Math.hypot(transform.getScaleX(), transform.getShearY());
+        boolean showLabels = treeDrawing.showLeafLabels() &&
+                getCanonicalNodeSpacing(tree) * tipAxisScale >= MIN_LABEL_SPACING;
+
+        Rectangle2D cullClip = null;
+        if (clip != null) {
+            // labels are drawn outside the nodes
+            int fontHeight = g.getFontMetrics().getHeight();
+            cullClip = new Rectangle2D.Double(clip.getX() - maxLabelWidth - fontHeight, clip.getY() - fontHeight,
+                    clip.getWidth() + 2 * (maxLabelWidth + fontHeight), clip.getHeight() + 2 * fontHeight);
         }
 
+        visibleNodes.clear();
+        drawClade(rootLayout, cullClip, showLabels, g);
+
         // finally draw all the node decorations
-        if (node.isRoot()) {
-            // decorate single child nodes
-            for (TimeTreeNode aNode : tree.getNodes()) {
-                if (aNode.getChildCount() == 1 && !aNode.isRoot()) {
-                    drawNode(getTransformedPoint2D(getCanonicalNodePoint2D(aNode)), g, NodeDecorator.BLACK_DOT);
-                }
+        // decorate single child nodes
+        for (NodeLayout layout : visibleNodes) {
+            if (layout.children.length == 1 && !layout.node.isRoot()) {
+                transformNode(layout);
+                drawNode(dst[0], dst[1], g, NodeDecorator.BLACK_DOT);
             }
+        }
 
-            if (leafDecorator != null) {
-                for (TimeTreeNode aNode : tree.getNodes()) {
-                    if (leafDecorator != null && aNode.isLeaf()) {
-                        drawNode(getTransformedPoint2D(getCanonicalNodePoint2D(aNode)), g, leafDecorator);
-                    }
-                    if (internalNodeDecorator != null && !aNode.isLeaf()) {
-                        drawNode(getTransformedPoint2D(getCanonicalNodePoint2D(aNode)), g, internalNodeDecorator);
-                    }
-
+        if (leafDecorator != null) {
+            for (NodeLayout layout : visibleNodes) {
+                transformNode(layout);
+                if (layout.node.isLeaf()) {
+                    drawNode(dst[0], dst[1], g, leafDecorator);
+                }
+                if (internalNodeDecorator != null && !layout.node.isLeaf()) {
+                    drawNode(dst[0], dst[1], g, internalNodeDecorator);
                 }
             }
-            if (showNodeIndices) {
-                for (TimeTreeNode aNode : tree.getNodes()) {
-                    if (!aNode.isLeaf()) {
-                        Point2D p = getTransformedPoint2D(getCanonicalNodePoint2D(aNode));
-                        g.setColor(Color.blue);
-                        g.drawString(aNode.getIndex() + "", (int) p.getX(), (int) p.getY());
-                        g.setColor(Color.black);
-                    }
+        }
+        if (showNodeIndices) {
+            for (NodeLayout layout : visibleNodes) {
+                if (!layout.node.isLeaf()) {
+                    transformNode(layout);
+                    g.setColor(Color.blue);
+                    g.drawString(layout.node.getIndex() + "", (int) dst[0], (int) dst[1]);
+                    g.setColor(Color.black);
                 }
             }
         }
-        if (node.isLeaf()) tips2Draw.add(node.getId());
     }
 
-    public void paintComponent(Graphics g) {
-
-        if (!borderSet) {
-            int maxWidth = 0;
+    // the max width of leaf labels is only measured once per font
+    private int getMaxLabelWidth(Graphics g) {
+        if (labelFont == null || !labelFont.equals(g.getFont())) {
+            labelFont = g.getFont();
             FontMetrics metrics = g.getFontMetrics();
+            maxLabelWidth = 0;
             for (TimeTreeNode node : tree.getNodes()) {
                 if (node.getId() != null) {
                     int stringWidth = metrics.stringWidth(node.getId());
-                    if (stringWidth > maxWidth) maxWidth = stringWidth;
+                    if (stringWidth > maxLabelWidth) maxLabelWidth = stringWidth;
                 }
             }
+        }
+        return maxLabelWidth;
+    }
+
+    public void paintComponent(Graphics g) {
+
+        int maxWidth = getMaxLabelWidth(g);
+        if (!borderSet) {
+            FontMetrics metrics = g.getFontMetrics();
             setBorder(BorderFactory.createEmptyBorder(metrics.getHeight() / 2 + 1, 1, metrics.getHeight() / 2 + 1, maxWidth));
         }
 
         Insets insets = getInsets();
-        g.translate(insets.left, insets.top);
         int width = getWidth() - insets.left - insets.right;
         int height = getHeight() - insets.top - insets.bottom;
 
@@ -423,10 +606,41 @@ public class TimeTreeComponent extends JComponent {
 
         Graphics2D g2d = (Graphics2D) g;
 
-        TimeTree tree = treeDrawing.getTree();
+        if (!isDisplayable()) {
+            // painted into other components, such as AlignmentComponent, so no cache
+            g.translate(insets.left, insets.top);
+            drawTree(g2d, null);
+            g.translate(-insets.left, -insets.top);
+            return;
+        }
 
-        draw(treeDrawing, tree.getRoot(), g2d);
-        g.translate(-insets.left, -insets.top);
+        Rectangle visible = getVisibleRect();
+        if (visible.isEmpty()) return;
+        // the pixels per unit in HiDPI screen
+        double scale = Math.max(1.0, g2d.getTransform().getScaleX());
+
+        if (buffer == null || !visible.equals(bufferRect) || !bounds.equals(bufferBounds) ||
+                scale != bufferScale || !g.getFont().equals(bufferFont)) {
+            buffer = new BufferedImage((int) Math.ceil(visible.width * scale),
+                    (int) Math.ceil(visible.height * scale), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D bufferGraphics = buffer.createGraphics();
+            bufferGraphics.setRenderingHints(g2d.getRenderingHints());
+            bufferGraphics.setFont(g.getFont());
+            bufferGraphics.setColor(g.getColor());
+            bufferGraphics.scale(scale, scale);
+            bufferGraphics.translate(insets.left - visible.x, insets.top - visible.y);
+
+            Rectangle2D clip = new Rectangle2D.Double(visible.x - insets.left, visible.y - insets.top,
+                    visible.width, visible.height);
+            drawTree(bufferGraphics, clip);
+            bufferGraphics.dispose();
+
+            bufferRect = visible;
+            bufferBounds = bounds;
+            bufferScale = scale;
+            bufferFont = g.getFont();
+        }
+        g.drawImage(buffer, visible.x, visible.y, visible.width, visible.height, null);
     }
 
     public void setCaption(String caption) {
@@ -435,10 +649,12 @@ public class TimeTreeComponent extends JComponent {
 
     public void setColorTraitName(String colorTraitName) {
         this.colorTraitName = colorTraitName;
+        clearCache();
     }
 
     public void setTraitColorTable(ColorTable colorTable) {
         this.traitColorTable = colorTable;
+        clearCache();
     }
 
     public String[] getTips2Draw() {
@@ -0,0 +1,125 @@
+package lphystudio.core.logger;
+
+import lphy.core.model.Value;
+import lphy.core.simulator.GeneratorProfiler;
+import lphy.core.simulator.SimulatorListener;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The table of the cost of generators recorded by {@link GeneratorProfiler} during sampling,
+ * either per generator name or per value id.
+ */
+public class GeneratorProfileTable extends JTable implements SimulatorListener {
+
+    final GeneratorProfiler profiler;
+    final boolean byValueId;
+
+    List<GeneratorProfiler.Record> records = new ArrayList<>();
+
+    AbstractTableModel tableModel;
+
+    public GeneratorProfileTable(GeneratorProfiler profiler, boolean byValueId) {
+        this.profiler = profiler;
+        this.byValueId = byValueId;
+
+        tableModel = new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return records.size();
+            }
+
+            @Override
+            public int getColumnCount() {
+                return 6;
+            }
+
+            @Override
+            public String getColumnName(int columnIndex) {
+                switch (columnIndex) {
+                    case 0:
+                        return byValueId ? "Value" : "Generator";
+                    case 1:
+                        return "Calls";
+                    case 2:
+                        return "Total (ms)";
+                    case 3:
+                        return "Mean (μs)";
+                    case 4:
+                        return "Max (μs)";
+                    case 5:
+                        return "Allocated (KB)";
+                }
+                return "";
+            }
+
+            @Override
+            public Class<?> getColumnClass(int columnIndex) {
+                switch (columnIndex) {
+                    case 0:
+                        return String.class;
+                    case 1:
+                        return Long.class;
+                    case 2:
+                    case 3:
+                    case 4:
+                    case 5:
+                        return Double.class;
+                }
+                return Object.class;
+            }
+
+            @Override
+            public boolean isCellEditable(int rowIndex, int columnIndex) {
+                return false;
+            }
+
+            @Override
+            public Object getValueAt(int rowIndex, int columnIndex) {
+                GeneratorProfiler.Record record = records.get(rowIndex);
+                switch (columnIndex) {
+                    case 0:
+                        return record.getName();
+                    case 1:
+                        return record.getCalls();
+                    case 2:
+                        return record.getTotalNanos() / 1e6;
+                    case 3:
+                        return record.getMeanNanos() / 1e3;
+                    case 4:
+                        return record.getMaxNanos() / 1e3;
+                    case 5:
+                        return record.getAllocatedBytes() < 0 ? Double.NaN : record.getAllocatedBytes() / 1024.0;
+                }
+                return "";
+            }
+        };
+
+        setModel(tableModel);
+        setAutoCreateRowSorter(true);
+    }
+
+    public GeneratorProfiler getProfiler() {
+        return profiler;
+    }
+
+    @Override
+    public void start(Object... configs) {
+        // only profile the latest sampling
+        profiler.reset();
+    }
+
+    @Override
+    public void replicate(int index, List<Value> values) {
+
+    }
+
+    @Override
+    public void complete() {
+        records = byValueId ? profiler.getValueRecords() : profiler.getGeneratorRecords();
+        tableModel.fireTableDataChanged();
+    }
+}
@@ -1,7 +1,12 @@
 package lphystudio.core.logger;
 
+import lphy.core.logger.StreamingSummary;
+
 import java.util.List;
 
+/**
+ * Use {@link StreamingSummary} which summarises values per replicate.
+ */
 @Deprecated
 public class Summary {
 
@@ -16,61 +21,46 @@ public class Summary {
     public Summary(List<Double[]> values) {
         boolean allSameLength = allSameLength(values);
 
+        StreamingSummary[] summaries;
         if (allSameLength) {
             int length = values.get(0).length;
-
-            mean = new double[length];
-            stdev = new double[length];
-            stderr = new double[length];
-            min = new double[length];
-            max = new double[length];
-
-            for (int i = 0; i < length; i++) {
-                min[i] = Double.POSITIVE_INFINITY;
-                max[i] = Double.NEGATIVE_INFINITY;
-            }
-
+            summaries = newSummaries(length);
+            // one pass
             for (Double[] val : values) {
-                for (int i = 0; i < length; i++) {
-                    mean[i] += val[i];
-                    if (val[i] < min[i]) min[i] = val[i];
-                    if (val[i] > max[i]) max[i] = val[i];
-                }
-            }
-            for (int i = 0; i < length; i++) {
-                mean[i] /= values.size();
-            }
-
-            for (Double[] val : values) {
-                for (int i = 0; i < length; i++) {
-                    stdev[i] += (val[i] - mean[i]) * (val[i] - mean[i]);
-                }
+                for (int i = 0; i < length; i++)
+                    summaries[i].add(val[i]);
             }
+            min = new double[length];
+            max = new double[length];
             for (int i = 0; i < length; i++) {
-                stdev[i] = Math.sqrt(stdev[i] / values.size());
-                stderr[i] = stdev[i] / Math.sqrt(values.size());
+                min[i] = summaries[i].getMin();
+                max[i] = summaries[i].getMax();
             }
         } else {
-            mean = new double[1];
-            stdev = new double[1];
-            stderr = new double[1];
-
-            for (Double[] doubles : values) {
-                mean[0] += doubles.length;
-            }
-            mean[0] /= values.size();
+            summaries = newSummaries(1);
+            for (Double[] doubles : values)
+                summaries[0].add(doubles.length);
+        }
 
-            for (Double[] doubles : values) {
-                double val = doubles.length;
-                stdev[0] += (val - mean[0]) * (val - mean[0]);
-            }
-            stdev[0] = Math.sqrt(stdev[0] / values.size());
-            stderr[0] = stdev[0] / Math.sqrt(values.size());
+        mean = new double[summaries.length];
+        stdev = new double[summaries.length];
+        stderr = new double[summaries.length];
+        for (int i = 0; i < summaries.length; i++) {
+            mean[i] = summaries[i].getMean();
+            stdev[i] = Math.sqrt(summaries[i].getPopulationVariance());
+            stderr[i] = stdev[i] / Math.sqrt(values.size());
         }
 
         isLengthSummary = !allSameLength;
     }
 
+    private static StreamingSummary[] newSummaries(int length) {
+        StreamingSummary[] summaries = new StreamingSummary[length];
+        for (int i = 0; i < length; i++)
+            summaries[i] = new StreamingSummary();
+        return summaries;
+    }
+
     public int getRowCount() {
         return mean.length;
     }
@@ -1,16 +1,21 @@
 package lphystudio.core.logger;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import lphy.core.logger.StreamingSummary;
 
 public class ValueRow {
 
+    public static final double HPD_MASS = 0.95;
+
     public final String title;
-    public final DescriptiveStatistics stats;
+    public final StreamingSummary stats;
     public final int row;
+    // computed once from the quantile sketch
+    public final double[] hpd;
 
-    public ValueRow(String title, int row, DescriptiveStatistics stats) {
+    public ValueRow(String title, int row, StreamingSummary stats) {
         this.title = title;
         this.stats = stats;
         this.row = row;
+        this.hpd = stats.getHPD(HPD_MASS);
     }
 }
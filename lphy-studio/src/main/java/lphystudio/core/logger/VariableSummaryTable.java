@@ -1,15 +1,15 @@
 package lphystudio.core.logger;
 
-import lphy.core.logger.RandomNumberLoggerListener;
+import lphy.core.logger.RandomNumberSummaryListener;
+import lphy.core.logger.StreamingSummary;
 import lphy.core.model.Value;
 import lphy.core.simulator.SimulatorListener;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class VariableSummaryTable extends JTable implements SimulatorListener {
 
@@ -18,7 +18,8 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
 
     List<ValueRow> valueRows = new ArrayList<>();
 
-    final RandomNumberLoggerListener randomNumberLogger;
+    // summarise the values per replicate, without keeping them
+    final RandomNumberSummaryListener randomNumberLogger;
 
     AbstractTableModel tableModel;
 
@@ -26,7 +27,7 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
 
 //        this.logStatistics = logStatistics;
 //        this.logVariables = logVariables;
-        randomNumberLogger = new RandomNumberLoggerListener();//logVariables, logStatistics
+        randomNumberLogger = new RandomNumberSummaryListener();//logVariables, logStatistics
 
         tableModel = new AbstractTableModel() {
             @Override
@@ -36,7 +37,7 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
 
             @Override
             public int getColumnCount() {
-                return 6;
+                return 8;
             }
 
             @Override
@@ -54,6 +55,10 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
                         return "Min";
                     case 5:
                         return "Max";
+                    case 6:
+                        return "95% HPD lower";
+                    case 7:
+                        return "95% HPD upper";
                 }
                 return "";
             }
@@ -68,6 +73,8 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
                     case 3:
                     case 4:
                     case 5:
+                    case 6:
+                    case 7:
                         return Double.class;
                 }
                 return Object.class;
@@ -106,7 +113,7 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
                     case 3:
                         if (valueRow != null) {
                             // standard err of the mean
-                            return valueRow.stats.getStandardDeviation() / Math.sqrt(valueRow.stats.getN());
+                            return valueRow.stats.getStandardError();
                         } else {
                             return Double.NaN;
                         }
@@ -122,6 +129,18 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
                         } else {
                             return Double.NaN;
                         }
+                    case 6:
+                        if (valueRow != null) {
+                            return valueRow.hpd[0];
+                        } else {
+                            return Double.NaN;
+                        }
+                    case 7:
+                        if (valueRow != null) {
+                            return valueRow.hpd[1];
+                        } else {
+                            return Double.NaN;
+                        }
                 }
                 return "";
             }
@@ -144,28 +163,21 @@ public class VariableSummaryTable extends JTable implements SimulatorListener {
 
     @Override
     public void complete() {
+        valueRows.clear();
 
         List<String> headers = randomNumberLogger.getHeaders();
+        Map<String, StreamingSummary> summariesById = randomNumberLogger.getSummariesById();
         for (int i = 0; i < headers.size(); i++) {
             String id = headers.get(i);
             if (id == null) {
                 throw new RuntimeException("Not expecting null id in variable summary!");
             }
-            List<Double> randomNumbers = randomNumberLogger.getFormattedValuesById().get(id);
-
-            //TODO use Apache
-            DescriptiveStatistics stats = new SynchronizedDescriptiveStatistics();
-            // Add the data
-            for (int j = 0; j < randomNumbers.size(); j++) {
-                stats.addValue(randomNumbers.get(j));
-            }
-
-            valueRows.add(new ValueRow(id, i, stats));
-
+            StreamingSummary stats = summariesById.get(id);
+            if (stats != null)
+                valueRows.add(new ValueRow(id, i, stats));
         }
 
         tableModel.fireTableDataChanged();
     }
 
-
 }
@@ -0,0 +1,79 @@
+package lphystudio.app.alignmentcomponent;
+
+import jebl.evolution.sequences.SequenceType;
+import lphy.base.evolution.Taxa;
+import lphy.base.evolution.alignment.SimpleAlignment;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlignmentTileCacheTest {
+
+    final Color[] colors = ColourPalette.getFourPlusOne();
+
+    private int[] identityRows(int ntaxa) {
+        int[] rows = new int[ntaxa];
+        for (int i = 0; i < ntaxa; i++) rows[i] = i;
+        return rows;
+    }
+
+    @Test
+    public void testZoomedIn() {
+        // taxon i has state i at all sites
+        int[][] states = new int[4][10];
+        for (int i = 0; i < 4; i++)
+            java.util.Arrays.fill(states[i], i);
+        SimpleAlignment alignment = new SimpleAlignment(Taxa.createTaxa(4), states, SequenceType.NUCLEOTIDE);
+
+        // reverse the order of rows
+        int[] rows = new int[]{3, 2, 1, 0};
+        AlignmentTileCache cache = new AlignmentTileCache(alignment, rows, colors, false, 100, 160);
+        assertEquals(1, cache.getTileCountX());
+        assertEquals(1, cache.getTileCountY());
+
+        BufferedImage tile = cache.getTileNow(0, 0);
+        assertEquals(100, tile.getWidth());
+        assertEquals(160, tile.getHeight());
+        for (int r = 0; r < 4; r++) {
+            // the middle of row r
+            assertEquals(colors[rows[r]].getRGB(), tile.getRGB(50, r * 40 + 20));
+            // the gap at the bottom of each row
+            assertEquals(0, tile.getRGB(50, r * 40 + 39));
+        }
+        assertTrue(cache.isSameZoom(rows, false, 100, 160));
+        assertFalse(cache.isSameZoom(identityRows(4), false, 100, 160));
+    }
+
+    @Test
+    public void testZoomedOutSummarised() {
+        final int ntaxa = 1000;
+        final int nchar = 30000;
+        // alternate state 0 and 1 by sites
+        SimpleAlignment alignment = new SimpleAlignment(Taxa.createTaxa(ntaxa), nchar, SequenceType.NUCLEOTIDE);
+        for (int i = 0; i < ntaxa; i++)
+            for (int j = 0; j < nchar; j++)
+                alignment.setState(i, j, j % 2);
+
+        final int width = 600;
+        final int height = 300;
+        AlignmentTileCache cache = new AlignmentTileCache(alignment, identityRows(ntaxa), colors, false, width, height);
+        assertEquals(3, cache.getTileCountX());
+        assertEquals(2, cache.getTileCountY());
+
+        // the last tile is cut to the size
+        BufferedImage tile = cache.getTileNow(2, 1);
+        assertEquals(width - 2 * AlignmentTileCache.TILE_SIZE, tile.getWidth());
+        assertEquals(height - AlignmentTileCache.TILE_SIZE, tile.getHeight());
+
+        // the average of state 0 and 1
+        Color c0 = colors[0];
+        Color c1 = colors[1];
+        Color pixel = new Color(tile.getRGB(10, 10));
+        assertEquals((c0.getRed() + c1.getRed()) / 2, pixel.getRed(), 1);
+        assertEquals((c0.getGreen() + c1.getGreen()) / 2, pixel.getGreen(), 1);
+        assertEquals((c0.getBlue() + c1.getBlue()) / 2, pixel.getBlue(), 1);
+    }
+}
@@ -0,0 +1,74 @@
+package lphystudio.app.treecomponent;
+
+import lphy.base.evolution.coalescent.Coalescent;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.core.model.Value;
+import lphy.core.simulator.RandomUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeTreeComponentTest {
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("java.awt.headless", "true");
+        RandomUtils.setSeed(777);
+    }
+
+    private TimeTree simulateTree(int n) {
+        Coalescent coalescent = new Coalescent(new Value<>(null, 1.0), new Value<>(null, n), null);
+        return coalescent.sample().value();
+    }
+
+    // not TimeTreeComponent(TimeTree), which requires a screen
+    private TimeTreeComponent createComponent(int n) {
+        TimeTreeComponent component = new TimeTreeComponent();
+        component.setTimeTree(simulateTree(n));
+        return component;
+    }
+
+    private int paint(TimeTreeComponent component, int width, int height) {
+        component.setSize(width, height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+        g.setColor(Color.black);
+        component.paintComponent(g);
+        g.dispose();
+        return component.visibleNodes.size();
+    }
+
+    @Test
+    public void testSmallTreeNotCollapsed() {
+        final int n = 20;
+        TimeTreeComponent component = createComponent(n);
+
+        int visible = paint(component, 400, 400);
+        // all nodes are drawn
+        assertEquals(2 * n - 1, visible);
+
+        String[] tips = component.getTips2Draw();
+        assertEquals(n, tips.length);
+        assertEquals(n, new HashSet<>(Set.of(tips)).size());
+    }
+
+    @Test
+    public void testLargeTreeCollapsed() {
+        final int n = 20000;
+        final int height = 400;
+        TimeTreeComponent component = createComponent(n);
+
+        int visible = paint(component, 400, height);
+        // the tips to draw are not affected by collapsing clades
+        assertEquals(n, component.getTips2Draw().length);
+        // only the clades wider than a pixel are drawn
+        assertTrue(visible < 4 * height, "Too many nodes are drawn : " + visible);
+    }
+}
@@ -0,0 +1,166 @@
+package lphy.core.logger;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable streaming histogram (Ben-Haim and Tom-Tov, 2010) to approximate quantiles
+ * in one pass with bounded memory. The values are kept in at most <code>maxBins</code>
+ * bins of centroid and count, and the two closest bins are merged when it is full.
+ * The quantiles are exact while the number of distinct values is not greater than <code>maxBins</code>,
+ * which are interpolated in the same way as R type 7.
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_MAX_BINS = 128;
+
+    private final int maxBins;
+    // sorted by centroid, the extra slot is for the insertion before merging
+    private final double[] centroids;
+    private final long[] counts;
+    // true if the bin only has the same values, which is never merged
+    private final boolean[] exact;
+    private int size = 0;
+    private long n = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_MAX_BINS);
+    }
+
+    public QuantileSketch(int maxBins) {
+        if (maxBins < 2)
+            throw new IllegalArgumentException("The number of bins must be at least 2, but it is " + maxBins);
+        this.maxBins = maxBins;
+        centroids = new double[maxBins + 1];
+        counts = new long[maxBins + 1];
+        exact = new boolean[maxBins + 1];
+    }
+
+    /**
+     * @param x  the value to add, NaN is ignored.
+     */
+    public void add(double x) {
+        add(x, 1, true);
+    }
+
+    private void add(double x, long count, boolean isExact) {
+        if (Double.isNaN(x)) return;
+        n += count;
+        if (x < min) min = x;
+        if (x > max) max = x;
+
+        int i = Arrays.binarySearch(centroids, 0, size, x);
+        if (i >= 0) {
+            counts[i] += count;
+            exact[i] &= isExact;
+            return;
+        }
+        i = -i - 1;
+        System.arraycopy(centroids, i, centroids, i + 1, size - i);
+        System.arraycopy(counts, i, counts, i + 1, size - i);
+        System.arraycopy(exact, i, exact, i + 1, size - i);
+        centroids[i] = x;
+        counts[i] = count;
+        exact[i] = isExact;
+        size++;
+        if (size > maxBins)
+            mergeClosestBins();
+    }
+
+    private void mergeClosestBins() {
+        int closest = 0;
+        double minGap = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size - 1; i++) {
+            double gap = centroids[i + 1] - centroids[i];
+            if (gap < minGap) {
+                minGap = gap;
+                closest = i;
+            }
+        }
+        long count = counts[closest] + counts[closest + 1];
+        centroids[closest] = (centroids[closest] * counts[closest] +
+                centroids[closest + 1] * counts[closest + 1]) / count;
+        counts[closest] = count;
+        exact[closest] = false;
+        System.arraycopy(centroids, closest + 2, centroids, closest + 1, size - closest - 2);
+        System.arraycopy(counts, closest + 2, counts, closest + 1, size - closest - 2);
+        System.arraycopy(exact, closest + 2, exact, closest + 1, size - closest - 2);
+        size--;
+    }
+
+    /**
+     * Merge the other sketch into this, such as the partial results from parallel workers.
+     * @param other  the other sketch, which is not changed.
+     */
+    public void merge(QuantileSketch other) {
+        for (int i = 0; i < other.size; i++)
+            add(other.centroids[i], other.counts[i], other.exact[i]);
+        // keep the exact extremes, which may be merged into centroids
+        if (other.min < min) min = other.min;
+        if (other.max > max) max = other.max;
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @param p  the probability in [0, 1].
+     * @return  the approximate p-quantile, which is linearly interpolated
+     *          between the centroids, or NaN if there is no value.
+     */
+    public double getQuantile(double p) {
+        if (p < 0 || p > 1)
+            throw new IllegalArgumentException("The probability must be in [0, 1], but it is " + p);
+        if (n == 0) return Double.NaN;
+
+        // the rank of the p-quantile as for the data sorted in [0, n-1]
+        final double rank = p * (n - 1);
+        // the values of an exact bin take all its ranks,
+        // but a merged bin is only anchored at the middle of its ranks
+        double prevRank = 0;
+        double prevValue = min;
+        double cumulative = 0;
+        for (int i = 0; i < size; i++) {
+            double loRank = exact[i] ? cumulative : cumulative + (counts[i] - 1) / 2.0;
+            double hiRank = exact[i] ? cumulative + counts[i] - 1 : loRank;
+            if (rank <= loRank) {
+                if (loRank <= prevRank) return centroids[i];
+                return prevValue + (centroids[i] - prevValue) * (rank - prevRank) / (loRank - prevRank);
+            }
+            if (rank <= hiRank) return centroids[i];
+            prevRank = hiRank;
+            prevValue = centroids[i];
+            cumulative += counts[i];
+        }
+        final double lastRank = n - 1;
+        if (lastRank <= prevRank) return max;
+        return prevValue + (max - prevValue) * (rank - prevRank) / (lastRank - prevRank);
+    }
+
+    /**
+     * @param mass  the probability mass of the interval, such as 0.95.
+     * @return  the approximate highest posterior density (HPD) interval,
+     *          which is the shortest interval containing the mass,
+     *          or NaN if there is no value.
+     */
+    public double[] getHPD(double mass) {
+        if (mass <= 0 || mass > 1)
+            throw new IllegalArgumentException("The mass must be in (0, 1], but it is " + mass);
+        if (n == 0) return new double[]{Double.NaN, Double.NaN};
+
+        final int steps = 200;
+        double[] hpd = new double[]{getQuantile(0), getQuantile(mass)};
+        for (int i = 1; i <= steps; i++) {
+            double lowerP = (1 - mass) * i / steps;
+            double lower = getQuantile(lowerP);
+            double upper = getQuantile(Math.min(1, lowerP + mass));
+            if (upper - lower < hpd[1] - hpd[0]) {
+                hpd[0] = lower;
+                hpd[1] = upper;
+            }
+        }
+        return hpd;
+    }
+}
@@ -53,12 +53,7 @@ public class RandomNumberLoggerListener implements SimulatorListener {
 
     @Override
     public void replicate(int index, List<Value> values) {
-        if (index == 0) {
-            sampleCount = 0;
-            rowNames.clear();
-            headers.clear();
-            formattedValuesById.clear();
-        }
+        if (index == 0) reset();
 
         int n = 0;
         boolean isFirstValue = true;
@@ -88,9 +83,6 @@ public class RandomNumberLoggerListener implements SimulatorListener {
                             isFirstValue = false;
                         }
 
-                        // formatted value in string
-                        List<Double> formattedValues = formattedValuesById
-                                .computeIfAbsent(id, k -> new ArrayList<>());
                         // here require the original value if value is array,
                         // but return the formatted string at ith element
                         String body = formatter.format(value.value());
@@ -108,7 +100,7 @@ public class RandomNumberLoggerListener implements SimulatorListener {
                            else
                                throw new RuntimeException("Number is required, but " + body);
                         }
-                        formattedValues.add(num);
+                        log(id, num);
                     } else
                         throw new IllegalArgumentException("ValueFormatter cannot be null ! " +
                                 "Default ValueFormatter is not loaded properly !"); // end if
@@ -132,6 +124,25 @@ public class RandomNumberLoggerListener implements SimulatorListener {
 
     }
 
+    /**
+     * Clear the logged values before the 1st replicate.
+     */
+    protected void reset() {
+        sampleCount = 0;
+        rowNames.clear();
+        headers.clear();
+        formattedValuesById.clear();
+    }
+
+    /**
+     * Log the number of a value, or of an element in the array.
+     * @param id   the value id, which is appended by the index of the element if the value is array.
+     * @param num  the number converted from the formatted value.
+     */
+    protected void log(String id, Double num) {
+        formattedValuesById.computeIfAbsent(id, k -> new ArrayList<>()).add(num);
+    }
+
     public boolean isNamedRandomNumber(Value randomValue) {
         boolean random = NamedRandomValueSimulator.isNamedRandomValue(randomValue);
         boolean number = ValueUtils.isNumberOrNumberArray(randomValue) ||
@@ -0,0 +1,47 @@
+package lphy.core.logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summarise the number values of named random variables per replicate by {@link StreamingSummary},
+ * instead of keeping the values of all replicates as {@link RandomNumberLoggerListener}.
+ * So {@link #getFormattedValuesById()} is always empty.
+ */
+public class RandomNumberSummaryListener extends RandomNumberLoggerListener {
+
+    // the same order as headers
+    private final Map<String, StreamingSummary> summariesById = new LinkedHashMap<>();
+
+    public RandomNumberSummaryListener() {
+        super();
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        summariesById.clear();
+    }
+
+    @Override
+    protected void log(String id, Double num) {
+        summariesById.computeIfAbsent(id, k -> new StreamingSummary()).add(num);
+    }
+
+    /**
+     * Merge the summaries of the other listener into this,
+     * such as the results of the replicates simulated by parallel workers.
+     * @param other  the other listener, which is not changed.
+     */
+    public void merge(RandomNumberSummaryListener other) {
+        for (Map.Entry<String, StreamingSummary> entry : other.summariesById.entrySet())
+            summariesById.computeIfAbsent(entry.getKey(), k -> new StreamingSummary()).merge(entry.getValue());
+    }
+
+    /**
+     * @return the summary of every value id, if value is array, then id will be appended by index of the element.
+     */
+    public Map<String, StreamingSummary> getSummariesById() {
+        return summariesById;
+    }
+}
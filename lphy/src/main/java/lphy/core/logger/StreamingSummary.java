@@ -0,0 +1,127 @@
+package lphy.core.logger;
+
+/**
+ * One-pass summary statistics of a number variable, fed per replicate,
+ * using Welford's algorithm for the mean and variance, min and max,
+ * and a {@link QuantileSketch} for the quantiles and HPD interval.
+ * The memory does not grow with the number of replicates,
+ * and the summaries of partial replicates can be merged,
+ * such as the results from parallel workers.
+ */
+public class StreamingSummary {
+
+    private long n = 0;
+    private double mean = 0;
+    // the sum of squares of differences from the mean
+    private double m2 = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private final QuantileSketch sketch;
+
+    public StreamingSummary() {
+        this(QuantileSketch.DEFAULT_MAX_BINS);
+    }
+
+    /**
+     * @param maxBins  the maximum number of bins in the {@link QuantileSketch}.
+     */
+    public StreamingSummary(int maxBins) {
+        sketch = new QuantileSketch(maxBins);
+    }
+
+    /**
+     * @param x  the value to add, NaN is ignored, which is same as {@link QuantileSketch#add(double)}.
+     */
+    public void add(double x) {
+        if (Double.isNaN(x)) return;
+        n++;
+        final double delta = x - mean;
+        mean += delta / n;
+        m2 += delta * (x - mean);
+        if (x < min) min = x;
+        if (x > max) max = x;
+        sketch.add(x);
+    }
+
+    /**
+     * Merge the other summary into this (Chan et al.),
+     * which is same as adding the values of other summary to this.
+     * @param other  the other summary, which is not changed.
+     */
+    public void merge(StreamingSummary other) {
+        if (other.n == 0) return;
+        if (n == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+        } else {
+            final long total = n + other.n;
+            final double delta = other.mean - mean;
+            mean += delta * other.n / total;
+            m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+        }
+        n += other.n;
+        if (other.min < min) min = other.min;
+        if (other.max > max) max = other.max;
+        sketch.merge(other.sketch);
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public double getMean() {
+        return n > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * @return the sample variance, which is divided by (n - 1).
+     */
+    public double getVariance() {
+        if (n == 0) return Double.NaN;
+        return n > 1 ? m2 / (n - 1) : 0;
+    }
+
+    /**
+     * @return the population variance, which is divided by n.
+     */
+    public double getPopulationVariance() {
+        return n > 0 ? m2 / n : Double.NaN;
+    }
+
+    /**
+     * @return the sample standard deviation.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the standard error of the mean.
+     */
+    public double getStandardError() {
+        return getStandardDeviation() / Math.sqrt(n);
+    }
+
+    public double getMin() {
+        return n > 0 ? min : Double.NaN;
+    }
+
+    public double getMax() {
+        return n > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * @see QuantileSketch#getQuantile(double)
+     */
+    public double getQuantile(double p) {
+        return sketch.getQuantile(p);
+    }
+
+    /**
+     * @see QuantileSketch#getHPD(double)
+     */
+    public double[] getHPD(double mass) {
+        return sketch.getHPD(mass);
+    }
+}
@@ -28,11 +28,10 @@ public class  ValueFileLoggerListener implements SimulatorListener {
 
     /**
      * For ValuePerLine, the key represents the value id and is used for the file name.
-     * Each list of formatted value in string with the same value id is logged into a separate file,
-     * with each formatted value on its own line.
+     * Each formatted value with the same value id is streamed into a separate file,
+     * with each formatted value on its own line, when the replicate is simulated.
      */
-    Map<String, String[]> metadataById;
-    Map<String, List<String>> linesById;
+    Map<String, ValueFormatHandler.ValuePerLine.LineFile> lineFilesById;
 
     /**
      * For ValuePerCell, the column names are constructed in valuesByRepColNamesBuilder,
@@ -97,15 +96,10 @@ public class  ValueFileLoggerListener implements SimulatorListener {
      */
     @Override
     public void replicate(int index, List<Value> values) {
-        if (metadataById == null)
-            metadataById = new TreeMap<>(); // sort by value id
+        if (lineFilesById == null)
+            lineFilesById = new TreeMap<>(); // sort by value id
         else if (index < 1) // index starts from 0
-            metadataById.clear();
-
-        if (linesById == null)
-            linesById = new TreeMap<>(); // sort by index
-        else if (index < 1) // index starts from 0
-            linesById.clear();
+            closeLineFiles();
 
         if (index < 1) {
             valuesByRepBuilder = new StringBuilder();
@@ -170,13 +164,8 @@ public class  ValueFileLoggerListener implements SimulatorListener {
                                 .exportValuePerFile(index, value, formatter);
 
                     } else if (formatter.getMode() == ValueFormatter.Mode.VALUE_PER_LINE) {
-                        // process meta data given 1st value
-                        if (index == 0)
-                            ValueFormatHandler.ValuePerLine.processHeaderFooter(formatter,
-                                    metadataById, fileConfig.getFilePrefix());
-
-                        // e.g. Trees
-                        ValueFormatHandler.ValuePerLine.populateValues(index, value, formatter, linesById);
+                        // e.g. Trees, the file is created with the header given 1st value
+                        writeLine(index, value, formatter);
 
                     } else if (formatter.getMode() == ValueFormatter.Mode.VALUE_PER_CELL) {
                         // add col names and parameters values
@@ -197,8 +186,8 @@ public class  ValueFileLoggerListener implements SimulatorListener {
     @Override
     public void complete() {
 
-        if (linesById != null)
-            ValueFormatHandler.ValuePerLine.exportValuePerLine(linesById, metadataById);
+        if (lineFilesById != null)
+            closeLineFiles();
 
         if (! isStringBuilderEmpty(valuesByRepBuilder))
             // e.g. .log
@@ -207,6 +196,33 @@ public class  ValueFileLoggerListener implements SimulatorListener {
 
     }
 
+    private void writeLine(int index, Value value, ValueFormatter formatter) {
+        String id = formatter.getValueID();
+        try {
+            ValueFormatHandler.ValuePerLine.LineFile lineFile = lineFilesById.get(id);
+            if (lineFile == null) {
+                lineFile = new ValueFormatHandler.ValuePerLine.LineFile(formatter, fileConfig.getFilePrefix());
+                lineFilesById.put(id, lineFile);
+            }
+            lineFile.write(index, value);
+        } catch (IOException e) {
+            LoggerUtils.log.severe("Cannot write " + id + " to file : " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    // write footers and close
+    private void closeLineFiles() {
+        for (ValueFormatHandler.ValuePerLine.LineFile lineFile : lineFilesById.values()) {
+            try {
+                lineFile.close();
+            } catch (IOException e) {
+                LoggerUtils.log.severe("Cannot close file : " + lineFile.getFileName() + " !");
+            }
+        }
+        lineFilesById.clear();
+    }
+
     public static boolean isStringBuilderEmpty(StringBuilder stringBuilder) {
         if (stringBuilder == null) return true;
         String string = stringBuilder.toString();
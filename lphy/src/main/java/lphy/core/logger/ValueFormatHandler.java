@@ -4,6 +4,9 @@ import lphy.core.io.FileConfig;
 import lphy.core.io.OutputSystem;
 import lphy.core.model.Value;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +72,72 @@ public class ValueFormatHandler {
 
     public static class ValuePerLine {
 
+        /**
+         * The file of a value, where the formatted value of each replicate is written
+         * on its own line as soon as it is simulated, instead of keeping all lines in memory.
+         * The formatter of the 1st replicate writes the header, all lines and the footer.
+         */
+        public static class LineFile implements Closeable {
+
+            static final int BUFFER_SIZE = 1 << 16;
+
+            final ValueFormatter formatter;
+            final String fileName;
+            final Writer writer;
+
+            /**
+             * Create the file and write the header.
+             * @param formatter   the formatter of the 1st replicate.
+             * @param filePrefix  the prefix of the file name.
+             */
+            public LineFile(ValueFormatter formatter, String filePrefix) throws IOException {
+                this.formatter = formatter;
+                // file name, e.g. _psi.trees
+                fileName = FileConfig.getOutFileName(formatter.getValueID(), filePrefix, formatter.getExtension());
+                File outputFile = OutputSystem.getOutputFile(fileName, true);
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        Files.newOutputStream(outputFile.toPath()), StandardCharsets.UTF_8), BUFFER_SIZE);
+                System.out.println("Create file : " + fileName);
+
+                // use same header per value
+                String header = formatter.header();
+                if (header != null && !header.trim().isEmpty())
+                    writer.write(header + System.lineSeparator());
+            }
+
+            /**
+             * Write the row name and the formatted value in one line.
+             * @param index  the index of replicate
+             * @param value  the value of this replicate
+             */
+            public void write(int index, Value value) throws IOException {
+                writer.write(formatter.getRowName(index));
+                // here require the original value if value is array,
+                // but format the ith element
+                formatter.format(value.value(), writer);
+                writer.write(System.lineSeparator());
+            }
+
+            /**
+             * Write the footer and close the file.
+             */
+            @Override
+            public void close() throws IOException {
+                try {
+                    // use same footer per value
+                    String footer = formatter.footer();
+                    if (footer != null && !footer.trim().isEmpty())
+                        writer.write(footer + System.lineSeparator());
+                } finally {
+                    writer.close();
+                }
+            }
+
+            public String getFileName() {
+                return fileName;
+            }
+        }
+
         // suppose call once per file
         public static void processHeaderFooter( ValueFormatter formatter,
                                           Map<String, String[]> metadataByValueID, String filePrefix) {
@@ -90,6 +159,10 @@ public class ValueFormatHandler {
                     .getOutFileName(id, filePrefix, fileExtension);
         }
 
+        /**
+         * @deprecated keeping all lines in memory, use {@link LineFile} to stream them into the file.
+         */
+        @Deprecated
         public static void populateValues(int index, Value value, ValueFormatter formatter,
                                           Map<String, List<String>> formattedLinesByValueID) {
 
@@ -111,6 +184,10 @@ public class ValueFormatHandler {
         }
 
 
+        /**
+         * @deprecated use {@link LineFile}.
+         */
+        @Deprecated
         public static void exportValuePerLine(Map<String, List<String>> formattedLinesByValueID,
                                               Map<String, String[]> metadataByValueID) {
             Objects.requireNonNull(formattedLinesByValueID).forEach((formattedValueId, formattedLines) -> {
@@ -54,8 +54,10 @@ public class ValueFormatResolver {
 //        if (resolvedFormatterClasses.containsKey(valType)) {
 //            Class<? extends ValueFormatter> valueFormatterCls = resolvedFormatterClasses.get(valType);
             //TODO T[][] cannot go here
-            return List.of( createInstanceFrom(valueFormatterCls,
-                    value.getId(), value.value()) );
+            ValueFormatter valueFormatter = createInstanceFrom(valueFormatterCls,
+                    value.getId(), value.value());
+            valueFormatter.init(value);
+            return List.of(valueFormatter);
 
         } else if (value.value() instanceof Object[][] arr) { // else check array
             valType = arr[0][0].getClass();
@@ -141,6 +143,7 @@ public class ValueFormatResolver {
             // else use the singleton data type as key
             ValueFormatter valueFormatter = createInstanceFrom(valFmtCls,
                     value.getId(), value.value(), extraArgs);
+            valueFormatter.init(value);
 
             arrVFList.add(valueFormatter);
         }
@@ -3,6 +3,8 @@ package lphy.core.logger;
 import lphy.core.model.Symbols;
 import lphy.core.model.Value;
 
+import java.io.IOException;
+
 /**
  * Note: this cannot be extended by lphy extension developers,
  *       please use {@link TextFileFormatted}.
@@ -47,6 +49,26 @@ public interface ValueFormatter<T> {
         return value.toString();
     }
 
+    /**
+     * Write the formatted value, which can be overridden to stream a large value
+     * without creating the whole string, such as trees.
+     * @param value  It is from {@link lphy.core.model.Value#value()}
+     * @param out    the output, such as a buffered file writer.
+     * @throws IOException
+     */
+    default void format(T value, Appendable out) throws IOException {
+        out.append(format(value));
+    }
+
+    /**
+     * Called once with the {@link Value} that this formatter is created from,
+     * before the header is written. Overwrite it if the format depends on
+     * how the value is generated, which is the same for all replicates.
+     * @param value  the {@link Value} of the 1st replicate.
+     */
+    default void init(Value<T> value) {
+    }
+
     default String footer() {
         return "";
     }
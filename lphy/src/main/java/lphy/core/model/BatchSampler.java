@@ -0,0 +1,18 @@
+package lphy.core.model;
+
+/**
+ * The optional contract of a {@link GenerativeDistribution} of objects to draw many samples at once,
+ * where the samples can share the precomputation and be simulated in parallel.
+ * It is used by the vectorised distributions, such as
+ * <code>g ~ MultispeciesCoalescent(theta=Θ, S=sp, replicates=10000)</code>.
+ * The samples must follow the same distribution as {@link #sample()},
+ * but they are not required to be the same sequence of values.
+ */
+public interface BatchSampler<T> extends GenerativeDistribution<T> {
+
+    /**
+     * @param n  the number of samples
+     * @return  the array of n samples.
+     */
+    T[] sampleArray(int n);
+}
@@ -78,41 +78,52 @@ public interface Generator<T> extends GraphicalModelNode<T> {
         //        constructDistribution(random); }
         String methodName = "set" + Character.toUpperCase(paramName.charAt(0)) + paramName.substring(1);
 
-        try {
-            // just one setter
-            Method method = getClass().getMethod(methodName, value.value().getClass());
-
-            method.invoke(this, value.value());
-        } catch (NoSuchMethodException e) {
-            // multiple setters due to multiple parameters
-            Method[] methods = getClass().getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals(methodName)) {
-                    try {
-                        method.invoke(this, value.value());
-                        break;
-                    } catch (IllegalArgumentException mismatch) {
-                        //TODO Cannot handle inheritance, such as Number,
-                        // it must specify to primary type, such as double
-                        String msg = mismatch.getMessage() + " in " + this.getClass().getSimpleName() +
-                                ", where " + methodName + "(" + method.getGenericParameterTypes()[0] +
-                                ") does not match the value type " + value.getType() +
-                                "!\nPlease either overwrite setParam(), or change setter value type to " +
-                                value.getType() + " !";
-                        LoggerUtils.log.severe(msg); // log to studio as well
-                        throw new RuntimeException(msg, e);
-                    } catch (InvocationTargetException | IllegalAccessException err) {
-                        String msg = methodName + " err : " + err.getMessage();
-                        LoggerUtils.log.severe(msg); // log to studio as well
-                        throw new RuntimeException(msg, e);
-                    }
-                }
+        // just one setter, the methods are cached by MethodDispatcher
+        Method method = MethodDispatcher.getMethod(getClass(), methodName, value.value().getClass());
+        if (method != null) {
+            try {
+                MethodDispatcher.invoke(method, this, value.value());
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        // multiple setters due to multiple parameters
+        for (Method setter : MethodDispatcher.getMethods(getClass(), methodName)) {
+            try {
+                MethodDispatcher.invoke(setter, this, value.value());
+                break;
+            } catch (IllegalArgumentException mismatch) {
+                //TODO Cannot handle inheritance, such as Number,
+                // it must specify to primary type, such as double
+                String msg = mismatch.getMessage() + " in " + this.getClass().getSimpleName() +
+                        ", where " + methodName + "(" + setter.getGenericParameterTypes()[0] +
+                        ") does not match the value type " + value.getType() +
+                        "!\nPlease either overwrite setParam(), or change setter value type to " +
+                        value.getType() + " !";
+                LoggerUtils.log.severe(msg); // log to studio as well
+                throw new RuntimeException(msg, mismatch);
+            } catch (InvocationTargetException | IllegalAccessException err) {
+                String msg = methodName + " err : " + err.getMessage();
+                LoggerUtils.log.severe(msg); // log to studio as well
+                throw new RuntimeException(msg, err);
             }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
         }
     }
 
+    /**
+     * Set the parameter given its slot index, if {@link #getParams()} returns {@link ParameterSlots.View},
+     * which avoids looking up the parameter by name.
+     * The default code calls {@link #setParam(String, Value)}, which can be overwritten to set the slot directly.
+     * @param slot   the slot index in {@link ParameterSlots}
+     * @param value  {@link Value}
+     */
+    default void setParam(int slot, Value<?> value) {
+        if (!(getParams() instanceof ParameterSlots.View view))
+            throw new UnsupportedOperationException(getName() + " does not have parameter slots !");
+        setParam(view.getSlots().getName(slot), value);
+    }
+
     @Override
     default List<GraphicalModelNode> getInputs() {
         return new ArrayList<>(getParams().values());
@@ -123,6 +134,11 @@ public interface Generator<T> extends GraphicalModelNode<T> {
         value.addOutput(this);
     }
 
+    default void setInput(int slot, Value<?> value) {
+        setParam(slot, value);
+        value.addOutput(this);
+    }
+
     default void setInputs(Map<String, Value<?>> params) {
         params.forEach(this::setInput);
     }
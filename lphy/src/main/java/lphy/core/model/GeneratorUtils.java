@@ -9,6 +9,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 public class GeneratorUtils {
 
@@ -50,7 +51,19 @@ public class GeneratorUtils {
         return "";
     }
 
+    // scan the methods once per class, as the generator name is looked up on every parse
+    private static final ClassValue<Optional<GeneratorInfo>> generatorInfoIndex = new ClassValue<>() {
+        @Override
+        protected Optional<GeneratorInfo> computeValue(Class<?> c) {
+            return Optional.ofNullable(scanGeneratorInfo(c));
+        }
+    };
+
     public static GeneratorInfo getGeneratorInfo(Class<?> c) {
+        return generatorInfoIndex.get(c).orElse(null);
+    }
+
+    private static GeneratorInfo scanGeneratorInfo(Class<?> c) {
 
         Method[] methods = c.getMethods();
         for (Method method : methods) {
@@ -0,0 +1,30 @@
+package lphy.core.model;
+
+/**
+ * The optional contract of a {@link GenerativeDistribution} of Integer to draw many samples at once
+ * into a primitive array, which avoids creating a {@link RandomVariable} per sample.
+ * It is used by the vectorised distributions, such as <code>x ~ Poisson(lambda=2, replicates=1000000)</code>.
+ * The samples must follow the same distribution as {@link #sample()}.
+ * The vector value is still a Integer[] for the LPhy language,
+ * see {@link lphy.core.vectorization.VectorUtils#batchSample}.
+ */
+public interface IntegerBatchSampler extends GenerativeDistribution<Integer> {
+
+    /**
+     * Fill in the samples into the elements of the array from the index to the index exclusive.
+     * @param values  the array to fill in
+     * @param from    the first index (inclusive)
+     * @param to      the last index (exclusive)
+     */
+    void sampleIntegers(int[] values, int from, int to);
+
+    /**
+     * @param n  the number of samples
+     * @return  the array of n samples.
+     */
+    default int[] sampleIntegers(int n) {
+        int[] values = new int[n];
+        sampleIntegers(values, 0, n);
+        return values;
+    }
+}
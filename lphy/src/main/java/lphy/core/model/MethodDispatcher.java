@@ -0,0 +1,148 @@
+package lphy.core.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cached dispatch of the methods called by name, such as the method calls in LPhy scripts
+ * and the setters of generators. The {@link Method} is resolved once per class and signature,
+ * and then converted into a {@link MethodHandle}, which is much faster than {@link Method#invoke(Object, Object...)}
+ * when the method is called on every element of a vector.
+ */
+public final class MethodDispatcher {
+
+    private MethodDispatcher() { }
+
+    /**
+     * Invoke the method on the given object with the same behaviour as {@link Method#invoke(Object, Object...)}.
+     */
+    public interface Invoker {
+        Object invoke(Object obj, Object... args) throws IllegalAccessException, InvocationTargetException;
+    }
+
+    private static final Map<Method, Invoker> invokers = new ConcurrentHashMap<>();
+
+    // method name => public methods with the name, or method name + argument type => the exact method
+    private static final ClassValue<Map<String, Optional<Method>>> exactMethods = new ClassValue<>() {
+        @Override
+        protected Map<String, Optional<Method>> computeValue(Class<?> c) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final ClassValue<Map<String, List<Method>>> methodsByName = new ClassValue<>() {
+        @Override
+        protected Map<String, List<Method>> computeValue(Class<?> c) {
+            Map<String, List<Method>> map = new HashMap<>();
+            for (Method method : c.getMethods())
+                map.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(method);
+            return map;
+        }
+    };
+
+    /**
+     * @param method  the public method
+     * @return  the cached {@link Invoker} of the method.
+     */
+    public static Invoker getInvoker(Method method) {
+        return invokers.computeIfAbsent(method, MethodDispatcher::createInvoker);
+    }
+
+    /**
+     * The replacement of {@link Method#invoke(Object, Object...)} using the cached {@link Invoker}.
+     */
+    public static Object invoke(Method method, Object obj, Object... args)
+            throws IllegalAccessException, InvocationTargetException {
+        return getInvoker(method).invoke(obj, args);
+    }
+
+    /**
+     * @param c           the class
+     * @param methodName  the method name
+     * @param paramTypes  the parameter types
+     * @return the cached public method given its name and parameter types, or null if it does not exist,
+     *         which is same as {@link Class#getMethod(String, Class[])}.
+     */
+    public static Method getMethod(Class<?> c, String methodName, Class<?>... paramTypes) {
+        StringBuilder key = new StringBuilder(methodName).append('(');
+        for (Class<?> paramType : paramTypes)
+            key.append(paramType.getName()).append(',');
+        return exactMethods.get(c).computeIfAbsent(key.toString(), k -> {
+            try {
+                return Optional.of(c.getMethod(methodName, paramTypes));
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * @return all public methods with the given name, such as overloading setters.
+     */
+    public static List<Method> getMethods(Class<?> c, String methodName) {
+        return methodsByName.get(c).getOrDefault(methodName, List.of());
+    }
+
+    private static Invoker createInvoker(Method method) {
+        final Class<?>[] paramTypes = method.getParameterTypes();
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // e.g. the public method declared in a non-public class
+            return method::invoke;
+        }
+        if (Modifier.isStatic(method.getModifiers()))
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        // (Object, Object[])Object
+        final MethodHandle spreader = handle
+                .asType(MethodType.genericMethodType(paramTypes.length + 1))
+                .asSpreader(Object[].class, paramTypes.length);
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        final Class<?> declaringClass = method.getDeclaringClass();
+
+        return (obj, args) -> {
+            if (args == null) args = new Object[0];
+            // check arguments before the call, so the exceptions are same as Method.invoke
+            if (!isStatic && !declaringClass.isInstance(obj)) {
+                if (obj == null) throw new NullPointerException("Cannot invoke " + method + " on null");
+                throw new IllegalArgumentException("object is not an instance of declaring class");
+            }
+            if (args.length != paramTypes.length)
+                throw new IllegalArgumentException("wrong number of arguments: " + args.length +
+                        " expected: " + paramTypes.length);
+            for (int i = 0; i < paramTypes.length; i++) {
+                if (!isAssignable(paramTypes[i], args[i]))
+                    throw new IllegalArgumentException("argument type mismatch");
+            }
+            try {
+                return (Object) spreader.invokeExact(obj, args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        };
+    }
+
+    // the primitive types that can be widened from, such as an Integer to long
+    private static final Map<Class<?>, Set<Class<?>>> primitiveWidening = Map.of(
+            boolean.class, Set.of(Boolean.class),
+            byte.class, Set.of(Byte.class),
+            char.class, Set.of(Character.class),
+            short.class, Set.of(Byte.class, Short.class),
+            int.class, Set.of(Byte.class, Short.class, Character.class, Integer.class),
+            long.class, Set.of(Byte.class, Short.class, Character.class, Integer.class, Long.class),
+            float.class, Set.of(Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class),
+            double.class, Set.of(Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class)
+    );
+
+    private static boolean isAssignable(Class<?> paramType, Object arg) {
+        if (paramType.isPrimitive())
+            return arg != null && primitiveWidening.get(paramType).contains(arg.getClass());
+        return arg == null || paramType.isInstance(arg);
+    }
+}
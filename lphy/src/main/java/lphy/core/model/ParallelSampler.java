@@ -0,0 +1,29 @@
+package lphy.core.model;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * The optional contract of a {@link GenerativeDistribution}, which can be sampled at the same time
+ * as the other generators, given its own random number generator,
+ * such as the alignments of several partitions simulated on the same tree.
+ * The implementation must not change any state shared with the other generators,
+ * including its parameter values.
+ * Only the generators sharing the same {@link #getSharedInput()} are sampled at the same time,
+ * in which case the values are resampled from the dictionary instead of re-parsing the script.
+ * @see lphy.core.simulator.Sampler
+ */
+public interface ParallelSampler<T> extends GenerativeDistribution<T> {
+
+    /**
+     * The same as {@link #sample()}, but draws random numbers from the given generator.
+     * @param random  the random number generator only used by this call.
+     * @return {@link RandomVariable} to connect to this {@link GenerativeDistribution}
+     */
+    RandomVariable<T> sample(RandomGenerator random);
+
+    /**
+     * @return the input shared by the generators sampled at the same time, such as the tree of partitions.
+     *         The generators are only sampled in parallel, if they all return the same input.
+     */
+    Value<?> getSharedInput();
+}
@@ -0,0 +1,218 @@
+package lphy.core.model;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The immutable descriptor of the parameters of a generator class, which is created once per class.
+ * Each parameter has a slot index, in the same order of parameter names as a {@link TreeMap},
+ * and the accessors to the field keeping its {@link Value}.
+ * The generator returns the cached {@link #view(Generator)} from {@link Generator#getParams()},
+ * instead of creating a new map on every call,
+ * and the {@link lphy.core.simulator.Sampler} sets the parameters by their slot indices.
+ * For example,
+ * <pre>
+ * static final ParameterSlots&lt;Normal&gt; SLOTS = ParameterSlots.builder(Normal.class)
+ *         .add(meanParamName, d -&gt; d.mean, (d, v) -&gt; d.mean = v)
+ *         .add(sdParamName, d -&gt; d.sd, (d, v) -&gt; d.sd = v).build();
+ * </pre>
+ * @param <G> the generator class.
+ */
+public final class ParameterSlots<G extends Generator> {
+
+    private final Class<G> generatorClass;
+    private final String[] names;
+    private final Function<G, Value>[] getters;
+    private final BiConsumer<G, Value>[] setters;
+    private final Map<String, Integer> slots;
+
+    private ParameterSlots(Class<G> generatorClass, List<Slot<G>> slotList) {
+        this.generatorClass = generatorClass;
+        // same order as TreeMap, so that the parameters are iterated and sampled in the same order as before
+        slotList.sort(Comparator.comparing(Slot::name));
+        int n = slotList.size();
+        names = new String[n];
+        getters = new Function[n];
+        setters = new BiConsumer[n];
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Slot<G> slot = slotList.get(i);
+            names[i] = slot.name();
+            getters[i] = slot.getter();
+            setters[i] = slot.setter();
+            if (map.put(slot.name(), i) != null)
+                throw new IllegalArgumentException("Duplicate parameter name " + slot.name() +
+                        " in " + generatorClass.getSimpleName());
+        }
+        slots = Collections.unmodifiableMap(map);
+    }
+
+    public static <G extends Generator> Builder<G> builder(Class<G> generatorClass) {
+        return new Builder<>(generatorClass);
+    }
+
+    /**
+     * @return the number of parameters including the optional parameters.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * @return the slot index of the parameter name, or -1 if not exists.
+     */
+    public int indexOf(String paramName) {
+        Integer slot = slots.get(paramName);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the slot index of the parameter name.
+     * @throws RuntimeException if the parameter name is not recognised.
+     */
+    public int slotOf(String paramName) {
+        int slot = indexOf(paramName);
+        if (slot < 0)
+            throw new RuntimeException("Unrecognised parameter name: " + paramName);
+        return slot;
+    }
+
+    /**
+     * @return the value of the parameter in the slot, which is null if the optional parameter is not used.
+     */
+    public Value get(Generator generator, int slot) {
+        return getters[slot].apply(generatorClass.cast(generator));
+    }
+
+    public void set(Generator generator, int slot, Value value) {
+        setters[slot].accept(generatorClass.cast(generator), value);
+    }
+
+    /**
+     * @param generator  the generator instance
+     * @return the read-only map view of the parameters of this generator,
+     *         which skips the optional parameters not used,
+     *         and reflects the changes of parameter values.
+     *         It should be cached by the generator and returned in {@link Generator#getParams()}.
+     */
+    public View view(G generator) {
+        return new View(this, generator);
+    }
+
+    /**
+     * The map view of the parameters, which also provides the access by slot index.
+     */
+    public static final class View extends AbstractMap<String, Value> {
+
+        private final ParameterSlots<?> slots;
+        private final Generator generator;
+        private Set<Map.Entry<String, Value>> entrySet;
+
+        private View(ParameterSlots<?> slots, Generator generator) {
+            this.slots = slots;
+            this.generator = generator;
+        }
+
+        public ParameterSlots<?> getSlots() {
+            return slots;
+        }
+
+        /**
+         * @return the parameter value in the slot, or null if the optional parameter is not used.
+         */
+        public Value get(int slot) {
+            return slots.get(generator, slot);
+        }
+
+        @Override
+        public Value get(Object key) {
+            int slot = key instanceof String name ? slots.indexOf(name) : -1;
+            return slot < 0 ? null : get(slot);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int i = 0; i < slots.size(); i++)
+                if (get(i) != null) size++;
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Value>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Value>> iterator() {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return View.this.size();
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private final class EntryIterator implements Iterator<Map.Entry<String, Value>> {
+            private int next = advance(0);
+
+            private int advance(int slot) {
+                while (slot < slots.size() && get(slot) == null)
+                    slot++;
+                return slot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < slots.size();
+            }
+
+            @Override
+            public Map.Entry<String, Value> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Map.Entry<String, Value> entry = new SimpleImmutableEntry<>(slots.getName(next), get(next));
+                next = advance(next + 1);
+                return entry;
+            }
+        }
+    }
+
+    private record Slot<G>(String name, Function<G, Value> getter, BiConsumer<G, Value> setter) { }
+
+    public static final class Builder<G extends Generator> {
+        private final Class<G> generatorClass;
+        private final List<Slot<G>> slotList = new ArrayList<>();
+
+        private Builder(Class<G> generatorClass) {
+            this.generatorClass = generatorClass;
+        }
+
+        /**
+         * @param paramName  the parameter name
+         * @param getter     to get the {@link Value} from the field.
+         * @param setter     to set the {@link Value} to the field.
+         */
+        public Builder<G> add(String paramName, Function<G, Value> getter, BiConsumer<G, Value> setter) {
+            slotList.add(new Slot<>(paramName, getter, setter));
+            return this;
+        }
+
+        public ParameterSlots<G> build() {
+            return new ParameterSlots<>(generatorClass, new ArrayList<>(slotList));
+        }
+    }
+}
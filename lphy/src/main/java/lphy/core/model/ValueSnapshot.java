@@ -0,0 +1,111 @@
+package lphy.core.model;
+
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The immutable copy of a {@link Value} at a replicate, which can be kept after the value is resampled,
+ * or passed to other threads, such as file writers and summaries.
+ * It is detached from the graphical model, so it has no generator, inputs or outputs,
+ * and any change to it throws {@link UnsupportedOperationException}.
+ * <p>
+ * The object of the value is shared but not copied, such as a tree or an alignment,
+ * because the samplers always create new objects and the functions copy their inputs before changing them.
+ * Only the arrays are copied, as they are often changed in place, where the copy must not be changed.
+ * @see lphy.core.simulator.ReplicateSnapshot
+ */
+public final class ValueSnapshot<T> extends Value<T> {
+
+    private final boolean random;
+    private final boolean randomVariable;
+
+    private ValueSnapshot(Value<T> value) {
+        super(value.getId(), freeze(value.value()));
+        this.random = value.isRandom();
+        this.randomVariable = value instanceof RandomVariable;
+        this.isObserved = value.isObserved();
+    }
+
+    /**
+     * @param value  the value to take a snapshot.
+     * @return  the snapshot of the value, or itself if it is a snapshot.
+     */
+    public static <T> ValueSnapshot<T> of(Value<T> value) {
+        if (value instanceof ValueSnapshot<T> snapshot)
+            return snapshot;
+        return new ValueSnapshot<>(value);
+    }
+
+    // copy the arrays including the nested arrays
+    @SuppressWarnings("unchecked")
+    private static <T> T freeze(T obj) {
+        if (obj == null || !obj.getClass().isArray())
+            return obj;
+        if (obj.getClass().getComponentType().isPrimitive()) {
+            int length = Array.getLength(obj);
+            Object copy = Array.newInstance(obj.getClass().getComponentType(), length);
+            System.arraycopy(obj, 0, copy, 0, length);
+            return (T) copy;
+        }
+        Object[] copy = ((Object[]) obj).clone();
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = freeze(copy[i]);
+        return (T) copy;
+    }
+
+    /**
+     * @return true if the value was random, see {@link Value#isRandom()}.
+     */
+    @Override
+    public boolean isRandom() {
+        return random;
+    }
+
+    /**
+     * @return true if the value was a {@link RandomVariable}.
+     */
+    public boolean isRandomVariable() {
+        return randomVariable;
+    }
+
+    @Override
+    public boolean isConstant() {
+        return !random;
+    }
+
+    @Override
+    public void setValue(T value) {
+        throw new UnsupportedOperationException("The snapshot of value " + getId() + " is immutable !");
+    }
+
+    @Override
+    public void setId(String id) {
+        throw new UnsupportedOperationException("The snapshot of value " + getId() + " is immutable !");
+    }
+
+    @Override
+    public void setFunction(DeterministicFunction f) {
+        throw new UnsupportedOperationException("The snapshot of value " + getId() + " is immutable !");
+    }
+
+    @Override
+    public void setObserved(boolean observed) {
+        throw new UnsupportedOperationException("The snapshot of value " + getId() + " is immutable !");
+    }
+
+    @Override
+    public void addValueListener(ValueListener listener) {
+        throw new UnsupportedOperationException("The snapshot of value " + getId() + " is immutable !");
+    }
+
+    @Override
+    public void addOutput(Generator p) {
+        throw new UnsupportedOperationException("The snapshot of value " + getId() + " is immutable !");
+    }
+
+    @Override
+    public List<GraphicalModelNode> getOutputs() {
+        return Collections.emptyList();
+    }
+}
@@ -13,6 +13,7 @@ import lphy.core.parser.function.ExpressionNode2Args;
 import lphy.core.parser.function.MapFunction;
 import lphy.core.parser.function.MethodCall;
 import lphy.core.parser.graphicalmodel.ArrayCreator;
+import lphy.core.simulator.GeneratorProfiler;
 import lphy.core.spi.LoaderManager;
 import lphy.core.vectorization.IID;
 import lphy.core.vectorization.VectorizedDistribution;
@@ -254,7 +255,7 @@ public class LPhyListenerImpl extends LPhyBaseListener implements LPhyParserActi
 
             if (expr instanceof DeterministicFunction) {
                 DeterministicFunction f = (DeterministicFunction) expr;
-                Value value = f.apply();
+                Value value = GeneratorProfiler.apply(f, id);
                 var.assign(value, f, context);
                 return value;
             } else if (expr instanceof Value) {
@@ -305,7 +306,7 @@ public class LPhyListenerImpl extends LPhyBaseListener implements LPhyParserActi
                         " in the 'model' block is replaced by the value of " + var.getId() + " in the 'data' block .");
 
             } else {
-                variable = genDist.sample(var.getId());
+                variable = GeneratorProfiler.sample(genDist, var.getId());
             }
 
             if (variable != null && !var.isRangedVar()) {
@@ -944,6 +945,8 @@ public class LPhyListenerImpl extends LPhyBaseListener implements LPhyParserActi
                     for (Map.Entry<String, Value> entry : arguments.entrySet()) {
                         generator.setInput(entry.getKey(), entry.getValue());
                     }
+                    if (generator instanceof DeterministicFunction function)
+                        return GeneratorProfiler.apply(function, null);
                     return generator.generate();
             }
 
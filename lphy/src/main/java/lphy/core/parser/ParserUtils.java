@@ -60,7 +60,7 @@ public class ParserUtils {
 
         List<Generator> matches = new ArrayList<>();
 
-        for (Constructor constructor : generatorClass.getConstructors()) {
+        for (Constructor constructor : ArgumentUtils.getConstructors(generatorClass)) {
             List<Argument> argumentInfo = ArgumentUtils.getArguments(constructor);
             List<Object> initargs = new ArrayList<>();
 
@@ -120,7 +120,7 @@ public class ParserUtils {
     private static List<DeterministicFunction> getFunctionByArguments(String name, Value[] argValues, Class generatorClass) {
 
         List<DeterministicFunction> matches = new ArrayList<>();
-        for (Constructor constructor : generatorClass.getConstructors()) {
+        for (Constructor constructor : ArgumentUtils.getConstructors(generatorClass)) {
             List<Argument> arguments = ArgumentUtils.getArguments(constructor);
 
             // unnamed args
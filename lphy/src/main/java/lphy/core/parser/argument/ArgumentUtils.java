@@ -8,11 +8,31 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ArgumentUtils {
 
+    // the index of constructor signatures, which are built once per class when it is first parsed
+    private static final ClassValue<Constructor<?>[]> constructorIndex = new ClassValue<>() {
+        @Override
+        protected Constructor<?>[] computeValue(Class<?> c) {
+            return c.getConstructors();
+        }
+    };
+    private static final Map<Constructor<?>, List<Argument>> argumentIndex = new ConcurrentHashMap<>();
+
+    /**
+     * @param c  the generator class
+     * @return the public constructors of the class, which are cached.
+     *         The returned array must not be modified.
+     */
+    public static Constructor<?>[] getConstructors(Class<?> c) {
+        return constructorIndex.get(c);
+    }
+
     /**
      * @param constructor
      * @return an array of the generic types of arguments of the given constructor.
@@ -27,10 +47,19 @@ public class ArgumentUtils {
     }
 
     public static List<Argument> getArguments(Class<?> c, int constructorIndex) {
-        return getArguments(c.getConstructors()[constructorIndex]);
+        return getArguments(getConstructors(c)[constructorIndex]);
     }
 
+    /**
+     * @param constructor
+     * @return the unmodifiable list of {@link Argument} annotated by {@link ParameterInfo},
+     *         which is scanned once per constructor and cached.
+     */
     public static List<Argument> getArguments(Constructor constructor) {
+        return argumentIndex.computeIfAbsent(constructor, ArgumentUtils::scanArguments);
+    }
+
+    private static List<Argument> scanArguments(Constructor<?> constructor) {
 
         List<Argument> arguments = new ArrayList<>();
 
@@ -46,7 +75,7 @@ public class ArgumentUtils {
                 }
             }
         }
-        return arguments;
+        return Collections.unmodifiableList(arguments);
     }
 
     /**
@@ -99,7 +128,7 @@ public class ArgumentUtils {
 
     public static List<ParameterInfo> getAllParameterInfo(Class c) {
         ArrayList<ParameterInfo> pInfo = new ArrayList<>();
-        for (Constructor constructor : c.getConstructors()) {
+        for (Constructor constructor : getConstructors(c)) {
             pInfo.addAll(GeneratorUtils.getParameterInfo(constructor));
         }
         return pInfo;
@@ -41,143 +41,146 @@ public class ExpressionNode1Arg<T> extends ExpressionNode {
 
     @Override
     public Value<T> apply() {
-        Value value = elementWise.apply(inputValues[0], func);
+        // vectors are evaluated by the primitive kernels if possible
+        Value value = FusedExpression.apply(this, false);
+        if (value == null)
+            value = elementWise.apply(inputValues[0], func);
         value.setFunction(this);
         return value;
     }
 
     // unary operators
-    public static Function<Number, Number> not() {
-        return (a) -> a.doubleValue() == 0 ? 1.0 : 0.0;
+    public static PrimitiveKernel.Unary not() {
+        return (a) -> a == 0 ? 1.0 : 0.0;
     }
 
-    public static Function<Number, Double> abs() {
-        return (a) -> Math.abs(a.doubleValue());
+    public static PrimitiveKernel.Unary abs() {
+        return (a) -> Math.abs(a);
     }
 
-    public static Function<Number, Double> acos() {
-        return (a) -> Math.acos(a.doubleValue());
+    public static PrimitiveKernel.Unary acos() {
+        return (a) -> Math.acos(a);
     }
 
-    public static Function<Number, Double> acosh() {
-        return (a) -> (Math.log(a.doubleValue() + Math.sqrt(a.doubleValue() + 1) * Math.sqrt(a.doubleValue() - 1)));
+    public static PrimitiveKernel.Unary acosh() {
+        return (a) -> (Math.log(a + Math.sqrt(a + 1) * Math.sqrt(a - 1)));
     }
 
-    public static Function<Number, Double> asin() {
-        return (a) -> Math.asin(a.doubleValue());
+    public static PrimitiveKernel.Unary asin() {
+        return (a) -> Math.asin(a);
     }
 
-    public static Function<Number, Double> asinh() {
-        return (a) -> (Math.log(a.doubleValue() + Math.sqrt(a.doubleValue() * a.doubleValue() + 1)));
+    public static PrimitiveKernel.Unary asinh() {
+        return (a) -> (Math.log(a + Math.sqrt(a * a + 1)));
     }
 
-    public static Function<Number, Double> atan() {
-        return (a) -> Math.atan(a.doubleValue());
+    public static PrimitiveKernel.Unary atan() {
+        return (a) -> Math.atan(a);
     }
 
-    public static Function<Number, Double> atanh() {
-        return (a) -> (0.5 * Math.log((1 + a.doubleValue()) / (1 - a.doubleValue())));
+    public static PrimitiveKernel.Unary atanh() {
+        return (a) -> (0.5 * Math.log((1 + a) / (1 - a)));
     }
 
-    public static Function<Number, Double> cLogLog() {
-        return (a) -> Math.log(-Math.log(1 - a.doubleValue()));
+    public static PrimitiveKernel.Unary cLogLog() {
+        return (a) -> Math.log(-Math.log(1 - a));
     }
 
-    public static Function<Number, Double> cbrt() {
-        return (a) -> Math.cbrt(a.doubleValue());
+    public static PrimitiveKernel.Unary cbrt() {
+        return (a) -> Math.cbrt(a);
     }
 
-    public static Function<Number, Double> ceil() {
-        return (a) -> Math.ceil(a.doubleValue());
+    public static PrimitiveKernel.Unary ceil() {
+        return (a) -> Math.ceil(a);
     }
 
-    public static Function<Number, Double> cos() {
-        return (a) -> Math.cos(a.doubleValue());
+    public static PrimitiveKernel.Unary cos() {
+        return (a) -> Math.cos(a);
     }
 
-    public static Function<Number, Double> cosh() {
-        return (a) -> Math.cosh(a.doubleValue());
+    public static PrimitiveKernel.Unary cosh() {
+        return (a) -> Math.cosh(a);
     }
 
-    public static Function<Number, Double> exp() {
-        return (a) -> Math.exp(a.doubleValue());
+    public static PrimitiveKernel.Unary exp() {
+        return (a) -> Math.exp(a);
     }
 
-    public static Function<Number, Double> expm1() {
-        return (a) -> Math.expm1(a.doubleValue());
+    public static PrimitiveKernel.Unary expm1() {
+        return (a) -> Math.expm1(a);
     }
 
-    public static Function<Number, Double> floor() {
-        return (a) -> Math.floor(a.doubleValue());
+    public static PrimitiveKernel.Unary floor() {
+        return (a) -> Math.floor(a);
     }
 
-    public static Function<Number, Double> log() {
-        return (a) -> Math.log(a.doubleValue());
+    public static PrimitiveKernel.Unary log() {
+        return (a) -> Math.log(a);
     }
 
-    public static Function<Number, Double> log10() {
-        return (a) -> Math.log10(a.doubleValue());
+    public static PrimitiveKernel.Unary log10() {
+        return (a) -> Math.log10(a);
     }
 
-    public static Function<Number, Double> log1p() {
-        return (a) -> Math.log1p(a.doubleValue());
+    public static PrimitiveKernel.Unary log1p() {
+        return (a) -> Math.log1p(a);
     }
 
-    public static Function<Number, Double> logFact() {
+    public static PrimitiveKernel.Unary logFact() {
         return (a) -> {
             double logFactorial = 0;
-            for (int j = 2; j <= a.doubleValue(); j++) {
+            for (int j = 2; j <= a; j++) {
                 logFactorial += Math.log(j);
             }
             return logFactorial;
         };
     }
 
-    public static Function<Number, Double> logGamma() {
-        return (a) -> org.apache.commons.math3.special.Gamma.logGamma(a.doubleValue());
+    public static PrimitiveKernel.Unary logGamma() {
+        return (a) -> org.apache.commons.math3.special.Gamma.logGamma(a);
     }
 
-	public static Function<Number, Double> logit() {
-        return (a) -> Math.log(a.doubleValue()) - Math.log(1 - a.doubleValue());
+	public static PrimitiveKernel.Unary logit() {
+        return (a) -> Math.log(a) - Math.log(1 - a);
     }
 
-	public static Function<Number, Double> phi() {
-        return (a) -> (new NormalDistribution()).cumulativeProbability(a.doubleValue());
+	public static PrimitiveKernel.Unary phi() {
+        return (a) -> (new NormalDistribution()).cumulativeProbability(a);
     }
 
-	public static Function<Number, Double> probit() {
-        return (a) -> Math.sqrt(2) * org.apache.commons.math3.special.Erf.erfInv(2 * a.doubleValue() - 1);
+	public static PrimitiveKernel.Unary probit() {
+        return (a) -> Math.sqrt(2) * org.apache.commons.math3.special.Erf.erfInv(2 * a - 1);
     }
 
 	public static Function<Number, Integer> round() {
         return (a) -> (int) Math.round(a.doubleValue());
     }
 
-	public static Function<Number, Double> signum() {
-        return (a) -> Math.signum(a.doubleValue());
+	public static PrimitiveKernel.Unary signum() {
+        return (a) -> Math.signum(a);
     }
 
-	public static Function<Number, Double> sin() {
-        return (a) -> Math.sin(a.doubleValue());
+	public static PrimitiveKernel.Unary sin() {
+        return (a) -> Math.sin(a);
     }
 
-	public static Function<Number, Double> sinh() {
-        return (a) -> Math.sinh(a.doubleValue());
+	public static PrimitiveKernel.Unary sinh() {
+        return (a) -> Math.sinh(a);
     }
 
-	public static Function<Number, Double> sqrt() {
-        return (a) -> Math.sqrt(a.doubleValue());
+	public static PrimitiveKernel.Unary sqrt() {
+        return (a) -> Math.sqrt(a);
     }
 
-	public static Function<Number, Double> step() {
-        return (a) -> a.doubleValue() > 0.0 ? 1.0 : 0.0;
+	public static PrimitiveKernel.Unary step() {
+        return (a) -> a > 0.0 ? 1.0 : 0.0;
     }
 
-	public static Function<Number, Double> tan() {
-        return (a) -> Math.tan(a.doubleValue());
+	public static PrimitiveKernel.Unary tan() {
+        return (a) -> Math.tan(a);
     }
 
-	public static Function<Number, Double> tanh() {
-        return (a) -> Math.tanh(a.doubleValue());
+	public static PrimitiveKernel.Unary tanh() {
+        return (a) -> Math.tanh(a);
     }
 }
@@ -62,44 +62,46 @@ public class ExpressionNode2Args<T> extends ExpressionNode {
 
 
     public Value<T> apply() {
-
-        Value value = elementWise.apply(inputValues[0], inputValues[1], func);
+        // vectors are evaluated by the primitive kernels if possible
+        Value value = FusedExpression.apply(this, false);
+        if (value == null)
+            value = elementWise.apply(inputValues[0], inputValues[1], func);
         value.setFunction(this);
         return value;
     }
 
     // binary operators
-    public static BiFunction<Number, Number, Number> plus() {
-        return (a, b) -> a.doubleValue() + b.doubleValue();
+    public static PrimitiveKernel.Arithmetic plus() {
+        return (a, b) -> a + b;
     }
 
-    public static BiFunction<Number, Number, Number> minus() {
-        return (a, b) -> a.doubleValue() - b.doubleValue();
+    public static PrimitiveKernel.Arithmetic minus() {
+        return (a, b) -> a - b;
     }
 
-    public static BiFunction<Number, Number, Number> times() {
-        return (a, b) -> a.doubleValue() * b.doubleValue();
+    public static PrimitiveKernel.Arithmetic times() {
+        return (a, b) -> a * b;
     }
 
-    public static BiFunction<Number, Number, Number> divide() {
-        return (a, b) -> a.doubleValue() / b.doubleValue();
+    public static PrimitiveKernel.Arithmetic divide() {
+        return (a, b) -> a / b;
     }
 
-    public static BiFunction<Number, Number, Number> pow() {
-        return (a, b) -> Math.pow(a.doubleValue(), b.doubleValue());
+    public static PrimitiveKernel.Arithmetic pow() {
+        return (a, b) -> Math.pow(a, b);
     }
 
-    public static BiFunction<Number, Number, Number> mod() {
-        return (a, b) -> a.doubleValue() % b.doubleValue();
+    public static PrimitiveKernel.Arithmetic mod() {
+        return (a, b) -> a % b;
     }
 
     //*** logical ***//
 
-    public static BiFunction<Boolean, Boolean, Boolean> and() {
+    public static PrimitiveKernel.Logical and() {
         return (a, b) -> a && b;
     }
 
-    public static BiFunction<Boolean, Boolean, Boolean> or() {
+    public static PrimitiveKernel.Logical or() {
         return (a, b) -> a || b;
     }
 
@@ -128,20 +130,20 @@ public class ExpressionNode2Args<T> extends ExpressionNode {
         };
     }
 
-    public static BiFunction<Number, Number, Boolean> le() {
-        return (a, b) -> a.doubleValue() <= b.doubleValue() ;
+    public static PrimitiveKernel.Comparison le() {
+        return (a, b) -> a <= b ;
     }
 
-    public static BiFunction<Number, Number, Boolean> less() {
-        return (a, b) -> a.doubleValue() < b.doubleValue() ;
+    public static PrimitiveKernel.Comparison less() {
+        return (a, b) -> a < b ;
     }
 
-    public static BiFunction<Number, Number, Boolean> ge() {
-        return (a, b) -> a.doubleValue() >= b.doubleValue() ;
+    public static PrimitiveKernel.Comparison ge() {
+        return (a, b) -> a >= b ;
     }
 
-    public static BiFunction<Number, Number, Boolean> greater() {
-        return (a, b) -> a.doubleValue() > b.doubleValue() ;
+    public static PrimitiveKernel.Comparison greater() {
+        return (a, b) -> a > b ;
     }
 
 //TODO check
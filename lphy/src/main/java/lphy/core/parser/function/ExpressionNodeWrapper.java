@@ -110,13 +110,34 @@ public class ExpressionNodeWrapper extends DeterministicFunction {
     }
 
     private Value applyRecursively(ExpressionNode expressionNode) {
+        // the anonymous intermediate values are evaluated inside the loop of the fused expression
+        updateInputs(expressionNode, true);
+        Value value = FusedExpression.apply(expressionNode, true);
+        if (value != null) {
+            value.setFunction(expressionNode);
+            return value;
+        }
+
+        updateInputs(expressionNode, false);
+        return expressionNode.apply();
+    }
 
+    /**
+     * Re-compute the inputs generated by other expression nodes.
+     * @param fuse  if true, skip the inputs which will be evaluated by {@link FusedExpression},
+     *              but still update their named inputs.
+     */
+    private void updateInputs(ExpressionNode expressionNode, boolean fuse) {
         for (int i = 0; i < expressionNode.getInputValues().length; i++) {
             if (expressionNode.getInputValues()[i] instanceof Value) {
                 Value v = (Value) expressionNode.getInputValues()[i];
                 if (v.getGenerator() instanceof ExpressionNode) {
                     ExpressionNode childExpressionNode = (ExpressionNode) v.getGenerator();
 
+                    if (fuse && FusedExpression.isFusible(v)) {
+                        updateInputs(childExpressionNode, true);
+                        continue;
+                    }
                     Value newValue = applyRecursively(childExpressionNode);
                     if (!v.isAnonymous()) {
                         newValue.setId(v.getId());
@@ -126,7 +147,6 @@ public class ExpressionNodeWrapper extends DeterministicFunction {
                 }
             } else throw new RuntimeException("This code assumes all inputs are values!");
         }
-        return expressionNode.apply();
     }
 
     public String codeString() {
@@ -0,0 +1,311 @@
+package lphy.core.parser.function;
+
+import lphy.core.model.ExpressionNode;
+import lphy.core.model.GraphicalModelNode;
+import lphy.core.model.Value;
+import lphy.core.model.datatype.BooleanArrayValue;
+import lphy.core.model.datatype.DoubleArrayValue;
+import lphy.core.model.datatype.IntegerArrayValue;
+
+import java.util.Arrays;
+
+/**
+ * The element-wise evaluation of the expressions on vectors using the {@link PrimitiveKernel}s.
+ * The operands are unboxed into small primitive blocks, so that a chain of anonymous expressions,
+ * such as <code>exp(a * b + c)</code>, is evaluated in a single loop,
+ * and only the result vector is boxed, instead of creating a boxed array for every operator.
+ * Only the scalars and 1D arrays of numbers or booleans are supported,
+ * otherwise the generic {@link ElementWise1Arg} and {@link ElementWise2Args} are used.
+ */
+public final class FusedExpression {
+
+    // the number of elements evaluated by each operator at once
+    static final int BLOCK_SIZE = 256;
+    // the length of a scalar operand
+    private static final int SCALAR = -1;
+
+    private FusedExpression() { }
+
+    /**
+     * @param value  the input value of an expression.
+     * @return true, if the anonymous value is computed by an expression node whose operator has a primitive kernel,
+     *         so that it can be evaluated inside the loop of the expression using it.
+     */
+    public static boolean isFusible(Value<?> value) {
+        return value.isAnonymous() && value.getGenerator() instanceof ExpressionNode node && hasKernel(node);
+    }
+
+    private static boolean hasKernel(ExpressionNode node) {
+        if (node instanceof ExpressionNode2Args<?> node2Args)
+            return node2Args.func instanceof PrimitiveKernel;
+        if (node instanceof ExpressionNode1Arg<?> node1Arg)
+            return node1Arg.func instanceof PrimitiveKernel;
+        return false;
+    }
+
+    /**
+     * Evaluate the expression using the primitive kernels.
+     * @param node   the expression node.
+     * @param fuse   if true, the inputs passing {@link #isFusible(Value)} are evaluated
+     *               inside the same loop from their own inputs, instead of using their current values.
+     * @return  the vector value without the function set, or null if the expression cannot be evaluated
+     *          by the kernels, e.g. the result is a scalar, or any operand is not a number or boolean,
+     *          or is a 2D array.
+     * @throws IllegalArgumentException  if the lengths of two vectors are different.
+     */
+    public static Value apply(ExpressionNode node, boolean fuse) {
+        Term term = compile(node, fuse);
+        if (term == null || term.length == SCALAR)
+            return null;
+        return term.evaluate();
+    }
+
+    private static Term compile(ExpressionNode node, boolean fuse) {
+        GraphicalModelNode[] inputs = node.getInputValues();
+        if (node instanceof ExpressionNode2Args<?> node2Args && inputs.length == 2) {
+            Term a = operand(inputs[0], fuse);
+            if (a == null) return null;
+            Term b = operand(inputs[1], fuse);
+            if (b == null) return null;
+
+            if (node2Args.func instanceof PrimitiveKernel.Arithmetic kernel && !a.isBoolean && !b.isBoolean)
+                return new ArithmeticTerm(kernel, a, b);
+            if (node2Args.func instanceof PrimitiveKernel.Comparison kernel && !a.isBoolean && !b.isBoolean)
+                return new ComparisonTerm(kernel, a, b);
+            if (node2Args.func instanceof PrimitiveKernel.Logical kernel && a.isBoolean && b.isBoolean)
+                return new LogicalTerm(kernel, a, b);
+        } else if (node instanceof ExpressionNode1Arg<?> node1Arg && inputs.length == 1) {
+            Term a = operand(inputs[0], fuse);
+            if (a == null) return null;
+
+            if (node1Arg.func instanceof PrimitiveKernel.Unary kernel && !a.isBoolean)
+                return new UnaryTerm(kernel, a);
+        }
+        return null;
+    }
+
+    private static Term operand(GraphicalModelNode input, boolean fuse) {
+        if (!(input instanceof Value<?> value))
+            return null;
+        if (fuse && isFusible(value))
+            return compile((ExpressionNode) value.getGenerator(), true);
+
+        Object val = value.value();
+        if (val instanceof Double || val instanceof Integer)
+            return new NumberLeaf(null, ((Number) val).doubleValue(), val instanceof Integer);
+        if (val instanceof Boolean b)
+            return new BooleanLeaf(null, b);
+        if (val instanceof Double[] || val instanceof Integer[]) {
+            Number[] arr = (Number[]) val;
+            return arr.length < 1 ? null : new NumberLeaf(arr, 0, val instanceof Integer[]);
+        }
+        if (val instanceof Boolean[] arr)
+            return arr.length < 1 ? null : new BooleanLeaf(arr, false);
+        return null;
+    }
+
+    /**
+     * A node of the compiled expression, which fills a block of elements [from, to) into the output buffer.
+     */
+    private abstract static class Term {
+        // the vector length, or SCALAR
+        final int length;
+        final boolean isBoolean;
+        // the numeric result only contains integers
+        final boolean isInteger;
+
+        Term(int length, boolean isBoolean, boolean isInteger) {
+            this.length = length;
+            this.isBoolean = isBoolean;
+            this.isInteger = isInteger;
+        }
+
+        void evalDouble(int from, int to, double[] out) {
+            throw new UnsupportedOperationException("Boolean expression cannot be evaluated as number !");
+        }
+
+        void evalBoolean(int from, int to, boolean[] out) {
+            throw new UnsupportedOperationException("Numeric expression cannot be evaluated as boolean !");
+        }
+
+        // box the result vector, using the same types as ElementWise2Args
+        Value evaluate() {
+            if (isBoolean) {
+                Boolean[] r = new Boolean[length];
+                boolean[] buffer = new boolean[BLOCK_SIZE];
+                for (int from = 0; from < length; from += BLOCK_SIZE) {
+                    int to = Math.min(from + BLOCK_SIZE, length);
+                    evalBoolean(from, to, buffer);
+                    for (int i = from; i < to; i++)
+                        r[i] = buffer[i - from];
+                }
+                return new BooleanArrayValue("", r);
+            }
+            double[] buffer = new double[BLOCK_SIZE];
+            if (isInteger) {
+                Integer[] r = new Integer[length];
+                for (int from = 0; from < length; from += BLOCK_SIZE) {
+                    int to = Math.min(from + BLOCK_SIZE, length);
+                    evalDouble(from, to, buffer);
+                    for (int i = from; i < to; i++)
+                        r[i] = (int) buffer[i - from];
+                }
+                return new IntegerArrayValue(null, r);
+            }
+            Double[] r = new Double[length];
+            for (int from = 0; from < length; from += BLOCK_SIZE) {
+                int to = Math.min(from + BLOCK_SIZE, length);
+                evalDouble(from, to, buffer);
+                for (int i = from; i < to; i++)
+                    r[i] = buffer[i - from];
+            }
+            return new DoubleArrayValue("", r);
+        }
+    }
+
+    private static int length(Term a, Term b) {
+        if (a.length == SCALAR) return b.length;
+        if (b.length == SCALAR) return a.length;
+        if (a.length != b.length)
+            throw new IllegalArgumentException("The element-wise operation between 1d vectors requires " +
+                    "both vectors have the same length ! " + a.length + " != " + b.length);
+        return a.length;
+    }
+
+    private static final class NumberLeaf extends Term {
+        final Number[] values;
+        final double scalar;
+
+        NumberLeaf(Number[] values, double scalar, boolean isInteger) {
+            super(values == null ? SCALAR : values.length, false, isInteger);
+            this.values = values;
+            this.scalar = scalar;
+        }
+
+        @Override
+        void evalDouble(int from, int to, double[] out) {
+            if (values == null) {
+                Arrays.fill(out, 0, to - from, scalar);
+            } else {
+                for (int i = from; i < to; i++)
+                    out[i - from] = values[i].doubleValue();
+            }
+        }
+    }
+
+    private static final class BooleanLeaf extends Term {
+        final Boolean[] values;
+        final boolean scalar;
+
+        BooleanLeaf(Boolean[] values, boolean scalar) {
+            super(values == null ? SCALAR : values.length, true, false);
+            this.values = values;
+            this.scalar = scalar;
+        }
+
+        @Override
+        void evalBoolean(int from, int to, boolean[] out) {
+            if (values == null) {
+                Arrays.fill(out, 0, to - from, scalar);
+            } else {
+                for (int i = from; i < to; i++)
+                    out[i - from] = values[i];
+            }
+        }
+    }
+
+    private static final class ArithmeticTerm extends Term {
+        final PrimitiveKernel.Arithmetic kernel;
+        final Term a, b;
+        final double[] bufferA = new double[BLOCK_SIZE];
+        final double[] bufferB = new double[BLOCK_SIZE];
+
+        ArithmeticTerm(PrimitiveKernel.Arithmetic kernel, Term a, Term b) {
+            // both operands have to be integer to return integer
+            super(length(a, b), false, a.isInteger && b.isInteger);
+            this.kernel = kernel;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        void evalDouble(int from, int to, double[] out) {
+            a.evalDouble(from, to, bufferA);
+            b.evalDouble(from, to, bufferB);
+            final int n = to - from;
+            if (isInteger) {
+                for (int i = 0; i < n; i++)
+                    out[i] = (int) kernel.applyAsDouble(bufferA[i], bufferB[i]);
+            } else {
+                for (int i = 0; i < n; i++)
+                    out[i] = kernel.applyAsDouble(bufferA[i], bufferB[i]);
+            }
+        }
+    }
+
+    private static final class ComparisonTerm extends Term {
+        final PrimitiveKernel.Comparison kernel;
+        final Term a, b;
+        final double[] bufferA = new double[BLOCK_SIZE];
+        final double[] bufferB = new double[BLOCK_SIZE];
+
+        ComparisonTerm(PrimitiveKernel.Comparison kernel, Term a, Term b) {
+            super(length(a, b), true, false);
+            this.kernel = kernel;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        void evalBoolean(int from, int to, boolean[] out) {
+            a.evalDouble(from, to, bufferA);
+            b.evalDouble(from, to, bufferB);
+            final int n = to - from;
+            for (int i = 0; i < n; i++)
+                out[i] = kernel.test(bufferA[i], bufferB[i]);
+        }
+    }
+
+    private static final class LogicalTerm extends Term {
+        final PrimitiveKernel.Logical kernel;
+        final Term a, b;
+        final boolean[] bufferA = new boolean[BLOCK_SIZE];
+        final boolean[] bufferB = new boolean[BLOCK_SIZE];
+
+        LogicalTerm(PrimitiveKernel.Logical kernel, Term a, Term b) {
+            super(length(a, b), true, false);
+            this.kernel = kernel;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        void evalBoolean(int from, int to, boolean[] out) {
+            a.evalBoolean(from, to, bufferA);
+            b.evalBoolean(from, to, bufferB);
+            final int n = to - from;
+            for (int i = 0; i < n; i++)
+                out[i] = kernel.test(bufferA[i], bufferB[i]);
+        }
+    }
+
+    private static final class UnaryTerm extends Term {
+        final PrimitiveKernel.Unary kernel;
+        final Term a;
+
+        UnaryTerm(PrimitiveKernel.Unary kernel, Term a) {
+            super(a.length, false, false);
+            this.kernel = kernel;
+            this.a = a;
+        }
+
+        @Override
+        void evalDouble(int from, int to, double[] out) {
+            // the input is evaluated into the output buffer, and then replaced in place
+            a.evalDouble(from, to, out);
+            final int n = to - from;
+            for (int i = 0; i < n; i++)
+                out[i] = kernel.applyAsDouble(out[i]);
+        }
+    }
+}
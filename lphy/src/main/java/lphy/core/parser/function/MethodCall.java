@@ -176,24 +176,26 @@ public class MethodCall extends DeterministicFunction {
             args[i] = arguments[i].value();
         }
 
+        // resolved once, rather than reflecting on every element
+        MethodDispatcher.Invoker invoker = MethodDispatcher.getInvoker(method);
         try {
 
             if (vectorizedObject) {
                 int size = ((Vector)value).size();
 
-                List<Value> resultValues = new ArrayList<>();
+                List<Value> resultValues = new ArrayList<>(size);
                 for (int i = 0; i < size; i++) {
-                    resultValues.add(ValueCreator.createValue(method.invoke(((Vector)value).getComponent(i), args), this));
+                    resultValues.add(ValueCreator.createValue(invoker.invoke(((Vector)value).getComponent(i), args), this));
                 }
                 return new CompoundVectorValue(null, resultValues, this);
             }
 
 
             if (vectorizedArguments) {
-                return vectorApply(args);
+                return vectorApply(invoker, args);
             }
 
-            Object obj = method.invoke(value.value(), args);
+            Object obj = invoker.invoke(value.value(), args);
 
             // unwrap
             if (obj instanceof Value) {
@@ -206,12 +208,12 @@ public class MethodCall extends DeterministicFunction {
         return null;
     }
 
-    private Value<?> vectorApply(Object[] args) throws IllegalAccessException, InvocationTargetException {
+    private Value<?> vectorApply(MethodDispatcher.Invoker invoker, Object[] args) throws IllegalAccessException, InvocationTargetException {
         int vectorSize = getVectorSize(args);
 
         boolean[] isVector = VectorMatchUtils.isVectorMatch(method, Arrays.stream(args).map(Object::getClass).toArray(Class<?>[]::new));
 
-        List<Value> returnValues = new ArrayList<>();
+        List<Value> returnValues = new ArrayList<>(vectorSize);
 
         Object[] callArgs = new Object[args.length];
 
@@ -224,7 +226,7 @@ public class MethodCall extends DeterministicFunction {
                     callArgs[j] = args[j];
                 }
             }
-            returnValues.add(ValueCreator.createValue(method.invoke(value.value(), callArgs), this));
+            returnValues.add(ValueCreator.createValue(invoker.invoke(value.value(), callArgs), this));
         }
 
         return new CompoundVectorValue<>(null,returnValues, this);
@@ -0,0 +1,67 @@
+package lphy.core.parser.function;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The operators of {@link ExpressionNode1Arg} and {@link ExpressionNode2Args},
+ * which also provide the kernels on primitive values,
+ * so that {@link FusedExpression} can evaluate the vectors without boxing every element.
+ * The boxed {@link #apply} is kept for the generic element-wise code in
+ * {@link ElementWise1Arg} and {@link ElementWise2Args}.
+ */
+public interface PrimitiveKernel {
+
+    /**
+     * The arithmetic operators, such as + - * /, where the result is integer if both operands are integers.
+     */
+    @FunctionalInterface
+    interface Arithmetic extends BiFunction<Number, Number, Number>, PrimitiveKernel {
+        double applyAsDouble(double a, double b);
+
+        @Override
+        default Number apply(Number a, Number b) {
+            return applyAsDouble(a.doubleValue(), b.doubleValue());
+        }
+    }
+
+    /**
+     * The comparison operators on numbers, such as <= or >.
+     */
+    @FunctionalInterface
+    interface Comparison extends BiFunction<Number, Number, Boolean>, PrimitiveKernel {
+        boolean test(double a, double b);
+
+        @Override
+        default Boolean apply(Number a, Number b) {
+            return test(a.doubleValue(), b.doubleValue());
+        }
+    }
+
+    /**
+     * The logical operators on booleans, such as && or ||.
+     */
+    @FunctionalInterface
+    interface Logical extends BiFunction<Boolean, Boolean, Boolean>, PrimitiveKernel {
+        boolean test(boolean a, boolean b);
+
+        @Override
+        default Boolean apply(Boolean a, Boolean b) {
+            return test(a, b);
+        }
+    }
+
+    /**
+     * The unary functions returning a double, such as exp or log.
+     */
+    @FunctionalInterface
+    interface Unary extends Function<Number, Double>, PrimitiveKernel {
+        double applyAsDouble(double a);
+
+        @Override
+        default Double apply(Number a) {
+            return applyAsDouble(a.doubleValue());
+        }
+    }
+
+}
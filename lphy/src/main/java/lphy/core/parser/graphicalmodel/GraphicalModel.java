@@ -2,6 +2,7 @@ package lphy.core.parser.graphicalmodel;
 
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
+import lphy.core.model.ValueSnapshot;
 import lphy.core.parser.ObservationUtils;
 
 import java.util.*;
@@ -58,11 +59,13 @@ public interface GraphicalModel {
 
     /**
      * @param value  given a {@link Value}
-     * @return  true if value is {@link RandomVariable}, which should be in model block,
+     * @return  true if value is {@link RandomVariable} or its {@link ValueSnapshot}, which should be in model block,
      *          and it is clamped.
      */
     default boolean isObservedVariable(Value value) {
-        return value instanceof RandomVariable && isObserved(value.getId());
+        boolean isRandomVariable = value instanceof RandomVariable ||
+                (value instanceof ValueSnapshot<?> snapshot && snapshot.isRandomVariable());
+        return isRandomVariable && isObserved(value.getId());
     }
 
     /**
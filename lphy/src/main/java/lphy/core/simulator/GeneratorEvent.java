@@ -0,0 +1,24 @@
+package lphy.core.simulator;
+
+import jdk.jfr.*;
+
+/**
+ * The JFR event of a call to a generator profiled by {@link GeneratorProfiler}.
+ */
+@Name("lphy.Generator")
+@Label("LPhy Generator")
+@Category("LPhy")
+@Description("A call to generate a value by a LPhy generator during sampling")
+@StackTrace(false)
+public class GeneratorEvent extends Event {
+
+    @Label("Generator")
+    String generator;
+
+    @Label("Value Id")
+    String valueId;
+
+    @Label("Allocated Bytes")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,244 @@
+package lphy.core.simulator;
+
+import jdk.jfr.EventType;
+import lphy.core.model.DeterministicFunction;
+import lphy.core.model.GenerativeDistribution;
+import lphy.core.model.Generator;
+import lphy.core.model.RandomVariable;
+import lphy.core.model.Value;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The instrumentation of the generators called during sampling,
+ * which collects the wall time, the number of calls and the allocated bytes (if supported by the JVM)
+ * per generator name and per value id.
+ * The profiler is only called when it is set by {@link Sampler#setProfiler(GeneratorProfiler)},
+ * so there is no overhead otherwise.
+ * It records the path which {@link Sampler#sample(Long)} actually takes:
+ * the generators called by the {@link Sampler} when resampling from the dictionary,
+ * or the distributions and functions called by the parser when the script is re-parsed,
+ * which find the profiler by {@link #getActive()}.
+ * A {@link GeneratorEvent} is also committed for every call when a JFR recording is running,
+ * e.g. <code>java -XX:StartFlightRecording ...</code>.
+ */
+public class GeneratorProfiler {
+
+    /**
+     * The statistics of the calls to one generator, or to generate one value.
+     */
+    public static class Record {
+        private final String name;
+        private long calls = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+        // -1 if not supported
+        private long allocatedBytes = 0;
+
+        Record(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos, long bytes) {
+            calls++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) maxNanos = nanos;
+            if (bytes < 0 || allocatedBytes < 0) allocatedBytes = -1;
+            else allocatedBytes += bytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return calls > 0 ? (double) totalNanos / calls : Double.NaN;
+        }
+
+        /**
+         * @return the bytes allocated by the calls in the current thread, or -1 if not supported.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    // the value id of anonymous values
+    public static final String ANONYMOUS = "(anonymous)";
+
+    private final Map<String, Record> generatorRecords = new HashMap<>();
+    private final Map<String, Record> valueRecords = new HashMap<>();
+
+    // the profiler of the parsing in the current thread
+    private static final ThreadLocal<GeneratorProfiler> active = new ThreadLocal<>();
+
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    public GeneratorProfiler() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            if (!sunBean.isThreadAllocatedMemoryEnabled())
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+            allocationBean = sunBean;
+        } else allocationBean = null;
+    }
+
+    /**
+     * @return true if the allocated bytes can be measured by this JVM.
+     */
+    public boolean isAllocationSupported() {
+        return allocationBean != null;
+    }
+
+    private long allocatedBytes() {
+        return allocationBean == null ? -1 : allocationBean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @param profiler  the profiler to record the distributions and functions called by the parser
+     *                  in the current thread, or null to stop profiling.
+     * @return the previous profiler of the current thread, which can be null.
+     */
+    public static GeneratorProfiler setActive(GeneratorProfiler profiler) {
+        GeneratorProfiler previous = active.get();
+        if (profiler == null) active.remove();
+        else active.set(profiler);
+        return previous;
+    }
+
+    /**
+     * @return the profiler of the parsing in the current thread, or null if not profiling.
+     */
+    public static GeneratorProfiler getActive() {
+        return active.get();
+    }
+
+    /**
+     * Call {@link GenerativeDistribution#sample(String)} in the parser,
+     * which is recorded by the active profiler if there is one.
+     * @see #getActive()
+     */
+    public static <T> RandomVariable<T> sample(GenerativeDistribution<T> distribution, String valueId) {
+        GeneratorProfiler profiler = active.get();
+        if (profiler == null)
+            return distribution.sample(valueId);
+        return profiler.profile(distribution.getName(), valueId, () -> distribution.sample(valueId));
+    }
+
+    /**
+     * Call {@link DeterministicFunction#apply()} in the parser,
+     * which is recorded by the active profiler if there is one.
+     * @param valueId    the id of the value to generate, which can be null for anonymous values.
+     * @see #getActive()
+     */
+    public static <T> Value<T> apply(DeterministicFunction<T> function, String valueId) {
+        GeneratorProfiler profiler = active.get();
+        if (profiler == null)
+            return function.apply();
+        return profiler.profile(function.getName(), valueId, function::apply);
+    }
+
+    /**
+     * Call {@link Generator#generate()} and record its cost.
+     * @param generator  the generator
+     * @param valueId    the id of the value to generate, which can be null for anonymous values.
+     * @return the value generated.
+     */
+    public Value generate(Generator<?> generator, String valueId) {
+        return profile(generator.getName(), valueId, generator::generate);
+    }
+
+    private <V extends Value<?>> V profile(String name, String valueId, Supplier<V> generate) {
+        GeneratorEvent event = null;
+        if (EventType.getEventType(GeneratorEvent.class).isEnabled()) {
+            event = new GeneratorEvent();
+            event.begin();
+        }
+        final long bytes0 = allocatedBytes();
+        final long start = System.nanoTime();
+
+        V value = generate.get();
+
+        final long nanos = System.nanoTime() - start;
+        final long bytes = bytes0 < 0 ? -1 : allocatedBytes() - bytes0;
+
+        String id = valueId == null ? ANONYMOUS : valueId;
+        record(name, id, nanos, bytes);
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.generator = name;
+                event.valueId = id;
+                event.allocatedBytes = bytes;
+                event.commit();
+            }
+        }
+        return value;
+    }
+
+    private synchronized void record(String name, String id, long nanos, long bytes) {
+        generatorRecords.computeIfAbsent(name, Record::new).add(nanos, bytes);
+        valueRecords.computeIfAbsent(id, Record::new).add(nanos, bytes);
+    }
+
+    /**
+     * @return the records per generator name, sorted by total time in descending order.
+     */
+    public synchronized List<Record> getGeneratorRecords() {
+        return sortByTime(generatorRecords.values());
+    }
+
+    /**
+     * @return the records per value id, sorted by total time in descending order.
+     */
+    public synchronized List<Record> getValueRecords() {
+        return sortByTime(valueRecords.values());
+    }
+
+    private static List<Record> sortByTime(Collection<Record> records) {
+        List<Record> list = new ArrayList<>(records);
+        list.sort(Comparator.comparingLong(Record::getTotalNanos).reversed()
+                .thenComparing(Record::getName));
+        return list;
+    }
+
+    public synchronized void reset() {
+        generatorRecords.clear();
+        valueRecords.clear();
+    }
+
+    /**
+     * @return the summary tables of the records per generator and per value id.
+     */
+    public String summary() {
+        return summary("Generator", getGeneratorRecords()) + "\n" + summary("Value", getValueRecords());
+    }
+
+    private static String summary(String title, List<Record> records) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-30s %10s %12s %12s %12s %14s%n", title,
+                "Calls", "Total (ms)", "Mean (us)", "Max (us)", "Allocated (KB)"));
+        for (Record r : records) {
+            builder.append(String.format("%-30s %10d %12.3f %12.3f %12.3f %14s%n", r.getName(), r.getCalls(),
+                    r.getTotalNanos() / 1e6, r.getMeanNanos() / 1e3, r.getMaxNanos() / 1e3,
+                    r.getAllocatedBytes() < 0 ? "NA" : String.format("%.1f", r.getAllocatedBytes() / 1024.0)));
+        }
+        return builder.toString();
+    }
+}
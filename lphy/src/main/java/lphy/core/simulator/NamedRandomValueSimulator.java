@@ -1,6 +1,7 @@
 package lphy.core.simulator;
 
 import lphy.core.io.FileConfig;
+import lphy.core.logger.LoggerUtils;
 import lphy.core.logger.ValueFileLoggerListener;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
@@ -10,6 +11,7 @@ import lphy.core.parser.graphicalmodel.GraphicalModelUtils;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +30,11 @@ public class NamedRandomValueSimulator {
 
     protected Sampler sampler;
 
+    protected GeneratorProfiler profiler = null;
+
+    // the ids of values held fixed in all replicates
+    protected String[] fixedIds = null;
+
     public NamedRandomValueSimulator() {
         this(new ValueFileLoggerListener());
     }
@@ -36,6 +43,27 @@ public class NamedRandomValueSimulator {
         this.simulatorListener = simulatorListener;
     }
 
+    /**
+     * @param profiler  the profiler to record the cost of generators in all replicates,
+     *                  or null to disable profiling.
+     */
+    public void setProfiler(GeneratorProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public GeneratorProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @param fixedIds  the ids of values held fixed at the 1st replicate, where only the values downstream
+     *                  of them are resampled in the other replicates, or null to resample all.
+     * @see Sampler#setFixedValues(java.util.Collection)
+     */
+    public void setFixedValues(String[] fixedIds) {
+        this.fixedIds = fixedIds;
+    }
+
     public LPhyParserDictionary getParserDictionary() {
         if (sampler == null) return null;
         return sampler.getParserDictionary();
@@ -70,14 +98,27 @@ public class NamedRandomValueSimulator {
         // must provide File lphyFile, int numReplicates, Long seed
         Map<Integer, List<Value>> allReps = simulate(lphyFile, numReplicates, constants, varNotLog, seed);
 
+        log(allReps);
+
+        return allReps;
+    }
+
+    /**
+     * Pass all simulation results to the {@link SimulatorListener}, which has been started,
+     * and then complete it.
+     * @param allReps   All simulation results in a map, key is the index of replicates.
+     */
+    public void log(Map<Integer, List<Value>> allReps) {
         for (Map.Entry<Integer, List<Value>> entry : allReps.entrySet()) {
             List<Value> namedRandomValueList = entry.getValue();
 
             simulatorListener.replicate(entry.getKey(), namedRandomValueList);
         }
         simulatorListener.complete();
+    }
 
-        return allReps;
+    public SimulatorListener getSimulatorListener() {
+        return simulatorListener;
     }
 
     /**
@@ -99,13 +140,68 @@ public class NamedRandomValueSimulator {
             throw new IllegalArgumentException("The replicate must be at least 1 time ! " +
                     "But numReplicates = " + numReplicates);
 
-        Map<Integer, List<Value>> simResMap = new HashMap<>();
-
         long start = System.currentTimeMillis();
 
+        // the values of 1st replicate are simulated during parsing
+        if (seed != null)
+            RandomUtils.setSeed(seed);
         // create Sampler by parsing a lphy script file,
         // during parsing, the values are simulated.
-        sampler = Sampler.createSampler(lphyFile, constants);
+        // the values simulated during parsing are recorded by the profiler
+        GeneratorProfiler previous = GeneratorProfiler.setActive(profiler);
+        try {
+            sampler = Sampler.createSampler(lphyFile, constants);
+        } finally {
+            GeneratorProfiler.setActive(previous);
+        }
+        Map<Integer, List<Value>> simResMap = sampleReplicates(numReplicates, varNotLog);
+
+        long end = System.currentTimeMillis();
+        System.out.println("Sampled " + lphyFile + " at " + numReplicates + (numReplicates >1?" times":" time") +
+                " which takes " + (end - start) + " ms.");
+        return simResMap;
+    }
+
+    /**
+     * Simulate using the model defined by a lphy script which has been read,
+     * such as the same script for each grid point of a {@link ParameterSweep}.
+     * @param lphyScript       the lphy script, which may contain Macro.
+     * @param numReplicates    number of replicates of simulations
+     * @param constants    constants inputted by user using macro
+     * @param seed         the seed value, if null then use a random seed.
+     * @return             All simulation results in a map, key is the index of replicates.
+     * @throws IOException
+     * @see #simulate(File, int, String[], String[], Long)
+     */
+    public Map<Integer, List<Value>> simulate(String lphyScript, int numReplicates, String[] constants,
+                                              String[] varNotLog, Long seed) throws IOException {
+        if (numReplicates < 1)
+            throw new IllegalArgumentException("The replicate must be at least 1 time ! " +
+                    "But numReplicates = " + numReplicates);
+
+        if (seed != null)
+            RandomUtils.setSeed(seed);
+        // the values simulated during parsing are recorded by the profiler
+        GeneratorProfiler previous = GeneratorProfiler.setActive(profiler);
+        try {
+            sampler = Sampler.createSampler(lphyScript, constants);
+        } finally {
+            GeneratorProfiler.setActive(previous);
+        }
+        return sampleReplicates(numReplicates, varNotLog);
+    }
+
+    // the 1st replicate is the values simulated during parsing,
+    // and the seed is only set before parsing, otherwise every replicate is the same
+    private Map<Integer, List<Value>> sampleReplicates(int numReplicates, String[] varNotLog) {
+        Map<Integer, List<Value>> simResMap = new HashMap<>();
+
+        if (fixedIds != null && fixedIds.length > 0) {
+            sampler.setFixedValues(Arrays.asList(fixedIds));
+            LoggerUtils.log.info("Hold the values fixed : " + Arrays.toString(fixedIds));
+        }
+
+        sampler.setProfiler(profiler);
         // take the values already simulated from parsing
         List<Value> values = GraphicalModelUtils.getAllValuesFromSinks(getParserDictionary());
         List<Value> namedRandomValueList = getNamedRandomValues(values, varNotLog);
@@ -114,16 +210,12 @@ public class NamedRandomValueSimulator {
         // start from 2nd replicate
         for (int i = SimulatorListener.REPLICATES_START_INDEX + 1; i < numReplicates; i++) {
             // sample() does not parse the script again
-            values = sampler.sample(seed);
+            values = sampler.sample(null);
             // filter to RandomValue
             namedRandomValueList = getNamedRandomValues(values, varNotLog);
 
             simResMap.put(i, namedRandomValueList);
         }
-
-        long end = System.currentTimeMillis();
-        System.out.println("Sampled " + lphyFile + " at " + numReplicates + (numReplicates >1?" times":" time") +
-                " which takes " + (end - start) + " ms.");
         return simResMap;
     }
 
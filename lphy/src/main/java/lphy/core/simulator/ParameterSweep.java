@@ -0,0 +1,228 @@
+package lphy.core.simulator;
+
+import lphy.core.io.FileConfig;
+import lphy.core.io.OutputSystem;
+import lphy.core.logger.LoggerUtils;
+import lphy.core.logger.ValueFileLoggerListener;
+import lphy.core.model.Value;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static lphy.core.io.FileConfig.getLPhyFilePrefix;
+
+/**
+ * Simulate a lphy script at every grid point of the constants replaced by Macro, in one JVM.
+ * The grid points are given in a file, one line for a list of grid points,
+ * where the constants are split by ';' in the same way as the -D option of {@link SLPhy},
+ * and the alternative values of a constant are split by '|'.
+ * E.g., the line "n=10|20;L=100|1000" creates 4 grid points,
+ * and the lines "n=10;L=100" and "n=20;L=1000" create 2 grid points.
+ * Blank lines and the lines starting with '#' are ignored.
+ * <p>
+ * The script is read once, and each grid point has its own parser dictionary
+ * and random number generators, so that the grid points are simulated concurrently.
+ * The output files of a grid point are prefixed by the file prefix followed by
+ * <code>_sweep</code> and the index of the grid point,
+ * and the constants of all grid points are logged in the file <code>*_sweep.tsv</code>.
+ */
+public class ParameterSweep {
+
+    public static final String SWEEP_POSTFIX = "_sweep";
+    public static final String CONSTANT_SEPARATOR = ";";
+    public static final String ALTERNATIVE_SEPARATOR = "|";
+
+    private final List<String[]> gridPoints;
+
+    /**
+     * @param gridPoints  the constants of each grid point, where each string element looks like n=10.
+     */
+    public ParameterSweep(List<String[]> gridPoints) {
+        if (gridPoints == null || gridPoints.isEmpty())
+            throw new IllegalArgumentException("The parameter sweep requires at least one grid point !");
+        this.gridPoints = List.copyOf(gridPoints);
+    }
+
+    /**
+     * @param sweepFile  the file of grid points, see {@link ParameterSweep}.
+     * @return  the parameter sweep of all grid points in the file.
+     * @throws IOException
+     */
+    public static ParameterSweep fromFile(Path sweepFile) throws IOException {
+        return new ParameterSweep(parseGridPoints(Files.readAllLines(sweepFile, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param lines  the lines of grid points, see {@link ParameterSweep}.
+     * @return  the constants of each grid point in the order of lines,
+     *          where the last constant in a line changes fastest.
+     */
+    public static List<String[]> parseGridPoints(List<String> lines) {
+        List<String[]> gridPoints = new ArrayList<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            List<List<String>> grid = new ArrayList<>();
+            for (String constant : line.split(CONSTANT_SEPARATOR)) {
+                if (constant.isBlank()) continue;
+                String[] varVal = constant.split("=", 2);
+                if (varVal.length != 2 || varVal[0].isBlank())
+                    throw new IllegalArgumentException("The constant must look like n=10, but it is '" +
+                            constant + "' in the line : " + line);
+                List<String> alternatives = new ArrayList<>();
+                for (String val : varVal[1].split("\\" + ALTERNATIVE_SEPARATOR))
+                    alternatives.add(varVal[0].trim() + "=" + val.trim());
+                grid.add(alternatives);
+            }
+            expand(grid, 0, new String[grid.size()], gridPoints);
+        }
+        return gridPoints;
+    }
+
+    // Cartesian product of the alternative values of all constants
+    private static void expand(List<List<String>> grid, int i, String[] point, List<String[]> gridPoints) {
+        if (i == grid.size()) {
+            gridPoints.add(point.clone());
+            return;
+        }
+        for (String constant : grid.get(i)) {
+            point[i] = constant;
+            expand(grid, i + 1, point, gridPoints);
+        }
+    }
+
+    public List<String[]> getGridPoints() {
+        return gridPoints;
+    }
+
+    /**
+     * @param filePrefix  the prefix of output files, normally the lphy file name without extension.
+     * @param index       the index of the grid point, which starts from 0.
+     * @return  the prefix of output files of the grid point.
+     */
+    public static String getGridPointPrefix(String filePrefix, int index) {
+        return filePrefix + SWEEP_POSTFIX + index;
+    }
+
+    /**
+     * Simulate the lphy file at every grid point, and log the named random values of each grid point
+     * by a {@link ValueFileLoggerListener} into the files prefixed by {@link #getGridPointPrefix(String, int)}.
+     * The simulations are concurrent, but the logging is one grid point at a time.
+     * If a grid point fails, the error is logged and the other grid points will continue.
+     *
+     * @param lphyFile         input file, which may contain Macro.
+     * @param outputFilePrefix  output file prefix, if null, then use the input file prefix
+     * @param numReplicates    number of replicates of simulations at each grid point
+     * @param constants    constants inputted by user using macro, which are shared by all grid points,
+     *                     but replaced by the constants of a grid point given the same name.
+     * @param varNotLog    the random variables not to log.
+     * @param seed         the seed value, where the seed of the i-th grid point is seed + i,
+     *                     if null then use random seeds.
+     * @param numThreads   the number of grid points to simulate at the same time.
+     * @return  the number of grid points failed.
+     * @throws IOException
+     */
+    public int simulateAndLog(File lphyFile, String outputFilePrefix, int numReplicates, String[] constants,
+                              String[] varNotLog, Long seed, int numThreads) throws IOException {
+        if (numThreads < 1)
+            throw new IllegalArgumentException("The number of threads must be at least 1 ! " +
+                    "But numThreads = " + numThreads);
+
+        File outDir = lphyFile.getAbsoluteFile().getParentFile();
+        FileConfig.Utils.validate(lphyFile, outDir);
+        if (outputFilePrefix == null)
+            outputFilePrefix = getLPhyFilePrefix(lphyFile);
+        final String filePrefix = outputFilePrefix;
+
+        // read and preprocess the script once
+        final String lphyScript = Files.readString(lphyFile.toPath(), StandardCharsets.UTF_8);
+        final long[] seeds = new long[gridPoints.size()];
+        for (int i = 0; i < seeds.length; i++)
+            seeds[i] = seed != null ? seed + i : RandomUtils.getRandom().nextLong();
+
+        writeGridPoints(filePrefix, seeds);
+
+        long start = System.currentTimeMillis();
+        // ValueFormatHandler writes through the shared OutputSystem.out
+        final Object logLock = new Object();
+        final AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, gridPoints.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < gridPoints.size(); i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> {
+                    String[] pointConstants = concat(constants, gridPoints.get(index));
+                    String pointPrefix = getGridPointPrefix(filePrefix, index);
+                    // the generators created by parsing capture the random number generators of this thread
+                    RandomUtils.setLocalRandom(seeds[index]);
+                    try {
+                        NamedRandomValueSimulator simulator = new NamedRandomValueSimulator();
+                        Map<Integer, List<Value>> allReps = simulator.simulate(lphyScript, numReplicates,
+                                pointConstants, varNotLog, null);
+                        synchronized (logLock) {
+                            simulator.getSimulatorListener().start(numReplicates, pointPrefix);
+                            simulator.log(allReps);
+                        }
+                        System.out.println("Sampled grid point " + index + " " +
+                                Arrays.toString(gridPoints.get(index)) + " at " + numReplicates +
+                                (numReplicates > 1 ? " times." : " time."));
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        LoggerUtils.log.severe("Failed to simulate grid point " + index + " " +
+                                Arrays.toString(gridPoints.get(index)) + " : " + e.getMessage());
+                    } finally {
+                        RandomUtils.clearLocalRandom();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("Sampled " + lphyFile + " at " + gridPoints.size() + " grid points using " +
+                numThreads + (numThreads > 1 ? " threads" : " thread") + ", which takes " + (end - start) + " ms.");
+
+        return failed.get();
+    }
+
+    // the grid point constants are after the shared constants, so that they replace the shared
+    private static String[] concat(String[] constants, String[] pointConstants) {
+        if (constants == null || constants.length == 0)
+            return pointConstants;
+        String[] all = Arrays.copyOf(constants, constants.length + pointConstants.length);
+        System.arraycopy(pointConstants, 0, all, constants.length, pointConstants.length);
+        return all;
+    }
+
+    // index, seed and the constants of each grid point
+    private void writeGridPoints(String filePrefix, long[] seeds) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("index\tprefix\tseed\tconstants");
+        for (int i = 0; i < gridPoints.size(); i++)
+            lines.add(i + "\t" + getGridPointPrefix(filePrefix, i) + "\t" + seeds[i] + "\t" +
+                    String.join(CONSTANT_SEPARATOR, gridPoints.get(i)));
+
+        String fileName = FileConfig.getOutFileName(filePrefix + SWEEP_POSTFIX, ".tsv");
+        File outputFile = OutputSystem.getOutputFile(fileName, true);
+        Files.write(outputFile.toPath(), lines, StandardCharsets.UTF_8);
+        System.out.println("Create file : " + fileName +
+                " in the directory " + outputFile.getParentFile().getAbsolutePath());
+    }
+}
@@ -16,21 +16,51 @@ public class RandomUtils {
     // for only using Java Random
     private static Random javaRandom = new Random();
 
+    // the generators only used by the current thread, such as a grid point of a parameter sweep,
+    // which override the shared generators above if they are set.
+    private static final ThreadLocal<RandomGenerator> localRandom = new ThreadLocal<>();
+    private static final ThreadLocal<Random> localJavaRandom = new ThreadLocal<>();
+
     /**
      * @return a pseudo-random number generator developed by
      * Makoto Matsumoto and Takuji Nishimura during 1996-1997.
+     * It is the generator of the current thread if {@link #setLocalRandom(long)} was called.
      * @see MersenneTwister
      */
     public static RandomGenerator getRandom() {
-        return random;
+        RandomGenerator r = localRandom.get();
+        return r != null ? r : random;
     }
 
     /**
      * @return  a random number generator from java.util.random.
+     * It is the generator of the current thread if {@link #setLocalRandom(long)} was called.
      * @see Random
      */
     public static Random getJavaRandom() {
-        return javaRandom;
+        Random r = localJavaRandom.get();
+        return r != null ? r : javaRandom;
+    }
+
+    /**
+     * Create the random number generators only used by the current thread,
+     * so that the simulations in different threads are independent and reproducible.
+     * The generators are captured by the generators of a model when they are created,
+     * so this must be called before parsing the lphy script in this thread.
+     * @param seed  the seed value of the generators of this thread.
+     * @see #clearLocalRandom()
+     */
+    public static void setLocalRandom(long seed) {
+        localRandom.set(new MersenneTwister(seed));
+        localJavaRandom.set(new Random(seed));
+    }
+
+    /**
+     * Remove the generators of the current thread, and then use the shared generators.
+     */
+    public static void clearLocalRandom() {
+        localRandom.remove();
+        localJavaRandom.remove();
     }
 
     //TODO either create a new Random or setSeed
@@ -42,13 +72,14 @@ public class RandomUtils {
     /**
      * Sets the seed of the underlying random number generator using an int seed.
      * Sequences of values generated starting with the same seeds should be identical.
+     * The generators of the current thread are seeded instead, if they are set.
      * @param seed  the seed value
      * @see RandomGenerator#setSeed(long)
      * @see Random#setSeed(long)
      */
     public static void setSeed(long seed) {
-        random.setSeed(seed);
-        javaRandom.setSeed(seed);
+        getRandom().setSeed(seed);
+        getJavaRandom().setSeed(seed);
         LoggerUtils.log.info("Set seed " + seed + " to LPhy random number generator.");
     }
 
@@ -0,0 +1,85 @@
+package lphy.core.simulator;
+
+import lphy.core.model.Value;
+import lphy.core.model.ValueSnapshot;
+
+import java.util.*;
+
+/**
+ * The immutable result of a replicate, which is safe to keep after the next replicate is sampled,
+ * and to pass to other threads without copying the trees or alignments.
+ * The values unchanged since the previous replicate, such as constants and data,
+ * or the values not resampled from the parser dictionary, share the same {@link ValueSnapshot}.
+ * @see Sampler#sampleAll(int, List, Long, SamplingMonitor)
+ */
+public final class ReplicateSnapshot {
+
+    // the object of source value when the snapshot was taken
+    private record Source(Object object, ValueSnapshot<?> snapshot) { }
+
+    private final int index;
+    private final List<Value> values;
+    private final int sharedCount;
+    // the source values to share the unchanged values with the next replicate,
+    // which is released after the next snapshot is taken
+    private Map<Value<?>, Source> sources;
+
+    private ReplicateSnapshot(int index, List<Value> values, ReplicateSnapshot previous) {
+        this.index = index;
+        List<Value> snapshotValues = new ArrayList<>(values.size());
+        sources = new IdentityHashMap<>(values.size());
+
+        int shared = 0;
+        for (Value<?> value : values) {
+            ValueSnapshot<?> snapshot = previous == null ? null : previous.getSnapshot(value);
+            if (snapshot != null)
+                shared++;
+            else
+                snapshot = ValueSnapshot.of(value);
+            sources.put(value, new Source(value.value(), snapshot));
+            snapshotValues.add(snapshot);
+        }
+        this.values = Collections.unmodifiableList(snapshotValues);
+        this.sharedCount = shared;
+        if (previous != null)
+            previous.sources = null;
+    }
+
+    /**
+     * @param index     the index of replicate
+     * @param values    the values of the replicate, which can be changed after this call.
+     * @param previous  the snapshot of the previous replicate to share the unchanged values, or null.
+     *                  It cannot be used to share with the other replicates after this call.
+     * @return  the snapshot of the values.
+     */
+    public static ReplicateSnapshot of(int index, List<Value> values, ReplicateSnapshot previous) {
+        return new ReplicateSnapshot(index, values, previous);
+    }
+
+    // the snapshot of the same value with the same object and id, otherwise null
+    private ValueSnapshot<?> getSnapshot(Value<?> value) {
+        Source source = sources == null ? null : sources.get(value);
+        if (source == null || source.object != value.value() ||
+                !Objects.equals(source.snapshot.getId(), value.getId()))
+            return null;
+        return source.snapshot;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return  the unmodifiable list of {@link ValueSnapshot} in the same order as the sampled values.
+     */
+    public List<Value> getValues() {
+        return values;
+    }
+
+    /**
+     * @return  the number of values shared with the previous replicate.
+     */
+    public int getSharedCount() {
+        return sharedCount;
+    }
+}
@@ -52,6 +52,30 @@ public class SLPhy implements Callable<Integer> {
                     "The last means the alignment D defined in the lphy script will not be logged.")
     String[] varNotLog = null;
 
+    @CommandLine.Option(names = {"-p", "--profile"},
+            description = "Print the wall time, the number of calls and the allocated bytes " +
+                    "of every generator and value after the simulations. " +
+                    "The replicates are sampled in the same way as without profiling.")
+    boolean profile;
+
+    @CommandLine.Option(names = {"-fix", "--fixed"}, split = ";",
+            description = "Hold the given lphy random variables (id or its canonical version) fixed at the 1st replicate, " +
+                    "and only resample the values downstream of them in the other replicates, " +
+                    "where the values they depend on are also fixed. Multiple id must be quoted and split by ';': " +
+                    "e.g. -fix psi -r 1000 simulates 1000 alignments on the same tree.")
+    String[] fixedIds = null;
+
+    @CommandLine.Option(names = {"-sw", "--sweep"},
+            description = "The file of grid points to simulate the LPhy script at every grid point in one run, " +
+                    "one line for a list of grid points, where the constants are split by ';' as -D, " +
+                    "and the alternative values of a constant are split by '|': e.g. n=10|20;L=100|1000 " +
+                    "creates 4 grid points. The constants given by -D are shared by all grid points.")
+    Path sweepFile;
+    @CommandLine.Option(names = {"-t", "--threads"},
+            description = "The number of grid points to simulate at the same time in the parameter sweep, " +
+                    "the default is the number of processors.")
+    int numThreads = Runtime.getRuntime().availableProcessors();
+
 //    enum SPI { loggers } //TODO  functions, gendists
 //    // arity = "0" not working
 //    @CommandLine.Option(names = {"-ls", "--list"},
@@ -67,11 +91,27 @@ public class SLPhy implements Callable<Integer> {
     public Integer call() throws PicocliException {
 
         try {
+            if (sweepFile != null) {
+                if (profile)
+                    LoggerUtils.log.warning("The profiling is not available for the parameter sweep !");
+                if (fixedIds != null)
+                    LoggerUtils.log.warning("Holding values fixed is not available for the parameter sweep !");
+                ParameterSweep sweep = ParameterSweep.fromFile(sweepFile);
+                int failed = sweep.simulateAndLog(infile.toFile(), null, numReps, lphyConst,
+                        varNotLog, seed, numThreads);
+                return failed > 0 ? 1 : 0;
+            }
+
             simulator = new NamedRandomValueSimulator();
+            if (profile)
+                simulator.setProfiler(new GeneratorProfiler());
+            simulator.setFixedValues(fixedIds);
             // must provide File lphyFile, int numReplicates, Long seed
             Map<Integer, List<Value>> allReps = simulator.simulateAndLog(infile.toFile(), null,
                     numReps, lphyConst, varNotLog, seed);
             // TODO save Map<Integer, List<Value>> simResMap ?
+            if (profile)
+                System.out.println("\n" + simulator.getProfiler().summary());
         } catch (IOException e) {
             throw new PicocliException(e.getMessage(), e);
         }
@@ -3,16 +3,22 @@ package lphy.core.simulator;
 import lphy.core.codebuilder.CanonicalCodeBuilder;
 import lphy.core.logger.LoggerUtils;
 import lphy.core.model.Generator;
+import lphy.core.model.ParallelSampler;
+import lphy.core.model.ParameterSlots;
 import lphy.core.model.RandomVariable;
 import lphy.core.model.Value;
 import lphy.core.parser.LPhyParserDictionary;
 import lphy.core.parser.REPL;
 import lphy.core.parser.graphicalmodel.GraphicalModelUtils;
 import lphy.core.vectorization.CompoundVectorValue;
+import org.apache.commons.math3.random.MersenneTwister;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Re-sampling values from a {@link LPhyParserDictionary}.
@@ -30,6 +36,14 @@ public class Sampler {
 
     protected boolean isSampleValuesUsingParser = LPhyParserDictionary.Utils.isSampleValuesUsingParser();
 
+    // null to disable profiling
+    protected GeneratorProfiler profiler = null;
+
+    // the ids of values held fixed during resampling
+    protected Set<String> fixedIds = Collections.emptySet();
+    // the values held fixed and their ancestors in the current resampling
+    private Set<Value<?>> heldValues = Collections.emptySet();
+
     public Sampler() {
 
     }
@@ -60,6 +74,22 @@ public class Sampler {
         return sampler;
     }
 
+    /**
+     * This is same as {@link #createSampler(File, String[])},
+     * but the LPhy script has been read, such as the same script for multiple sets of constants.
+     * @param lphyScript   String containing LPhy script, which may contain Macro,
+     *                     and must use \n to split lines.
+     * @param constants      constants inputted by user using macro
+     * @return          a Sampler created by the given LPhy script.
+     * @throws IOException
+     */
+    public static Sampler createSampler(String lphyScript, String[] constants) throws IOException {
+        LPhyParserDictionary parser = new REPL();
+        parser.source(new BufferedReader(new StringReader(lphyScript)), constants);
+
+        return new Sampler(parser);
+    }
+
     /**
      * @param lphyScript   String containing LPhy script,
      *                     which must use \n to split lines.
@@ -78,6 +108,10 @@ public class Sampler {
     /** TODO make it thread-safe ?
      * The <b>only main</b> method to re-sample values stored in {@link LPhyParserDictionary}.
      * This will not use parser.
+     * The sinks generated by {@link lphy.core.model.ParallelSampler} sharing one input,
+     * such as the alignments of partitions on the same tree, are sampled at the same time.
+     * The values are then resampled from the dictionary, even if the default path
+     * re-parsing the script is chosen, since the parser calls the generators in order.
      * @param seed  the seed value, if null then use a random seed.
      * @return the list {@link Value} from one simulation.
      */
@@ -88,9 +122,18 @@ public class Sampler {
         }
 
         LPhyParserDictionary parserDict = getParserDictionary();
-        if (isSampleValuesUsingParser)
-            sampleUsingParser(parserDict);
-        else
+        // holding values fixed or sampling in parallel requires to resample from the dictionary,
+        // where the generators are called by this sampler
+        if (isSampleValuesUsingParser && fixedIds.isEmpty() &&
+                getParallelSinks(parserDict.getDataModelSinks()).size() < 2) {
+            // the parser calls the generators, which are recorded by the profiler of this thread
+            GeneratorProfiler previous = GeneratorProfiler.setActive(profiler);
+            try {
+                sampleUsingParser(parserDict);
+            } finally {
+                GeneratorProfiler.setActive(previous);
+            }
+        } else
             resampleFromDictionary(parserDict);
 
         // get the values from traversing the graphical model,
@@ -118,10 +161,12 @@ public class Sampler {
         final int nModelValSet = parserDict.getModelValues().size();
 
         List<RandomVariable<?>> variables = parserDict.getAllVariablesFromSinks();
+        heldValues = getHeldValues(parserDict);
         // remove all random variables from Model Dictionary before resampling,
         // leave the other to be replaced if they are required to update.
         for (RandomVariable<?> var : variables) {
-            parserDict.getModelDictionary().remove(var.getId());
+            if (!heldValues.contains(var))
+                parserDict.getModelDictionary().remove(var.getId());
         }
 
         /**
@@ -140,9 +185,17 @@ public class Sampler {
 
         // store the value id which is newly sampled.
         Set<String> sampled = new TreeSet<>();
+        // such as the alignments of partitions
+        List<Value> parallelSinks = getParallelSinks(sinks);
+        if (parallelSinks.size() > 1)
+            resampleInParallel(parallelSinks, variables, sampled);
+        else
+            parallelSinks = List.of();
+
         for (Value value : sinks) {
+            if (parallelSinks.contains(value)) continue;
             // a random variable, or the value from a deterministic function taking a random value.
-            if (value.isRandom()) {
+            if (value.isRandom() && !heldValues.contains(value)) {
                 //*** re-sampling ***//
                 Value newValue;
                 // re-sample if it has a generator, this will exclude constant Values.
@@ -198,9 +251,9 @@ public class Sampler {
     }
 
     /**
-     * This is used by studio sample button.
      * Sample add replicates, and call the given listeners.
-     * Such as, it can be used by GUI with GUI log listeners.
+     * All replicates are kept in the returned map,
+     * use {@link #sampleAll(int, List, Long, SamplingMonitor)} to stream them to listeners only.
      *
      * @param numReplicates    the number of times to sample
      * @param loggers the loggers to log to, cannot be null
@@ -212,29 +265,123 @@ public class Sampler {
         Objects.requireNonNull(loggers, "Simulation result loggers must not be null !");
 
         Map<Integer, List<Value>> valuesAllRepsMap = new TreeMap<>();
+        // store result
+        SimulatorListener collector = new SimulatorListener() {
+            @Override
+            public void start(Object... configs) { }
+            @Override
+            public void replicate(int index, List<Value> values) {
+                valuesAllRepsMap.put(index, values);
+            }
+            @Override
+            public void complete() { }
+        };
+        List<SimulatorListener> listeners = new ArrayList<>(loggers);
+        listeners.add(collector);
+
+        sampleAll(numReplicates, listeners, seed, null);
+        return valuesAllRepsMap;
+    }
+
+    /**
+     * This is used by studio sample button.
+     * Sample add replicates, and stream the result of each replicate to the given listeners,
+     * without keeping them. The listeners receive the values of {@link ReplicateSnapshot},
+     * which share the unchanged values between replicates. The sampling stops after the current replicate
+     * if the monitor is stopped, and the listeners are still completed.
+     *
+     * @param numReplicates    the number of times to sample
+     * @param loggers the loggers to log to, cannot be null
+     * @param seed  the seed value, if null then use a random number.
+     * @param monitor  to report the progress and cancel the sampling, which can be null.
+     * @return  the number of replicates sampled, which is less than numReplicates if stopped.
+     */
+    public int sampleAll(int numReplicates, List<? extends SimulatorListener> loggers,
+                         Long seed, SamplingMonitor monitor) {
+        Objects.requireNonNull(loggers, "Simulation result loggers must not be null !");
+
         // start
         for (SimulatorListener logger : loggers)
             // pass numReplicates to loggers
             logger.start(numReplicates);
 
+        int sampled = 0;
+        ReplicateSnapshot snapshot = null;
         for (int i = SimulatorListener.REPLICATES_START_INDEX; i < numReplicates; i++) {
-
+            if (monitor != null && monitor.isStopped()) {
+                LoggerUtils.log.warning("Sampling is stopped after " + sampled + " replicates !");
+                break;
+            }
             // sampling at seed
             List<Value> values = sample(seed);
-            // store result
-            valuesAllRepsMap.put(i, values);
+            // the values in the parser dictionary are changed by the next replicate,
+            // so the listeners get the immutable snapshot, which they can keep or pass to other threads.
+            snapshot = ReplicateSnapshot.of(i, values, snapshot);
 
             // log
             for (SimulatorListener logger : loggers) {
-                logger.replicate(i, values);
+                logger.replicate(i, snapshot.getValues());
             }
+            sampled++;
+            if (monitor != null)
+                monitor.replicateSampled(i, numReplicates);
         }
         // end
         for (SimulatorListener logger : loggers)
             logger.complete();
 
         //        parser.notifyListeners();
-        return valuesAllRepsMap;
+        return sampled;
+    }
+
+    // the sinks which can be resampled at the same time given one shared input, but not when profiling
+    private List<Value> getParallelSinks(List<Value<?>> sinks) {
+        List<Value> parallelSinks = new ArrayList<>();
+        if (profiler != null) return parallelSinks;
+        Value<?> sharedInput = null;
+        for (Value value : sinks) {
+            if (value.isRandom() && !heldValues.contains(value) &&
+                    value.getGenerator() instanceof ParallelSampler<?> parallelSampler &&
+                    !getParserDictionary().getDataValues().contains(value)) {
+                // the generators must share one input, such as the tree, otherwise resample in order
+                Value<?> input = parallelSampler.getSharedInput();
+                if (input == null || (sharedInput != null && input != sharedInput))
+                    return List.of();
+                sharedInput = input;
+                parallelSinks.add(value);
+            }
+        }
+        return parallelSinks;
+    }
+
+    /**
+     * Resample the sinks whose generators are {@link ParallelSampler} at the same time.
+     * Their parameters, such as the shared tree, are resampled in order before that.
+     * Each sink has a random number generator seeded in order, so that the result is reproducible
+     * and does not depend on the number of threads.
+     */
+    private void resampleInParallel(List<Value> parallelSinks, List<RandomVariable<?>> removedRandomValues,
+                                    Set<String> sampled) {
+        final int n = parallelSinks.size();
+        final ParallelSampler<?>[] generators = new ParallelSampler[n];
+        final long[] seeds = new long[n];
+        for (int i = 0; i < n; i++) {
+            generators[i] = (ParallelSampler<?>) parallelSinks.get(i).getGenerator();
+            setNewlySampledInputs(generators[i], removedRandomValues, sampled);
+        }
+        for (int i = 0; i < n; i++)
+            seeds[i] = RandomUtils.getRandom().nextLong();
+
+        final Value[] newValues = new Value[n];
+        IntStream.range(0, n).parallel().forEach(i ->
+                newValues[i] = generators[i].sample(new MersenneTwister(seeds[i])));
+
+        for (int i = 0; i < n; i++) {
+            Value oldValue = parallelSinks.get(i);
+            setIds(oldValue, newValues[i]);
+            replaceValueInModelDict(oldValue, newValues[i], sampled);
+        }
+        LoggerUtils.log.fine("Resample " + n + " values in parallel.");
     }
 
     /**
@@ -248,23 +395,53 @@ public class Sampler {
      */
     private Value resample(Value oldValue, Generator generator,
                            List<RandomVariable<?>> removedRandomValues, Set<String> sampled) {
-        // getNewlySampledParams assumes all old values in Model Dictionary have been removed.
-        // It only gets the newly sampled params Values
-        Map<String, Value> newlySampledParams = getNewlySampledParams(generator, removedRandomValues, sampled);
-        // setParam and update the outputs
-        for (Map.Entry<String, Value> e : newlySampledParams.entrySet()) {
-            Value val = e.getValue();
-            // value can be null if it is an optional arg
-            if (val != null) {
-                // must setInput so that Values all know their outputs
-                generator.setInput(e.getKey(), val);
-                // Cannot add constants, which have no id
-                if (!val.isAnonymous())
-                    sampled.add(val.getId());
+        setNewlySampledInputs(generator, removedRandomValues, sampled);
+
+        Value newVal = profiler == null ? generator.generate() : profiler.generate(generator, oldValue.getId());
+        setIds(oldValue, newVal);
+        return newVal;
+    }
+
+    // resample the parameters of the generator, and set them as its inputs
+    private void setNewlySampledInputs(Generator generator, List<RandomVariable<?>> removedRandomValues,
+                                       Set<String> sampled) {
+        if (generator.getParams() instanceof ParameterSlots.View params) {
+            // the parameters are resampled and set by their slot indices, in the same order as the names
+            Value[] newlySampledParams = new Value[params.getSlots().size()];
+            for (int i = 0; i < newlySampledParams.length; i++) {
+                Value val = params.get(i);
+                if (val != null)
+                    newlySampledParams[i] = getNewlySampledParam(val, removedRandomValues, sampled);
+            }
+            for (int i = 0; i < newlySampledParams.length; i++) {
+                Value val = newlySampledParams[i];
+                if (val != null) {
+                    generator.setInput(i, val);
+                    if (!val.isAnonymous())
+                        sampled.add(val.getId());
+                }
+            }
+        } else {
+            // getNewlySampledParams assumes all old values in Model Dictionary have been removed.
+            // It only gets the newly sampled params Values
+            Map<String, Value> newlySampledParams = getNewlySampledParams(generator, removedRandomValues, sampled);
+            // setParam and update the outputs
+            for (Map.Entry<String, Value> e : newlySampledParams.entrySet()) {
+                Value val = e.getValue();
+                // value can be null if it is an optional arg
+                if (val != null) {
+                    // must setInput so that Values all know their outputs
+                    generator.setInput(e.getKey(), val);
+                    // Cannot add constants, which have no id
+                    if (!val.isAnonymous())
+                        sampled.add(val.getId());
+                }
             }
         }
+    }
 
-        Value newVal = generator.generate();
+    // keep the id of old value, and the ids of its components
+    private void setIds(Value oldValue, Value newVal) {
         newVal.setId(oldValue.getId());
 
         //TODO merge to vect class
@@ -276,8 +453,6 @@ public class Sampler {
             }
         } else if (oldValue instanceof CompoundVectorValue<?> || newVal instanceof CompoundVectorValue<?>)
             throw new IllegalArgumentException("sampleAll should return a CompoundVectorValue when given a CompoundVectorValue ! ");
-
-        return newVal;
     }
 
     private Map<String, Value> getNewlySampledParams(Generator generator, List<RandomVariable<?>> removedRandomValues,
@@ -287,38 +462,38 @@ public class Sampler {
         Map<String, Value> params = generator.getParams();
 
         Map<String, Value> newlySampledParams = new TreeMap<>();
-        for (Map.Entry<String, Value> e : params.entrySet()) {
-            Value val = e.getValue();
-
-            // Here, it should not only re-generate its value when Value is isRandom(),
-            // but also re-generate its value for the deterministic functions,
-            // when its parameter value is changed.
+        for (Map.Entry<String, Value> e : params.entrySet())
+            newlySampledParams.put(e.getKey(), getNewlySampledParam(e.getValue(), removedRandomValues, sampled));
+        return newlySampledParams;
+    }
 
-            //            if (val.isRandom()) {
-            if (val.isAnonymous() || !sampled.contains(val.getId())) {
-                // re-sample if it has a generator, this will exclude constant Values.
-                // AND this value is NOT generated by the code in the data block.
-                if (val.getGenerator() != null &&
-                        !getParserDictionary().getDataValues().contains(val)) {
-                    // needs to be sampled
-                    Value nv = resample(val, val.getGenerator(), removedRandomValues, sampled);
-
-                    newlySampledParams.put(e.getKey(), nv);
-                    //                    addValueToModelDictionary(nv);
-                    // replace old Value with new Value both in Model Map and Value Set
-                    replaceValueInModelDict(val, nv, sampled);
-                } else {
-                    // do not know which constant is changed, so add it anyway to setInput again
-                    newlySampledParams.put(e.getKey(), val);
-                }
-            } else {
-                // already been sampled
-                String id = e.getValue().getId();
-                newlySampledParams.put(e.getKey(), getParserDictionary().getModelDictionary().get(id));
+    /**
+     * @param val   the current value of a parameter.
+     * @return the newly sampled value of the parameter, or the current value if it is a constant.
+     */
+    private Value getNewlySampledParam(Value val, List<RandomVariable<?>> removedRandomValues, Set<String> sampled) {
+        // Here, it should not only re-generate its value when Value is isRandom(),
+        // but also re-generate its value for the deterministic functions,
+        // when its parameter value is changed.
+        // reuse the value held fixed without resampling
+        if (heldValues.contains(val))
+            return val;
+        if (val.isAnonymous() || !sampled.contains(val.getId())) {
+            // re-sample if it has a generator, this will exclude constant Values.
+            // AND this value is NOT generated by the code in the data block.
+            if (val.getGenerator() != null &&
+                    !getParserDictionary().getDataValues().contains(val)) {
+                // needs to be sampled
+                Value nv = resample(val, val.getGenerator(), removedRandomValues, sampled);
+                // replace old Value with new Value both in Model Map and Value Set
+                replaceValueInModelDict(val, nv, sampled);
+                return nv;
             }
-            //            }
+            // do not know which constant is changed, so add it anyway to setInput again
+            return val;
         }
-        return newlySampledParams;
+        // already been sampled
+        return getParserDictionary().getModelDictionary().get(val.getId());
     }
 
 
@@ -335,8 +510,81 @@ public class Sampler {
         }
     }
 
+    /**
+     * The values held fixed and all values they depend on, which are not resampled.
+     * @return  the identity set of values.
+     */
+    private Set<Value<?>> getHeldValues(LPhyParserDictionary parserDict) {
+        if (fixedIds.isEmpty()) return Collections.emptySet();
+
+        Set<Value<?>> held = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Value<?>> stack = new ArrayDeque<>();
+        for (String id : fixedIds) {
+            Value<?> value = getValue(parserDict, id);
+            if (value == null)
+                throw new IllegalArgumentException("Cannot find the value " + id + " to hold fixed in the lphy script !");
+            stack.push(value);
+        }
+        // the upstream values are also fixed, otherwise the fixed values are not consistent with them
+        while (!stack.isEmpty()) {
+            Value<?> value = stack.pop();
+            if (!held.add(value)) continue;
+            Generator<?> generator = value.getGenerator();
+            if (generator != null) {
+                for (Value<?> param : generator.getParams().values()) {
+                    if (param != null) stack.push(param);
+                }
+            }
+        }
+        return held;
+    }
+
+    // the value of the id or its canonical id, in the model block first
+    private static Value<?> getValue(LPhyParserDictionary parserDict, String id) {
+        for (Map<String, Value<?>> dict : List.of(parserDict.getModelDictionary(), parserDict.getDataDictionary())) {
+            Value<?> value = dict.get(id);
+            if (value != null) return value;
+            for (Value<?> v : dict.values()) {
+                if (id.equals(v.getCanonicalId())) return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hold the values fixed, so that {@link #sample(Long)} only resamples the values downstream of them,
+     * such as resampling the alignments given a tree. The values they depend on are also held fixed.
+     * The values held fixed are reused without copying, and the values are always resampled
+     * from the parser dictionary rather than by re-parsing the script.
+     * @param ids  the ids or canonical ids of values to hold fixed, or null or empty to resample all.
+     */
+    public void setFixedValues(Collection<String> ids) {
+        this.fixedIds = ids == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(ids));
+        // recomputed by the next resampling
+        this.heldValues = Collections.emptySet();
+    }
+
+    public Set<String> getFixedValues() {
+        return fixedIds;
+    }
+
     public LPhyParserDictionary getParserDictionary() {
         return parser;
     }
 
+    /**
+     * The profiler does not change how values are sampled. It records the generators
+     * called by the parser when the script is re-parsed, or by this sampler when resampling from the dictionary.
+     * The sinks resampled in parallel are not recorded, so they are resampled in order when profiling.
+     * @param profiler  the profiler to record the cost of every generator called by {@link #sample(Long)},
+     *                  or null to disable profiling.
+     */
+    public void setProfiler(GeneratorProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public GeneratorProfiler getProfiler() {
+        return profiler;
+    }
+
 }
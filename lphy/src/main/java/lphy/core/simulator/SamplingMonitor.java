@@ -0,0 +1,25 @@
+package lphy.core.simulator;
+
+/**
+ * Monitor the progress of {@link Sampler#sampleAll(int, java.util.List, Long, SamplingMonitor)},
+ * which is checked after every replicate, so that the sampling can be stopped
+ * without waiting for all replicates, such as the Stop button in the studio.
+ */
+public interface SamplingMonitor {
+
+    /**
+     * @return true to stop sampling after the current replicate.
+     */
+    default boolean isStopped() {
+        return false;
+    }
+
+    /**
+     * Called after each replicate is sampled and logged.
+     * @param index          the index of the replicate, which starts from 0.
+     * @param numReplicates  the number of replicates requested.
+     */
+    default void replicateSampled(int index, int numReplicates) {
+
+    }
+}
@@ -57,6 +57,11 @@ public class LPhyCoreImpl implements LPhyExtension {
 
     @Override
     public void register() {
+        // if the index file is cached, then skip reflection
+        RegistryIndex index = RegistryIndex.of(this);
+        if (index != null && !index.isEmpty() && restore(index))
+            return;
+
         genDistDictionary = new TreeMap<>();
         functionDictionary = new TreeMap<>();
 //        dataTypeMap = new ConcurrentHashMap<>();
@@ -95,6 +100,29 @@ public class LPhyCoreImpl implements LPhyExtension {
             Collections.addAll(types, GeneratorUtils.getReturnType(functionClass));
         }
 
+        if (index != null) {
+            index.clear();
+            index.addAll(RegistryIndex.DISTRIBUTION, genDistDictionary);
+            index.addAll(RegistryIndex.FUNCTION, functionDictionary);
+            for (Class<?> type : types)
+                index.add(RegistryIndex.TYPE, "", type);
+            index.write();
+        }
+    }
+
+    // fill in the dictionaries from the index, return false if it is out of date
+    private boolean restore(RegistryIndex index) {
+        genDistDictionary = new TreeMap<>();
+        functionDictionary = new TreeMap<>();
+        types = new TreeSet<>(Comparator.comparing(Class::getName));
+
+        return index.forEach((kind, key, cls) -> {
+            switch (kind) {
+                case RegistryIndex.DISTRIBUTION -> genDistDictionary.computeIfAbsent(key, k -> new HashSet<>()).add(cls);
+                case RegistryIndex.FUNCTION -> functionDictionary.computeIfAbsent(key, k -> new HashSet<>()).add(cls);
+                case RegistryIndex.TYPE -> types.add(cls);
+            }
+        });
     }
 
     @Override
@@ -0,0 +1,201 @@
+package lphy.core.spi;
+
+import lphy.core.logger.LoggerUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The index of the classes registered by an {@link Extension}, which is cached
+ * in a file at the first run, so that the next runs read the generator names,
+ * data types and formatter mappings from the index instead of reflecting on every class.
+ * The index is only used when the system property {@link #INDEX_DIR_PROPERTY} is set,
+ * e.g. <code>-Dlphy.registry.dir=~/.lphy/registry</code>,
+ * and the extension is loaded from a jar file. The index is rebuilt,
+ * if the jar is changed (path, size or last modified time).
+ */
+public class RegistryIndex {
+
+    /**
+     * The system property of the directory to keep the index files.
+     */
+    public static final String INDEX_DIR_PROPERTY = "lphy.registry.dir";
+
+    private static final String HEADER = "# LPhy registry index ";
+
+    // the kinds of entries
+    public static final String DISTRIBUTION = "D";
+    public static final String FUNCTION = "F";
+    public static final String TYPE = "T";
+    public static final String VALUE_FORMATTER = "V";
+
+    private final Extension extension;
+    private final Path indexFile;
+    private final String fingerprint;
+    // each entry is {kind, key, class name}
+    private final List<String[]> entries = new ArrayList<>();
+
+    private RegistryIndex(Extension extension, Path indexFile, String fingerprint) {
+        this.extension = extension;
+        this.indexFile = indexFile;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @param extension  the {@link Extension} to register.
+     * @return the index of this extension, where {@link #isEmpty()} is true if it has not been cached yet,
+     *         or null if the index is disabled or not applicable to the extension.
+     */
+    public static RegistryIndex of(Extension extension) {
+        String dir = System.getProperty(INDEX_DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) return null;
+        String fingerprint = getFingerprint(extension.getClass());
+        if (fingerprint == null) return null;
+        return of(extension, Paths.get(dir), fingerprint);
+    }
+
+    static RegistryIndex of(Extension extension, Path dir, String fingerprint) {
+        Path indexFile = dir.resolve(extension.getClass().getName() + ".idx");
+        RegistryIndex index = new RegistryIndex(extension, indexFile, fingerprint);
+        index.read();
+        return index;
+    }
+
+    /**
+     * @return the jar path, size and last modified time,
+     *         or null if the class is not loaded from a jar, e.g. in the development.
+     */
+    static String getFingerprint(Class<?> cls) {
+        try {
+            CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+            if (codeSource == null) return null;
+            URL location = codeSource.getLocation();
+            if (location == null) return null;
+            Path jar = Paths.get(location.toURI());
+            if (!Files.isRegularFile(jar)) return null;
+            return jar.toAbsolutePath() + "|" + Files.size(jar) + "|" + Files.getLastModifiedTime(jar).toMillis();
+        } catch (IOException | URISyntaxException | SecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // keep the entries only if the fingerprint is same
+    private void read() {
+        if (!Files.isRegularFile(indexFile)) return;
+        try {
+            List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(HEADER + fingerprint)) return;
+            for (int i = 1; i < lines.size(); i++) {
+                String[] entry = lines.get(i).split("\t", -1);
+                if (entry.length != 3) {
+                    entries.clear();
+                    return;
+                }
+                entries.add(entry);
+            }
+        } catch (IOException e) {
+            entries.clear();
+            LoggerUtils.log.warning("Cannot read the registry index " + indexFile + " : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the entries into the index file, where the old one will be replaced.
+     */
+    public void write() {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tmp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER + fingerprint);
+                writer.newLine();
+                for (String[] entry : entries) {
+                    writer.write(String.join("\t", entry));
+                    writer.newLine();
+                }
+            }
+            // other processes read either the old or the new index
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            LoggerUtils.log.warning("Cannot write the registry index " + indexFile + " : " + e.getMessage());
+        }
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void add(String kind, String key, Class<?> cls) {
+        entries.add(new String[]{kind, key, cls.getName()});
+    }
+
+    public void addAll(String kind, Map<String, Set<Class<?>>> dictionary) {
+        for (Map.Entry<String, Set<Class<?>>> entry : dictionary.entrySet())
+            for (Class<?> cls : entry.getValue())
+                add(kind, entry.getKey(), cls);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * The visitor of entries, whose classes are loaded by the class loader of the extension.
+     */
+    public interface EntryConsumer {
+        void accept(String kind, String key, Class<?> cls) throws ClassNotFoundException;
+    }
+
+    /**
+     * Load the classes in the index.
+     * @param consumer  to receive every entry.
+     * @return false, if any class cannot be loaded, and then the index should be rebuilt.
+     */
+    public boolean forEach(EntryConsumer consumer) {
+        for (String[] entry : entries) {
+            try {
+                consumer.accept(entry[0], entry[1], loadClass(entry[2]));
+            } catch (ClassNotFoundException | LinkageError e) {
+                LoggerUtils.log.warning("The registry index " + indexFile + " is out of date : " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name  the class name, which can be a primitive type.
+     * @return the class loaded by the class loader of the extension, without initialising it.
+     * @throws ClassNotFoundException
+     */
+    public Class<?> loadClass(String name) throws ClassNotFoundException {
+        return switch (name) {
+            case "boolean" -> boolean.class;
+            case "byte" -> byte.class;
+            case "char" -> char.class;
+            case "short" -> short.class;
+            case "int" -> int.class;
+            case "long" -> long.class;
+            case "float" -> float.class;
+            case "double" -> double.class;
+            case "void" -> void.class;
+            default -> Class.forName(name, false, extension.getClass().getClassLoader());
+        };
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+}
@@ -38,6 +38,11 @@ public class ValueFormatterCoreImpl implements ValueFormatterExtension {
 
     @Override
     public void register() {
+        // if the index file is cached, then skip reflection
+        RegistryIndex index = RegistryIndex.of(this);
+        if (index != null && !index.isEmpty() && restore(index))
+            return;
+
         valueFormatterClasses = new HashMap<>();
 
         // ValueFormatter
@@ -76,6 +81,24 @@ public class ValueFormatterCoreImpl implements ValueFormatterExtension {
 //                List<Class<? extends SimulatorListener>> listeners = valueFormatterSPI.getSimulatorListenerClasses();
 //                LoaderManager.registerClasses(listeners, simulatorListeners);
 
+        // cannot index the formatter without its data type
+        if (index != null && !valueFormatterClasses.containsKey(null)) {
+            index.clear();
+            for (Map.Entry<Class<?>, Set<Class<? extends ValueFormatter>>> entry : valueFormatterClasses.entrySet())
+                for (Class<? extends ValueFormatter> vFCls : entry.getValue())
+                    index.add(RegistryIndex.VALUE_FORMATTER, entry.getKey().getName(), vFCls);
+            index.write();
+        }
+    }
+
+    // fill in the formatter map from the index, return false if it is out of date
+    private boolean restore(RegistryIndex index) {
+        valueFormatterClasses = new HashMap<>();
+        return index.forEach((kind, key, cls) -> {
+            if (RegistryIndex.VALUE_FORMATTER.equals(kind) && ValueFormatter.class.isAssignableFrom(cls))
+                valueFormatterClasses.computeIfAbsent(index.loadClass(key), k -> new HashSet<>())
+                        .add((Class<? extends ValueFormatter>) cls);
+        });
     }
 
     public Map<Class<?>, Set<Class<? extends ValueFormatter>>> getValueFormatters() {
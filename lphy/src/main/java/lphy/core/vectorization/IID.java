@@ -202,7 +202,11 @@ public class IID<T> implements GenerativeDistribution<T[]> {
     public RandomVariable<T[]> sample() {
 
         int size = size();
-        List<RandomVariable> componentVariables = new ArrayList<>();
+        // fill in a primitive array, if the base distribution supports batch sampling
+        VectorizedRandomVariable<T> batch = VectorUtils.batchSample(this, size, i -> baseDistribution, true);
+        if (batch != null) return batch;
+
+        List<RandomVariable> componentVariables = new ArrayList<>(size);
 
         for (int i = 0; i < size; i++) {
             componentVariables.add(baseDistribution.sample());
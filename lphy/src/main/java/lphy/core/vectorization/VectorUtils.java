@@ -1,6 +1,10 @@
 package lphy.core.vectorization;
 
+import lphy.core.model.BatchSampler;
+import lphy.core.model.DoubleBatchSampler;
+import lphy.core.model.GenerativeDistribution;
 import lphy.core.model.Generator;
+import lphy.core.model.IntegerBatchSampler;
 import lphy.core.model.Value;
 import lphy.core.model.datatype.Vector;
 import lphy.core.model.datatype.VectorValue;
@@ -10,11 +14,58 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.function.IntFunction;
 
 public class VectorUtils {
 
     public static final String INDEX_SEPARATOR = "_";
 
+    /**
+     * Sample the vector in bulk into a primitive array, if the component distributions
+     * implement {@link DoubleBatchSampler} or {@link IntegerBatchSampler},
+     * or into an array of objects, if the identical components implement {@link BatchSampler}.
+     * The primitive samples are boxed once into the Double[] or Integer[] of the returned value,
+     * because that is the type of the vector in the LPhy language. The saving is from not creating
+     * a generator call and a {@link lphy.core.model.RandomVariable} per component.
+     * @param vectorDistribution  the vectorised distribution, such as {@link IID}.
+     * @param size                the size of vector.
+     * @param components          the distribution of the i-th component.
+     * @param identical           true if all components are the same distribution,
+     *                            then sample all of them in one call.
+     * @return  the array-backed {@link VectorizedRandomVariable}, or null if batch sampling is not supported.
+     */
+    public static <T> VectorizedRandomVariable<T> batchSample(GenerativeDistribution<T[]> vectorDistribution, int size,
+                                                              IntFunction<GenerativeDistribution<T>> components,
+                                                              boolean identical) {
+        if (size < 1) return null;
+        GenerativeDistribution<T> first = components.apply(0);
+        if (first instanceof DoubleBatchSampler) {
+            double[] values = new double[size];
+            if (identical) ((DoubleBatchSampler) first).sampleDoubles(values, 0, size);
+            else {
+                for (int i = 0; i < size; i++)
+                    ((DoubleBatchSampler) components.apply(i)).sampleDoubles(values, i, i + 1);
+            }
+            Double[] arr = new Double[size];
+            for (int i = 0; i < size; i++) arr[i] = values[i];
+            return new VectorizedRandomVariable<>(null, (T[]) arr, vectorDistribution, components);
+        } else if (first instanceof IntegerBatchSampler) {
+            int[] values = new int[size];
+            if (identical) ((IntegerBatchSampler) first).sampleIntegers(values, 0, size);
+            else {
+                for (int i = 0; i < size; i++)
+                    ((IntegerBatchSampler) components.apply(i)).sampleIntegers(values, i, i + 1);
+            }
+            Integer[] arr = new Integer[size];
+            for (int i = 0; i < size; i++) arr[i] = values[i];
+            return new VectorizedRandomVariable<>(null, (T[]) arr, vectorDistribution, components);
+        } else if (identical && first instanceof BatchSampler) {
+            T[] arr = ((BatchSampler<T>) first).sampleArray(size);
+            return new VectorizedRandomVariable<>(null, arr, vectorDistribution, components);
+        }
+        return null;
+    }
+
     public static boolean isVectorizedParameter(String argumentName, Value value, Map<String, Class> baseTypes) {
         return (isArrayOfType(value, baseTypes.get(argumentName)));
     }
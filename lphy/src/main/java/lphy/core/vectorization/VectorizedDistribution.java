@@ -161,7 +161,11 @@ public class VectorizedDistribution<T> implements GenerativeDistribution<T[]> {
     public RandomVariable<T[]> sample() {
 
         int vectorSize = VectorUtils.getVectorSize(params, baseTypes);
-        List<RandomVariable> componentVariables = new ArrayList<>();
+        // fill in a primitive array, if the component distributions support batch sampling
+        VectorizedRandomVariable<T> batch = VectorUtils.batchSample(this, vectorSize, this::getBaseDistribution, false);
+        if (batch != null) return batch;
+
+        List<RandomVariable> componentVariables = new ArrayList<>(vectorSize);
 
         for (int i = 0; i < vectorSize; i++) {
             componentVariables.add(getBaseDistribution(i).sample());
@@ -4,12 +4,16 @@ import lphy.core.model.GenerativeDistribution;
 import lphy.core.model.RandomVariable;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntFunction;
 
 public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements CompoundVector<T> {
 
-    List<RandomVariable<T>> componentVariables = new ArrayList<>();
+    // the component views, which may be created lazily
+    RandomVariable<T>[] componentVariables;
+
+    // the generator of the i-th component, if the component views are created lazily
+    IntFunction<GenerativeDistribution<T>> componentGenerators = null;
 
 //    public VectorizedRandomVariable(String id, T[] value, GenerativeDistribution<T[]> generativeDistribution, List<GenerativeDistribution<T>> componentGenerators) {
 //        super(id, value, generativeDistribution);
@@ -23,11 +27,28 @@ public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements
     public VectorizedRandomVariable(String id, List<RandomVariable> componentVariables, GenerativeDistribution<T[]> generativeDistribution) {
         super(id, (T[])unwrapValues(componentVariables), generativeDistribution);
 
+        this.componentVariables = new RandomVariable[value().length];
         for (int i = 0; i < value().length; i++) {
-            this.componentVariables.add(componentVariables.get(i));
+            this.componentVariables[i] = componentVariables.get(i);
         }
     }
 
+    /**
+     * The array-backed vector, whose component {@link RandomVariable} is only created
+     * when {@link #getComponentValue(int)} is called, e.g. by the narrative.
+     * @param id                      the id
+     * @param value                   the array of component values
+     * @param generativeDistribution  the vectorised distribution
+     * @param componentGenerators     the generator of the i-th component
+     */
+    public VectorizedRandomVariable(String id, T[] value, GenerativeDistribution<T[]> generativeDistribution,
+                                    IntFunction<GenerativeDistribution<T>> componentGenerators) {
+        super(id, value, generativeDistribution);
+
+        this.componentVariables = new RandomVariable[value.length];
+        this.componentGenerators = componentGenerators;
+    }
+
     private static Object[] unwrapValues(List<RandomVariable> values) {
         Object[] result;
         if (values.size() == 0)
@@ -43,8 +64,9 @@ public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements
 
     public void setId(String id) {
         super.setId(id);
-        for (int i = 0; i < componentVariables.size(); i++) {
-            componentVariables.get(i).setId(id + VectorUtils.INDEX_SEPARATOR + i);
+        for (int i = 0; i < componentVariables.length; i++) {
+            if (componentVariables[i] != null)
+                componentVariables[i].setId(id + VectorUtils.INDEX_SEPARATOR + i);
         }
     }
 
@@ -67,6 +89,12 @@ public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements
     public RandomVariable<T> getComponentValue(int i) {
 //        if (componentVariables.size() == 0)
 //            return null;// new RandomVariable
-        return componentVariables.get(i);
+        RandomVariable<T> componentVariable = componentVariables[i];
+        if (componentVariable == null) {
+            String componentId = getId() == null ? null : getId() + VectorUtils.INDEX_SEPARATOR + i;
+            componentVariable = new RandomVariable<>(componentId, value()[i], componentGenerators.apply(i));
+            componentVariables[i] = componentVariable;
+        }
+        return componentVariable;
     }
 }
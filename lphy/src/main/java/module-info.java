@@ -15,6 +15,10 @@ module lphy.core {
 
     requires transitive info.picocli;
 
+    // profiling
+    requires jdk.jfr;
+    requires jdk.management;
+
     // graphical model
     exports lphy.core.model;
     exports lphy.core.model.annotation;
@@ -0,0 +1,94 @@
+package lphy.core.logger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingSummaryTest {
+
+    @Test
+    public void testMoments() {
+        double[] x = new double[]{2, 4, 4, 4, 5, 5, 7, 9};
+        StreamingSummary summary = new StreamingSummary();
+        for (double v : x) summary.add(v);
+
+        assertEquals(8, summary.getN());
+        assertEquals(5.0, summary.getMean(), 1e-12);
+        assertEquals(4.0, summary.getPopulationVariance(), 1e-12);
+        assertEquals(32.0 / 7.0, summary.getVariance(), 1e-12);
+        assertEquals(Math.sqrt(32.0 / 7.0) / Math.sqrt(8), summary.getStandardError(), 1e-12);
+        assertEquals(2.0, summary.getMin());
+        assertEquals(9.0, summary.getMax());
+        // exact while distinct values <= bins
+        assertEquals(4.5, summary.getQuantile(0.5), 1e-12);
+        assertEquals(2.0, summary.getQuantile(0), 1e-12);
+        assertEquals(9.0, summary.getQuantile(1), 1e-12);
+    }
+
+    @Test
+    public void testIgnoreNaN() {
+        StreamingSummary summary = new StreamingSummary();
+        summary.add(1);
+        summary.add(Double.NaN);
+        summary.add(3);
+        assertEquals(2, summary.getN());
+        assertEquals(2, summary.getMean(), 1e-12);
+        assertEquals(2, summary.getVariance(), 1e-12);
+        assertEquals(1, summary.getMin());
+        assertEquals(3, summary.getMax());
+        assertEquals(2, summary.getQuantile(0.5), 1e-12);
+    }
+
+    @Test
+    public void testMerge() {
+        Random random = new Random(777);
+        StreamingSummary all = new StreamingSummary();
+        StreamingSummary part1 = new StreamingSummary();
+        StreamingSummary part2 = new StreamingSummary();
+        for (int i = 0; i < 5000; i++) {
+            double v = random.nextGaussian() * 3 + 10;
+            all.add(v);
+            if (i % 3 == 0) part1.add(v);
+            else part2.add(v);
+        }
+        part1.merge(part2);
+
+        assertEquals(all.getN(), part1.getN());
+        assertEquals(all.getMean(), part1.getMean(), 1e-9);
+        assertEquals(all.getVariance(), part1.getVariance(), 1e-9);
+        assertEquals(all.getMin(), part1.getMin());
+        assertEquals(all.getMax(), part1.getMax());
+        assertEquals(all.getQuantile(0.5), part1.getQuantile(0.5), 0.1);
+    }
+
+    @Test
+    public void testQuantileAndHPD() {
+        Random random = new Random(777);
+        final int n = 20000;
+        double[] x = new double[n];
+        StreamingSummary summary = new StreamingSummary();
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian();
+            summary.add(x[i]);
+        }
+        Arrays.sort(x);
+        for (double p : new double[]{0.025, 0.25, 0.5, 0.75, 0.975})
+            assertEquals(x[(int) (p * (n - 1))], summary.getQuantile(p), 0.05, "quantile " + p);
+
+        // symmetric, so HPD is close to the equal-tailed interval
+        double[] hpd = summary.getHPD(0.95);
+        assertEquals(-1.96, hpd[0], 0.1);
+        assertEquals(1.96, hpd[1], 0.1);
+
+        // skewed, so HPD starts from near 0
+        StreamingSummary exp = new StreamingSummary();
+        for (int i = 0; i < n; i++)
+            exp.add(-Math.log(random.nextDouble()));
+        hpd = exp.getHPD(0.95);
+        assertEquals(0, hpd[0], 0.05);
+        assertEquals(-Math.log(0.05), hpd[1], 0.15);
+    }
+}
@@ -0,0 +1,58 @@
+package lphy.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test if the cached dispatch behaves the same as {@link Method#invoke(Object, Object...)}.
+ */
+public class MethodDispatcherTest {
+
+    public static class Target {
+        public double total = 0;
+
+        public void setTotal(double total) {
+            this.total = total;
+        }
+
+        public String repeat(String s, int times) {
+            return s.repeat(times);
+        }
+
+        public Integer fail() {
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        Target target = new Target();
+        Method repeat = MethodDispatcher.getMethod(Target.class, "repeat", String.class, int.class);
+        assertEquals(Target.class.getMethod("repeat", String.class, int.class), repeat);
+        assertEquals("abab", MethodDispatcher.invoke(repeat, target, "ab", 2));
+
+        // widening from Integer to double, and void returns null
+        Method setter = MethodDispatcher.getMethods(Target.class, "setTotal").get(0);
+        assertNull(MethodDispatcher.invoke(setter, target, 3));
+        assertEquals(3.0, target.total);
+
+        assertNull(MethodDispatcher.getMethod(Target.class, "setTotal", String.class));
+    }
+
+    @Test
+    public void testExceptions() {
+        Target target = new Target();
+        Method setter = MethodDispatcher.getMethods(Target.class, "setTotal").get(0);
+        assertThrows(IllegalArgumentException.class, () -> MethodDispatcher.invoke(setter, target, "1"));
+        assertThrows(IllegalArgumentException.class, () -> MethodDispatcher.invoke(setter, target, (Object) null));
+
+        Method fail = MethodDispatcher.getMethod(Target.class, "fail");
+        InvocationTargetException e = assertThrows(InvocationTargetException.class,
+                () -> MethodDispatcher.invoke(fail, target));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+}
@@ -0,0 +1,73 @@
+package lphy.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the map view of {@link ParameterSlots} behaves as the TreeMap created by getParams() before.
+ */
+public class ParameterSlotsTest {
+
+    public static class Sum extends DeterministicFunction<Integer> {
+        Value<Integer> x;
+        Value<Integer> offset; // optional
+
+        static final ParameterSlots<Sum> SLOTS = ParameterSlots.builder(Sum.class)
+                .add("x", s -> s.x, (s, v) -> s.x = v)
+                .add("offset", s -> s.offset, (s, v) -> s.offset = v).build();
+        private final Map<String, Value> params = SLOTS.view(this);
+
+        public Sum(Value<Integer> x, Value<Integer> offset) {
+            this.x = x;
+            this.offset = offset;
+        }
+
+        @Override
+        public Map<String, Value> getParams() {
+            return params;
+        }
+
+        @Override
+        public void setParam(String paramName, Value value) {
+            SLOTS.set(this, SLOTS.slotOf(paramName), value);
+        }
+
+        @Override
+        public Value<Integer> apply() {
+            int o = offset == null ? 0 : offset.value();
+            return new Value<>(null, x.value() + o, this);
+        }
+    }
+
+    @Test
+    public void testView() {
+        Value<Integer> x = new Value<>("x", 1);
+        Sum sum = new Sum(x, null);
+        Map<String, Value> params = sum.getParams();
+        assertSame(params, sum.getParams());
+
+        // the optional parameter is skipped
+        assertEquals(Map.of("x", x), params);
+        assertEquals(1, params.size());
+        assertFalse(params.containsKey("offset"));
+
+        // sorted as TreeMap
+        assertEquals("offset", Sum.SLOTS.getName(0));
+        assertEquals(1, Sum.SLOTS.indexOf("x"));
+        assertEquals(-1, Sum.SLOTS.indexOf("y"));
+
+        Value<Integer> offset = new Value<>("offset", 10);
+        sum.setInput(Sum.SLOTS.indexOf("offset"), offset);
+        assertEquals(List.of("offset", "x"), List.copyOf(params.keySet()));
+        assertSame(offset, params.get("offset"));
+        assertTrue(offset.getOutputs().contains(sum));
+        assertEquals(11, sum.apply().value());
+
+        assertThrows(UnsupportedOperationException.class, () -> params.put("x", offset));
+        assertThrows(RuntimeException.class, () -> sum.setParam("y", offset));
+    }
+}
@@ -0,0 +1,100 @@
+package lphy.core.parser.function;
+
+import lphy.core.model.Value;
+import lphy.core.model.datatype.BooleanArrayValue;
+import lphy.core.model.datatype.DoubleArrayValue;
+import lphy.core.model.datatype.DoubleValue;
+import lphy.core.model.datatype.IntegerArrayValue;
+import lphy.core.parser.ParserSingleton;
+import lphy.core.parser.ParserTest;
+import lphy.core.parser.REPL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the primitive kernels give the same results as the boxed element-wise operators.
+ */
+class FusedExpressionTest {
+
+    @BeforeEach
+    void setUp() {
+        ParserSingleton.clear();
+    }
+
+    @Test
+    void testFusedChain() {
+        // REPL wraps the chain of expressions as Sampler does
+        REPL repl = new REPL();
+        repl.parse("model { a=[1.0,2.0,3.0]; b=[2,2,2]; c=0.5; y = exp(a * b + c); }");
+        Value y = repl.getModelDictionary().get("y");
+        Double[] expected = new Double[]{Math.exp(2.5), Math.exp(4.5), Math.exp(6.5)};
+        assertArrayEquals(expected, (Double[]) y.value());
+
+        // the chain is wrapped into one function, which evaluates the anonymous a * b + c in the same loop
+        ExpressionNodeWrapper wrapper = assertInstanceOf(ExpressionNodeWrapper.class, y.getGenerator());
+        assertNotNull(FusedExpression.apply(wrapper.nodeToWrap, true));
+        Value newY = wrapper.generate();
+        assertInstanceOf(DoubleArrayValue.class, newY);
+        assertArrayEquals(expected, (Double[]) newY.value());
+        assertSame(wrapper, newY.getGenerator());
+    }
+
+    @Test
+    void testIntegers() {
+        Object res = ParserTest.parse("i=[1,2,3]; j = i * 3 / 2;");
+        Object value = ((Value) res).value();
+        assertInstanceOf(Integer[].class, value);
+        assertArrayEquals(new Integer[]{1, 3, 4}, (Integer[]) value);
+
+        // integer vector with double scalar
+        res = ParserTest.parse("k = [1,2,3] * 1.5;");
+        assertArrayEquals(new Double[]{1.5, 3.0, 4.5}, (Double[]) ((Value) res).value());
+    }
+
+    @Test
+    void testBooleans() {
+        Object res = ParserTest.parse("x=[1.0,2.0,3.0]; z = (x > 1.5) && [true,true,false];");
+        Object value = ((Value) res).value();
+        assertInstanceOf(Boolean[].class, value);
+        assertArrayEquals(new Boolean[]{false, true, false}, (Boolean[]) value);
+    }
+
+    @Test
+    void testBlocks() {
+        final int n = FusedExpression.BLOCK_SIZE * 2 + 7;
+        Double[] a = new Double[n];
+        Double[] b = new Double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i * 0.5;
+            b[i] = n - i + 0.25;
+        }
+        ExpressionNode2Args<Double[]> node = new ExpressionNode2Args<>("a-b", ExpressionNode2Args.minus(),
+                new DoubleArrayValue("a", a), new DoubleArrayValue("b", b));
+        Value<Double[]> value = node.apply();
+        // same as the boxed element-wise operator
+        ElementWise2Args elementWise = ElementWise2Args.elementWiseO1O1();
+        Value expected = elementWise.apply(new DoubleArrayValue("a", a),
+                new DoubleArrayValue("b", b), ExpressionNode2Args.minus());
+        assertArrayEquals((Double[]) expected.value(), value.value());
+        assertSame(node, value.getGenerator());
+    }
+
+    @Test
+    void testFallback() {
+        // scalars use the boxed operators
+        ExpressionNode2Args<Double> node = new ExpressionNode2Args<>("1.0+2.0", ExpressionNode2Args.plus(),
+                new DoubleValue(null, 1.0), new DoubleValue(null, 2.0));
+        assertNull(FusedExpression.apply(node, false));
+        assertEquals(3.0, node.apply().value());
+
+        ExpressionNode2Args<Double[]> mismatch = new ExpressionNode2Args<>("a+b", ExpressionNode2Args.plus(),
+                new DoubleArrayValue("a", new Double[]{1.0, 2.0}), new IntegerArrayValue("b", new Integer[]{1}));
+        assertThrows(IllegalArgumentException.class, mismatch::apply);
+
+        ExpressionNode2Args<Boolean[]> equals = new ExpressionNode2Args<>("a==b", ExpressionNode2Args.equals(),
+                new BooleanArrayValue("a", new Boolean[]{true}), new BooleanArrayValue("b", new Boolean[]{true}));
+        assertNull(FusedExpression.apply(equals, false));
+    }
+}
@@ -0,0 +1,48 @@
+package lphy.core.spi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test if the dictionaries restored from the cached index
+ * are same as the ones created by reflection.
+ */
+public class RegistryIndexTest {
+
+    @Test
+    public void testWriteAndRestore(@TempDir Path dir) {
+        LPhyCoreImpl coreImpl = new LPhyCoreImpl();
+        coreImpl.register();
+
+        RegistryIndex index = RegistryIndex.of(coreImpl, dir, "test");
+        assertTrue(index.isEmpty());
+        index.addAll(RegistryIndex.DISTRIBUTION, coreImpl.getDistributions());
+        index.addAll(RegistryIndex.FUNCTION, coreImpl.getFunctions());
+        for (Class<?> type : coreImpl.getTypes())
+            index.add(RegistryIndex.TYPE, "", type);
+        index.write();
+        assertTrue(Files.exists(index.getIndexFile()));
+
+        RegistryIndex cached = RegistryIndex.of(coreImpl, dir, "test");
+        assertFalse(cached.isEmpty());
+        Map<String, Set<Class<?>>> functions = new TreeMap<>();
+        Set<Class<?>> types = new HashSet<>();
+        assertTrue(cached.forEach((kind, key, cls) -> {
+            if (kind.equals(RegistryIndex.FUNCTION))
+                functions.computeIfAbsent(key, k -> new HashSet<>()).add(cls);
+            else if (kind.equals(RegistryIndex.TYPE))
+                types.add(cls);
+        }));
+        assertEquals(coreImpl.getFunctions(), functions);
+        assertEquals(new HashSet<>(coreImpl.getTypes()), types);
+
+        // the jar is changed
+        assertTrue(RegistryIndex.of(coreImpl, dir, "changed").isEmpty());
+    }
+}